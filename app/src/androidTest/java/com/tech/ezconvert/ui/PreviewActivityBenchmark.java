@@ -0,0 +1,55 @@
+package com.tech.ezconvert.ui;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * PreviewActivity 解析 FFprobe JSON 的耗时与内存分配
+ */
+@RunWith(AndroidJUnit4.class)
+public class PreviewActivityBenchmark {
+
+    private static final String FILE_PATH = "/storage/emulated/0/Movies/input video.mp4";
+    private static final String PROBE_JSON = "{"
+            + "\"streams\":["
+            + "{\"index\":0,\"codec_name\":\"h264\",\"profile\":\"High\",\"codec_type\":\"video\","
+            + "\"width\":1920,\"height\":1080,\"pix_fmt\":\"yuv420p\",\"r_frame_rate\":\"30/1\","
+            + "\"avg_frame_rate\":\"30000/1001\",\"time_base\":\"1/30000\",\"duration\":\"600.000000\","
+            + "\"bit_rate\":\"8000000\",\"nb_frames\":\"17982\"},"
+            + "{\"index\":1,\"codec_name\":\"aac\",\"profile\":\"LC\",\"codec_type\":\"audio\","
+            + "\"sample_rate\":\"48000\",\"channels\":2,\"channel_layout\":\"stereo\","
+            + "\"duration\":\"600.000000\",\"bit_rate\":\"192000\"}"
+            + "],"
+            + "\"format\":{\"filename\":\"input video.mp4\",\"nb_streams\":2,"
+            + "\"format_name\":\"mov,mp4,m4a,3gp,3g2,mj2\",\"duration\":\"600.000000\","
+            + "\"size\":\"614400000\",\"bit_rate\":\"8192000\","
+            + "\"tags\":{\"major_brand\":\"isom\",\"encoder\":\"Lavf60.3.100\"}}"
+            + "}";
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    }
+
+    @Test
+    public void parseStaticMediaInfo() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            PreviewActivity.parseStaticMediaInfo(context, PROBE_JSON, FILE_PATH);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.tech.ezconvert.utils;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * FfmpegCommandBuilder.buildCommand 各任务类型的耗时与内存分配
+ */
+@RunWith(AndroidJUnit4.class)
+public class FfmpegCommandBuilderBenchmark {
+
+    private static final String INPUT = "/storage/emulated/0/Movies/input video.mp4";
+    private static final String OUTPUT = "/storage/emulated/0/EzConvert/output.mp4";
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private Context context;
+    private MediaProbeCache.ProbeResult probe;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        probe = new MediaProbeCache.ProbeResult();
+        probe.durationMs = 600_000;
+        probe.videoCodec = "h264";
+        probe.audioCodec = "aac";
+        probe.width = 1920;
+        probe.height = 1080;
+        probe.videoStreamCount = 1;
+        probe.audioStreamCount = 1;
+        // 预先加载配置，避免首次读取计入结果
+        ConfigManager.getInstance(context).isHardwareAccelerationEnabled();
+    }
+
+    private void measure(ParameterData params) {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            FfmpegCommandBuilder.buildCommand(INPUT, OUTPUT, params, context, probe);
+        }
+    }
+
+    private static ParameterData params(String taskType) {
+        ParameterData params = new ParameterData();
+        params.taskType = taskType;
+        return params;
+    }
+
+    @Test
+    public void convert() {
+        measure(params("convert"));
+    }
+
+    @Test
+    public void convertReencodeWithCustomBitrate() {
+        ParameterData params = params("convert");
+        params.videoCodec = "libx265";
+        params.videoBitrateMode = "custom";
+        params.videoBitrateValue = 4;
+        params.volume = 150;
+        measure(params);
+    }
+
+    @Test
+    public void compress() {
+        measure(params("compress"));
+    }
+
+    @Test
+    public void cutVideo() {
+        measure(params("cut_video"));
+    }
+
+    @Test
+    public void screenshot() {
+        measure(params("screenshot"));
+    }
+
+    @Test
+    public void extractAudio() {
+        ParameterData params = params("extract_audio");
+        params.outputFormat = "mp3";
+        measure(params);
+    }
+
+    @Test
+    public void convertAudio() {
+        ParameterData params = params("convert_audio");
+        params.outputFormat = "flac";
+        measure(params);
+    }
+}
@@ -0,0 +1,122 @@
+package com.tech.ezconvert.utils;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.arthenica.ffmpegkit.Level;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * 日志热路径的耗时与内存分配：写入应用日志和 FFmpeg 日志、获取调用位置、格式化日志行
+ * 使用 ERROR 级别保证不会被级别过滤；被过滤的情况单独测量，测量期间关闭详细日志，结束后恢复设置。
+ * 文本日志和 mmap 日志都写入临时目录，不影响真实日志。
+ */
+@RunWith(AndroidJUnit4.class)
+public class LogBenchmark {
+
+    private static final String TAG = "LogBenchmark";
+    private static final String MESSAGE = "转换完成: input video.mp4 -> output.mp4, 耗时 12345ms";
+    private static final String FFMPEG_LINE =
+            "frame= 1200 fps= 60 q=28.0 size=   10240kB time=00:00:40.00 bitrate=2097.2kbits/s speed=2.00x";
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private Context context;
+    private LogManager logManager;
+    private File tempLogDir;
+    private File originalLogDir;
+    private String originalNativeLogDir;
+
+    @Before
+    public void setUp() throws IOException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        logManager = LogManager.getInstance(context);
+        // 非详细模式下 VERBOSE 被过滤，ERROR 仍会记录
+        logManager.updateLogLevel(false);
+        tempLogDir = Files.createTempDirectory(context.getCacheDir().toPath(), "log_benchmark").toFile();
+        originalLogDir = logManager.setLogDirectory(tempLogDir);
+        originalNativeLogDir = NativeLogWriter.setLogDirectory(tempLogDir.getAbsolutePath());
+    }
+
+    @After
+    public void tearDown() {
+        logManager.flush();
+        if (originalLogDir != null) {
+            logManager.setLogDirectory(originalLogDir);
+        }
+        if (originalNativeLogDir != null) {
+            NativeLogWriter.setLogDirectory(originalNativeLogDir);
+        }
+        logManager.updateLogLevel(ConfigManager.getInstance(context).isVerboseLoggingEnabled());
+        File[] files = tempLogDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempLogDir.delete();
+    }
+
+    @Test
+    public void addAppLog() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            logManager.addAppLog(Log.ERROR, TAG, MESSAGE, null);
+        }
+    }
+
+    @Test
+    public void addAppLogFiltered() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            logManager.addAppLog(Log.VERBOSE, TAG, MESSAGE, null);
+        }
+    }
+
+    @Test
+    public void appendFfmpegLog() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            logManager.appendFfmpegLog(FFMPEG_LINE, Level.AV_LOG_ERROR);
+        }
+    }
+
+    @Test
+    public void callerLocation() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            CallerInfo.capture().getLocation();
+        }
+    }
+
+    @Test
+    public void callerStack() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            CallerInfo.capture().getStack(CallerInfo.DEFAULT_STACK_DEPTH);
+        }
+    }
+
+    // 格式化结果会被缓存，每次迭代新建日志条目，结果包含构造的开销
+    @Test
+    public void createAndFormatLogEntry() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            new LogManager.LogEntry(Log.INFO, TAG, MESSAGE, null).getFormattedMessage();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.tech.ezconvert.worker;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * FfmpegWorker 命令字符串拼接的耗时与内存分配
+ */
+@RunWith(AndroidJUnit4.class)
+public class FfmpegWorkerBenchmark {
+
+    private static final String[] COMMAND = {
+            "-i", "/storage/emulated/0/Movies/input video.mp4",
+            "-threads", "0",
+            "-c:v", "libx264", "-preset", "fast", "-crf", "23",
+            "-b:v", "4M", "-maxrate", "4M", "-bufsize", "8M",
+            "-c:a", "aac", "-b:a", "192k", "-ar", "48000",
+            "-af", "volume=1.5",
+            "-movflags", "+faststart",
+            "-map_metadata", "0",
+            "-y", "/storage/emulated/0/EzConvert/output_converted_20261018_100000.mp4"
+    };
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void buildCommandString() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            FfmpegWorker.buildCommandString(COMMAND);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.tech.ezconvert.worker;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Process;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.work.Data;
+import androidx.work.ListenableWorker;
+import androidx.work.testing.TestListenableWorkerBuilder;
+
+import com.arthenica.ffmpegkit.FFmpegKit;
+import com.arthenica.ffmpegkit.FFmpegKitConfig;
+import com.arthenica.ffmpegkit.FFmpegSession;
+import com.arthenica.ffmpegkit.ReturnCode;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.tech.ezconvert.BuildConfig;
+import com.tech.ezconvert.utils.ConfigManager;
+import com.tech.ezconvert.utils.FfmpegCommandBuilder;
+import com.tech.ezconvert.utils.JobHistoryDatabase;
+import com.tech.ezconvert.utils.ParameterData;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 端到端转码吞吐量测试
+ * 用 FFmpeg lavfi 生成合成素材（testsrc 画面 + sine 音频），把每种任务类型交给 FfmpegWorker 执行，
+ * 记录耗时、倍速、CPU 时间和输出大小，结束后写出 JSON 报告。
+ *
+ * 运行：./gradlew :app:connectedBenchmarkAndroidTest -PtestBuildType=benchmark
+ *       -Pandroid.testInstrumentationRunnerArguments.class=com.tech.ezconvert.worker.TranscodeThroughputBenchmark
+ * 可选参数（同样以 -Pandroid.testInstrumentationRunnerArguments. 传入）：
+ *   ezconvert.throughput.resolutions  分辨率列表，默认 640x360,1280x720,1920x1080
+ *   ezconvert.throughput.durations    素材时长（秒）列表，默认 10
+ * 报告写入 additionalTestOutputDir（随测试结果拉取到 app/build/outputs/connected_android_test_additional_output/），
+ * 同时保存在应用外部存储的 files/benchmark 目录。
+ */
+@RunWith(AndroidJUnit4.class)
+public class TranscodeThroughputBenchmark {
+
+    private static final String ARG_RESOLUTIONS = "ezconvert.throughput.resolutions";
+    private static final String ARG_DURATIONS = "ezconvert.throughput.durations";
+    private static final String DEFAULT_RESOLUTIONS = "640x360,1280x720,1920x1080";
+    private static final String DEFAULT_DURATIONS = "10";
+    private static final long WORK_TIMEOUT_MINUTES = 15;
+
+    private static Context context;
+    private static File inputDir;
+    private static File outputDir;
+    private static String[] resolutions;
+    private static int[] durations;
+    private static final List<RunResult> results = new ArrayList<>();
+    private static final Gson gson = new Gson();
+
+    /**
+     * 单次运行的结果，字段名即 JSON 报告中的键
+     */
+    static class RunResult {
+        String task;
+        String resolution;       // 音频任务为 null
+        int durationSec;
+        boolean success;
+        String errorMessage;
+        long wallTimeMs;
+        long cpuTimeMs;          // 进程 CPU 时间（FFmpeg 在进程内运行）
+        long mediaTimeMs;        // 实际处理的媒体时长：裁剪任务为裁剪长度，其余取任务历史，单帧截图为 0
+        Double realtimeFactor;   // 实际处理的媒体时长 / 耗时，单帧截图没有意义，报告中省略
+        double cpuUtilization;   // CPU 时间 / 耗时，多核并行时大于 1
+        long inputBytes;
+        long outputBytes;
+        String videoCodec;       // 实际使用的编码器，来自任务历史
+        String audioCodec;
+        double averageFps;
+        long stagingTimeMs;
+        long probeTimeMs;
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        Bundle args = InstrumentationRegistry.getArguments();
+        resolutions = args.getString(ARG_RESOLUTIONS, DEFAULT_RESOLUTIONS).split(",");
+        String[] durationArgs = args.getString(ARG_DURATIONS, DEFAULT_DURATIONS).split(",");
+        durations = new int[durationArgs.length];
+        for (int i = 0; i < durationArgs.length; i++) {
+            durations[i] = Integer.parseInt(durationArgs[i].trim());
+        }
+
+        inputDir = new File(context.getCacheDir(), "throughput_inputs");
+        outputDir = new File(context.getCacheDir(), "throughput_outputs");
+        inputDir.mkdirs();
+        outputDir.mkdirs();
+        results.clear();
+    }
+
+    @AfterClass
+    public static void writeReport() throws IOException {
+        Report report = new Report();
+        report.timestamp = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.US).format(new Date());
+        report.device = Build.MANUFACTURER + " " + Build.MODEL;
+        report.sdkInt = Build.VERSION.SDK_INT;
+        report.abi = Build.SUPPORTED_ABIS.length > 0 ? Build.SUPPORTED_ABIS[0] : "";
+        report.appVersion = BuildConfig.VERSION_NAME;
+        report.ffmpegVersion = FFmpegKitConfig.getFFmpegVersion();
+        report.hardwareAcceleration = ConfigManager.getInstance(context).isHardwareAccelerationEnabled();
+        report.multithreading = ConfigManager.getInstance(context).isMultithreadingEnabled();
+        report.results = results;
+
+        String json = new GsonBuilder().setPrettyPrinting().create().toJson(report);
+        String name = "throughput_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date()) + ".json";
+
+        String additionalDir = InstrumentationRegistry.getArguments().getString("additionalTestOutputDir");
+        if (additionalDir != null) {
+            writeFile(new File(additionalDir, name), json);
+        }
+        File externalDir = context.getExternalFilesDir("benchmark");
+        if (externalDir != null) {
+            writeFile(new File(externalDir, name), json);
+        }
+        android.util.Log.i("TranscodeThroughput", json);
+    }
+
+    static class Report {
+        String timestamp;
+        String device;
+        int sdkInt;
+        String abi;
+        String appVersion;
+        String ffmpegVersion;
+        boolean hardwareAcceleration;
+        boolean multithreading;
+        List<RunResult> results;
+    }
+
+    @Test
+    public void convert() throws Exception {
+        runVideoTask("convert", params -> params.outputFormat = "mp4");
+    }
+
+    @Test
+    public void compress() throws Exception {
+        runVideoTask("compress", params -> { });
+    }
+
+    @Test
+    public void cutVideo() throws Exception {
+        runVideoTask("cut_video", null);
+    }
+
+    @Test
+    public void screenshot() throws Exception {
+        runVideoTask("screenshot", null);
+    }
+
+    @Test
+    public void extractAudio() throws Exception {
+        runVideoTask("extract_audio", params -> params.outputFormat = "mp3");
+    }
+
+    @Test
+    public void convertAudio() throws Exception {
+        runAudioTask("convert_audio", params -> params.outputFormat = "mp3");
+    }
+
+    @Test
+    public void cutAudio() throws Exception {
+        runAudioTask("cut_audio", params -> params.outputFormat = "mp3");
+    }
+
+    private interface ParamsCustomizer {
+        void apply(ParameterData params);
+    }
+
+    private void runVideoTask(String task, ParamsCustomizer customizer) throws Exception {
+        for (String resolution : resolutions) {
+            for (int duration : durations) {
+                File input = generateVideoInput(resolution.trim(), duration);
+                results.add(runTask(task, resolution.trim(), duration, input, customizer));
+            }
+        }
+    }
+
+    private void runAudioTask(String task, ParamsCustomizer customizer) throws Exception {
+        for (int duration : durations) {
+            File input = generateAudioInput(duration);
+            results.add(runTask(task, null, duration, input, customizer));
+        }
+    }
+
+    private RunResult runTask(String task, String resolution, int durationSec, File input,
+                              ParamsCustomizer customizer) throws Exception {
+        ParameterData params = new ParameterData();
+        params.taskType = task;
+        // 裁剪和截图取素材中间三分之一，避免只测到开头
+        params.cutStartTime = formatTime(durationSec / 3);
+        params.cutDuration = formatTime(Math.max(1, durationSec / 3));
+        if (customizer != null) {
+            customizer.apply(params);
+        }
+
+        String name = task + "_" + (resolution != null ? resolution + "_" : "") + durationSec + "s";
+        Data inputData = new Data.Builder()
+                .putString(FfmpegWorker.KEY_INPUT_PATH, input.getAbsolutePath())
+                .putString(FfmpegWorker.KEY_OUTPUT_PATH_BASE, new File(outputDir, name).getAbsolutePath())
+                .putString(FfmpegWorker.KEY_PARAMS_JSON, gson.toJson(params))
+                .putString(FfmpegWorker.KEY_FILE_NAME, input.getName())
+                .build();
+        FfmpegWorker worker = TestListenableWorkerBuilder.from(context, FfmpegWorker.class)
+                .setInputData(inputData)
+                .build();
+
+        long cpuStart = Process.getElapsedCpuTime();
+        long wallStart = SystemClock.elapsedRealtime();
+        ListenableWorker.Result result = worker.startWork().get(WORK_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        long wallTime = SystemClock.elapsedRealtime() - wallStart;
+        long cpuTime = Process.getElapsedCpuTime() - cpuStart;
+
+        RunResult run = new RunResult();
+        run.task = task;
+        run.resolution = resolution;
+        run.durationSec = durationSec;
+        run.success = result instanceof ListenableWorker.Result.Success;
+        run.errorMessage = result.getOutputData().getString(FfmpegWorker.KEY_ERROR_MESSAGE);
+        run.wallTimeMs = wallTime;
+        run.cpuTimeMs = cpuTime;
+        run.cpuUtilization = wallTime > 0 ? (double) cpuTime / wallTime : 0;
+        run.inputBytes = input.length();
+
+        String outputPath = result.getOutputData().getString(FfmpegWorker.KEY_OUTPUT_PATH);
+        if (outputPath != null) {
+            File output = new File(outputPath);
+            run.outputBytes = output.length();
+            output.delete();
+        }
+
+        // 编码器、帧率和各阶段耗时取自 Worker 写入的任务历史
+        List<JobHistoryDatabase.JobRecord> recent = JobHistoryDatabase.getInstance(context).getRecentJobs(1);
+        if (!recent.isEmpty() && worker.getId().toString().equals(recent.get(0).workId)) {
+            JobHistoryDatabase.JobRecord record = recent.get(0);
+            run.videoCodec = record.videoCodec;
+            run.audioCodec = record.audioCodec;
+            run.averageFps = record.averageFps;
+            run.stagingTimeMs = record.stagingTimeMs;
+            run.probeTimeMs = record.probeTimeMs;
+            run.mediaTimeMs = record.mediaTimeMs;
+        }
+        // 裁剪任务只处理裁剪范围；单帧截图只解码一帧，不计算倍速
+        long cutDurationMs = FfmpegCommandBuilder.getCutDurationMs(params, durationSec * 1000L);
+        boolean singleFrame = "screenshot".equals(task) && !FfmpegCommandBuilder.isBatchScreenshot(params);
+        if (singleFrame) {
+            run.mediaTimeMs = 0;
+        } else if (cutDurationMs > 0) {
+            run.mediaTimeMs = cutDurationMs;
+        } else if (run.mediaTimeMs <= 0) {
+            run.mediaTimeMs = durationSec * 1000L;
+        }
+        if (run.mediaTimeMs > 0 && wallTime > 0) {
+            run.realtimeFactor = (double) run.mediaTimeMs / wallTime;
+        }
+
+        assertTrue(name + " 失败: " + run.errorMessage, run.success);
+        return run;
+    }
+
+    // 合成视频素材：testsrc 画面 + 440Hz 正弦音频，按分辨率和时长缓存
+    private static File generateVideoInput(String resolution, int durationSec) {
+        File file = new File(inputDir, "testsrc_" + resolution + "_" + durationSec + "s.mp4");
+        if (file.length() > 0) return file;
+        runFfmpeg("-f lavfi -i testsrc=size=" + resolution + ":rate=30:duration=" + durationSec
+                + " -f lavfi -i sine=frequency=440:sample_rate=48000:duration=" + durationSec
+                + " -c:v mpeg4 -q:v 4 -pix_fmt yuv420p -c:a aac -b:a 128k -shortest -y \"" + file.getAbsolutePath() + "\"");
+        return file;
+    }
+
+    private static File generateAudioInput(int durationSec) {
+        File file = new File(inputDir, "sine_" + durationSec + "s.m4a");
+        if (file.length() > 0) return file;
+        runFfmpeg("-f lavfi -i sine=frequency=440:sample_rate=48000:duration=" + durationSec
+                + " -c:a aac -b:a 192k -y \"" + file.getAbsolutePath() + "\"");
+        return file;
+    }
+
+    private static void runFfmpeg(String command) {
+        FFmpegSession session = FFmpegKit.execute(command);
+        assertTrue("生成测试素材失败: " + session.getFailStackTrace(), ReturnCode.isSuccess(session.getReturnCode()));
+    }
+
+    private static String formatTime(int seconds) {
+        return String.format(Locale.US, "%02d:%02d:%02d", seconds / 3600, (seconds % 3600) / 60, seconds % 60);
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null) parent.mkdirs();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+    }
+}
@@ -3,157 +3,520 @@
 #include <thread>
 #include <mutex>
 #include <condition_variable>
-#include <queue>
+#include <atomic>
+#include <chrono>
+#include <vector>
+#include <unordered_map>
+#include <algorithm>
+#include <dirent.h>
 #include <sys/mman.h>
 #include <sys/stat.h>
 #include <fcntl.h>
 #include <unistd.h>
 #include <ctime>
 #include <cstring>
+#include <cstdint>
 #include <android/log.h>
 
 #define LOG_TAG "EzLogNative"
-#define BUFFER_SIZE (1 * 1024 * 1024)  // 1MB mmap 缓冲区
+#define DEFAULT_WINDOW_SIZE (4 * 1024 * 1024)        // 4MB mmap 映射窗口
+#define DEFAULT_MAX_FILE_SIZE (50 * 1024 * 1024)     // 单文件 50MB 滚动
+#define DEFAULT_RETENTION_SIZE (100 * 1024 * 1024)   // 所有 EzConvert_*.log 合计上限
+
+/*
+ * 二进制日志格式（所有整数为小端或 varint）
+ *
+ * 文件头: "EZLB" | 版本(1 字节) | 起始时间戳毫秒(8 字节)
+ * 记录:   类型(1 字节)
+ *   REC_TAG: 标签 ID(varint) | 长度(varint) | UTF-8 标签
+ *   REC_LOG: 级别(1 字节) | 与上一条的时间差毫秒(zigzag varint) | 标签 ID(varint) | 长度(varint) | UTF-8 消息
+ * 类型为 0 表示数据结束（mmap 预分配区域的零填充部分）
+ *
+ * 标签按文件去重，每个文件独立可解码；解码由 Java 层 NativeLogDecoder 完成
+ */
+static const char FILE_MAGIC[4] = {'E', 'Z', 'L', 'B'};
+static const uint8_t FILE_VERSION = 1;
+static const size_t FILE_HEADER_SIZE = 4 + 1 + 8;
+static const uint8_t REC_TAG = 0x01;
+static const uint8_t REC_LOG = 0x02;
+static const size_t MAX_VARINT_SIZE = 10;
 
 struct LogPacket {
     char level;
+    int64_t timestampMs;
     std::string tag;
     std::string msg;
-    long timestamp;
 };
 
+/*
+ * 有界无锁多生产者单消费者队列（Vyukov 算法）
+ * 每个槽位带序号：生产者用 CAS 抢占写入位置，写完后发布序号；消费者只有一个，按序读取。
+ * 队列满时丢弃新日志并计数，生产者不会等待。
+ */
+class MpscQueue {
+private:
+    struct Slot {
+        std::atomic<size_t> seq;
+        LogPacket pkt;
+    };
+
+    const size_t capacity;
+    const size_t mask;
+    Slot* slots;
+    alignas(64) std::atomic<size_t> enqueuePos{0};
+    alignas(64) std::atomic<size_t> dequeuePos{0};
+
+public:
+    explicit MpscQueue(size_t capacityPow2)
+        : capacity(capacityPow2), mask(capacityPow2 - 1), slots(new Slot[capacityPow2]) {
+        for (size_t i = 0; i < capacity; i++) {
+            slots[i].seq.store(i, std::memory_order_relaxed);
+        }
+    }
+
+    ~MpscQueue() {
+        delete[] slots;
+    }
+
+    bool push(LogPacket&& pkt) {
+        size_t pos = enqueuePos.load(std::memory_order_relaxed);
+        Slot* slot;
+        while (true) {
+            slot = &slots[pos & mask];
+            size_t seq = slot->seq.load(std::memory_order_acquire);
+            intptr_t diff = (intptr_t) seq - (intptr_t) pos;
+            if (diff == 0) {
+                if (enqueuePos.compare_exchange_weak(pos, pos + 1, std::memory_order_relaxed)) {
+                    break;
+                }
+            } else if (diff < 0) {
+                return false; // 队列已满
+            } else {
+                pos = enqueuePos.load(std::memory_order_relaxed);
+            }
+        }
+        slot->pkt = std::move(pkt);
+        slot->seq.store(pos + 1, std::memory_order_release);
+        return true;
+    }
+
+    // 仅由消费者线程调用
+    bool pop(LogPacket& out) {
+        size_t pos = dequeuePos.load(std::memory_order_relaxed);
+        Slot* slot = &slots[pos & mask];
+        size_t seq = slot->seq.load(std::memory_order_acquire);
+        if (seq != pos + 1) {
+            return false; // 队列为空或生产者尚未发布
+        }
+        out = std::move(slot->pkt);
+        slot->seq.store(pos + capacity, std::memory_order_release);
+        dequeuePos.store(pos + 1, std::memory_order_relaxed);
+        return true;
+    }
+
+    size_t approxSize() const {
+        size_t enq = enqueuePos.load(std::memory_order_relaxed);
+        size_t deq = dequeuePos.load(std::memory_order_relaxed);
+        return enq > deq ? enq - deq : 0;
+    }
+};
+
+static int64_t currentTimeMs() {
+    timespec ts;
+    clock_gettime(CLOCK_REALTIME, &ts);
+    return (int64_t) ts.tv_sec * 1000 + ts.tv_nsec / 1000000;
+}
+
+static size_t putVarint(uint8_t* out, uint64_t value) {
+    size_t n = 0;
+    while (value >= 0x80) {
+        out[n++] = (uint8_t) (value | 0x80);
+        value >>= 7;
+    }
+    out[n++] = (uint8_t) value;
+    return n;
+}
+
+static uint64_t zigzag(int64_t value) {
+    return ((uint64_t) value << 1) ^ (uint64_t) (value >> 63);
+}
+
 class MmapLogger {
 private:
     int fd = -1;
     char* mapPtr = nullptr;
-    size_t mapSize = BUFFER_SIZE;
+    // 映射窗口在文件中滑动：mapOffset 为窗口起点，writePos 为窗口内的写入位置
+    size_t mapSize = DEFAULT_WINDOW_SIZE;
+    off_t mapOffset = 0;
     size_t writePos = 0;
+    size_t maxFileSize = DEFAULT_MAX_FILE_SIZE;
+    uint64_t retentionBytes = DEFAULT_RETENTION_SIZE;
+    size_t pageSize = 4096;
     std::string basePath;
     std::string currentFile;
-    
-    std::queue<LogPacket> queue;
+    std::atomic<bool> flushRequested{false};
+
+    // 写入队列与批量消费；消费者空闲时才需要唤醒，生产者平时不加锁
+    static const size_t QUEUE_CAPACITY = 16384;
+    static const size_t DRAIN_BATCH = 256;
+    MpscQueue queue{QUEUE_CAPACITY};
     std::mutex mtx;
     std::condition_variable cv;
+    std::atomic<bool> consumerSleeping{false};
     std::thread worker;
-    bool running = false;
-    
-    // 文件索引（滚动用）
+    std::atomic<bool> running{false};
+
+    // 统计计数
+    std::atomic<uint64_t> writtenCount{0};
+    std::atomic<uint64_t> droppedCount{0};
+    std::atomic<uint64_t> writtenBytes{0};
+    uint64_t reportedDrops = 0;
+
+    // 文件索引（滚动用），启动时接着当天已有文件继续编号
     int fileIndex = 0;
-    const long MAX_FILE_SIZE = 1 * 1024 * 1024; // 单个文件 1MB
-    
+
+    // 当前文件的标签表与上一条记录的时间戳，仅在工作线程中访问
+    std::unordered_map<std::string, uint32_t> tagIds;
+    int64_t lastTimestampMs = 0;
+
 public:
-    void init(const std::string& path) {
+    void init(const std::string& path, size_t fileSize, size_t windowSize, uint64_t retention) {
         basePath = path;
+        long page = sysconf(_SC_PAGESIZE);
+        pageSize = page > 0 ? (size_t) page : 4096;
+        if (fileSize > 0) maxFileSize = fileSize;
+        if (windowSize > 0) mapSize = windowSize;
+        if (retention > 0) retentionBytes = retention;
+        // 窗口按页对齐，至少 2 页，且不超过单文件上限
+        mapSize = std::min(mapSize, maxFileSize);
+        mapSize = std::max((mapSize + pageSize - 1) / pageSize * pageSize, pageSize * 2);
+        fileIndex = nextFileIndex();
         running = true;
         openNewFile();
         worker = std::thread(&MmapLogger::loop, this);
         __android_log_print(ANDROID_LOG_INFO, LOG_TAG, "Mmap logger initialized: %s", path.c_str());
     }
-    
-    void write(char level, const std::string& tag, const std::string& msg) {
+
+    void write(char level, const char* tag, size_t tagLen, const char* msg, size_t msgLen) {
         LogPacket pkt;
         pkt.level = level;
-        pkt.tag = tag;
-        pkt.msg = msg;
-        pkt.timestamp = time(nullptr);
-        
-        {
+        pkt.timestampMs = currentTimeMs();
+        pkt.tag.assign(tag, tagLen);
+        pkt.msg.assign(msg, msgLen);
+
+        if (!queue.push(std::move(pkt))) {
+            droppedCount.fetch_add(1, std::memory_order_relaxed);
+            return;
+        }
+        // 只有消费者正在休眠时才加锁唤醒（与 loop 中的 fence 配对，保证不会错过唤醒）
+        std::atomic_thread_fence(std::memory_order_seq_cst);
+        if (consumerSleeping.load() && consumerSleeping.exchange(false)) {
             std::lock_guard<std::mutex> lock(mtx);
-            // 队列上限保护 (超过 1万条丢弃旧日志)
-            if (queue.size() > 10000) {
-                queue.pop();
-            }
-            queue.push(pkt);
+            cv.notify_one();
         }
-        cv.notify_one();
     }
-    
+
+    // [已写入条数, 丢弃条数, 队列中条数, 已写入字节数]
+    void getStats(uint64_t out[4]) {
+        out[0] = writtenCount.load(std::memory_order_relaxed);
+        out[1] = droppedCount.load(std::memory_order_relaxed);
+        out[2] = queue.approxSize();
+        out[3] = writtenBytes.load(std::memory_order_relaxed);
+    }
+
+    // 映射窗口只在工作线程中切换，这里只发出刷盘请求
     void flush() {
-        if (mapPtr && fd != -1) {
-            msync(mapPtr, writePos, MS_ASYNC); // 异步刷盘
+        flushRequested = true;
+        if (consumerSleeping.exchange(false)) {
+            std::lock_guard<std::mutex> lock(mtx);
+            cv.notify_one();
         }
     }
-    
+
     void close() {
-        running = false;
+        {
+            std::lock_guard<std::mutex> lock(mtx);
+            running = false;
+            consumerSleeping = false;
+        }
         cv.notify_all();
         if (worker.joinable()) worker.join();
-        
+
+        closeCurrentFile();
+    }
+
+private:
+    // 当前文件的实际数据长度
+    size_t dataSize() const {
+        return (size_t) mapOffset + writePos;
+    }
+
+    // 同步刷盘、解除映射，并把文件截断到实际数据长度（去掉预分配的零填充）
+    void closeCurrentFile() {
         if (mapPtr) {
-            msync(mapPtr, writePos, MS_SYNC); // 同步刷盘确保不丢
+            msync(mapPtr, writePos, MS_SYNC);
             munmap(mapPtr, mapSize);
             mapPtr = nullptr;
         }
         if (fd != -1) {
+            ftruncate(fd, (off_t) dataSize());
             ::close(fd);
             fd = -1;
         }
+        mapOffset = 0;
+        writePos = 0;
     }
 
-private:
-    void openNewFile() {
+    // 在文件 offset 处映射一个窗口，必要时扩展文件
+    bool mapWindowAt(off_t offset) {
         if (mapPtr) {
             msync(mapPtr, writePos, MS_SYNC);
             munmap(mapPtr, mapSize);
+            mapPtr = nullptr;
+        }
+        if (ftruncate(fd, offset + (off_t) mapSize) != 0) {
+            __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "ftruncate failed: %s", currentFile.c_str());
+            return false;
+        }
+        void* ptr = mmap(nullptr, mapSize, PROT_READ | PROT_WRITE, MAP_SHARED, fd, offset);
+        if (ptr == MAP_FAILED) {
+            __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "mmap failed: %s", currentFile.c_str());
+            return false;
+        }
+        mapPtr = (char*) ptr;
+        mapOffset = offset;
+        return true;
+    }
+
+    // 当前窗口写满时，把窗口移动到数据末尾所在的页
+    void advanceWindow() {
+        size_t end = dataSize();
+        off_t offset = (off_t) (end / pageSize * pageSize);
+        if (mapWindowAt(offset)) {
+            writePos = end - (size_t) offset;
+        } else {
+            closeCurrentFile();
         }
-        if (fd != -1) ::close(fd);
-        
+    }
+
+    static bool isLogFileName(const char* name) {
+        size_t len = strlen(name);
+        return strncmp(name, "EzConvert_", 10) == 0 && len > 14 && strcmp(name + len - 4, ".log") == 0;
+    }
+
+    // 今天已有文件的最大编号 + 1，避免重启后覆盖之前的日志
+    int nextFileIndex() {
+        char prefix[64];
+        time_t now = time(nullptr);
+        tm ltm;
+        localtime_r(&now, &ltm);
+        snprintf(prefix, sizeof(prefix), "EzConvert_%04d-%02d-%02d_",
+                1900+ltm.tm_year, 1+ltm.tm_mon, ltm.tm_mday);
+        size_t prefixLen = strlen(prefix);
+
+        int next = 0;
+        DIR* dir = opendir(basePath.c_str());
+        if (!dir) return next;
+        while (dirent* entry = readdir(dir)) {
+            if (strncmp(entry->d_name, prefix, prefixLen) == 0 && isLogFileName(entry->d_name)) {
+                int index = atoi(entry->d_name + prefixLen);
+                next = std::max(next, index + 1);
+            }
+        }
+        closedir(dir);
+        return next;
+    }
+
+    // 按修改时间从旧到新删除 EzConvert_*.log，直到总大小不超过保留上限（当前文件不删除）
+    void enforceRetention() {
+        struct LogFile {
+            std::string path;
+            time_t mtime;
+            uint64_t size;
+        };
+        std::vector<LogFile> files;
+        uint64_t total = 0;
+
+        DIR* dir = opendir(basePath.c_str());
+        if (!dir) return;
+        while (dirent* entry = readdir(dir)) {
+            if (!isLogFileName(entry->d_name)) continue;
+            std::string path = basePath + "/" + entry->d_name;
+            struct stat st;
+            if (stat(path.c_str(), &st) != 0 || !S_ISREG(st.st_mode)) continue;
+            if (path == currentFile) {
+                // 当前文件按写满计算，保证滚动前总大小也不超过上限
+                total += maxFileSize;
+                continue;
+            }
+            files.push_back({path, st.st_mtime, (uint64_t) st.st_size});
+            total += (uint64_t) st.st_size;
+        }
+        closedir(dir);
+
+        std::sort(files.begin(), files.end(), [](const LogFile& a, const LogFile& b) {
+            return a.mtime != b.mtime ? a.mtime < b.mtime : a.path < b.path;
+        });
+        for (const LogFile& file : files) {
+            if (total <= retentionBytes) break;
+            if (unlink(file.path.c_str()) == 0) {
+                total -= file.size;
+                __android_log_print(ANDROID_LOG_INFO, LOG_TAG, "Removed old log file: %s", file.path.c_str());
+            }
+        }
+    }
+
+    void openNewFile() {
+        closeCurrentFile();
+
         // 生成文件名：EzConvert_2026-00-00_001.log
         char filename[256];
         time_t now = time(nullptr);
-        tm* ltm = localtime(&now);
-        snprintf(filename, sizeof(filename), "%s/EzConvert_%04d-%02d-%02d_%03d.log", 
-                basePath.c_str(), 1900+ltm->tm_year, 1+ltm->tm_mon, ltm->tm_mday, fileIndex++);
-        
+        tm ltm;
+        localtime_r(&now, &ltm);
+        snprintf(filename, sizeof(filename), "%s/EzConvert_%04d-%02d-%02d_%03d.log",
+                basePath.c_str(), 1900+ltm.tm_year, 1+ltm.tm_mon, ltm.tm_mday, fileIndex++);
+
         currentFile = filename;
-        fd = open(filename, O_RDWR | O_CREAT | O_APPEND, 0666);
+        // 二进制格式需要从文件头开始写，不能追加到已有文件
+        fd = open(filename, O_RDWR | O_CREAT | O_TRUNC, 0666);
         if (fd < 0) {
             __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Failed to open file: %s", filename);
             return;
         }
-        
-        // 预分配文件大小（避免频繁扩展）
-        ftruncate(fd, mapSize);
-        mapPtr = (char*)mmap(nullptr, mapSize, PROT_READ | PROT_WRITE, MAP_SHARED, fd, 0);
-        writePos = 0;
-        
+
+        if (!mapWindowAt(0)) {
+            closeCurrentFile();
+            return;
+        }
+
+        // 写入文件头，标签表随文件重置
+        tagIds.clear();
+        lastTimestampMs = currentTimeMs();
+        memcpy(mapPtr, FILE_MAGIC, sizeof(FILE_MAGIC));
+        mapPtr[4] = (char) FILE_VERSION;
+        for (int i = 0; i < 8; i++) {
+            mapPtr[5 + i] = (char) ((uint64_t) lastTimestampMs >> (8 * i));
+        }
+        writePos = FILE_HEADER_SIZE;
+
+        enforceRetention();
         __android_log_print(ANDROID_LOG_INFO, LOG_TAG, "Opened new log file: %s", filename);
     }
-    
+
+    // 单条记录在最坏情况下需要的空间（含可能的标签定义）
+    static size_t maxRecordSize(const LogPacket& pkt) {
+        return (1 + MAX_VARINT_SIZE * 2 + pkt.tag.size())
+             + (2 + MAX_VARINT_SIZE * 3 + pkt.msg.size());
+    }
+
+    void appendRecord(LogPacket& pkt) {
+        // 单条记录必须能放进一个窗口（窗口移动后起点最多偏移一页）和一个文件，超出时截断消息
+        size_t limit = std::min(mapSize - pageSize, maxFileSize - FILE_HEADER_SIZE);
+        if (maxRecordSize(pkt) > limit) {
+            size_t overhead = maxRecordSize(pkt) - pkt.msg.size();
+            pkt.msg.resize(overhead < limit ? limit - overhead : 0);
+        }
+
+        // 文件写满时滚动，窗口写满时移动窗口
+        if (!mapPtr || dataSize() + maxRecordSize(pkt) > maxFileSize) {
+            openNewFile();
+        } else if (writePos + maxRecordSize(pkt) > mapSize) {
+            advanceWindow();
+        }
+        if (!mapPtr) return;
+
+        uint8_t* out = (uint8_t*) mapPtr + writePos;
+        size_t n = 0;
+
+        uint32_t tagId;
+        auto it = tagIds.find(pkt.tag);
+        if (it != tagIds.end()) {
+            tagId = it->second;
+        } else {
+            tagId = (uint32_t) tagIds.size();
+            tagIds.emplace(pkt.tag, tagId);
+            out[n++] = REC_TAG;
+            n += putVarint(out + n, tagId);
+            n += putVarint(out + n, pkt.tag.size());
+            memcpy(out + n, pkt.tag.data(), pkt.tag.size());
+            n += pkt.tag.size();
+        }
+
+        out[n++] = REC_LOG;
+        out[n++] = (uint8_t) pkt.level;
+        n += putVarint(out + n, zigzag(pkt.timestampMs - lastTimestampMs));
+        n += putVarint(out + n, tagId);
+        n += putVarint(out + n, pkt.msg.size());
+        memcpy(out + n, pkt.msg.data(), pkt.msg.size());
+        n += pkt.msg.size();
+
+        lastTimestampMs = pkt.timestampMs;
+        writePos += n;
+        writtenCount.fetch_add(1, std::memory_order_relaxed);
+        writtenBytes.fetch_add(n, std::memory_order_relaxed);
+    }
+
+    // 有新的丢弃时在日志中写一条说明
+    void reportDrops() {
+        uint64_t dropped = droppedCount.load(std::memory_order_relaxed);
+        if (dropped == reportedDrops) return;
+        LogPacket notice;
+        notice.level = 'W';
+        notice.timestampMs = currentTimeMs();
+        notice.tag = LOG_TAG;
+        notice.msg = "日志队列已满，丢弃 " + std::to_string(dropped - reportedDrops) + " 条";
+        reportedDrops = dropped;
+        appendRecord(notice);
+    }
+
+    void handleFlushRequest() {
+        if (flushRequested.exchange(false) && mapPtr) {
+            msync(mapPtr, writePos, MS_ASYNC); // 异步刷盘
+        }
+    }
+
+    size_t drainBatch(std::vector<LogPacket>& batch) {
+        batch.clear();
+        LogPacket pkt;
+        while (batch.size() < DRAIN_BATCH && queue.pop(pkt)) {
+            batch.push_back(std::move(pkt));
+        }
+        for (LogPacket& item : batch) {
+            appendRecord(item);
+        }
+        if (!batch.empty()) {
+            reportDrops();
+        }
+        return batch.size();
+    }
+
     void loop() {
-        while (running) {
-            std::unique_lock<std::mutex> lock(mtx);
-            cv.wait(lock, [this] { return !queue.empty() || !running; });
-            
-            while (!queue.empty()) {
-                LogPacket pkt = queue.front();
-                queue.pop();
-                lock.unlock();
-                
-                // 格式化日志行
-                char header[128];
-                tm* ltm = localtime(&pkt.timestamp);
-                snprintf(header, sizeof(header), "[%04d-%02d-%02d %02d:%02d:%02d] [%c] [%s] ", 
-                        1900+ltm->tm_year, 1+ltm->tm_mon, ltm->tm_mday,
-                        ltm->tm_hour, ltm->tm_min, ltm->tm_sec,
-                        pkt.level, pkt.tag.c_str());
-                
-                std::string line = std::string(header) + pkt.msg + "\n";
-                size_t len = line.length();
-                
-                // 检查是否需要滚动文件
-                if (writePos + len > mapSize || writePos > MAX_FILE_SIZE) {
-                    openNewFile();
-                }
-                
-                // 直接内存拷贝
-                if (mapPtr && writePos + len <= mapSize) {
-                    memcpy(mapPtr + writePos, line.c_str(), len);
-                    writePos += len;
-                }
-                
-                lock.lock();
+        std::vector<LogPacket> batch;
+        batch.reserve(DRAIN_BATCH);
+        while (true) {
+            handleFlushRequest();
+            if (drainBatch(batch) > 0) {
+                continue;
+            }
+            if (!running) {
+                break;
             }
+
+            // 队列为空时休眠；先声明休眠再复查队列，避免错过生产者的唤醒
+            consumerSleeping = true;
+            std::atomic_thread_fence(std::memory_order_seq_cst);
+            if (queue.approxSize() > 0) {
+                // 生产者已占位但尚未发布，稍后重试
+                consumerSleeping = false;
+                std::this_thread::yield();
+                continue;
+            }
+            std::unique_lock<std::mutex> lock(mtx);
+            cv.wait_for(lock, std::chrono::milliseconds(200), [this] {
+                return !consumerSleeping.load() || !running || flushRequested.load();
+            });
+            consumerSleeping = false;
         }
     }
 };
@@ -164,19 +527,41 @@ static MmapLogger g_logger;
 extern "C" {
 
 JNIEXPORT void JNICALL
-Java_com_tech_ezconvert_utils_NativeLogWriter_init(JNIEnv *env, jclass clazz, jstring logDir, jint maxSize) {
+Java_com_tech_ezconvert_utils_NativeLogWriter_nativeInit(JNIEnv *env, jclass clazz, jstring logDir,
+                                                        jint maxFileSizeMb, jint windowSizeKb, jint retentionMb) {
     const char *path = env->GetStringUTFChars(logDir, nullptr);
-    g_logger.init(std::string(path));
+    g_logger.init(std::string(path),
+                  (size_t) std::max(maxFileSizeMb, 0) * 1024 * 1024,
+                  (size_t) std::max(windowSizeKb, 0) * 1024,
+                  (uint64_t) std::max(retentionMb, 0) * 1024 * 1024);
     env->ReleaseStringUTFChars(logDir, path);
 }
 
+// buffer 为 Java 层编码好的 UTF-8 数据：[标签 tagLen 字节][消息 msgLen 字节]
 JNIEXPORT void JNICALL
-Java_com_tech_ezconvert_utils_NativeLogWriter_write(JNIEnv *env, jclass clazz, jchar level, jstring tag, jstring msg) {
-    const char *tagStr = env->GetStringUTFChars(tag, nullptr);
-    const char *msgStr = env->GetStringUTFChars(msg, nullptr);
-    g_logger.write((char)level, std::string(tagStr), std::string(msgStr));
-    env->ReleaseStringUTFChars(tag, tagStr);
-    env->ReleaseStringUTFChars(msg, msgStr);
+Java_com_tech_ezconvert_utils_NativeLogWriter_nativeWriteBuffer(JNIEnv *env, jclass clazz, jchar level,
+                                                               jobject buffer, jint tagLen, jint msgLen) {
+    const char *data = (const char *) env->GetDirectBufferAddress(buffer);
+    jlong capacity = env->GetDirectBufferCapacity(buffer);
+    if (data == nullptr || tagLen < 0 || msgLen < 0 || (jlong) tagLen + msgLen > capacity) {
+        return;
+    }
+    g_logger.write((char) level, data, (size_t) tagLen, data + tagLen, (size_t) msgLen);
+}
+
+JNIEXPORT jlongArray JNICALL
+Java_com_tech_ezconvert_utils_NativeLogWriter_nativeGetStats(JNIEnv *env, jclass clazz) {
+    uint64_t stats[4];
+    g_logger.getStats(stats);
+    jlong values[4];
+    for (int i = 0; i < 4; i++) {
+        values[i] = (jlong) stats[i];
+    }
+    jlongArray result = env->NewLongArray(4);
+    if (result != nullptr) {
+        env->SetLongArrayRegion(result, 0, 4, values);
+    }
+    return result;
 }
 
 JNIEXPORT void JNICALL
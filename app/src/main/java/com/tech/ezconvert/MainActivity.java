@@ -43,6 +43,7 @@ import com.tech.ezconvert.utils.CrashHandler;
 import com.tech.ezconvert.utils.FFmpegUtil;
 import com.tech.ezconvert.utils.FfmpegCommandBuilder;
 import com.tech.ezconvert.utils.FileUtils;
+import com.tech.ezconvert.utils.JobTelemetry;
 import com.tech.ezconvert.utils.Log;
 import com.tech.ezconvert.utils.LogManager;
 import com.tech.ezconvert.utils.NotificationHelper;
@@ -52,15 +53,18 @@ import com.tech.ezconvert.utils.PermissionManager;
 import com.tech.ezconvert.utils.ReleaseNotesManager;
 import com.tech.ezconvert.utils.ToastUtils;
 import com.tech.ezconvert.utils.UpdateChecker;
+import com.tech.ezconvert.worker.FfmpegBatchScheduler;
 import com.tech.ezconvert.worker.FfmpegWorker;
 import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
@@ -116,6 +120,10 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
     private Gson gson;
     private UUID currentWorkId = null;
     private LiveData<WorkInfo> currentWorkLiveData = null;
+    private String currentBatchId = null;
+    private LiveData<List<WorkInfo>> currentBatchLiveData = null;
+    // 已取消的批次，取消后 WorkManager 状态更新前恢复监听仍可能看到未结束的 Worker，不能重新接管
+    private final Set<String> cancelledBatchIds = new HashSet<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -182,7 +190,7 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
         workManager.getWorkInfosByTagLiveData(WORK_TAG_CURRENT).observe(this, workInfos -> {
             if (workInfos == null || workInfos.isEmpty()) {
                 // 没有正在运行的任务
-                if (isTaskRunning) {
+                if (isTaskRunning && currentBatchId == null) {
                     // UI 显示运行中但实际没有 Worker，重置状态
                     resetTaskState();
                 }
@@ -207,7 +215,7 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
                     Data outputData = info.getOutputData();
                     String outputPath = outputData.getString(FfmpegWorker.KEY_OUTPUT_PATH);
                     if (outputPath != null) {
-                        completedOutputFiles.add(outputPath);
+                        completedOutputFiles.add(FfmpegWorker.getGeneratedOutput(outputData));
                         String fileName = new File(outputPath).getName();
                         NotificationHelper.showCompleteNotification(this, fileName, true, "");
                     }
@@ -221,6 +229,26 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
                 }
             }
         });
+
+        // 恢复未完成的批量任务
+        workManager.getWorkInfosByTagLiveData(FfmpegBatchScheduler.WORK_TAG_BATCH).observe(this, workInfos -> {
+            if (workInfos == null || currentBatchId != null) return;
+            for (WorkInfo info : workInfos) {
+                if (!info.getState().isFinished()) {
+                    String batchId = FfmpegBatchScheduler.findBatchId(info);
+                    if (batchId != null && cancelledBatchIds.contains(batchId)) {
+                        continue;
+                    }
+                    if (batchId != null) {
+                        isTaskRunning = true;
+                        showCancelButton();
+                        updateStatus(getString(R.string.status_restoring));
+                        observeBatch(batchId);
+                    }
+                    return;
+                }
+            }
+        });
     }
 
     /**
@@ -230,6 +258,7 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
         isTaskRunning = false;
         hideCancelButton();
         progressBar.clearAnimation();
+        progressBar.setIndeterminate(false);
         progressBar.setProgress(0);
         progressText.setText(getString(R.string.progress_default));
         setFunctionButtonsEnabled(permissionsGranted && !selectedFilePaths.isEmpty());
@@ -442,6 +471,7 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
                         dialog.dismiss();
 
                         progressBar.clearAnimation();
+                        progressBar.setIndeterminate(false);
                         progressBar.setProgress(0);
                         progressText.setText(getString(R.string.progress_default));
                         performCancelAndCleanup();
@@ -459,9 +489,15 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
             workManager.cancelWorkById(currentWorkId);
             currentWorkId = null;
         }
+        // 取消批量任务
+        if (currentBatchId != null) {
+            cancelledBatchIds.add(currentBatchId);
+            FfmpegBatchScheduler.cancelBatch(this, currentBatchId);
+            stopObservingBatch();
+        }
 
         // 先取消 FFmpeg 任务（兼容旧逻辑）
-        FFmpegUtil.cancelCurrentTask();
+        FFmpegUtil.cancelAllTasks();
         isTaskRunning = false;
         hideCancelButton();
 
@@ -469,12 +505,12 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
         new Thread(() -> {
             // 删除当前正在输出的文件（如果存在）
             if (currentOutputFile != null && !currentOutputFile.isEmpty()) {
-                deleteFileIfExists(currentOutputFile);
+                deleteOutputFiles(currentOutputFile);
             }
 
             // 删除本次多任务中已转换出来的文件
             for (String path : completedOutputFiles) {
-                deleteFileIfExists(path);
+                deleteOutputFiles(path);
             }
             completedOutputFiles.clear();
 
@@ -491,6 +527,7 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
 
                 // 重置进度显示
                 progressBar.clearAnimation();
+                progressBar.setIndeterminate(false);
                 progressBar.setProgress(0);
                 progressText.setText(getString(R.string.progress_default));
 
@@ -507,6 +544,13 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
     }
 
     // 删除指定文件
+    // 删除一个任务的输出，图片序列（路径含 %03d）删除其中每一张
+    private void deleteOutputFiles(String outputPath) {
+        for (File file : FfmpegCommandBuilder.listSequenceFiles(outputPath)) {
+            deleteFileIfExists(file.getPath());
+        }
+    }
+
     private void deleteFileIfExists(String filePath) {
         try {
             File file = new File(filePath);
@@ -671,8 +715,119 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
     }
 
     private void processAllFilesWithParams(ParameterData params) {
-        // 同步模式：所有文件使用同一套参数，逐个处理
-        processNextFileWithSameParams(params);
+        // 同步模式：所有文件使用同一套参数，整个队列一次性交给批量调度器并发处理
+        submitBatchForRemainingFiles(params);
+    }
+
+    /**
+     * 将当前文件及之后的所有文件作为一个批次提交
+     */
+    private void submitBatchForRemainingFiles(ParameterData params) {
+        List<FfmpegBatchScheduler.BatchItem> items = new ArrayList<>();
+        Set<String> usedOutputBases = new HashSet<>();
+        for (int i = currentQueueIndex; i < selectedFilePaths.size(); i++) {
+            String inputKey = selectedFilePaths.get(i);
+            currentInputPath = inputKey;
+            generateOutputPath();
+            // 同名文件在同一秒内生成的输出路径会重复，追加序号区分
+            if (!usedOutputBases.add(currentOutputPath)) {
+                currentOutputPath = currentOutputPath + "_" + (i + 1);
+                usedOutputBases.add(currentOutputPath);
+            }
+
+            Uri fileUri = pathToUriMap.get(inputKey);
+            String fileName = (fileUri != null) ? FileUtils.getDisplayName(this, fileUri) : new File(inputKey).getName();
+            if (fileName == null) fileName = "file";
+            items.add(new FfmpegBatchScheduler.BatchItem(
+                    inputKey,
+                    fileUri != null ? fileUri.toString() : "",
+                    currentOutputPath,
+                    fileName));
+        }
+
+        String batchId = FfmpegBatchScheduler.enqueueBatch(this, items, params);
+        if (batchId == null) {
+            processNextFileWithSameParams(params);
+            return;
+        }
+        observeBatch(batchId);
+    }
+
+    /**
+     * 观察批次内所有 Worker，汇总为一个整体进度
+     */
+    private void observeBatch(String batchId) {
+        stopObservingBatch();
+        currentBatchId = batchId;
+        currentBatchLiveData = workManager.getWorkInfosByTagLiveData(FfmpegBatchScheduler.getBatchTag(batchId));
+        currentBatchLiveData.observe(this, workInfos -> {
+            FfmpegBatchScheduler.BatchProgress batch = FfmpegBatchScheduler.aggregateProgress(workInfos);
+            if (batch.total == 0) return;
+
+            if (!batch.isFinished()) {
+                updateProgressUI(batch.progress, 0);
+                updateStatus(getString(R.string.status_batch_processing,
+                        batch.getFinishedCount(), batch.total, batch.running));
+                return;
+            }
+
+            completedOutputFiles.addAll(batch.outputPaths);
+            onBatchComplete(batch);
+        });
+    }
+
+    private void stopObservingBatch() {
+        if (currentBatchLiveData != null) {
+            currentBatchLiveData.removeObservers(this);
+            currentBatchLiveData = null;
+        }
+        currentBatchId = null;
+    }
+
+    /**
+     * 批次完成回调
+     */
+    private void onBatchComplete(FfmpegBatchScheduler.BatchProgress batch) {
+        stopObservingBatch();
+        workManager.pruneWork();
+
+        if (batch.cancelled > 0 && batch.succeeded + batch.failed == 0) {
+            onWorkerComplete(false, getString(R.string.error_cancelled));
+            return;
+        }
+
+        hideCancelButton();
+        progressBar.clearAnimation();
+        progressBar.setIndeterminate(false);
+        progressBar.setProgress(0);
+        progressText.setText(getString(R.string.progress_default));
+
+        if (batch.failed > 0 || batch.cancelled > 0) {
+            // 部分文件被取消时单独计数，不算作成功也不算作失败
+            String summary = batch.cancelled > 0
+                    ? getString(R.string.status_batch_partial_cancelled, batch.succeeded, batch.failed, batch.cancelled)
+                    : getString(R.string.status_batch_partial, batch.succeeded, batch.failed);
+            updateStatus(summary);
+            if (batch.failed > 0) {
+                String firstError = batch.errorMessages.isEmpty() ? getString(R.string.error_unknown) : batch.errorMessages.get(0);
+                NotificationHelper.showCompleteNotification(this, "", false, firstError);
+            } else {
+                NotificationHelper.showCancelledNotification(this, "");
+            }
+            ToastUtils.showLong(this, summary);
+        } else {
+            updateStatus(getString(R.string.status_all_complete, batch.total));
+            NotificationHelper.showCompleteNotification(this, getString(R.string.notification_file_placeholder), true, "");
+            ToastUtils.showLong(this, getString(R.string.toast_all_complete));
+        }
+
+        currentOutputFile = "";
+        completedOutputFiles.clear();
+        selectedFilePaths.clear();
+        pathToUriMap.clear();
+        currentQueueIndex = 0;
+        currentInputPath = "";
+        setFunctionButtonsEnabled(permissionsGranted);
     }
 
     private void processNextFileWithSameParams(ParameterData params) {
@@ -754,12 +909,13 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
                 int progressValue = progress.getInt(FfmpegWorker.KEY_PROGRESS, 0);
                 long time = progress.getLong(FfmpegWorker.KEY_TIME, 0);
                 updateProgressUI(progressValue, time);
+                updateTelemetryText(progressValue, progress);
             } else if (state == WorkInfo.State.SUCCEEDED) {
                 // 任务成功
                 Data outputData = workInfo.getOutputData();
                 String outputPath = outputData.getString(FfmpegWorker.KEY_OUTPUT_PATH);
                 if (outputPath != null) {
-                    completedOutputFiles.add(outputPath);
+                    completedOutputFiles.add(FfmpegWorker.getGeneratedOutput(outputData));
                     String fileName = new File(outputPath).getName();
                     NotificationHelper.showCompleteNotification(this, fileName, true, "");
                 }
@@ -792,6 +948,7 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
             if (currentQueueIndex < selectedFilePaths.size()) {
                 // 继续处理下一个文件
                 progressBar.clearAnimation();
+                progressBar.setIndeterminate(false);
                 progressBar.setProgress(0);
                 progressText.setText(getString(R.string.progress_default));
 
@@ -816,6 +973,7 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
                 updateStatus(getString(R.string.error_cancelled));
                 ToastUtils.show(this, getString(R.string.toast_cancelled));
                 progressBar.clearAnimation();
+                progressBar.setIndeterminate(false);
                 progressBar.setProgress(0);
                 progressText.setText(getString(R.string.progress_default));
                 currentOutputFile = "";
@@ -830,6 +988,7 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
                 updateStatus(getString(R.string.status_failed, message));
                 ToastUtils.show(this, getString(R.string.status_failed, message));
                 progressBar.clearAnimation();
+                progressBar.setIndeterminate(false);
                 progressBar.setProgress(0);
                 progressText.setText(getString(R.string.progress_default));
                 currentOutputFile = "";
@@ -841,9 +1000,16 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
     /**
      * 更新进度 UI
      */
+    // progress 为 -1 表示总时长尚未确定，进度条显示为不确定状态
     private void updateProgressUI(int progress, long time) {
-        AnimationUtils.animateProgressSmoothly(progressBar, progress);
-        progressText.setText(getString(R.string.progress_text, progress));
+        if (progress < 0) {
+            progressBar.setIndeterminate(true);
+            progressText.setText(R.string.progress_indeterminate_text);
+        } else {
+            progressBar.setIndeterminate(false);
+            AnimationUtils.animateProgressSmoothly(progressBar, progress);
+            progressText.setText(getString(R.string.progress_text, progress));
+        }
         AnimationUtils.animateStatusUpdate(progressText);
 
         if (isTaskRunning && cancelBtn.getVisibility() != View.VISIBLE) {
@@ -851,6 +1017,17 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
         }
     }
 
+    // 单任务时在进度后显示倍速、帧率、输出速率和剩余时间
+    private void updateTelemetryText(int progress, Data data) {
+        double speed = data.getDouble(FfmpegWorker.KEY_SPEED, 0);
+        long etaMs = data.getLong(FfmpegWorker.KEY_ETA_MS, -1);
+        if (progress < 0 || speed <= 0 || etaMs < 0) return;
+        progressText.setText(getString(R.string.progress_telemetry_text, progress, speed,
+                data.getFloat(FfmpegWorker.KEY_FPS, 0),
+                JobTelemetry.formatBytes(data.getLong(FfmpegWorker.KEY_BYTES_PER_SEC, 0)),
+                JobTelemetry.formatEta(etaMs)));
+    }
+
     // 权限授予回调
     public void onPermissionsGranted() {
         permissionsGranted = true;
@@ -998,18 +1175,8 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
     // FFmpegCallback 实现
     @Override
     public void onProgress(int progress, long time) {
-        runOnUiThread(() -> {
-            AnimationUtils.animateProgressSmoothly(progressBar, progress);
-            progressText.setText(getString(R.string.progress_text, progress));
-
-            // 为进度文本添加微动画
-            AnimationUtils.animateStatusUpdate(progressText);
-
-            // 确保取消按钮可见（处理从对话框启动的任务）
-            if (isTaskRunning && cancelBtn.getVisibility() != View.VISIBLE) {
-                cancelBtn.setVisibility(View.VISIBLE);
-            }
-        });
+        // 与 Worker 进度共用同一套界面更新，包括不确定进度和取消按钮
+        runOnUiThread(() -> updateProgressUI(progress, time));
     }
 
     @Override
@@ -1020,6 +1187,7 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
                 updateStatus(getString(R.string.error_cancelled));
                 ToastUtils.show(this, getString(R.string.toast_cancelled));
                 progressBar.clearAnimation();
+                progressBar.setIndeterminate(false);
                 progressBar.setProgress(0);
                 progressText.setText(getString(R.string.progress_default));
                 currentOutputFile = "";
@@ -1038,6 +1206,7 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
                 if (currentQueueIndex < selectedFilePaths.size()) {
                     // 还有下一个文件，重置进度并继续处理
                     progressBar.clearAnimation();
+                    progressBar.setIndeterminate(false);
                     progressBar.setProgress(0);
                     progressText.setText(getString(R.string.progress_default));
                 } else {
@@ -1058,6 +1227,7 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
                 // 失败时停止队列处理，保留已完成的文件
                 hideCancelButton();
                 progressBar.clearAnimation();
+                progressBar.setIndeterminate(false);
                 progressBar.setProgress(0);
                 progressText.setText(getString(R.string.progress_default));
                 currentOutputFile = "";
@@ -1076,6 +1246,7 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
 
             // 清除动画并重置进度
             progressBar.clearAnimation();
+            progressBar.setIndeterminate(false);
             progressBar.setProgress(0);
             progressText.setText(getString(R.string.progress_default));
 
@@ -1100,7 +1271,7 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        FFmpegUtil.cancelCurrentTask();
+        FFmpegUtil.cancelAllTasks();
 
         // 注意：不取消 Worker，让后台任务继续运行
         // 只清理 Activity 级别的资源
@@ -1122,6 +1293,9 @@ public class MainActivity extends BaseActivity implements FFmpegUtil.FFmpegCallb
         if (currentWorkLiveData != null) {
             currentWorkLiveData.removeObservers(this);
         }
+        if (currentBatchLiveData != null) {
+            currentBatchLiveData.removeObservers(this);
+        }
     }
 
     private void checkPermissions() {
@@ -17,6 +17,8 @@ import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.button.MaterialButton;
 import com.tech.ezconvert.BuildConfig;
 import com.tech.ezconvert.R;
+import com.tech.ezconvert.utils.LogManager;
+import com.tech.ezconvert.utils.NativeLogDecoder;
 import com.tech.ezconvert.utils.ToastUtils;
 
 import java.io.BufferedReader;
@@ -237,6 +239,8 @@ public class CrashActivity extends BaseActivity {
                         runOnUiThread(() -> ToastUtils.show(this, getString(R.string.crash_open_stream_failed)));
                         return;
                     }
+                    // 先把异步队列中的日志写入文件
+                    LogManager.getInstance(this).flush();
                     zipLogsToStream(logDir, os);
                 }
 
@@ -284,6 +288,13 @@ public class CrashActivity extends BaseActivity {
      * 将单个文件添加到 ZIP 输出流
      */
     private void addFileToZip(File file, String entryName, ZipOutputStream zos) throws IOException {
+        // native 二进制日志解码为文本后写入
+        if (NativeLogDecoder.isBinaryLog(file)) {
+            zos.putNextEntry(new ZipEntry(entryName));
+            NativeLogDecoder.decode(file, zos);
+            zos.closeEntry();
+            return;
+        }
         try (FileInputStream fis = new FileInputStream(file)) {
             ZipEntry zipEntry = new ZipEntry(entryName);
             zos.putNextEntry(zipEntry);
@@ -5,8 +5,10 @@ import android.os.Bundle;
 import android.widget.Button;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
+import android.widget.TextView;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.radiobutton.MaterialRadioButton;
+import com.google.android.material.slider.Slider;
 import com.tech.ezconvert.R;
 import com.tech.ezconvert.utils.AnimationUtils;
 import com.tech.ezconvert.utils.ConfigManager;
@@ -28,7 +30,14 @@ public class LogSettingsActivity extends BaseActivity {
         return R.id.scroll_content;
     }
 
+    // 调用链层数滑块的步长与上限，0 表示不限
+    private static final int STACK_DEPTH_STEP = 4;
+    private static final int MAX_STACK_DEPTH = 64;
+
     private MaterialRadioButton rbAll, rbError;
+    private MaterialRadioButton rbCallerFull, rbCallerLocation, rbCallerOff;
+    private Slider sliderCallerDepth;
+    private TextView tvCallerDepth;
     private Button btnViewLog;
     private MaterialToolbar toolbar;
     private ConfigManager configManager;
@@ -54,6 +63,11 @@ public class LogSettingsActivity extends BaseActivity {
         rbAll = findViewById(R.id.rb_log_all);
         rbError = findViewById(R.id.rb_log_error);
         btnViewLog = findViewById(R.id.btn_view_log);
+        rbCallerFull = findViewById(R.id.rb_caller_full);
+        rbCallerLocation = findViewById(R.id.rb_caller_location);
+        rbCallerOff = findViewById(R.id.rb_caller_off);
+        sliderCallerDepth = findViewById(R.id.slider_caller_depth);
+        tvCallerDepth = findViewById(R.id.tv_caller_depth);
     }
     
     // 设置 Toolbar 返回按钮
@@ -66,6 +80,33 @@ public class LogSettingsActivity extends BaseActivity {
         boolean isVerbose = configManager.isVerboseLoggingEnabled();
         rbAll.setChecked(isVerbose);
         rbError.setChecked(!isVerbose);
+
+        String callerMode = configManager.getLogCallerInfoMode();
+        rbCallerFull.setChecked("full".equals(callerMode));
+        rbCallerLocation.setChecked("caller".equals(callerMode));
+        rbCallerOff.setChecked("off".equals(callerMode));
+        // 配置文件中的层数可能不在滑块刻度上，取最近的刻度
+        int depth = configManager.getLogCallerStackDepth();
+        int sliderDepth = Math.round(depth / (float) STACK_DEPTH_STEP) * STACK_DEPTH_STEP;
+        sliderCallerDepth.setValue(Math.max(0, Math.min(MAX_STACK_DEPTH, sliderDepth)));
+        updateCallerDepthViews();
+    }
+
+    // 层数只对完整调用链有效
+    private void updateCallerDepthViews() {
+        int depth = (int) sliderCallerDepth.getValue();
+        tvCallerDepth.setText(depth > 0
+                ? getString(R.string.log_caller_depth_format, depth)
+                : getString(R.string.log_caller_depth_unlimited));
+        boolean enabled = rbCallerFull.isChecked();
+        sliderCallerDepth.setEnabled(enabled);
+        tvCallerDepth.setEnabled(enabled);
+    }
+
+    // 保存后立即应用到日志管理器，之后的日志按新设置获取调用位置
+    private void applyCallerInfo() {
+        LogManager.getInstance(this).updateCallerInfo(
+                configManager.getLogCallerInfoMode(), configManager.getLogCallerStackDepth());
     }
     
     // 设置监听器
@@ -86,6 +127,29 @@ public class LogSettingsActivity extends BaseActivity {
             ToastUtils.show(this, message);
         });
 
+        RadioGroup rgCaller = findViewById(R.id.rg_log_caller);
+        rgCaller.setOnCheckedChangeListener((group, checkedId) -> {
+            String mode = checkedId == R.id.rb_caller_off ? "off"
+                    : checkedId == R.id.rb_caller_location ? "caller" : "full";
+            configManager.setLogCallerInfoMode(mode);
+            applyCallerInfo();
+            updateCallerDepthViews();
+        });
+
+        sliderCallerDepth.addOnChangeListener((slider, value, fromUser) -> updateCallerDepthViews());
+        // 拖动结束后再保存，避免拖动过程中反复写配置文件
+        sliderCallerDepth.addOnSliderTouchListener(new Slider.OnSliderTouchListener() {
+            @Override
+            public void onStartTrackingTouch(Slider slider) {
+            }
+
+            @Override
+            public void onStopTrackingTouch(Slider slider) {
+                configManager.setLogCallerStackDepth((int) slider.getValue());
+                applyCallerInfo();
+            }
+        });
+
         btnViewLog.setOnClickListener(v -> {
             AnimationUtils.animateButtonClick(v);
             
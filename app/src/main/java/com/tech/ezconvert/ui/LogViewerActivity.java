@@ -12,12 +12,16 @@ import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.DocumentsContract;
 import android.text.Editable;
 import android.text.SpannableStringBuilder;
 import android.text.Spanned;
 import android.text.TextWatcher;
 import android.text.style.ForegroundColorSpan;
+import android.util.LruCache;
+import android.util.SparseIntArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.*;
@@ -32,7 +36,13 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
 import com.tech.ezconvert.BuildConfig;
 import com.tech.ezconvert.R;
+import com.tech.ezconvert.utils.AsyncLogWriter;
 import com.tech.ezconvert.utils.LogManager;
+import com.tech.ezconvert.utils.LogPageSource;
+import com.tech.ezconvert.utils.LogSearchIndex;
+import com.tech.ezconvert.utils.LogcatRecorder;
+import com.tech.ezconvert.utils.NativeLogDecoder;
+import com.tech.ezconvert.utils.NativeLogWriter;
 import com.tech.ezconvert.utils.ToastUtils;
 import java.io.File;
 import java.io.FileInputStream;
@@ -41,9 +51,17 @@ import java.io.OutputStream;
 import java.net.URLDecoder;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
@@ -96,6 +114,28 @@ public class LogViewerActivity extends BaseActivity {
     private LinearLayout ffmpegLogHeader;
     private TextView ffmpegLogCountText;
     private boolean isFfmpegLogExpanded = false;  // 默认收起
+    
+    // Logcat日志相关（只读取文件，logcat 不可用时隐藏）
+    private LogAdapter logcatLogAdapter;
+    private View logcatLogCard;
+    private RecyclerView logcatLogRecyclerView;
+    private ImageView logcatLogExpandIcon;
+    private LinearLayout logcatLogHeader;
+    private TextView logcatLogCountText;
+    private boolean isLogcatLogExpanded = false;  // 默认收起
+    
+    // 搜索：索引只在 searchIndexer 线程中建立、追加和查询，结果再交给 UI 线程过滤列表
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+    private static final int SEARCH_INDEX_CHUNK = 2000;
+    // 打开日志文件期间遇到滚动或清空时重新获取写入点快照的最多次数
+    private static final int MAX_SNAPSHOT_ATTEMPTS = 3;
+    private TextInputEditText searchEditText;
+    private LogSearchIndex appSearchIndex;
+    private LogSearchIndex ffmpegSearchIndex;
+    private LogSearchIndex logcatSearchIndex;
+    private volatile ActiveSearch activeSearch;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::runSearch;
 
     // 底部按钮
     private MaterialButton btnExportLog;
@@ -110,6 +150,15 @@ public class LogViewerActivity extends BaseActivity {
     
     // 日志监听器引用，用于 onDestroy 正确注销
     private LogManager.LogListener logListener;
+    
+    // 建立日志索引、读取分页都在这个线程执行，避免阻塞 UI
+    private final ExecutorService logLoader = Executors.newSingleThreadExecutor();
+    // 搜索索引单独一个线程，大日志建立索引期间分页读取不必排队等待
+    private final ExecutorService searchIndexer = Executors.newSingleThreadExecutor();
+    private int refreshGeneration = 0;
+    // 数据源建立期间到达的日志，建立完成后再追加
+    private boolean isLoadingLogs = false;
+    private final List<LogManager.LogEntry> pendingEntries = new ArrayList<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -132,27 +181,17 @@ public class LogViewerActivity extends BaseActivity {
         initViews(); // 初始化视图
         setupListeners(); // 设置监听器
         loadDeviceInfo(); // 加载设备信息
-        refreshLogDisplay(); // 初始化加载日志 （此时RecyclerView是隐藏的）
         
-        // 注册日志实时监听器，使用增量追加避免全量刷新
+        // 注册日志实时监听器，LogManager 已在主线程按帧合并，这里整批追加
+        // 先于加载日志注册，加载期间到达的日志暂存后按序号去重追加
         logListener = new LogManager.LogListener() {
             @Override
-            public void onLogAdded(LogManager.LogEntry entry) {
-                runOnUiThread(() -> {
-                    if ("FFmpegLog".equals(entry.tag)) {
-                        ffmpegLogAdapter.appendSingle(entry.getFormattedMessage());
-                        ffmpegLogCountText.setText(getString(R.string.log_count_format, logManager.getFfmpegLogCount()));
-                        if (isFfmpegLogExpanded) {
-                            ffmpegLogRecyclerView.scrollToPosition(ffmpegLogAdapter.getItemCount() - 1);
-                        }
-                    } else {
-                        appLogAdapter.appendSingle(entry.getFormattedMessage());
-                        appLogCountText.setText(getString(R.string.log_count_format, logManager.getAppLogCount()));
-                        if (isAppLogExpanded) {
-                            appLogRecyclerView.scrollToPosition(appLogAdapter.getItemCount() - 1);
-                        }
-                    }
-                });
+            public void onLogsAdded(List<LogManager.LogEntry> entries) {
+                if (isLoadingLogs) {
+                    pendingEntries.addAll(entries);
+                } else {
+                    appendLogEntries(entries);
+                }
             }
             
             @Override
@@ -161,6 +200,8 @@ public class LogViewerActivity extends BaseActivity {
             }
         };
         logManager.addListener(logListener);
+        
+        refreshLogDisplay(); // 初始化加载日志 （此时RecyclerView是隐藏的）
     }
 
     // 初始化目录选择启动器
@@ -291,7 +332,7 @@ public class LogViewerActivity extends BaseActivity {
         appLogRecyclerView.setVisibility(View.GONE);
         appLogExpandIcon.setRotation(-90);  // 收起
         
-        appLogAdapter = new LogAdapter(new ArrayList<>());
+        appLogAdapter = new LogAdapter(logLoader);
         appLogRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         appLogRecyclerView.setAdapter(appLogAdapter);
         
@@ -305,9 +346,26 @@ public class LogViewerActivity extends BaseActivity {
         ffmpegLogRecyclerView.setVisibility(View.GONE);
         ffmpegLogExpandIcon.setRotation(-90);  // 收起
         
-        ffmpegLogAdapter = new LogAdapter(new ArrayList<>());
+        ffmpegLogAdapter = new LogAdapter(logLoader);
         ffmpegLogRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         ffmpegLogRecyclerView.setAdapter(ffmpegLogAdapter);
+        
+        // Logcat日志视图
+        logcatLogCard = findViewById(R.id.logcat_log_card);
+        logcatLogRecyclerView = findViewById(R.id.logcat_log_recycler_view);
+        logcatLogExpandIcon = findViewById(R.id.logcat_log_expand_icon);
+        logcatLogHeader = findViewById(R.id.logcat_log_header);
+        logcatLogCountText = findViewById(R.id.logcat_log_count_text);
+        
+        // 默认收起状态
+        logcatLogRecyclerView.setVisibility(View.GONE);
+        logcatLogExpandIcon.setRotation(-90);  // 收起
+        
+        logcatLogAdapter = new LogAdapter(logLoader);
+        logcatLogRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        logcatLogRecyclerView.setAdapter(logcatLogAdapter);
+        
+        searchEditText = findViewById(R.id.log_search_edit_text);
 
         btnExportLog = findViewById(R.id.btn_export_log);
         btnClearLog = findViewById(R.id.btn_clear_log);
@@ -372,6 +430,27 @@ public class LogViewerActivity extends BaseActivity {
             isFfmpegLogExpanded = !isFfmpegLogExpanded;
             toggleCard(ffmpegLogRecyclerView, ffmpegLogExpandIcon, isFfmpegLogExpanded);
         });
+        
+        // Logcat日志卡片点击
+        logcatLogHeader.setOnClickListener(v -> {
+            isLogcatLogExpanded = !isLogcatLogExpanded;
+            toggleCard(logcatLogRecyclerView, logcatLogExpandIcon, isLogcatLogExpanded);
+        });
+        
+        // 搜索框：输入停顿后再查询
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+            
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+            
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchHandler.removeCallbacks(searchRunnable);
+                searchHandler.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MS);
+            }
+        });
 
         // 清空按钮
         btnClearLog.setOnClickListener(v -> {
@@ -412,21 +491,202 @@ public class LogViewerActivity extends BaseActivity {
         }
     }
 
+    // 重建数据源：日志文件按偏移索引分页读取，文件之后的新日志来自内存，用于初始化或清除后重建
     private void refreshLogDisplay() {
-        // 应用日志：全量刷新，用于初始化或清除后重建
-        List<String> appLogs = logManager.getAppLogsFromMemory();
-        appLogAdapter.updateData(appLogs);
-        appLogCountText.setText(getString(R.string.log_count_format, logManager.getAppLogCount()));
-        if (!appLogs.isEmpty() && isAppLogExpanded) {
-            appLogRecyclerView.scrollToPosition(appLogs.size() - 1);
+        int generation = ++refreshGeneration;
+        isLoadingLogs = true;
+        File indexDir = new File(getCacheDir(), "log_index");
+        
+        logLoader.execute(() -> {
+            // 文件只读到写入点快照为止，快照之后的日志来自内存尾部；
+            // 打开期间日志文件被滚动或清空时文件名已对应不同的文件，重新获取快照
+            AsyncLogWriter.FlushPoint point = logManager.flushAndSnapshot();
+            List<LogManager.LogEntry> appTail = logManager.getAppLogEntriesAfter(point.sequence);
+            List<LogManager.LogEntry> ffmpegTail = logManager.getFfmpegLogEntriesAfter(point.sequence);
+            LogPageSource openedApp = LogPageSource.open(logManager.getAppLogFiles(), indexDir, appTail, point);
+            LogPageSource openedFfmpeg = LogPageSource.open(logManager.getFfmpegLogFiles(), indexDir, ffmpegTail, point);
+            for (int attempt = 1; !logManager.isSnapshotCurrent(point) && attempt < MAX_SNAPSHOT_ATTEMPTS; attempt++) {
+                openedApp.close();
+                openedFfmpeg.close();
+                point = logManager.flushAndSnapshot();
+                appTail = logManager.getAppLogEntriesAfter(point.sequence);
+                ffmpegTail = logManager.getFfmpegLogEntriesAfter(point.sequence);
+                openedApp = LogPageSource.open(logManager.getAppLogFiles(), indexDir, appTail, point);
+                openedFfmpeg = LogPageSource.open(logManager.getFfmpegLogFiles(), indexDir, ffmpegTail, point);
+            }
+            final List<LogManager.LogEntry> finalAppTail = appTail;
+            final List<LogManager.LogEntry> finalFfmpegTail = ffmpegTail;
+            final LogPageSource appSource = openedApp;
+            final LogPageSource ffmpegSource = openedFfmpeg;
+            LogPageSource logcatSource = LogPageSource.openLines(LogcatRecorder.getInstance().getLogFiles(), indexDir);
+            
+            runOnUiThread(() -> {
+                if (generation != refreshGeneration || isDestroyed()) {
+                    appSource.close();
+                    ffmpegSource.close();
+                    logcatSource.close();
+                    return;
+                }
+                isLoadingLogs = false;
+                appLogAdapter.setSource(appSource);
+                ffmpegLogAdapter.setSource(ffmpegSource);
+                logcatLogAdapter.setSource(logcatSource);
+                logcatLogCard.setVisibility(logcatSource.size() > 0 ? View.VISIBLE : View.GONE);
+                appendLogEntries(pendingEntries);
+                pendingEntries.clear();
+                
+                updateLogCounts();
+                if (isAppLogExpanded && appLogAdapter.getItemCount() > 0) {
+                    appLogRecyclerView.scrollToPosition(appLogAdapter.getItemCount() - 1);
+                }
+                if (isFfmpegLogExpanded && ffmpegLogAdapter.getItemCount() > 0) {
+                    ffmpegLogRecyclerView.scrollToPosition(ffmpegLogAdapter.getItemCount() - 1);
+                }
+            });
+            
+            // 搜索索引在另一个线程建立，不阻塞列表的分页读取；之后追加的日志由 indexAppendedLogs 按顺序补入
+            try {
+                searchIndexer.execute(() -> {
+                    appSearchIndex = buildSearchIndex(appSource, LogSearchIndex.Format.APP, finalAppTail);
+                    ffmpegSearchIndex = buildSearchIndex(ffmpegSource, LogSearchIndex.Format.FFMPEG, finalFfmpegTail);
+                    logcatSearchIndex = buildSearchIndex(logcatSource, LogSearchIndex.Format.LOGCAT,
+                            Collections.<LogManager.LogEntry>emptyList());
+                    ActiveSearch search = activeSearch;
+                    if (search != null) {
+                        searchOnIndexer(search);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // 页面已销毁，不再建立索引
+            }
+        });
+    }
+    
+    // 索引失败时返回 null，该数据源不参与搜索
+    private static LogSearchIndex buildSearchIndex(LogPageSource source, LogSearchIndex.Format format,
+                                                   List<LogManager.LogEntry> tail) {
+        LogSearchIndex index = new LogSearchIndex(format);
+        try {
+            int total = source.getFileEntryCount();
+            for (int start = 0; start < total; start += SEARCH_INDEX_CHUNK) {
+                for (String line : source.readFileEntries(start, SEARCH_INDEX_CHUNK)) {
+                    index.add(line);
+                }
+            }
+        } catch (IOException e) {
+            return null;
         }
-
-        // FFmpeg日志：全量刷新
-        List<String> ffmpegLogs = logManager.getFfmpegLogsFromMemory();
-        ffmpegLogAdapter.updateData(ffmpegLogs);
-        ffmpegLogCountText.setText(getString(R.string.log_count_format, logManager.getFfmpegLogCount()));
-        if (!ffmpegLogs.isEmpty() && isFfmpegLogExpanded) {
-            ffmpegLogRecyclerView.scrollToPosition(ffmpegLogs.size() - 1);
+        for (LogManager.LogEntry entry : tail) {
+            index.add(entry.getFormattedMessage());
+        }
+        return index;
+    }
+    
+    // 新日志（从数据源位置 start 开始连续追加）补入索引，匹配当前搜索的整批追加到过滤结果
+    private void indexAppendedLogs(boolean isFfmpeg, int start, List<LogManager.LogEntry> entries) {
+        LogAdapter adapter = isFfmpeg ? ffmpegLogAdapter : appLogAdapter;
+        searchIndexer.execute(() -> {
+            LogSearchIndex index = isFfmpeg ? ffmpegSearchIndex : appSearchIndex;
+            // 位置对不上说明数据源已重建，交给新的索引处理
+            if (index == null || index.size() != start) return;
+            ActiveSearch search = activeSearch;
+            List<Integer> matched = new ArrayList<>();
+            for (int i = 0; i < entries.size(); i++) {
+                Collection<String> terms = index.add(entries.get(i).getFormattedMessage());
+                if (search != null && search.query.matches(terms)) {
+                    matched.add(start + i);
+                }
+            }
+            if (!matched.isEmpty()) {
+                runOnUiThread(() -> {
+                    if (adapter.appendFiltered(search, matched)) {
+                        updateLogCounts();
+                    }
+                });
+            }
+        });
+    }
+    
+    private void runSearch() {
+        CharSequence text = searchEditText.getText();
+        LogSearchIndex.Query query = LogSearchIndex.Query.parse(text != null ? text.toString() : "");
+        if (query.isEmpty()) {
+            activeSearch = null;
+            appLogAdapter.setFilter(null, null);
+            ffmpegLogAdapter.setFilter(null, null);
+            logcatLogAdapter.setFilter(null, null);
+            updateLogCounts();
+            return;
+        }
+        ActiveSearch search = new ActiveSearch(query);
+        activeSearch = search;
+        searchIndexer.execute(() -> searchOnIndexer(search));
+    }
+    
+    private void searchOnIndexer(ActiveSearch search) {
+        int[] appMatches = appSearchIndex != null ? appSearchIndex.search(search.query) : new int[0];
+        int[] ffmpegMatches = ffmpegSearchIndex != null ? ffmpegSearchIndex.search(search.query) : new int[0];
+        int[] logcatMatches = logcatSearchIndex != null ? logcatSearchIndex.search(search.query) : new int[0];
+        runOnUiThread(() -> {
+            if (search != activeSearch) return;
+            appLogAdapter.setFilter(search, appMatches);
+            ffmpegLogAdapter.setFilter(search, ffmpegMatches);
+            logcatLogAdapter.setFilter(search, logcatMatches);
+            updateLogCounts();
+        });
+    }
+    
+    // 当前生效的查询，用对象本身区分不同次查询
+    private static final class ActiveSearch {
+        final LogSearchIndex.Query query;
+        
+        ActiveSearch(LogSearchIndex.Query query) {
+            this.query = query;
+        }
+    }
+    
+    // 增量追加单条日志，已在数据源中的日志（序号不大于数据源最新序号）会被忽略
+    private void appendLogEntries(List<LogManager.LogEntry> entries) {
+        List<LogManager.LogEntry> appEntries = new ArrayList<>();
+        List<LogManager.LogEntry> ffmpegEntries = new ArrayList<>();
+        for (LogManager.LogEntry entry : entries) {
+            if ("FFmpegLog".equals(entry.tag)) {
+                ffmpegEntries.add(entry);
+            } else {
+                appEntries.add(entry);
+            }
+        }
+        appendLogEntries(false, appEntries);
+        appendLogEntries(true, ffmpegEntries);
+    }
+    
+    // 整批追加到一个列表：一次范围插入通知、一次计数更新和滚动
+    private void appendLogEntries(boolean isFfmpeg, List<LogManager.LogEntry> entries) {
+        if (entries.isEmpty()) return;
+        LogAdapter adapter = isFfmpeg ? ffmpegLogAdapter : appLogAdapter;
+        List<LogManager.LogEntry> appended = new ArrayList<>(entries.size());
+        int start = adapter.appendEntries(entries, appended);
+        if (appended.isEmpty()) return;
+        
+        indexAppendedLogs(isFfmpeg, start, appended);
+        updateLogCount(adapter, isFfmpeg ? ffmpegLogCountText : appLogCountText);
+        if (isFfmpeg ? isFfmpegLogExpanded : isAppLogExpanded) {
+            RecyclerView recyclerView = isFfmpeg ? ffmpegLogRecyclerView : appLogRecyclerView;
+            recyclerView.scrollToPosition(adapter.getItemCount() - 1);
+        }
+    }
+    
+    private void updateLogCounts() {
+        updateLogCount(appLogAdapter, appLogCountText);
+        updateLogCount(ffmpegLogAdapter, ffmpegLogCountText);
+        updateLogCount(logcatLogAdapter, logcatLogCountText);
+    }
+    
+    private void updateLogCount(LogAdapter adapter, TextView countText) {
+        if (adapter.isFiltered()) {
+            countText.setText(getString(R.string.log_match_count_format, adapter.getItemCount(), adapter.getTotalCount()));
+        } else {
+            countText.setText(getString(R.string.log_count_format, adapter.getTotalCount()));
         }
     }
 
@@ -443,6 +703,9 @@ public class LogViewerActivity extends BaseActivity {
         sb.append(appVersionNameText.getText().toString()).append("\n");
         sb.append(appVersionCodeText.getText().toString()).append("\n");
         sb.append(appCommitHashText.getText().toString()).append("\n");
+        NativeLogWriter.Stats nativeStats = NativeLogWriter.getStats();
+        sb.append(getString(R.string.log_native_stats_format,
+                nativeStats.writtenCount, nativeStats.droppedCount, nativeStats.queuedCount)).append("\n");
         sb.append("\n").append(getString(R.string.log_section_app_logs)).append("\n");
         
         List<String> allLogs = logManager.getAllLogs();
@@ -595,6 +858,9 @@ public class LogViewerActivity extends BaseActivity {
                         return;
                     }
                     
+                    // 先把异步队列中的日志写入文件
+                    LogManager.getInstance(this).flush();
+                    
                     // 压缩日志目录到输出流
                     zipDirectoryToStream(logDir, os);
                 }
@@ -639,6 +905,14 @@ public class LogViewerActivity extends BaseActivity {
             return;
         }
         
+        // native 二进制日志解码为文本后写入
+        if (NativeLogDecoder.isBinaryLog(fileToZip)) {
+            zos.putNextEntry(new ZipEntry(fileName));
+            NativeLogDecoder.decode(fileToZip, zos);
+            zos.closeEntry();
+            return;
+        }
+        
         // 压缩文件
         try (FileInputStream fis = new FileInputStream(fileToZip)) {
             ZipEntry zipEntry = new ZipEntry(fileName);
@@ -672,28 +946,99 @@ public class LogViewerActivity extends BaseActivity {
         if (logListener != null) {
             logManager.removeListener(logListener);
         }
+        // 关闭日志文件句柄后停止加载线程
+        searchHandler.removeCallbacks(searchRunnable);
+        appLogAdapter.setSource(null);
+        ffmpegLogAdapter.setSource(null);
+        logcatLogAdapter.setSource(null);
+        logLoader.shutdown();
+        searchIndexer.shutdown();
     }
 
     private static class LogAdapter extends RecyclerView.Adapter<LogAdapter.Holder> {
-        private List<String> list;
         // 正则匹配日志级别标签
         private static final Pattern LEVEL_PATTERN = Pattern.compile("\\[(ERROR|WARN|INFO|DEBUG|VERBOSE)\\]");
         
-        LogAdapter(List<String> list) { 
-            this.list = new ArrayList<>(list); 
+        private final ExecutorService loader;
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+        private LogPageSource source;
+        // 搜索结果：数据源中匹配的位置（升序），null 表示不过滤
+        private int[] filter;
+        private int filterCount = 0;
+        private Object filterToken;
+        // 数据源更换后丢弃旧数据源的分页加载结果
+        private int generation = 0;
+        private final Set<Integer> loadingPages = new HashSet<>();
+        // 只为显示过的行生成富文本，位置只会追加，可按位置缓存
+        private final LruCache<Integer, CharSequence> styledCache = new LruCache<>(500);
+        // 主题颜色只解析一次
+        private final SparseIntArray colorCache = new SparseIntArray();
+        
+        LogAdapter(ExecutorService loader) {
+            this.loader = loader;
+        }
+        
+        // 更换数据源：用于初始化、清除日志，旧数据源在加载线程上关闭
+        void setSource(LogPageSource newSource) {
+            LogPageSource old = source;
+            source = newSource;
+            filter = null;
+            filterCount = 0;
+            filterToken = null;
+            generation++;
+            loadingPages.clear();
+            styledCache.evictAll();
+            notifyDataSetChanged();
+            if (old != null) {
+                loader.execute(old::close);
+            }
+        }
+        
+        // 增量追加一批：用于实时日志追加，实际追加的日志放入 appended，返回第一条在数据源中的位置
+        int appendEntries(List<LogManager.LogEntry> entries, List<LogManager.LogEntry> appended) {
+            if (source == null) return -1;
+            int start = source.size();
+            for (LogManager.LogEntry entry : entries) {
+                if (source.appendTail(entry)) {
+                    appended.add(entry);
+                }
+            }
+            if (filter == null && !appended.isEmpty()) {
+                notifyItemRangeInserted(start, appended.size());
+            }
+            return start;
         }
         
-        // 全量刷新：用于初始化、清除日志、手动刷新
-        void updateData(List<String> newList) {
-            this.list = new ArrayList<>(newList);
+        // 设置搜索结果，token 标识本次查询，positions 为 null 时取消过滤
+        void setFilter(Object token, int[] positions) {
+            filterToken = token;
+            filter = positions;
+            filterCount = positions != null ? positions.length : 0;
             notifyDataSetChanged();
         }
         
-        // 增量追加单条：用于实时日志追加
-        void appendSingle(String logLine) {
-            int position = list.size();
-            list.add(logLine);
-            notifyItemInserted(position);
+        // 匹配当前查询的新日志（升序）追加到结果末尾
+        boolean appendFiltered(Object token, List<Integer> positions) {
+            if (filter == null || token != filterToken) return false;
+            int start = filterCount;
+            for (int position : positions) {
+                if (filterCount > 0 && filter[filterCount - 1] >= position) continue;
+                if (filterCount == filter.length) {
+                    filter = Arrays.copyOf(filter, Math.max(16, filterCount * 2));
+                }
+                filter[filterCount++] = position;
+            }
+            if (filterCount == start) return false;
+            notifyItemRangeInserted(start, filterCount - start);
+            return true;
+        }
+        
+        boolean isFiltered() {
+            return filter != null;
+        }
+        
+        int getTotalCount() {
+            return source != null ? source.size() : 0;
         }
         
         @Override public Holder onCreateViewHolder(android.view.ViewGroup p, int vType) {
@@ -705,14 +1050,69 @@ public class LogViewerActivity extends BaseActivity {
         }
         
         @Override public void onBindViewHolder(Holder h, int i) {
-            String logEntry = list.get(i);
             TextView textView = (TextView) h.itemView;
+            int position = filter != null ? filter[i] : i;
+            String logEntry = source.peek(position);
+            if (logEntry == null) {
+                // 所在页尚未读取，先显示空行，读取完成后刷新
+                textView.setText("");
+                requestPage(LogPageSource.pageOf(position));
+                return;
+            }
             
             // 应用带整行颜色+标签背景的富文本
-            textView.setText(createStyledLog(logEntry, textView.getContext()));
+            CharSequence styled = styledCache.get(position);
+            if (styled == null) {
+                styled = createStyledLog(logEntry, textView.getContext());
+                styledCache.put(position, styled);
+            }
+            textView.setText(styled);
         }
         
-        @Override public int getItemCount() { return list.size(); }
+        @Override public int getItemCount() {
+            if (filter != null) return filterCount;
+            return source != null ? source.size() : 0;
+        }
+        
+        // 刷新数据源位置 [start, start + count) 对应的列表项
+        private void notifySourceRangeChanged(int start, int count) {
+            if (filter == null) {
+                notifyItemRangeChanged(start, count);
+                return;
+            }
+            int from = lowerBound(start);
+            int to = lowerBound(start + count);
+            if (to > from) {
+                notifyItemRangeChanged(from, to - from);
+            }
+        }
+        
+        private int lowerBound(int position) {
+            int index = Arrays.binarySearch(filter, 0, filterCount, position);
+            return index >= 0 ? index : -index - 1;
+        }
+        
+        private void requestPage(int page) {
+            if (!loadingPages.add(page)) return;
+            LogPageSource pageSource = source;
+            int requestGeneration = generation;
+            loader.execute(() -> {
+                int loaded;
+                try {
+                    loaded = pageSource.loadPage(page);
+                } catch (IOException e) {
+                    loaded = 0;
+                }
+                int count = loaded;
+                mainHandler.post(() -> {
+                    if (requestGeneration != generation) return;
+                    loadingPages.remove(page);
+                    if (count > 0) {
+                        notifySourceRangeChanged(page * LogPageSource.PAGE_SIZE, count);
+                    }
+                });
+            });
+        }
         
         private SpannableStringBuilder createStyledLog(String logLine, Context context) {
             SpannableStringBuilder ssb = new SpannableStringBuilder(logLine);
@@ -801,7 +1201,17 @@ public class LogViewerActivity extends BaseActivity {
         }
         
         // 安全获取主题属性颜色值
-        private static int resolveColor(Context context, int attrResId) {
+        private int resolveColor(Context context, int attrResId) {
+            int index = colorCache.indexOfKey(attrResId);
+            if (index >= 0) {
+                return colorCache.valueAt(index);
+            }
+            int color = resolveThemeColor(context, attrResId);
+            colorCache.put(attrResId, color);
+            return color;
+        }
+        
+        private static int resolveThemeColor(Context context, int attrResId) {
             android.util.TypedValue typedValue = new android.util.TypedValue();
             android.content.res.Resources.Theme theme = context.getTheme();
             if (theme.resolveAttribute(attrResId, typedValue, true)) {
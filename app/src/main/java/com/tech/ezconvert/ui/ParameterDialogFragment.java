@@ -29,6 +29,7 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
 import com.tech.ezconvert.R;
 import com.tech.ezconvert.utils.ConfigManager;
+import com.tech.ezconvert.utils.MediaProbeCache;
 import com.tech.ezconvert.utils.ParameterData;
 import com.tech.ezconvert.utils.ParameterPresetManager;
 import com.tech.ezconvert.utils.ToastUtils;
@@ -66,7 +67,7 @@ public class ParameterDialogFragment extends DialogFragment {
     private Slider sliderVolume;
     private MaterialAutoCompleteTextView spinnerOutputFormat, spinnerVideoCodec, spinnerAudioCodec, spinnerBitrateUnit;
     private TextInputEditText etBitrateValue, etAudioBitrateValue, etCutStart, etCutDuration,
-            etScreenshotTime, etScreenshotResolution, etScreenshotQuality;
+            etScreenshotTime, etScreenshotInterval, etScreenshotResolution, etScreenshotQuality;
     private ChipGroup chipVideoBitrateGroup, chipAudioBitrateGroup;
     private Chip chipVideoOriginal, chipVideoCustom, chipAudioOriginal, chipAudioCustom;
     private LinearLayout customBitrateLayout, customAudioBitrateLayout, screenshotSection, cutSection;
@@ -115,9 +116,9 @@ public class ParameterDialogFragment extends DialogFragment {
             presetManager.savePreset(defaultPresetName, currentParams);
         }
 
-        // 如果是压缩任务，获取当前视频码率
+        // 如果是压缩任务，获取当前视频码率（命中缓存时立即可用，否则异步探测后刷新显示）
         if (isCompressTask && currentFilePath != null) {
-            currentVideoBitrateKbps = getVideoBitrate(currentFilePath);
+            loadVideoBitrate(currentFilePath);
         }
     }
 
@@ -222,6 +223,7 @@ public class ParameterDialogFragment extends DialogFragment {
         etCutStart = view.findViewById(R.id.et_cut_start);
         etCutDuration = view.findViewById(R.id.et_cut_duration);
         etScreenshotTime = view.findViewById(R.id.et_screenshot_time);
+        etScreenshotInterval = view.findViewById(R.id.et_screenshot_interval);
         etScreenshotResolution = view.findViewById(R.id.et_screenshot_resolution);
         etScreenshotQuality = view.findViewById(R.id.et_screenshot_quality);
 
@@ -337,6 +339,7 @@ public class ParameterDialogFragment extends DialogFragment {
         // 截图
         setSpinnerValue(spinnerScreenshotFormat, data.screenshotFormat);
         etScreenshotTime.setText(data.cutStartTime); // 复用开始时间作为截图时间
+        etScreenshotInterval.setText(String.valueOf(data.screenshotInterval));
         etScreenshotResolution.setText(data.screenshotResolution);
         etScreenshotQuality.setText(String.valueOf(data.screenshotQuality));
 
@@ -693,6 +696,14 @@ public class ParameterDialogFragment extends DialogFragment {
         currentParams.cutDuration = etCutDuration.getText().toString();
 
         // 截图
+        if ("screenshot".equals(taskType)) {
+            currentParams.cutStartTime = etScreenshotTime.getText().toString();
+        }
+        try {
+            currentParams.screenshotInterval = Integer.parseInt(etScreenshotInterval.getText().toString());
+        } catch (NumberFormatException e) {
+            currentParams.screenshotInterval = 0;
+        }
         currentParams.screenshotFormat = spinnerScreenshotFormat.getText().toString();
         currentParams.screenshotResolution = etScreenshotResolution.getText().toString();
         try {
@@ -741,16 +752,7 @@ public class ParameterDialogFragment extends DialogFragment {
         }
         
         // 如果是压缩任务，显示当前码率
-        if (isCompressTask && currentVideoBitrateKbps > 0) {
-            tvCurrentBitrate.setVisibility(View.VISIBLE);
-            if (currentVideoBitrateKbps >= 1000) {
-                tvCurrentBitrate.setText(getString(R.string.current_bitrate_mbps, String.valueOf(currentVideoBitrateKbps / 1000.0)));
-            } else {
-                tvCurrentBitrate.setText(getString(R.string.current_bitrate_kbps, currentVideoBitrateKbps));
-            }
-        } else {
-            tvCurrentBitrate.setVisibility(View.GONE);
-        }
+        updateCurrentBitrateDisplay();
         
         // 先全部隐藏，再按需显示
         videoParamsContainer.setVisibility(View.GONE);
@@ -803,21 +805,38 @@ public class ParameterDialogFragment extends DialogFragment {
         }
     }
 
-    private int getVideoBitrate(String filePath) {
-        try {
-            com.arthenica.ffmpegkit.FFprobeSession session =
-                    com.arthenica.ffmpegkit.FFprobeKit.execute(
-                            "-v quiet -select_streams v:0 -show_entries stream=bit_rate -of default=noprint_wrappers=1:nokey=1 \"" + filePath + "\"");
-            if (session != null) {
-                String output = session.getOutput();
-                if (output != null && !output.trim().isEmpty()) {
-                    int bps = Integer.parseInt(output.trim());
-                    return bps / 1000;
-                }
+    private void updateCurrentBitrateDisplay() {
+        if (tvCurrentBitrate == null) return;
+        if (isCompressTask && currentVideoBitrateKbps > 0) {
+            tvCurrentBitrate.setVisibility(View.VISIBLE);
+            if (currentVideoBitrateKbps >= 1000) {
+                tvCurrentBitrate.setText(getString(R.string.current_bitrate_mbps, String.valueOf(currentVideoBitrateKbps / 1000.0)));
+            } else {
+                tvCurrentBitrate.setText(getString(R.string.current_bitrate_kbps, currentVideoBitrateKbps));
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        } else {
+            tvCurrentBitrate.setVisibility(View.GONE);
+        }
+    }
+
+    private void loadVideoBitrate(String filePath) {
+        MediaProbeCache probeCache = MediaProbeCache.getInstance(requireContext());
+        MediaProbeCache.ProbeResult cached = probeCache.getCached(filePath);
+        if (cached != null) {
+            currentVideoBitrateKbps = toBitrateKbps(cached);
+            return;
         }
-        return 2000; // 默认
+
+        currentVideoBitrateKbps = 2000; // 探测完成前先使用默认值
+        probeCache.probeAsync(filePath, result -> {
+            if (result == null || !isAdded()) return;
+            currentVideoBitrateKbps = toBitrateKbps(result);
+            updateCurrentBitrateDisplay();
+        });
+    }
+
+    private static int toBitrateKbps(MediaProbeCache.ProbeResult result) {
+        long bps = result.videoBitRate > 0 ? result.videoBitRate : result.bitRate;
+        return bps > 0 ? (int) (bps / 1000) : 2000; // 默认
     }
 }
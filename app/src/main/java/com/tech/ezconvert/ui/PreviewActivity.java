@@ -1,5 +1,6 @@
 package com.tech.ezconvert.ui;
 
+import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.net.Uri;
@@ -12,6 +13,7 @@ import android.view.View;
 import android.view.animation.DecelerateInterpolator;
 import android.widget.FrameLayout;
 import android.widget.ImageButton;
+import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
@@ -32,12 +34,17 @@ import com.google.android.material.progressindicator.CircularProgressIndicator;
 import com.google.android.material.slider.Slider;
 import com.tech.ezconvert.R;
 import com.tech.ezconvert.utils.AnimationUtils;
+import com.tech.ezconvert.utils.CacheManager;
 import com.tech.ezconvert.utils.FileUtils;
 import com.tech.ezconvert.utils.Log;
+import com.tech.ezconvert.utils.MediaProbeCache;
+import com.tech.ezconvert.utils.ThumbnailStripCache;
 import com.tech.ezconvert.utils.ToastUtils;
 
 import java.io.File;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class PreviewActivity extends BaseActivity {
 
@@ -69,6 +76,7 @@ public class PreviewActivity extends BaseActivity {
     private ImageButton fullscreenBtn;
     private ImageButton changeFileBtn;
     private ImageButton mediaInfoBtn;
+    private ImageView scrubPreviewImage;
 
     private ExoPlayer exoPlayer;
 
@@ -86,6 +94,15 @@ public class PreviewActivity extends BaseActivity {
     private String cachedStaticMediaInfo = "";
     private String currentFilePath = "";
     private Uri currentFileUri = null;
+    private String currentDisplayName = null;
+    // 后台正在打开当前文件，路径尚未确定
+    private boolean mediaPathPending = false;
+    // 每次加载新文件递增，丢弃之前文件迟到的打开结果
+    private int mediaLoadGeneration = 0;
+    // 打开 content Uri 的后台线程，不在主线程访问 ContentResolver
+    private final ExecutorService mediaPathExecutor = Executors.newSingleThreadExecutor();
+    // 拖动进度条时显示的缩略图条，未生成完成时为 null
+    private ThumbnailStripCache.Strip thumbnailStrip = null;
 
     // 手势与定时器
     private GestureDetector gestureDetector;
@@ -153,6 +170,7 @@ public class PreviewActivity extends BaseActivity {
         mediaInfoText = findViewById(R.id.media_info_text);
         realtimeInfoText = findViewById(R.id.realtime_info_text);
         mediaInfoBtn = findViewById(R.id.media_info_btn);
+        scrubPreviewImage = findViewById(R.id.scrub_preview_image);
 
         // 设置 toolbar 返回按钮
         toolbar.setNavigationOnClickListener(v -> {
@@ -232,7 +250,7 @@ public class PreviewActivity extends BaseActivity {
         // 首次显示时加载静态信息（只有路径有效时才加载）
         if (cachedStaticMediaInfo.isEmpty() && currentFilePath != null && !currentFilePath.isEmpty()) {
             loadMediaInfoStatic();
-        } else if (cachedStaticMediaInfo.isEmpty()) {
+        } else if (cachedStaticMediaInfo.isEmpty() && !mediaPathPending) {
             cachedStaticMediaInfo = getString(R.string.media_info_no_file);
         }
 
@@ -302,12 +320,10 @@ public class PreviewActivity extends BaseActivity {
             return;
         }
 
-        String probeCommand = "-v quiet -print_format json -show_format -show_streams \"" + currentFilePath + "\"";
-
-        com.arthenica.ffmpegkit.FFprobeKit.executeAsync(probeCommand, session -> {
-            String output = session.getOutput();
-            if (output != null && !output.isEmpty()) {
-                cachedStaticMediaInfo = parseStaticMediaInfo(output);
+        MediaProbeCache.getInstance(this).probeAsync(currentFilePath, result -> {
+            if (result != null && result.rawJson != null) {
+                cachedStaticMediaInfo = parseStaticMediaInfo(this, result.rawJson,
+                        currentDisplayName != null ? currentDisplayName : currentFilePath);
             } else {
                 cachedStaticMediaInfo = getString(R.string.media_info_cannot_get);
                 Log.e("PreviewActivity", "获取媒体信息失败");
@@ -315,27 +331,27 @@ public class PreviewActivity extends BaseActivity {
         });
     }
 
-    // 解析 FFprobe JSON 为静态信息字符串
-    private String parseStaticMediaInfo(String jsonOutput) {
+    // 解析 FFprobe JSON 为静态信息字符串（静态方法，便于基准测试直接调用）
+    static String parseStaticMediaInfo(Context context, String jsonOutput, String filePath) {
         StringBuilder info = new StringBuilder();
-        String unknown = getString(R.string.media_info_unknown);
+        String unknown = context.getString(R.string.media_info_unknown);
 
         try {
             org.json.JSONObject root = new org.json.JSONObject(jsonOutput);
 
             if (root.has("format")) {
                 org.json.JSONObject format = root.getJSONObject("format");
-                String fileName = currentFilePath != null ? new File(currentFilePath).getName() : "?";
-                info.append(getString(R.string.media_info_file))
+                String fileName = filePath != null ? new File(filePath).getName() : "?";
+                info.append(context.getString(R.string.media_info_file))
                     .append(fileName).append("\n");
-                info.append(getString(R.string.media_info_format))
+                info.append(context.getString(R.string.media_info_format))
                     .append(format.optString("format_name", unknown)).append("\n");
-                info.append(getString(R.string.media_info_duration))
+                info.append(context.getString(R.string.media_info_duration))
                     .append(formatTime((long)(format.optDouble("duration", 0) * 1000))).append("\n");
-                info.append(getString(R.string.media_info_size))
+                info.append(context.getString(R.string.media_info_size))
                     .append(formatFileSize(format.optLong("size", 0))).append("\n");
-                info.append(getString(R.string.media_info_bitrate))
-                    .append(formatBitrate(format.optLong("bit_rate", 0))).append("\n\n");
+                info.append(context.getString(R.string.media_info_bitrate))
+                    .append(formatBitrate(context, format.optLong("bit_rate", 0))).append("\n\n");
             }
 
             if (root.has("streams")) {
@@ -345,9 +361,9 @@ public class PreviewActivity extends BaseActivity {
                     String codecType = stream.optString("codec_type", "");
 
                     if ("video".equals(codecType)) {
-                        info.append(getString(R.string.media_info_video))
+                        info.append(context.getString(R.string.media_info_video))
                             .append(stream.optString("codec_name", unknown)).append("\n");
-                        info.append(getString(R.string.media_info_resolution))
+                        info.append(context.getString(R.string.media_info_resolution))
                             .append(stream.optInt("width", 0))
                             .append("x").append(stream.optInt("height", 0)).append("\n");
 
@@ -365,29 +381,29 @@ public class PreviewActivity extends BaseActivity {
                                     if (den > 0) {
                                         double frameRate = num / den;
                                         if (frameRate > 0 && frameRate < 1000) {
-                                            info.append(getString(R.string.media_info_framerate))
+                                            info.append(context.getString(R.string.media_info_framerate))
                                                 .append(String.format("%.2f", frameRate)).append(" fps\n");
                                         }
                                     }
                                 } catch (NumberFormatException ignored) {}
                             }
                         }
-                        info.append(getString(R.string.media_info_pixel_format))
+                        info.append(context.getString(R.string.media_info_pixel_format))
                             .append(stream.optString("pix_fmt", unknown)).append("\n\n");
 
                     } else if ("audio".equals(codecType)) {
-                        info.append(getString(R.string.media_info_audio))
+                        info.append(context.getString(R.string.media_info_audio))
                             .append(stream.optString("codec_name", unknown)).append("\n");
-                        info.append(getString(R.string.media_info_samplerate))
+                        info.append(context.getString(R.string.media_info_samplerate))
                             .append(stream.optInt("sample_rate", 0) / 1000).append(" kHz\n");
-                        info.append(getString(R.string.media_info_channels))
+                        info.append(context.getString(R.string.media_info_channels))
                             .append(stream.optInt("channels", 0)).append("\n\n");
                     }
                 }
             }
 
         } catch (Exception e) {
-            info.append(getString(R.string.media_info_parse_failed)).append(e.getMessage());
+            info.append(context.getString(R.string.media_info_parse_failed)).append(e.getMessage());
         }
 
         return info.toString().trim();
@@ -507,15 +523,15 @@ public class PreviewActivity extends BaseActivity {
         }
     }
 
-    private String formatFileSize(long size) {
+    private static String formatFileSize(long size) {
         if (size <= 0) return "0 B";
         final String[] units = new String[]{"B", "KB", "MB", "GB", "TB"};
         int digitGroups = (int) (Math.log10(size) / Math.log10(1024));
         return String.format(Locale.getDefault(), "%.1f %s", size / Math.pow(1024, digitGroups), units[digitGroups]);
     }
 
-    private String formatBitrate(long bitRate) {
-        if (bitRate <= 0) return getString(R.string.media_info_unknown);
+    private static String formatBitrate(Context context, long bitRate) {
+        if (bitRate <= 0) return context.getString(R.string.media_info_unknown);
         if (bitRate < 1000) return bitRate + " bps";
         if (bitRate < 1000000) return String.format("%.1f Kbps", bitRate / 1000.0);
         return String.format("%.2f Mbps", bitRate / 1000000.0);
@@ -608,6 +624,7 @@ public class PreviewActivity extends BaseActivity {
             @Override
             public void onStopTrackingTouch(@NonNull Slider slider) {
                 isUserSeeking = false;
+                scrubPreviewImage.setVisibility(View.GONE);
                 if (exoPlayer != null) {
                     long duration = exoPlayer.getDuration();
                     long position = (long) ((duration * slider.getValue()) / 1000f);
@@ -623,6 +640,7 @@ public class PreviewActivity extends BaseActivity {
                 if (duration > 0) {
                     long position = (long) ((duration * value) / 1000f);
                     currentTimeText.setText(formatTime(position));
+                    showScrubPreview(position);
                 }
             }
         });
@@ -689,16 +707,13 @@ public class PreviewActivity extends BaseActivity {
 
         // 设置标题
         toolbar.setTitle(displayName);
+        currentDisplayName = displayName;
 
-        // 尝试获取文件路径（用于 FFprobe 信息，可能为 null）
-        String filePath = FileUtils.getPath(this, uri);
-        currentFilePath = (filePath != null && !filePath.isEmpty()) ? filePath : null;
-        // 如果路径为空，则清空静态缓存
-        if (currentFilePath == null) {
-            cachedStaticMediaInfo = getString(R.string.media_info_no_file);
-        } else {
-            cachedStaticMediaInfo = ""; // 延迟加载
-        }
+        // 后台取得 FFprobe 可读的路径，静态信息和拖动预览用的缩略图条在路径确定后再加载
+        releaseCurrentFilePath();
+        cachedStaticMediaInfo = "";
+        thumbnailStrip = null;
+        resolveMediaPath(uri);
 
         // 显示加载指示器
         loadingIndicator.setVisibility(View.VISIBLE);
@@ -725,6 +740,77 @@ public class PreviewActivity extends BaseActivity {
         loadMedia(uri);
     }
 
+    // 在后台取得 FFprobe/FFmpeg 可读的路径：file Uri 直接使用路径，content Uri 以 /proc/self/fd 形式打开，不复制文件
+    // 描述符路径的缓存键取自源 Uri，同一文件再次打开时探测结果和缩略图条都能命中缓存
+    private void resolveMediaPath(Uri uri) {
+        int generation = ++mediaLoadGeneration;
+        mediaPathPending = true;
+        Context appContext = getApplicationContext();
+        mediaPathExecutor.execute(() -> {
+            String path = null;
+            if ("content".equalsIgnoreCase(uri.getScheme())) {
+                CacheManager.AccessResult result = CacheManager.openDescriptorInput(appContext, uri);
+                if (result != null) {
+                    path = result.usablePath;
+                } else {
+                    Log.w("PreviewActivity", "无法以文件描述符打开，不显示媒体信息和缩略图: " + uri);
+                }
+            } else if ("file".equalsIgnoreCase(uri.getScheme())) {
+                path = uri.getPath();
+            }
+            final String resolved = path;
+            uiHandler.post(() -> onMediaPathResolved(generation, resolved));
+        });
+    }
+
+    private void onMediaPathResolved(int generation, String path) {
+        if (generation != mediaLoadGeneration || isDestroyed()) {
+            CacheManager.releaseDescriptor(path);
+            return;
+        }
+        mediaPathPending = false;
+        currentFilePath = path;
+        if (path == null) {
+            cachedStaticMediaInfo = getString(R.string.media_info_no_file);
+            return;
+        }
+        if (isMediaInfoVisible && cachedStaticMediaInfo.isEmpty()) {
+            loadMediaInfoStatic();
+        }
+        requestThumbnailStrip(path);
+    }
+
+    // 关闭当前文件的描述符，并让仍在打开中的结果作废
+    private void releaseCurrentFilePath() {
+        mediaLoadGeneration++;
+        mediaPathPending = false;
+        CacheManager.releaseDescriptor(currentFilePath);
+        currentFilePath = null;
+    }
+
+    // 探测完成后请求缩略图条，生成期间切换了文件则丢弃结果
+    // 描述符编号会被复用，按加载序号而不是路径判断
+    private void requestThumbnailStrip(String filePath) {
+        if (filePath == null) return;
+        int generation = mediaLoadGeneration;
+        MediaProbeCache.getInstance(this).probeAsync(filePath, probe ->
+                ThumbnailStripCache.getInstance(this).requestStrip(filePath, probe, strip -> {
+                    if (generation == mediaLoadGeneration) {
+                        thumbnailStrip = strip;
+                    }
+                }));
+    }
+
+    // 拖动进度条时显示对应位置的缩略图，播放器只在松手后定位一次
+    private void showScrubPreview(long positionMs) {
+        ThumbnailStripCache.getInstance(this).getThumbnail(thumbnailStrip, positionMs, thumbnail -> {
+            // 解码完成前已经松手则不再显示
+            if (!isUserSeeking) return;
+            scrubPreviewImage.setImageBitmap(thumbnail);
+            scrubPreviewImage.setVisibility(View.VISIBLE);
+        });
+    }
+
     // 返回空状态界面 (选择文件卡片)，停止当前播放
     private void returnToEmptyState() {
         if (isMediaInfoVisible && mediaInfoText != null) {
@@ -756,8 +842,12 @@ public class PreviewActivity extends BaseActivity {
         }
 
         // 重置状态
+        releaseCurrentFilePath();
         currentFilePath = "";
         currentFileUri = null;
+        currentDisplayName = null;
+        thumbnailStrip = null;
+        scrubPreviewImage.setVisibility(View.GONE);
         isPlaying = false;
 
         // 如果当前是全屏状态，先退出全屏
@@ -1048,7 +1138,7 @@ public class PreviewActivity extends BaseActivity {
         super.onBackPressed();
     }
 
-    private String formatTime(long millis) {
+    private static String formatTime(long millis) {
         if (millis < 0) return "00:00";
         long totalSeconds = millis / 1000;
         long hours = totalSeconds / 3600;
@@ -1106,6 +1196,9 @@ public class PreviewActivity extends BaseActivity {
         super.onDestroy();
         uiHandler.removeCallbacksAndMessages(null);
         stopMediaInfoRealtimeLoop();
+        ThumbnailStripCache.getInstance(this).releaseDecoder();
+        releaseCurrentFilePath();
+        mediaPathExecutor.shutdown();
         if (exoPlayer != null) {
             exoPlayer.release();
             exoPlayer = null;
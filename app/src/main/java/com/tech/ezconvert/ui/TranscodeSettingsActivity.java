@@ -26,6 +26,7 @@ public class TranscodeSettingsActivity extends BaseActivity {
     
     private MaterialSwitch hardwareAccelerationSwitch;
     private MaterialSwitch multithreadingSwitch;
+    private MaterialSwitch segmentParallelSwitch;
     private Button saveSettingsBtn;
     private MaterialToolbar toolbar;
     private ConfigManager configManager;
@@ -53,6 +54,7 @@ public class TranscodeSettingsActivity extends BaseActivity {
     private void initializeViews() {
         hardwareAccelerationSwitch = findViewById(R.id.hardware_acceleration_switch);
         multithreadingSwitch = findViewById(R.id.multithreading_switch);
+        segmentParallelSwitch = findViewById(R.id.segment_parallel_switch);
         saveSettingsBtn = findViewById(R.id.save_settings_btn);
         toolbar = findViewById(R.id.title_container);
     }
@@ -71,11 +73,13 @@ public class TranscodeSettingsActivity extends BaseActivity {
         
         hardwareAccelerationSwitch.setChecked(hardwareAcceleration);
         multithreadingSwitch.setChecked(multithreading);
+        segmentParallelSwitch.setChecked(configManager.isSegmentParallelEnabled());
     }
     
     private void saveSettings() {
         configManager.setHardwareAccelerationEnabled(hardwareAccelerationSwitch.isChecked());
         configManager.setMultithreadingEnabled(multithreadingSwitch.isChecked());
+        configManager.setSegmentParallelEnabled(segmentParallelSwitch.isChecked());
         
         ToastUtils.show(this, getString(R.string.toast_settings_saved));
         finish();
@@ -0,0 +1,315 @@
+package com.tech.ezconvert.utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步日志文件写入器
+ * 调用线程只把日志行放入有界环形队列，由独立线程批量写入；队列满时丢弃并计数，调用线程不会等待磁盘。
+ * 每个日志文件保持一个长期打开的缓冲流，按数据量或时间间隔批量刷盘，超过大小上限时滚动
+ */
+public class AsyncLogWriter {
+    private static final String TAG = "AsyncLogWriter";
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 256;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+    private static final long FLUSH_WAIT_MS = 2000;
+
+    private final long maxFileBytes;
+    private final int maxBackups;
+
+    // 写入记录，line 为 null 时表示刷盘请求；sequence 为调用方的日志序号，0 表示没有序号
+    private static class Record {
+        final File file;
+        final String line;
+        final long sequence;
+        final CountDownLatch flushLatch;
+
+        Record(File file, String line, long sequence, CountDownLatch flushLatch) {
+            this.file = file;
+            this.line = line;
+            this.sequence = sequence;
+            this.flushLatch = flushLatch;
+        }
+    }
+
+    /**
+     * 写入点快照：序号不大于 sequence 的日志已全部写入文件，且都位于各文件的 length 之内，
+     * 之后写入的内容都在 length 之后。fileGeneration 变化（滚动或清空）后文件名对应的文件已不同，快照作废
+     */
+    public static class FlushPoint {
+        public final long sequence;
+        public final long fileGeneration;
+        private final Map<File, Long> lengths;
+
+        FlushPoint(long sequence, long fileGeneration, Map<File, Long> lengths) {
+            this.sequence = sequence;
+            this.fileGeneration = fileGeneration;
+            this.lengths = lengths;
+        }
+
+        // 快照时文件的字节长度，快照时不存在的文件返回 -1
+        public long getLength(File file) {
+            Long length = lengths.get(file);
+            return length != null ? length : -1;
+        }
+    }
+
+    // 单个日志文件的打开状态，仅在写入线程中访问
+    private static class FileState {
+        BufferedWriter writer;
+        long bytes;
+    }
+
+    private final ArrayBlockingQueue<Record> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Map<File, FileState> openFiles = new HashMap<>();
+    private final Object fileLock = new Object();
+    private final AtomicLong droppedLines = new AtomicLong();
+    private long pendingBytes = 0;
+    private long lastFlushTime = System.currentTimeMillis();
+    // 以下两项只在持有 fileLock 时修改
+    private volatile long lastWrittenSequence = 0;
+    private volatile long fileGeneration = 0;
+
+    public AsyncLogWriter(long maxFileBytes, int maxBackups) {
+        this.maxFileBytes = maxFileBytes;
+        this.maxBackups = maxBackups;
+        Thread thread = new Thread(this::runLoop, "EzLogWriter");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * 追加一行日志，不阻塞；队列已满时丢弃并返回 false
+     */
+    public boolean write(File file, String line) {
+        return write(file, line, 0);
+    }
+
+    /**
+     * 追加一行带序号的日志；调用方需保证入队顺序与序号顺序一致，flushAndSnapshot 才能以序号划分文件内容
+     */
+    public boolean write(File file, String line, long sequence) {
+        if (file == null || line == null) return false;
+        if (!queue.offer(new Record(file, line, sequence, null))) {
+            droppedLines.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 等待队列中已有的日志写入磁盘（用于崩溃、导出等场景），最多等待 2 秒
+     */
+    public void flush() {
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            if (queue.offer(new Record(null, null, 0, latch), FLUSH_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                latch.await(FLUSH_WAIT_MS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 把已写入缓冲的日志刷到磁盘，并在同一时刻记录最后写入的序号和各文件长度（files 为候选文件，不存在的忽略）
+     * 持有写入线程的文件锁完成，不等待队列中尚未处理的日志，它们的序号都大于快照序号
+     */
+    public FlushPoint flushAndSnapshot(List<File> files) {
+        synchronized (fileLock) {
+            flushAll();
+            Map<File, Long> lengths = new HashMap<>();
+            for (File file : files) {
+                if (file.isFile()) {
+                    lengths.put(file, file.length());
+                }
+            }
+            return new FlushPoint(lastWrittenSequence, fileGeneration, lengths);
+        }
+    }
+
+    public long getFileGeneration() {
+        return fileGeneration;
+    }
+
+    /**
+     * 关闭所有打开的文件后执行操作（如删除日志文件），之后的写入会重新打开文件
+     */
+    public void closeFilesAndRun(Runnable action) {
+        synchronized (fileLock) {
+            closeAll();
+            fileGeneration++;
+            if (action != null) {
+                action.run();
+            }
+        }
+    }
+
+    public long getDroppedLineCount() {
+        return droppedLines.get();
+    }
+
+    private void runLoop() {
+        List<Record> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            Record first;
+            try {
+                first = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            synchronized (fileLock) {
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, BATCH_SIZE - 1);
+                    for (Record record : batch) {
+                        handle(record);
+                    }
+                    batch.clear();
+                }
+
+                long now = System.currentTimeMillis();
+                if (pendingBytes >= BUFFER_SIZE || (pendingBytes > 0 && now - lastFlushTime >= FLUSH_INTERVAL_MS)) {
+                    flushAll();
+                }
+            }
+        }
+    }
+
+    private void handle(Record record) {
+        if (record.line == null) {
+            flushAll();
+            record.flushLatch.countDown();
+            return;
+        }
+
+        if (record.sequence > 0) {
+            lastWrittenSequence = record.sequence;
+        }
+        FileState state = getState(record.file);
+        if (state == null) return;
+
+        try {
+            long dropped = droppedLines.getAndSet(0);
+            if (dropped > 0) {
+                String notice = "[AsyncLogWriter] 日志队列已满，丢弃 " + dropped + " 行\n";
+                state.writer.write(notice);
+                state.bytes += notice.length();
+                pendingBytes += notice.length();
+            }
+
+            state.writer.write(record.line);
+            state.writer.write('\n');
+            // 按字符数近似估算字节数，仅用于刷盘与滚动判断
+            int length = record.line.length() + 1;
+            state.bytes += length;
+            pendingBytes += length;
+
+            if (state.bytes >= maxFileBytes) {
+                rotate(record.file, state);
+            }
+        } catch (IOException e) {
+            android.util.Log.e(TAG, "写入失败: " + e.getMessage());
+            closeQuietly(record.file, state);
+        }
+    }
+
+    private FileState getState(File file) {
+        FileState state = openFiles.get(file);
+        if (state != null) return state;
+
+        try {
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            state = new FileState();
+            state.writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(file, true), StandardCharsets.UTF_8), BUFFER_SIZE);
+            state.bytes = file.length();
+            openFiles.put(file, state);
+            return state;
+        } catch (IOException e) {
+            android.util.Log.e(TAG, "打开日志文件失败: " + file + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 第 index 个历史文件，如 EzConvert.log 的第 1 个历史文件为 EzConvert.1.log
+     */
+    public static File getBackupFile(File file, int index) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String ext = dot > 0 ? name.substring(dot) : "";
+        return new File(file.getParentFile(), base + "." + index + ext);
+    }
+
+    // EzConvert.log -> EzConvert.1.log -> EzConvert.2.log，超出保留数量的最旧文件被删除
+    private void rotate(File file, FileState state) {
+        closeQuietly(file, state);
+        fileGeneration++;
+
+        File oldest = getBackupFile(file, maxBackups);
+        if (oldest.exists()) {
+            oldest.delete();
+        }
+        for (int i = maxBackups - 1; i >= 1; i--) {
+            File src = getBackupFile(file, i);
+            if (src.exists()) {
+                src.renameTo(getBackupFile(file, i + 1));
+            }
+        }
+        if (maxBackups > 0) {
+            file.renameTo(getBackupFile(file, 1));
+        } else {
+            file.delete();
+        }
+    }
+
+    private void flushAll() {
+        for (Map.Entry<File, FileState> entry : new ArrayList<>(openFiles.entrySet())) {
+            try {
+                entry.getValue().writer.flush();
+            } catch (IOException e) {
+                android.util.Log.e(TAG, "刷盘失败: " + e.getMessage());
+                closeQuietly(entry.getKey(), entry.getValue());
+            }
+        }
+        pendingBytes = 0;
+        lastFlushTime = System.currentTimeMillis();
+    }
+
+    private void closeAll() {
+        for (Map.Entry<File, FileState> entry : new ArrayList<>(openFiles.entrySet())) {
+            closeQuietly(entry.getKey(), entry.getValue());
+        }
+        pendingBytes = 0;
+    }
+
+    private void closeQuietly(File file, FileState state) {
+        openFiles.remove(file);
+        try {
+            state.writer.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -1,37 +1,99 @@
 package com.tech.ezconvert.utils;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Environment;
+import android.os.ParcelFileDescriptor;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructStat;
+import android.provider.DocumentsContract;
+import android.provider.MediaStore;
+import android.provider.OpenableColumns;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 import com.tech.ezconvert.utils.Log;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.channels.FileChannel;
+import java.lang.reflect.Type;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class CacheManager {
     private static final String TAG = "CacheManager";
     private static final String CACHE_SUB_DIR = "processing_cache";
-    private static final long MAX_CACHE_SIZE = 2L * 1024 * 1024 * 1024; // 2GB 缓存上限
+    private static final String INDEX_FILE = "index.json";
+    private static final String PART_SUFFIX = ".part";
+    private static final long MAX_CACHE_BUDGET = 2L * 1024 * 1024 * 1024; // 2GB 字节预算
+    private static final long MIN_FREE_SPACE = 512L * 1024 * 1024; // 至少给系统保留 512MB
+    private static final int HEAD_SAMPLE_SIZE = 64 * 1024; // 无修改时间时取文件头 64KB 参与内容键
     private static final ConcurrentHashMap<String, String> activeCacheFiles = new ConcurrentHashMap<>();
     
+    // 暂存缓存索引：内容键 -> 条目，按访问顺序排列，最久未使用的在前
+    private static final Object indexLock = new Object();
+    private static LinkedHashMap<String, CacheEntry> cacheIndex;
+    private static long totalCacheBytes = 0;
+    private static File cacheDirectory;
+    private static final ConcurrentHashMap<String, String> cachePathKeys = new ConcurrentHashMap<>();
+    // 同一内容同时只复制一次，其他任务等待后直接复用
+    private static final ConcurrentHashMap<String, Object> copyLocks = new ConcurrentHashMap<>();
+    private static final ExecutorService indexExecutor = Executors.newSingleThreadExecutor();
+    private static final Gson gson = new Gson();
+    
+    // 以文件描述符形式交给 FFmpeg 的输入，路径形如 /proc/self/fd/N，任务结束后需关闭
+    private static final String FD_PATH_PREFIX = "/proc/self/fd/";
+    private static final ConcurrentHashMap<String, ParcelFileDescriptor> openDescriptors = new ConcurrentHashMap<>();
+    // 描述符路径 -> 稳定的输入标识（Uri + 大小 + 修改时间），fd 编号会被复用，不能直接作为缓存键
+    private static final ConcurrentHashMap<String, String> descriptorIdentities = new ConcurrentHashMap<>();
+    
     // 文件访问性检查结果
     public static class AccessResult {
         public final String usablePath;      // 实际可用的路径（原路径或缓存路径）
         public final boolean isFromCache;    // 是否来自缓存
         public final long originalSize;      // 原始文件大小
+        public final boolean isDescriptor;   // 是否为 /proc/self/fd 形式的零拷贝输入
         
         public AccessResult(String usablePath, boolean isFromCache, long originalSize) {
+            this(usablePath, isFromCache, originalSize, false);
+        }
+        
+        public AccessResult(String usablePath, boolean isFromCache, long originalSize, boolean isDescriptor) {
             this.usablePath = usablePath;
             this.isFromCache = isFromCache;
             this.originalSize = originalSize;
+            this.isDescriptor = isDescriptor;
         }
     }
     
+    // 暂存缓存条目
+    static class CacheEntry {
+        String fileName;
+        String source;
+        long size;
+        long lastAccess;
+        boolean temporary;          // 无法生成稳定内容键的副本，释放后即删除，不写入索引
+        transient int refCount;     // 正在使用该副本的任务数
+    }
+    
     // 检查文件是否可以直接访问，如果不能则复制到缓存目录下
     public static AccessResult prepareFileForProcessing(Context context, String inputPath, Uri contentUri) {
         if (inputPath == null && contentUri == null) {
@@ -46,12 +108,19 @@ public class CacheManager {
             return new AccessResult(inputPath, false, file.length());
         }
         
-        // 2. 无法直接访问，必须通过 Uri 复制到缓存
-        Log.w(TAG, "路径不可直接访问，尝试使用 ContentResolver 复制 (Uri: " + contentUri + ")");
-        String cachePath = copyToCache(context, contentUri, inputPath);
+        // 2. 通过 ContentResolver 打开文件描述符，FFmpeg 直接读取，无需复制
+        if (contentUri != null && "content".equalsIgnoreCase(contentUri.getScheme())) {
+            AccessResult descriptorResult = openDescriptorInput(context, contentUri);
+            if (descriptorResult != null) {
+                return descriptorResult;
+            }
+        }
+        
+        // 3. 提供方不支持随机读取（如管道），使用暂存缓存中的副本，没有则复制
+        Log.w(TAG, "路径不可直接访问，尝试使用暂存缓存 (Uri: " + contentUri + ")");
+        String cachePath = acquireCacheCopy(context, contentUri, inputPath);
         
         if (cachePath != null) {
-            Log.d(TAG, "文件已复制到缓存: " + cachePath);
             // 记录映射关系（原始路径存为 key）
             activeCacheFiles.put(cachePath, inputPath != null ? inputPath : (contentUri != null ? contentUri.toString() : "unknown"));
             File cacheFile = new File(cachePath);
@@ -102,39 +171,155 @@ public class CacheManager {
         return false;
     }
     
-    // 将文件复制到应用的私有缓存目录
-    private static String copyToCache(Context context, Uri contentUri, String fallbackPath) {
+    // 以只读方式打开 Uri，返回 /proc/self/fd/N 路径
+    // FFmpeg 打开该路径时内核会重新打开底层文件，得到独立的读取位置，因此同一任务内的探测、分段等多次打开互不影响
+    // 管道等不可 seek 的描述符，以及重新打开被拒绝的描述符返回 null，由调用方回退到复制
+    // 打开了 ContentResolver，不要在主线程调用；用完后调用 releaseDescriptor 关闭
+    public static AccessResult openDescriptorInput(Context context, Uri contentUri) {
         if (context == null) {
             return null;
         }
         
-        // 创建缓存目录
-        File cacheDir = new File(context.getCacheDir(), CACHE_SUB_DIR);
-        if (!cacheDir.exists()) {
-            cacheDir.mkdirs();
-        }
-        
-        // 生成缓存文件名（优先从 Uri 获取，否则从 fallbackPath 解析）
-        String fileName = "temp_" + System.currentTimeMillis();
-        if (contentUri != null) {
-            String name = FileUtils.getDisplayName(context, contentUri);
-            if (name != null && !name.isEmpty()) {
-                fileName = name;
+        ParcelFileDescriptor pfd = null;
+        try {
+            pfd = context.getContentResolver().openFileDescriptor(contentUri, "r");
+            if (pfd == null) {
+                return null;
+            }
+            
+            StructStat stat = Os.fstat(pfd.getFileDescriptor());
+            if (!OsConstants.S_ISREG(stat.st_mode)) {
+                Log.d(TAG, "描述符不是普通文件，无法随机读取: " + contentUri);
+                pfd.close();
+                return null;
+            }
+            Os.lseek(pfd.getFileDescriptor(), 0, OsConstants.SEEK_SET);
+            
+            String fdPath = FD_PATH_PREFIX + pfd.getFd();
+            if (!isFileDirectlyAccessible(fdPath)) {
+                Log.d(TAG, "描述符路径无法重新打开: " + fdPath);
+                pfd.close();
+                return null;
             }
-        } else if (fallbackPath != null) {
-            File src = new File(fallbackPath);
-            fileName = src.getName();
-            if (fileName.isEmpty()) {
-                fileName = "temp_" + System.currentTimeMillis();
+            
+            openDescriptors.put(fdPath, pfd);
+            descriptorIdentities.put(fdPath, contentUri + "|" + stat.st_size + "|" + stat.st_mtime);
+            Log.d(TAG, "使用文件描述符直接读取: " + fdPath + " (Uri: " + contentUri + ", "
+                    + formatFileSize(stat.st_size) + ")");
+            return new AccessResult(fdPath, false, stat.st_size, true);
+        } catch (IOException | ErrnoException | SecurityException e) {
+            Log.w(TAG, "无法以文件描述符打开 Uri: " + contentUri + " - " + e.getMessage());
+            if (pfd != null) {
+                try {
+                    pfd.close();
+                } catch (IOException ignored) {}
             }
+            return null;
         }
-        File cacheFile = new File(cacheDir, fileName);
-        
-        // 检查缓存空间（粗略估计）
-        if (!ensureCacheSpace(context, 10 * 1024 * 1024)) {
-            Log.e(TAG, "缓存空间不足");
+    }
+    
+    // 是否为 /proc/self/fd 形式的输入路径
+    public static boolean isDescriptorPath(String path) {
+        return path != null && openDescriptors.containsKey(path);
+    }
+    
+    // 描述符输入的稳定标识，非描述符路径返回 null
+    public static String getDescriptorIdentity(String path) {
+        if (path == null || !path.startsWith(FD_PATH_PREFIX)) {
             return null;
         }
+        return descriptorIdentities.get(path);
+    }
+    
+    // 任务结束后关闭描述符
+    public static void releaseDescriptor(String path) {
+        if (path == null) return;
+        descriptorIdentities.remove(path);
+        ParcelFileDescriptor pfd = openDescriptors.remove(path);
+        if (pfd != null) {
+            try {
+                pfd.close();
+                Log.d(TAG, "已关闭文件描述符: " + path);
+            } catch (IOException e) {
+                Log.w(TAG, "关闭文件描述符失败: " + path);
+            }
+        }
+    }
+    
+    // 获取暂存副本并增加引用计数
+    // 内容键由来源 + 大小 + 修改时间生成，没有修改时间时用文件头采样哈希代替；相同内容的多次任务共用一个副本
+    private static String acquireCacheCopy(Context context, Uri contentUri, String fallbackPath) {
+        if (context == null) {
+            return null;
+        }
+        ensureIndexLoaded(context);
+        
+        SourceInfo info = querySourceInfo(context, contentUri, fallbackPath);
+        String key = buildContentKey(context, contentUri, fallbackPath, info);
+        boolean temporary = (key == null);
+        if (temporary) {
+            // 无法确定内容是否变化，只能按一次性副本处理
+            key = "tmp_" + UUID.randomUUID();
+        }
+        
+        Object copyLock = copyLocks.computeIfAbsent(key, k -> new Object());
+        synchronized (copyLock) {
+            try {
+                // 命中缓存
+                synchronized (indexLock) {
+                    CacheEntry entry = cacheIndex.get(key);
+                    if (entry != null) {
+                        File file = new File(cacheDirectory, entry.fileName);
+                        if (file.exists() && file.length() == entry.size) {
+                            entry.refCount++;
+                            entry.lastAccess = System.currentTimeMillis();
+                            cachePathKeys.put(file.getAbsolutePath(), key);
+                            Log.d(TAG, "暂存缓存命中: " + file.getName() + " (" + formatFileSize(entry.size) + ")");
+                            scheduleSaveIndex();
+                            return file.getAbsolutePath();
+                        }
+                        // 文件已被外部删除，移除失效条目
+                        removeEntryLocked(key, entry);
+                    }
+                    
+                    if (!ensureCacheSpaceLocked(info.size > 0 ? info.size : 0)) {
+                        Log.e(TAG, "缓存空间不足");
+                        return null;
+                    }
+                }
+                
+                String fileName = (temporary ? key : sha1Hex(key)) + getExtension(info.displayName);
+                File cacheFile = new File(cacheDirectory, fileName);
+                long size = copyToFile(context, contentUri, fallbackPath, cacheFile);
+                if (size < 0) {
+                    return null;
+                }
+                
+                synchronized (indexLock) {
+                    CacheEntry entry = new CacheEntry();
+                    entry.fileName = fileName;
+                    entry.source = contentUri != null ? contentUri.toString() : fallbackPath;
+                    entry.size = size;
+                    entry.lastAccess = System.currentTimeMillis();
+                    entry.temporary = temporary;
+                    entry.refCount = 1;
+                    cacheIndex.put(key, entry);
+                    totalCacheBytes += size;
+                    cachePathKeys.put(cacheFile.getAbsolutePath(), key);
+                    // 大小未知时复制完成后再检查一次预算
+                    ensureCacheSpaceLocked(0);
+                }
+                scheduleSaveIndex();
+                return cacheFile.getAbsolutePath();
+            } finally {
+                copyLocks.remove(key, copyLock);
+            }
+        }
+    }
+    
+    // 复制到目标文件，先写入 .part 再重命名，避免中断时留下不完整的副本；失败返回 -1
+    private static long copyToFile(Context context, Uri contentUri, String fallbackPath, File cacheFile) {
+        File partFile = new File(cacheFile.getAbsolutePath() + PART_SUFFIX);
         
         // 使用 ContentResolver 打开输入流
         try (InputStream inputStream = (contentUri != null) 
@@ -143,134 +328,290 @@ public class CacheManager {
             
             if (inputStream == null) {
                 Log.e(TAG, "无法打开输入流");
-                return null;
+                return -1;
             }
             
-            try (FileOutputStream fos = new FileOutputStream(cacheFile)) {
+            long total = 0;
+            long startTime = System.currentTimeMillis();
+            try (FileOutputStream fos = new FileOutputStream(partFile)) {
                 byte[] buffer = new byte[64 * 1024];
                 int len;
-                long total = 0;
-                long startTime = System.currentTimeMillis();
                 while ((len = inputStream.read(buffer)) != -1) {
                     fos.write(buffer, 0, len);
                     total += len;
                 }
-                long duration = System.currentTimeMillis() - startTime;
-                Log.d(TAG, String.format("文件复制完成: %s (%.1f MB, %d ms)", 
-                    cacheFile.getAbsolutePath(), total / (1024.0 * 1024.0), duration));
-                return cacheFile.getAbsolutePath();
             }
+            if (!partFile.renameTo(cacheFile)) {
+                throw new IOException("重命名失败: " + partFile.getName());
+            }
+            long duration = System.currentTimeMillis() - startTime;
+            Log.d(TAG, String.format("文件复制完成: %s (%.1f MB, %d ms)", 
+                cacheFile.getAbsolutePath(), total / (1024.0 * 1024.0), duration));
+            return total;
         } catch (IOException e) {
             Log.e(TAG, "复制文件失败: " + e.getMessage(), e);
-            if (cacheFile.exists()) {
-                cacheFile.delete();
-            }
-            return null;
+            partFile.delete();
+            return -1;
         }
     }
     
-    // 确保缓存目录有足够的空间
-    private static boolean ensureCacheSpace(Context context, long requiredBytes) {
-        File cacheDir = new File(context.getCacheDir(), CACHE_SUB_DIR);
-        long currentCacheSize = calculateDirectorySize(cacheDir);
-        
-        if (currentCacheSize + requiredBytes > MAX_CACHE_SIZE) {
-            // 需要清理旧缓存
-            Log.w(TAG, "缓存空间不足，当前: " + formatFileSize(currentCacheSize) + 
-                  ", 需要: " + formatFileSize(requiredBytes));
-            cleanupOldCache(cacheDir, requiredBytes);
-            
-            // 再次检查
-            currentCacheSize = calculateDirectorySize(cacheDir);
-            return (currentCacheSize + requiredBytes <= MAX_CACHE_SIZE);
-        }
-        return true;
+    // 来源文件的元数据
+    private static class SourceInfo {
+        String displayName;
+        long size = -1;
+        long lastModified = -1;
     }
     
-    // 计算目录总大小
-    private static long calculateDirectorySize(File dir) {
-        if (!dir.exists()) return 0;
-        long size = 0;
-        File[] files = dir.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isFile()) {
-                    size += file.length();
+    private static SourceInfo querySourceInfo(Context context, Uri contentUri, String fallbackPath) {
+        SourceInfo info = new SourceInfo();
+        if (contentUri == null) {
+            if (fallbackPath != null) {
+                File src = new File(fallbackPath);
+                info.displayName = src.getName();
+                info.size = src.length();
+                info.lastModified = src.lastModified();
+            }
+            return info;
+        }
+        
+        try (Cursor cursor = context.getContentResolver().query(contentUri, null, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                int nameIndex = cursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
+                if (nameIndex >= 0) info.displayName = cursor.getString(nameIndex);
+                
+                int sizeIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
+                if (sizeIndex >= 0 && !cursor.isNull(sizeIndex)) info.size = cursor.getLong(sizeIndex);
+                
+                // SAF 文档为毫秒，MediaStore 为秒
+                int docModifiedIndex = cursor.getColumnIndex(DocumentsContract.Document.COLUMN_LAST_MODIFIED);
+                int mediaModifiedIndex = cursor.getColumnIndex(MediaStore.MediaColumns.DATE_MODIFIED);
+                if (docModifiedIndex >= 0 && !cursor.isNull(docModifiedIndex)) {
+                    info.lastModified = cursor.getLong(docModifiedIndex);
+                } else if (mediaModifiedIndex >= 0 && !cursor.isNull(mediaModifiedIndex)) {
+                    info.lastModified = cursor.getLong(mediaModifiedIndex) * 1000;
                 }
             }
+        } catch (Exception e) {
+            Log.w(TAG, "查询 Uri 元数据失败: " + e.getMessage());
         }
-        return size;
+        return info;
     }
     
-    // 清理旧缓存文件
-    private static void cleanupOldCache(File cacheDir, long needToFree) {
-        File[] files = cacheDir.listFiles();
-        if (files == null || files.length == 0) return;
+    // 生成内容键，大小未知时返回 null（不可复用）
+    private static String buildContentKey(Context context, Uri contentUri, String fallbackPath, SourceInfo info) {
+        if (info.size <= 0) {
+            return null;
+        }
+        String source = contentUri != null ? contentUri.toString() : fallbackPath;
+        if (info.lastModified > 0) {
+            return source + "|" + info.size + "|" + info.lastModified;
+        }
         
-        // 按最后修改时间排序（最旧的在前）
-        java.util.Arrays.sort(files, (f1, f2) -> 
-            Long.compare(f1.lastModified(), f2.lastModified()));
+        // 没有修改时间，采样文件头
+        try (InputStream in = (contentUri != null)
+                ? context.getContentResolver().openInputStream(contentUri)
+                : new FileInputStream(new File(fallbackPath))) {
+            if (in == null) return null;
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] buffer = new byte[8192];
+            int remaining = HEAD_SAMPLE_SIZE;
+            int len;
+            while (remaining > 0 && (len = in.read(buffer, 0, Math.min(buffer.length, remaining))) != -1) {
+                digest.update(buffer, 0, len);
+                remaining -= len;
+            }
+            return source + "|" + info.size + "|" + toHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException | SecurityException e) {
+            Log.w(TAG, "采样文件头失败: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    // 调用前需持有 indexLock，按 LRU 顺序淘汰未被引用的条目直到满足字节预算
+    private static boolean ensureCacheSpaceLocked(long requiredBytes) {
+        long budget = getCacheBudget();
+        if (totalCacheBytes + requiredBytes <= budget) {
+            return true;
+        }
         
+        Log.w(TAG, "缓存空间不足，当前: " + formatFileSize(totalCacheBytes) + 
+              ", 需要: " + formatFileSize(requiredBytes) + ", 预算: " + formatFileSize(budget));
         long freed = 0;
-        for (File file : files) {
-            if (activeCacheFiles.containsKey(file.getAbsolutePath())) {
+        Iterator<Map.Entry<String, CacheEntry>> it = cacheIndex.entrySet().iterator();
+        while (it.hasNext() && totalCacheBytes + requiredBytes > budget) {
+            Map.Entry<String, CacheEntry> e = it.next();
+            CacheEntry entry = e.getValue();
+            if (entry.refCount > 0) {
                 continue; // 跳过正在使用的文件
             }
+            new File(cacheDirectory, entry.fileName).delete();
+            totalCacheBytes -= entry.size;
+            freed += entry.size;
+            it.remove();
+            Log.d(TAG, "淘汰缓存文件: " + entry.fileName + " (" + formatFileSize(entry.size) + ")");
+        }
+        if (freed > 0) {
+            Log.d(TAG, "共清理缓存: " + formatFileSize(freed));
+            scheduleSaveIndex();
+        }
+        return totalCacheBytes + requiredBytes <= budget;
+    }
+    
+    // 字节预算：不超过 2GB，同时给设备保留最少可用空间
+    private static long getCacheBudget() {
+        long usable = cacheDirectory.getUsableSpace();
+        long allowed = totalCacheBytes + Math.max(0, usable - MIN_FREE_SPACE);
+        return Math.min(MAX_CACHE_BUDGET, allowed);
+    }
+    
+    private static void removeEntryLocked(String key, CacheEntry entry) {
+        cacheIndex.remove(key);
+        totalCacheBytes -= entry.size;
+        new File(cacheDirectory, entry.fileName).delete();
+    }
+    
+    // 加载持久化索引，启动时不再逐个统计文件大小
+    private static void ensureIndexLoaded(Context context) {
+        synchronized (indexLock) {
+            if (cacheIndex != null) return;
+            
+            cacheDirectory = new File(context.getCacheDir(), CACHE_SUB_DIR);
+            if (!cacheDirectory.exists()) {
+                cacheDirectory.mkdirs();
+            }
+            cacheIndex = new LinkedHashMap<>(16, 0.75f, true);
+            totalCacheBytes = 0;
             
-            long fileSize = file.length();
-            if (file.delete()) {
-                freed += fileSize;
-                Log.d(TAG, "清理缓存文件: " + file.getName() + " (" + formatFileSize(fileSize) + ")");
-                if (freed >= needToFree) break;
+            File indexFile = new File(cacheDirectory, INDEX_FILE);
+            if (indexFile.exists()) {
+                try (FileReader reader = new FileReader(indexFile)) {
+                    Type type = new TypeToken<LinkedHashMap<String, CacheEntry>>(){}.getType();
+                    Map<String, CacheEntry> loaded = gson.fromJson(reader, type);
+                    if (loaded != null) {
+                        // 按最近访问时间恢复 LRU 顺序
+                        List<Map.Entry<String, CacheEntry>> entries = new ArrayList<>(loaded.entrySet());
+                        entries.sort((a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess));
+                        for (Map.Entry<String, CacheEntry> e : entries) {
+                            if (e.getValue().temporary || e.getValue().fileName == null) continue;
+                            cacheIndex.put(e.getKey(), e.getValue());
+                            totalCacheBytes += e.getValue().size;
+                        }
+                    }
+                } catch (Exception e) {
+                    Log.w(TAG, "读取缓存索引失败: " + e.getMessage());
+                }
+            }
+            
+            // 删除索引之外的残留文件（中断的复制、一次性副本等），只列目录不统计大小
+            Set<String> known = new HashSet<>();
+            known.add(INDEX_FILE);
+            for (CacheEntry entry : cacheIndex.values()) {
+                known.add(entry.fileName);
+            }
+            String[] names = cacheDirectory.list();
+            if (names != null) {
+                for (String name : names) {
+                    if (!known.contains(name)) {
+                        new File(cacheDirectory, name).delete();
+                    }
+                }
             }
+            Log.d(TAG, "暂存缓存索引已加载: " + cacheIndex.size() + " 个文件, 共 " + formatFileSize(totalCacheBytes));
         }
-        
-        Log.d(TAG, "共清理缓存: " + formatFileSize(freed));
     }
     
-    // 处理完成后清理缓存文件
+    private static void scheduleSaveIndex() {
+        indexExecutor.execute(CacheManager::saveIndex);
+    }
+    
+    private static void saveIndex() {
+        Map<String, CacheEntry> snapshot = new LinkedHashMap<>();
+        File dir;
+        synchronized (indexLock) {
+            if (cacheIndex == null) return;
+            for (Map.Entry<String, CacheEntry> e : cacheIndex.entrySet()) {
+                if (!e.getValue().temporary) {
+                    snapshot.put(e.getKey(), e.getValue());
+                }
+            }
+            dir = cacheDirectory;
+        }
+        File tmp = new File(dir, INDEX_FILE + PART_SUFFIX);
+        try (FileWriter writer = new FileWriter(tmp)) {
+            gson.toJson(snapshot, writer);
+        } catch (IOException e) {
+            Log.w(TAG, "保存缓存索引失败: " + e.getMessage());
+            return;
+        }
+        if (!tmp.renameTo(new File(dir, INDEX_FILE))) {
+            Log.w(TAG, "保存缓存索引失败: 重命名失败");
+        }
+    }
+    
+    // 处理完成后释放缓存副本
     // 应在 FFmpeg 回调的 onComplete 或者 onError 中调用
+    // 副本保留在暂存缓存中供后续任务复用，由 LRU 淘汰；一次性副本在引用归零后立即删除
     public static void releaseCacheFile(String cachePath) {
         if (cachePath == null || !cachePath.contains(CACHE_SUB_DIR)) {
             return; // 不是缓存文件，不处理
         }
         
-        String originalPath = activeCacheFiles.remove(cachePath);
-        if (originalPath != null) {
-            File cacheFile = new File(cachePath);
-            if (cacheFile.exists()) {
-                long size = cacheFile.length();
-                if (cacheFile.delete()) {
-                    Log.d(TAG, "已清理缓存文件: " + cachePath + " (" + formatFileSize(size) + ")");
-                } else {
-                    Log.w(TAG, "清理缓存文件失败: " + cachePath);
+        String key = cachePathKeys.get(cachePath);
+        if (key == null) {
+            return;
+        }
+        
+        synchronized (indexLock) {
+            CacheEntry entry = cacheIndex != null ? cacheIndex.get(key) : null;
+            if (entry == null) {
+                cachePathKeys.remove(cachePath);
+                activeCacheFiles.remove(cachePath);
+                return;
+            }
+            entry.refCount = Math.max(0, entry.refCount - 1);
+            entry.lastAccess = System.currentTimeMillis();
+            if (entry.refCount == 0) {
+                cachePathKeys.remove(cachePath);
+                activeCacheFiles.remove(cachePath);
+                if (entry.temporary) {
+                    removeEntryLocked(key, entry);
+                    Log.d(TAG, "已清理缓存文件: " + cachePath + " (" + formatFileSize(entry.size) + ")");
                 }
             }
+            ensureCacheSpaceLocked(0);
         }
+        scheduleSaveIndex();
     }
     
-    // 清理所有缓存
+    // 启动时加载索引并按预算裁剪
+    public static void trimCache(Context context) {
+        ensureIndexLoaded(context);
+        synchronized (indexLock) {
+            ensureCacheSpaceLocked(0);
+        }
+    }
+    
+    // 清理所有未被使用的缓存
     public static void cleanupAllCache(Context context) {
-        File cacheDir = new File(context.getCacheDir(), CACHE_SUB_DIR);
-        if (!cacheDir.exists()) return;
-        
-        File[] files = cacheDir.listFiles();
-        if (files != null) {
-            int count = 0;
-            long totalSize = 0;
-            for (File file : files) {
-                if (!activeCacheFiles.containsKey(file.getAbsolutePath())) {
-                    long size = file.length();
-                    if (file.delete()) {
-                        count++;
-                        totalSize += size;
-                    }
+        ensureIndexLoaded(context);
+        int count = 0;
+        long totalSize = 0;
+        synchronized (indexLock) {
+            Iterator<Map.Entry<String, CacheEntry>> it = cacheIndex.entrySet().iterator();
+            while (it.hasNext()) {
+                CacheEntry entry = it.next().getValue();
+                if (entry.refCount > 0) continue;
+                if (new File(cacheDirectory, entry.fileName).delete()) {
+                    count++;
+                    totalSize += entry.size;
                 }
+                totalCacheBytes -= entry.size;
+                it.remove();
             }
-            Log.d(TAG, String.format("清理缓存完成: %d 个文件, 共 %s", 
-                count, formatFileSize(totalSize)));
         }
-        activeCacheFiles.clear();
+        scheduleSaveIndex();
+        Log.d(TAG, String.format("清理缓存完成: %d 个文件, 共 %s", 
+            count, formatFileSize(totalSize)));
     }
     
     // 检查文件是否在缓存目录中
@@ -283,6 +624,32 @@ public class CacheManager {
         return activeCacheFiles.get(cachePath);
     }
     
+    private static String getExtension(String displayName) {
+        if (displayName == null) return "";
+        int dot = displayName.lastIndexOf('.');
+        if (dot < 0 || dot == displayName.length() - 1) return "";
+        String ext = displayName.substring(dot).toLowerCase();
+        // 只保留简单扩展名，避免特殊字符进入文件名
+        return ext.matches("\\.[a-z0-9]{1,8}") ? ext : "";
+    }
+    
+    private static String sha1Hex(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return toHex(digest.digest(text.getBytes("UTF-8")));
+        } catch (Exception e) {
+            return Integer.toHexString(text.hashCode());
+        }
+    }
+    
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+    
     private static String formatFileSize(long size) {
         if (size <= 0) return "0 B";
         final String[] units = new String[]{"B", "KB", "MB", "GB", "TB"};
@@ -0,0 +1,113 @@
+package com.tech.ezconvert.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 日志调用位置的获取与格式化
+ * 每条日志只抓取一次堆栈，Log 与 LogManager 共用；同一调用点的格式化结果会被缓存
+ */
+final class CallerInfo {
+
+    // 调用位置模式：完整调用链 / 仅调用位置 / 不获取
+    static final String MODE_FULL = "full";
+    static final String MODE_CALLER = "caller";
+    static final String MODE_OFF = "off";
+
+    static final int DEFAULT_STACK_DEPTH = 16;
+
+    private static final String LOG_CLASS_NAME = Log.class.getName();
+    private static final String LOG_MANAGER_CLASS_NAME = LogManager.class.getName();
+
+    // 调用点缓存上限，超出后整体清空重建，避免动态生成的类无限增长
+    private static final int MAX_CACHED_FRAMES = 2048;
+    private static final ConcurrentHashMap<StackTraceElement, String> locationCache = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<StackTraceElement, String> frameCache = new ConcurrentHashMap<>();
+
+    private final StackTraceElement[] stack;
+    private final int callerIndex;
+
+    private CallerInfo(StackTraceElement[] stack, int callerIndex) {
+        this.stack = stack;
+        this.callerIndex = callerIndex;
+    }
+
+    /**
+     * 抓取当前堆栈并定位到 Log / LogManager 之外的第一个栈帧
+     */
+    static CallerInfo capture() {
+        StackTraceElement[] stack = new Throwable().getStackTrace();
+        int index = 0;
+        while (index < stack.length && isLoggingFrame(stack[index].getClassName())) {
+            index++;
+        }
+        return new CallerInfo(stack, index);
+    }
+
+    static String normalizeMode(String mode) {
+        if (MODE_CALLER.equals(mode) || MODE_OFF.equals(mode)) {
+            return mode;
+        }
+        return MODE_FULL;
+    }
+
+    private static boolean isLoggingFrame(String className) {
+        return className.equals(LOG_CLASS_NAME)
+                || className.equals(LOG_MANAGER_CLASS_NAME)
+                || className.equals(CallerInfo.class.getName());
+    }
+
+    /**
+     * 调用位置，格式为 " (FileName.java:行号)"，无法获取时返回空字符串
+     */
+    String getLocation() {
+        if (callerIndex >= stack.length) return "";
+        StackTraceElement element = stack[callerIndex];
+        String cached = locationCache.get(element);
+        if (cached != null) return cached;
+
+        String fileName = element.getFileName();
+        String location;
+        if (fileName != null) {
+            location = " (" + fileName + ":" + element.getLineNumber() + ")";
+        } else {
+            // 没有文件名时使用类名和方法名
+            location = " (" + element.getClassName() + "." + element.getMethodName() + ")";
+        }
+        return putCached(locationCache, element, location);
+    }
+
+    /**
+     * 从调用位置开始的调用链，最多 maxDepth 层（<= 0 表示不限制），格式为 "类.方法:行号 <- ..."
+     */
+    String getStack(int maxDepth) {
+        int end = stack.length;
+        if (maxDepth > 0) {
+            end = Math.min(end, callerIndex + maxDepth);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = callerIndex; i < end; i++) {
+            StackTraceElement element = stack[i];
+            String frame = frameCache.get(element);
+            if (frame == null) {
+                frame = putCached(frameCache, element,
+                        element.getClassName() + "." + element.getMethodName() + ":" + element.getLineNumber());
+            }
+            if (sb.length() > 0) sb.append(" <- ");
+            sb.append(frame);
+        }
+        if (end < stack.length) {
+            sb.append(" <- ...");
+        }
+        return sb.toString();
+    }
+
+    private static String putCached(ConcurrentHashMap<StackTraceElement, String> cache,
+                                    StackTraceElement element, String value) {
+        if (cache.size() >= MAX_CACHED_FRAMES) {
+            cache.clear();
+        }
+        cache.put(element, value);
+        return value;
+    }
+}
@@ -52,6 +52,8 @@ public class ConfigManager {
     // 配置键常量
     public static final String KEY_TRANSCODE_HARDWARE_ACCEL = "transcode_hardware_acceleration";
     public static final String KEY_TRANSCODE_MULTITHREADING = "transcode_multithreading";
+    public static final String KEY_TRANSCODE_MAX_CONCURRENT = "transcode_max_concurrent_tasks";
+    public static final String KEY_TRANSCODE_SEGMENT_PARALLEL = "transcode_segment_parallel";
     public static final String KEY_LOG_VERBOSE = "log_verbose";
     public static final String KEY_UPDATE_AUTO_CHECK = "update_auto_check_enabled";
     public static final String KEY_UPDATE_CHECK_FREQUENCY = "update_check_frequency";
@@ -210,9 +212,13 @@ public class ConfigManager {
                     "- `last_updated_with_version_code`: 最近更新配置文件时的应用版本号\n\n" +
                     "### 转码设置 (transcode_settings)\n" +
                     "- `hardware_acceleration`: 硬件加速 (true/false)\n" +
-                    "- `multithreading`: 多线程处理 (true/false)\n\n" +
+                    "- `multithreading`: 多线程处理 (true/false)\n" +
+                    "- `max_concurrent_tasks`: 批量处理时同时运行的任务数 (0=根据 CPU 核心数和任务类型自动决定)\n" +
+                    "- `segment_parallel`: 长视频分段并行转码 (true/false)\n\n" +
                     "### 日志设置 (log_settings)\n" +
-                    "- `verbose`: 详细日志模式 (true/false)\n\n" +
+                    "- `verbose`: 详细日志模式 (true/false)\n" +
+                    "- `caller_info`: 日志调用位置 (full=完整调用链, caller=仅文件名和行号, off=不获取)\n" +
+                    "- `caller_stack_depth`: 完整调用链记录的最大层数 (0=不限制)\n\n" +
                     "### 更新设置 (update_settings)\n" +
                     "- `auto_check_enabled`: 自动检查更新 (true/false)\n" +
                     "- `include_prereleases`: 是否检测测试版本更新 (true/false)\n" +
@@ -282,11 +288,15 @@ public class ConfigManager {
         Map<String, Object> transcodeSettings = new HashMap<>();
         transcodeSettings.put("hardware_acceleration", true);
         transcodeSettings.put("multithreading", true);
+        transcodeSettings.put("max_concurrent_tasks", 0); // 0 = 自动
+        transcodeSettings.put("segment_parallel", false);
         settingsMap.put("transcode_settings", transcodeSettings);
         
         // 默认日志设置
         Map<String, Object> logSettings = new HashMap<>();
         logSettings.put("verbose", true);
+        logSettings.put("caller_info", "full");
+        logSettings.put("caller_stack_depth", 16);
         settingsMap.put("log_settings", logSettings);
         
         // 默认通知设置
@@ -502,6 +512,28 @@ public class ConfigManager {
         setSetting("transcode_settings", "multithreading", enabled);
     }
     
+    // 批量并发任务数，0 表示自动
+    public int getMaxConcurrentTasks() {
+        Object value = getSetting("transcode_settings", "max_concurrent_tasks", 0);
+        if (value instanceof Double) {
+            return ((Double) value).intValue();
+        }
+        return (int) value;
+    }
+    
+    public void setMaxConcurrentTasks(int count) {
+        setSetting("transcode_settings", "max_concurrent_tasks", Math.max(0, count));
+    }
+    
+    // 长视频分段并行转码
+    public boolean isSegmentParallelEnabled() {
+        return getSetting("transcode_settings", "segment_parallel", false);
+    }
+    
+    public void setSegmentParallelEnabled(boolean enabled) {
+        setSetting("transcode_settings", "segment_parallel", enabled);
+    }
+    
     // 日志设置
     public boolean isVerboseLoggingEnabled() {
         return getSetting("log_settings", "verbose", true);
@@ -511,6 +543,27 @@ public class ConfigManager {
         setSetting("log_settings", "verbose", enabled);
     }
     
+    // 日志调用位置模式 (full/caller/off)
+    public String getLogCallerInfoMode() {
+        return getSetting("log_settings", "caller_info", "full");
+    }
+    
+    public void setLogCallerInfoMode(String mode) {
+        setSetting("log_settings", "caller_info", mode);
+    }
+    
+    public int getLogCallerStackDepth() {
+        Object value = getSetting("log_settings", "caller_stack_depth", 16);
+        if (value instanceof Double) {
+            return ((Double) value).intValue();
+        }
+        return (int) value;
+    }
+    
+    public void setLogCallerStackDepth(int depth) {
+        setSetting("log_settings", "caller_stack_depth", Math.max(0, depth));
+    }
+    
     // 更新设置
     public boolean isAutoCheckUpdateEnabled() {
         return getSetting("update_settings", "auto_check_enabled", true);
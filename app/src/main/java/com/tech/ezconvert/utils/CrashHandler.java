@@ -80,6 +80,12 @@ public class CrashHandler implements Thread.UncaughtExceptionHandler, Applicatio
             LogcatRecorder.getInstance().crashFlush();
         }
         
+        // 写出异步队列中尚未落盘的应用日志
+        try {
+            LogManager.getInstance().flush();
+        } catch (Exception ignored) {
+        }
+        
         // 启动崩溃界面
         if (context != null) {
             Intent intent = new Intent(context, com.tech.ezconvert.ui.CrashActivity.class);
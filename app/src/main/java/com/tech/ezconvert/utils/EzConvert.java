@@ -56,14 +56,14 @@ public class EzConvert extends Application {
             @Override public void onActivityDestroyed(Activity a) {}
         });
         
-        // 清理可能残留的处理缓存 (后台线程)
+        // 加载暂存缓存索引并按预算裁剪 (后台线程)
         new Thread(() -> {
-            CacheManager.cleanupAllCache(this);
+            CacheManager.trimCache(this);
         }).start();
         
-        // 初始化 mmap 日志（4MB 缓冲区，单文件 50MB 滚动）
+        // 初始化 mmap 日志（4MB 映射窗口，单文件 50MB 滚动，合计保留 100MB）
         File logDir = new File(getExternalFilesDir(null), "logs");
-        NativeLogWriter.init(logDir.getAbsolutePath(), 50);
+        NativeLogWriter.init(logDir.getAbsolutePath(), 50, 4 * 1024, 100);
         
         // 初始化 LogManager
         LogManager.getInstance(this);
@@ -93,6 +93,7 @@ public class EzConvert extends Application {
         if (LogcatRecorder.getInstance().isAvailable()) {
             LogcatRecorder.getInstance().stopRecording();
         }
+        LogManager.getInstance(this).flush();
         NativeLogWriter.close();
         super.onTerminate();
     }
@@ -1,17 +1,15 @@
 package com.tech.ezconvert.utils;
 
 import com.tech.ezconvert.utils.Log;
-import android.app.Notification;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
 import com.arthenica.ffmpegkit.FFmpegKit;
 import com.arthenica.ffmpegkit.FFmpegKitConfig;
 import com.arthenica.ffmpegkit.FFmpegSession;
-import com.arthenica.ffmpegkit.FFmpegSessionCompleteCallback;
-import com.arthenica.ffmpegkit.FFprobeKit;
 import com.arthenica.ffmpegkit.Level;
 import com.arthenica.ffmpegkit.LogCallback;
+import com.arthenica.ffmpegkit.LogRedirectionStrategy;
 import com.arthenica.ffmpegkit.ReturnCode;
 import com.arthenica.ffmpegkit.Session;
 import com.arthenica.ffmpegkit.SessionState;
@@ -21,24 +19,26 @@ import com.arthenica.ffmpegkit.StatisticsCallback;
 import java.io.File;
 import java.lang.ref.PhantomReference;
 import java.lang.ref.ReferenceQueue;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 旧处理器路径（VideoProcessor / AudioProcessor）使用的 FFmpeg 执行工具
+ * 每次执行对应一个会话上下文（回调、总时长、进度通知 ID、临时文件），按 FFmpegKit 会话 ID 保存在并发表中，
+ * 全局日志与统计回调按会话 ID 分发，多个任务可以同时运行，后启动的任务不会取消先启动的任务。
+ * FFmpeg 不等时长探测直接启动，总时长取 FFprobe 结果和会话日志 Duration 行中先到的一个
+ */
 public class FFmpegUtil {
 
     private static final String TAG = "FFmpegUtil";
-    private static FFmpegSession currentSession = null;
-    private static LogManager logManager;
-    private static Context appContext;
-    private static String currentFileName = "";
-    private static volatile boolean isQueryCommand = false;
-    private static volatile boolean isCancelled = false;
+    // 只在 initLogging 时写入，运行期间不随会话变化
+    private static volatile LogManager logManager;
+    private static volatile Context appContext;
     
     // 资源清理机制
     private static final ReferenceQueue<FFmpegSession> refQueue = new ReferenceQueue<>(); 
     private static final CopyOnWriteArraySet<SessionPhantomRef> pendingRefs = new CopyOnWriteArraySet<>();
-    private static int lastNotificationProgress = -1;
-    private static long lastNotificationTime = 0;
     
     static {
         // 后台清理线程
@@ -72,9 +72,64 @@ public class FFmpegUtil {
             FFmpegKit.cancel(sessionId);
         }
     }
-    
-    // 存储每个会话的总时长（毫秒）
-    private static final ConcurrentHashMap<Long, Long> sessionDurations = new ConcurrentHashMap<>();
+
+    /**
+     * 单个任务的上下文，从 executeCommand 创建到会话结束
+     */
+    private static final class SessionContext {
+        final FFmpegCallback callback;
+        final String tempInputPath;
+        final String fileName;
+        final int notificationId;
+        // 总时长（毫秒），小于等于 0 表示未知，此时进度显示为不确定状态
+        volatile long durationMs = -1;
+        // 探测失败且日志中也没有时长时，改用输出文件大小估算进度
+        volatile boolean probeFailed;
+        volatile FFmpegSession session;
+        volatile boolean cancelled;
+        private int lastNotificationProgress = -1;
+        private long lastNotificationTime = 0;
+
+        SessionContext(FFmpegCallback callback, String tempInputPath, String fileName, int notificationId) {
+            this.callback = callback;
+            this.tempInputPath = tempInputPath;
+            this.fileName = fileName;
+            this.notificationId = notificationId;
+        }
+
+        void updateDuration(long durationMs) {
+            if (durationMs > 0 && this.durationMs <= 0) {
+                this.durationMs = durationMs;
+                Log.d(TAG, "已获取总时长: " + durationMs + "ms (" + fileName + ")");
+            }
+        }
+
+        boolean isActive() {
+            FFmpegSession s = session;
+            if (s == null) return false;
+            SessionState state = s.getState();
+            return state == SessionState.RUNNING || state == SessionState.CREATED;
+        }
+
+        // 限制通知频率: 每 5% 或者每 2 秒更新一次，避免卡顿
+        synchronized boolean shouldNotify(int progress, long now) {
+            if (Math.abs(progress - lastNotificationProgress) >= 5
+                    || now - lastNotificationTime >= 2000
+                    || progress == 100) {
+                lastNotificationProgress = progress;
+                lastNotificationTime = now;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    // 已启动的会话，按 FFmpegKit 会话 ID 索引
+    private static final ConcurrentHashMap<Long, SessionContext> sessions = new ConcurrentHashMap<>();
+    // 查询命令（-version 等）的会话 ID，它们的 ERROR 日志不记录
+    private static final Set<Long> querySessionIds = ConcurrentHashMap.newKeySet();
+    // 内部辅助会话（缩略图等）的 ID，它们的日志只交给会话自己的回调，不写入全局 FFmpeg 日志
+    private static final Set<Long> privateSessionIds = ConcurrentHashMap.newKeySet();
     private static final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     public interface FFmpegCallback {
@@ -100,8 +155,14 @@ public class FFmpegUtil {
                     String line = log.getMessage();
                     Level level = log.getLevel();
                     
+                    // 探测结果还没回来时，从解复用器打印的 Duration 行取得总时长（不受日志级别过滤影响）
+                    SessionContext ctx = sessions.get(log.getSessionId());
+                    if (ctx != null && ctx.durationMs <= 0) {
+                        ctx.updateDuration(MediaProbeCache.parseLogDurationMs(line));
+                    }
+                    
                     // 根据日志级别设置过滤日志
-                    if (!shouldLog(level, verboseLogging)) {
+                    if (!shouldLog(log.getSessionId(), level, verboseLogging)) {
                         return; // 不记录此日志
                     }
                     
@@ -133,48 +194,45 @@ public class FFmpegUtil {
                 }
         });
         
-        // 启用统计回调获取实时进度
+        // 启用统计回调获取实时进度，按会话 ID 找到对应任务；Worker 等其他会话不在表中，直接忽略；
+        // 总时长未知时不上报百分比，保持不确定进度
         FFmpegKitConfig.enableStatisticsCallback(new StatisticsCallback() {
             @Override
             public void apply(Statistics statistics) {
-                long sessionId = statistics.getSessionId();
+                SessionContext ctx = sessions.get(statistics.getSessionId());
+                if (ctx == null || ctx.durationMs <= 0) {
+                    return;
+                }
                 final int timeInMs = (int) statistics.getTime(); // 已处理的毫秒数
+                final int progress = (int) ((timeInMs * 100.0) / ctx.durationMs);
+                final int clampedProgress = Math.min(100, Math.max(0, progress)); // 限制 0-100
                 
-                // 获取该会话的总时长
-                Long totalDuration = sessionDurations.get(sessionId);
-                if (totalDuration != null && totalDuration > 0) {
-                    final int progress = (int) ((timeInMs * 100.0) / totalDuration);
-                    final int clampedProgress = Math.min(100, Math.max(0, progress)); // 限制 0-100
-                    
-                    // 回调到 UI（主线程）
+                // 回调到 UI（主线程）
+                if (ctx.callback != null) {
                     mainHandler.post(() -> {
-                        FFmpegCallback callback = getCallbackForSession(sessionId);
-                        if (callback != null) {
-                            callback.onProgress(clampedProgress, timeInMs);
+                        if (!ctx.cancelled) {
+                            ctx.callback.onProgress(clampedProgress, timeInMs);
                         }
                     });
-                    
-                    // 更新通知 (限制频率: 每 5% 或者每 2 秒更新一次，避免卡顿)
-                    long currentTime = System.currentTimeMillis();
-                    if (appContext != null &&
-                        (Math.abs(clampedProgress - lastNotificationProgress) >= 5 ||
-                         currentTime - lastNotificationTime >= 2000 ||
-                          clampedProgress == 100)) {
-                              
-                        lastNotificationProgress = clampedProgress;
-                        lastNotificationTime = currentTime;
-                        
-                        NotificationHelper.showProgressNotification(appContext, currentFileName, clampedProgress);
-                    }
+                }
+                
+                // 更新该会话自己的进度通知
+                Context context = appContext;
+                if (context != null && ctx.shouldNotify(clampedProgress, System.currentTimeMillis())) {
+                    NotificationHelper.showProgressNotification(context, ctx.notificationId, ctx.fileName, clampedProgress);
                 }
             }
         });
     }
 
     // 根据当前日志设置判断是否应该记录此日志
-    private static boolean shouldLog(Level level, boolean verboseLogging) {
+    private static boolean shouldLog(long sessionId, Level level, boolean verboseLogging) {
+        if (privateSessionIds.contains(sessionId)) {
+            return false;
+        }
+
         // 如果是查询命令，则跳过所有 ERROR 级别的日志
-        if (isQueryCommand && level == Level.AV_LOG_ERROR) {
+        if (level == Level.AV_LOG_ERROR && querySessionIds.contains(sessionId)) {
             return false;
         }
         
@@ -189,12 +247,8 @@ public class FFmpegUtil {
     }
 
     public static void executeCommand(String[] command, FFmpegCallback callback, String tempInputPath, String fileName) {
-        // 重置通知进度记录
-        lastNotificationProgress = -1;
-        lastNotificationTime = 0;
-        currentFileName = fileName != null ? fileName : "未知文件";
-        
-        isCancelled = false;
+        SessionContext ctx = new SessionContext(callback, tempInputPath,
+                fileName != null ? fileName : "未知文件", NotificationHelper.nextSessionNotificationId());
         
         // 创建通知渠道（首次执行时）
         if (appContext != null) {
@@ -203,72 +257,54 @@ public class FFmpegUtil {
         
         Log.d(TAG, "执行命令: " + String.join(" ", command));
         
-        // 先获取输入文件的总时长（用于计算进度百分比）
+        // 不等时长探测，先启动 FFmpeg，探测与编码并行
+        if (!runFfmpegCommand(command, ctx)) {
+            return;
+        }
+        startFileSizeProgress(command, ctx);
+        
+        // 同时获取输入文件的总时长（用于计算进度百分比），日志中的 Duration 行可能先到
         getVideoDuration(tempInputPath, new DurationCallback() {
             @Override
             public void onDurationRetrieved(long durationMs) {
-                // 执行 FFmpeg 命令
-                runFfmpegCommand(command, callback, tempInputPath, durationMs);
+                ctx.updateDuration(durationMs);
             }
             
             @Override
             public void onError() {
-                // 获取时长失败，仍执行命令但使用文件大小估算
-                Log.w(TAG, "无法获取视频时长，将使用文件大小估算进度");
-                runFfmpegCommandWithFileSize(command, callback, tempInputPath);
+                if (ctx.durationMs <= 0) {
+                    // 获取时长失败，使用文件大小估算
+                    Log.w(TAG, "无法获取视频时长，将使用文件大小估算进度");
+                    ctx.probeFailed = true;
+                }
             }
         });
     }
-    
-    // 存储回调
-    private static FFmpegCallback currentCallback;
-    private static long currentSessionId = -1;
-    
-    private static FFmpegCallback getCallbackForSession(long sessionId) {
-        if (sessionId == currentSessionId) {
-            return currentCallback;
-        }
-        return null;
-    }
 
     private interface DurationCallback {
         void onDurationRetrieved(long durationMs);
         void onError();
     }
     
-    // 使用 FFprobe 获取视频总时长
+    // 获取视频总时长（经 MediaProbeCache，同一输入只探测一次）
     private static void getVideoDuration(String inputPath, DurationCallback callback) {
-        if (inputPath == null || inputPath.isEmpty()) {
+        if (inputPath == null || inputPath.isEmpty() || appContext == null) {
             callback.onError();
             return;
         }
         
-        // 使用 FFprobe 获取时长（秒）
-        String probeCmd = "-v error -show_entries format=duration -of default=noprint_wrappers=1:nokey=1 \"" + inputPath + "\"";
-        
-        FFprobeKit.executeAsync(probeCmd, session -> {
-            if (ReturnCode.isSuccess(session.getReturnCode())) {
-                String output = session.getOutput();
-                if (output != null && !output.trim().isEmpty()) {
-                    try {
-                        double seconds = Double.parseDouble(output.trim());
-                        long durationMs = (long) (seconds * 1000);
-                        Log.d(TAG, "视频总时长: " + durationMs + "ms");
-                        callback.onDurationRetrieved(durationMs);
-                        return;
-                    } catch (NumberFormatException e) {
-                        Log.e(TAG, "解析时长失败: " + output);
-                    }
-                }
+        MediaProbeCache.getInstance(appContext).probeAsync(inputPath, result -> {
+            if (result != null && result.durationMs > 0) {
+                Log.d(TAG, "视频总时长: " + result.durationMs + "ms");
+                callback.onDurationRetrieved(result.durationMs);
+            } else {
+                callback.onError();
             }
-            callback.onError();
         });
     }
 
-    private static void runFfmpegCommand(String[] command, FFmpegCallback callback, 
-                                        String tempInputPath, long durationMs) {
-        currentCallback = callback;
-        
+    // 启动会话，返回是否启动成功
+    private static boolean runFfmpegCommand(String[] command, SessionContext ctx) {
         // 构建命令字符串
         StringBuilder commandBuilder = new StringBuilder();
         for (int i = 0; i < command.length; i++) {
@@ -293,110 +329,101 @@ public class FFmpegUtil {
             logManager.appendFfmpegLog("执行FFmpeg命令: " + commandString, Level.AV_LOG_INFO);
         }
         
-        // 显示初始进度通知
+        // 总时长确定前显示不确定进度
         if (appContext != null) {
-            NotificationHelper.showProgressNotification(appContext, currentFileName, 0);
+            NotificationHelper.showProgressNotification(appContext, ctx.notificationId, ctx.fileName, -1);
+        }
+        if (ctx.callback != null) {
+            mainHandler.post(() -> ctx.callback.onProgress(-1, 0));
         }
         
-        // 确保取消之前的会话
-        cancelCurrentTask();
-
-        // 执行命令
-        currentSession = FFmpegKit.executeAsync(commandString, new FFmpegSessionCompleteCallback() {
-            @Override
-            public void apply(FFmpegSession session) {
-                ReturnCode returnCode = session.getReturnCode();
-                Log.d(TAG, "命令执行完成，返回码: " + (returnCode != null ? returnCode.getValue() : "null"));
-                
-                // 清理存储的时长
-                sessionDurations.remove(session.getSessionId());
-                
-                // 清理临时文件
-                cleanupTempFiles(tempInputPath);
-                
-                // 转换完成后删除临时文件
-                if (tempInputPath != null && tempInputPath.contains("/shared_files/")) {
-                    deleteTempFile(tempInputPath);
-                }
-                
-                if (callback != null) {
-                    mainHandler.post(() -> {
-                        // 检查是否是取消操作
-                        if (isCancelled) {
-                            callback.onComplete(false, "操作已取消");
-                            if (appContext != null) {
-                                // 显示取消通知
-                                NotificationHelper.showCancelledNotification(appContext, currentFileName);
-                            }
-                            if (logManager != null) {
-                                logManager.appendFfmpegLog("FFmpeg命令已取消", Level.AV_LOG_WARNING);
-                            }
-                        } else if (ReturnCode.isSuccess(returnCode)) {
-                            callback.onComplete(true, "处理完成");
-                            if (appContext != null) {
-                                NotificationHelper.showCompleteNotification(appContext, currentFileName, true, "");
-                            }
-                            if (logManager != null) {
-                                logManager.appendFfmpegLog("FFmpeg命令执行成功", Level.AV_LOG_INFO);
-                            }
-                        } else {
-                            String errorMessage = "处理失败";
-                            if (session.getFailStackTrace() != null) {
-                                errorMessage += ": " + session.getFailStackTrace();
-                            } else if (returnCode != null) {
-                                errorMessage += "，返回码: " + returnCode.getValue();
-                            }
-                            callback.onComplete(false, errorMessage);
-                            if (appContext != null) {
-                                NotificationHelper.showCompleteNotification(appContext, currentFileName, false, errorMessage);
-                            }
-                            if (logManager != null) {
-                                logManager.appendFfmpegLog("FFmpeg命令执行失败: " + errorMessage, Level.AV_LOG_ERROR);
-                            }
-                        }
-                    });
-                }
-                
-                // 立即清理，不依赖 finalize
-                currentSession = null;
-                currentFileName = "";
-                currentCallback = null;
-                currentSessionId = -1;
-                // 主动清理所有已完成会话
-                FFmpegKitConfig.clearSessions();
+        // 先创建会话并登记上下文再提交执行，保证第一条统计回调到达时已能按会话 ID 找到任务
+        FFmpegSession session;
+        try {
+            session = FFmpegSession.create(FFmpegKitConfig.parseArguments(commandString),
+                    completedSession -> onSessionComplete(completedSession, ctx), null, null);
+            ctx.session = session;
+            sessions.put(session.getSessionId(), ctx);
+            FFmpegKitConfig.asyncFFmpegExecute(session);
+        } catch (Exception e) {
+            Log.e(TAG, "启动FFmpeg会话失败", e);
+            if (ctx.session != null) {
+                sessions.remove(ctx.session.getSessionId());
             }
-        }, 
-        // Log callback (已经全局设置，这里传 null 即可)
-        null,
-        // Statistics callback (这里会触发 enableStatisticsCallback 设置的回调)
-        statistics -> {
-            // 这个 lambda 是必需的，但实际逻辑在 enableStatisticsCallback 中处理
-        });
+            onSessionStartFailed(ctx);
+            return false;
+        }
         
         // 注册 PhantomReference 防止内存泄漏
-        if (currentSession != null) {
-            new SessionPhantomRef(currentSession);
-            currentSessionId = currentSession.getSessionId();
-            // 存储该会话的总时长，供 statistics callback 使用
-            if (durationMs > 0) {
-                sessionDurations.put(currentSessionId, durationMs);
+        new SessionPhantomRef(session);
+        Log.d(TAG, "会话 " + session.getSessionId() + " 已启动，当前并行会话数: " + sessions.size());
+        return true;
+    }
+    
+    private static void onSessionComplete(FFmpegSession session, SessionContext ctx) {
+        ReturnCode returnCode = session.getReturnCode();
+        Log.d(TAG, "会话 " + session.getSessionId() + " 执行完成，返回码: "
+                + (returnCode != null ? returnCode.getValue() : "null"));
+        
+        sessions.remove(session.getSessionId());
+        
+        // 清理临时文件（转换完成后删除 shared_files 缓存）
+        cleanupTempFiles(ctx.tempInputPath);
+        
+        Context context = appContext;
+        if (ctx.cancelled) {
+            if (context != null) {
+                // 显示取消通知
+                NotificationHelper.showCancelledNotification(context, ctx.notificationId, ctx.fileName);
             }
-            Log.d(TAG, "会话 " + currentSessionId + " 时长: " + durationMs + "ms");
-        } else {
-            // 启动失败也清理
-            if (tempInputPath != null && tempInputPath.contains("/shared_files/")) {
-                deleteTempFile(tempInputPath);
+            if (logManager != null) {
+                logManager.appendFfmpegLog("FFmpeg命令已取消", Level.AV_LOG_WARNING);
             }
-            if (callback != null) {
-                mainHandler.post(() -> callback.onError("命令执行失败，无法启动FFmpeg进程"));
+            if (ctx.callback != null) {
+                mainHandler.post(() -> ctx.callback.onComplete(false, "操作已取消"));
             }
-            if (appContext != null) {
-                NotificationHelper.showCompleteNotification(appContext, currentFileName, false, "无法启动FFmpeg进程");
+        } else if (ReturnCode.isSuccess(returnCode)) {
+            if (context != null) {
+                NotificationHelper.showCompleteNotification(context, ctx.notificationId, ctx.fileName, true, "");
             }
             if (logManager != null) {
-                logManager.appendFfmpegLog("无法启动FFmpeg进程", Level.AV_LOG_FATAL);
+                logManager.appendFfmpegLog("FFmpeg命令执行成功", Level.AV_LOG_INFO);
+            }
+            if (ctx.callback != null) {
+                mainHandler.post(() -> ctx.callback.onComplete(true, "处理完成"));
+            }
+        } else {
+            String failMessage = "处理失败";
+            if (session.getFailStackTrace() != null) {
+                failMessage += ": " + session.getFailStackTrace();
+            } else if (returnCode != null) {
+                failMessage += "，返回码: " + returnCode.getValue();
+            }
+            final String errorMessage = failMessage;
+            if (context != null) {
+                NotificationHelper.showCompleteNotification(context, ctx.notificationId, ctx.fileName, false, errorMessage);
+            }
+            if (logManager != null) {
+                logManager.appendFfmpegLog("FFmpeg命令执行失败: " + errorMessage, Level.AV_LOG_ERROR);
+            }
+            if (ctx.callback != null) {
+                mainHandler.post(() -> ctx.callback.onComplete(false, errorMessage));
             }
-            currentFileName = "";
+        }
+        // 不再调用 FFmpegKitConfig.clearSessions()：它会清掉其他并行会话（包括 Worker 的会话），
+        // 使它们的日志与统计回调失去路由；会话历史由 FFmpegKit 按容量自行淘汰
+    }
+    
+    private static void onSessionStartFailed(SessionContext ctx) {
+        cleanupTempFiles(ctx.tempInputPath);
+        if (ctx.callback != null) {
+            mainHandler.post(() -> ctx.callback.onError("命令执行失败，无法启动FFmpeg进程"));
+        }
+        if (appContext != null) {
+            NotificationHelper.showCompleteNotification(appContext, ctx.notificationId, ctx.fileName, false, "无法启动FFmpeg进程");
+        }
+        if (logManager != null) {
+            logManager.appendFfmpegLog("无法启动FFmpeg进程", Level.AV_LOG_FATAL);
         }
     }
     
@@ -432,16 +459,15 @@ public class FFmpegUtil {
         }
     }
 
-    // 当无法获取时长时，使用文件大小估算进度条
-    private static void runFfmpegCommandWithFileSize(String[] command, FFmpegCallback callback, 
-                                                    String tempInputPath) {
-        File inputFile = new File(tempInputPath);
+    // 当无法获取时长时，使用文件大小估算进度条；会话启动后立即开始检查，只在探测失败且时长仍未知时上报
+    private static void startFileSizeProgress(String[] command, SessionContext ctx) {
+        if (ctx.tempInputPath == null) {
+            return;
+        }
+        File inputFile = new File(ctx.tempInputPath);
         final long totalSize = inputFile.length();
         final int[] lastProgress = {0}; // 记录上次进度，避免重复回调
         
-        // 先执行命令 (durationMs 传 -1 表示使用文件大小估算)
-        runFfmpegCommand(command, callback, tempInputPath, -1);
-        
         // 获取输出文件路径并做安全校验
         String outputPath = command[command.length - 1].replace("\"", "");
         final File outputFile = getValidatedOutputFile(outputPath);
@@ -455,18 +481,13 @@ public class FFmpegUtil {
         final Runnable checkProgress = new Runnable() {
             @Override
             public void run() {
-                // 检查当前会话是否还在运行
-                if (currentSession == null) {
-                    return; // 会话结束，停止检查
-                }
-                
-                SessionState state = currentSession.getState();
-                if (state != SessionState.RUNNING && state != SessionState.CREATED) {
-                    return; // 会话已完成或者失败，停止检查
+                // 检查本会话是否还在运行，会话完成、失败或被取消后停止检查
+                if (ctx.cancelled || !ctx.isActive()) {
+                    return;
                 }
                 
                 // 检查输出文件大小
-                if (outputFile.exists()) {
+                if (ctx.probeFailed && ctx.durationMs <= 0 && outputFile.exists()) {
                     long currentSize = outputFile.length();
                     
                     // 计算进度: 基于输出文件大小与输入文件大小的比例
@@ -483,14 +504,13 @@ public class FFmpegUtil {
                     
                     if (progress > lastProgress[0]) {
                         lastProgress[0] = progress;
-                        FFmpegCallback cb = getCallbackForSession(currentSession.getSessionId());
-                        if (cb != null) {
-                            cb.onProgress(progress, 0); // time 传 0 表示未知时长
-                            
-                            // 更新通知进度
-                            if (appContext != null && !currentFileName.isEmpty()) {
-                                NotificationHelper.showProgressNotification(appContext, currentFileName, progress);
-                            }
+                        if (ctx.callback != null) {
+                            ctx.callback.onProgress(progress, 0); // time 传 0 表示未知时长
+                        }
+                        
+                        // 更新通知进度
+                        if (appContext != null && ctx.shouldNotify(progress, System.currentTimeMillis())) {
+                            NotificationHelper.showProgressNotification(appContext, ctx.notificationId, ctx.fileName, progress);
                         }
                     }
                 }
@@ -502,8 +522,6 @@ public class FFmpegUtil {
         
         // 延迟启动检查 (给 FFmpeg 一点启动时间创建输出文件)
         progressHandler.postDelayed(checkProgress, 500);
-        
-        // 当 onComplete 被调用时，currentSession 会被设为 null，定时器自动停止
     }
 
     private static void deleteTempFile(String path) {
@@ -550,25 +568,37 @@ public class FFmpegUtil {
         }
     }
 
+    /**
+     * 取消所有由 FFmpegUtil 启动的任务，不影响 Worker 的会话
+     */
+    public static void cancelAllTasks() {
+        for (SessionContext ctx : sessions.values()) {
+            cancelSession(ctx);
+        }
+    }
+
+    /**
+     * @deprecated 现在可以同时运行多个任务，请使用 {@link #cancelAllTasks()}
+     */
+    @Deprecated
     public static void cancelCurrentTask() {
-        if (currentSession != null) {
-            // 检查状态再取消，避免异常
-            SessionState state = currentSession.getState();
-            if (state == SessionState.RUNNING || state == SessionState.CREATED) {
-                Log.d(TAG, "Cancelling session: " + currentSession.getSessionId());
-                isCancelled = true;
-                if (logManager != null) {
-                    logManager.appendFfmpegLog("取消当前FFmpeg任务", Level.AV_LOG_WARNING);
-                }
-                FFmpegKit.cancel(currentSession.getSessionId());
-                sessionDurations.remove(currentSession.getSessionId());
-            }
-            currentSession = null;
-            currentCallback = null;
-            currentSessionId = -1;
+        cancelAllTasks();
+    }
+
+    private static void cancelSession(SessionContext ctx) {
+        // 检查状态再取消，避免异常
+        if (!ctx.isActive()) {
+            return;
+        }
+        long sessionId = ctx.session.getSessionId();
+        Log.d(TAG, "Cancelling session: " + sessionId);
+        ctx.cancelled = true;
+        if (logManager != null) {
+            logManager.appendFfmpegLog("取消FFmpeg任务: " + ctx.fileName, Level.AV_LOG_WARNING);
         }
+        FFmpegKit.cancel(sessionId);
         if (appContext != null) {
-            NotificationHelper.cancelProgressNotification(appContext);
+            NotificationHelper.cancelProgressNotification(appContext, ctx.notificationId);
         }
     }
 
@@ -579,12 +609,33 @@ public class FFmpegUtil {
         return String.format("%.1f %s", size / Math.pow(1024, digitGroups), units[digitGroups]);
     }
     
+    /**
+     * 同步执行内部辅助命令，日志只交给 logCallback，不写入全局 FFmpeg 日志和 Logcat
+     * 要在后台线程调用
+     */
+    public static FFmpegSession executePrivateCommand(String[] command, LogCallback logCallback) {
+        FFmpegSession session = FFmpegSession.create(command, null, logCallback, null,
+                LogRedirectionStrategy.NEVER_PRINT_LOGS);
+        privateSessionIds.add(session.getSessionId());
+        try {
+            FFmpegKitConfig.ffmpegExecute(session);
+            // 日志异步送达，等传输中的日志都交给回调后再移出过滤表
+            session.getAllLogs();
+        } finally {
+            privateSessionIds.remove(session.getSessionId());
+        }
+        return session;
+    }
+
     // 同步执行简单的 FFmpeg 查询命令 (用于获取版本，编解码器等信息) 
     // 要在后台线程调用，不要在主线程直接调用
     public static String executeSimpleCommand(String command) {
-        isQueryCommand = true; // 标记为查询命令
+        FFmpegSession session = null;
         try {
-            com.arthenica.ffmpegkit.Session session = FFmpegKit.execute(command);
+            // 先创建会话并标记为查询命令，只屏蔽这个会话的 ERROR 日志，不影响并行运行的任务
+            session = FFmpegSession.create(FFmpegKitConfig.parseArguments(command));
+            querySessionIds.add(session.getSessionId());
+            FFmpegKitConfig.ffmpegExecute(session);
             ReturnCode returnCode = session.getReturnCode();
             
             if (ReturnCode.isSuccess(returnCode)) {
@@ -598,7 +649,9 @@ public class FFmpegUtil {
             Log.e(TAG, "执行命令异常: " + command, e);
             return null;
         } finally {
-            isQueryCommand = false; // 删除查询命令标志
+            if (session != null) {
+                querySessionIds.remove(session.getSessionId());
+            }
         }
     }
 
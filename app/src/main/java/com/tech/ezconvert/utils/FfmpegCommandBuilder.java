@@ -1,7 +1,11 @@
 package com.tech.ezconvert.utils;
 
 import android.content.Context;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 /**
  * FFmpeg 命令生成器
@@ -9,6 +13,8 @@ import java.util.ArrayList;
  */
 public class FfmpegCommandBuilder {
     private static final String TAG = "FfmpegCommandBuilder";
+    // 图片序列的序号占位符，image2 muxer 与 getSequencePath 共用
+    private static final String SEQUENCE_PATTERN = "%03d";
 
     /**
      * 根据参数构建输出文件完整路径（含扩展名）
@@ -27,6 +33,10 @@ public class FfmpegCommandBuilder {
                 break;
             case "screenshot":
                 ext = params.screenshotFormat != null ? params.screenshotFormat : "jpeg";
+                if (isBatchScreenshot(params)) {
+                    // 批量截图输出为带序号的图片序列
+                    return basePath + "_" + SEQUENCE_PATTERN + "." + ext;
+                }
                 break;
             case "extract_audio":
                 ext = "mp3";
@@ -44,10 +54,23 @@ public class FfmpegCommandBuilder {
 
     /**
      * 根据任务类型生成 FFmpeg 命令数组
+     * 探测信息取自 MediaProbeCache 的已有缓存，未命中时不启用自动流复制
      */
     public static String[] buildCommand(String inputPath, String outputPath, ParameterData params, Context context) {
-        if (isVideoTask(params.taskType)) {
-            return buildVideoCommand(inputPath, outputPath, params, context);
+        MediaProbeCache.ProbeResult probe = MediaProbeCache.getInstance(context).getCached(inputPath);
+        return buildCommand(inputPath, outputPath, params, context, probe);
+    }
+
+    /**
+     * 根据任务类型生成 FFmpeg 命令数组
+     * @param probe 输入文件的探测信息，用于判断能否直接复制流（可为 null）
+     */
+    public static String[] buildCommand(String inputPath, String outputPath, ParameterData params, Context context,
+                                        MediaProbeCache.ProbeResult probe) {
+        if ("screenshot".equals(params.taskType)) {
+            return buildScreenshotCommand(inputPath, outputPath, params);
+        } else if (isVideoTask(params.taskType)) {
+            return buildVideoCommand(inputPath, outputPath, params, context, probe);
         } else {
             return buildAudioCommand(inputPath, outputPath, params, context);
         }
@@ -59,11 +82,17 @@ public class FfmpegCommandBuilder {
                "extract_audio".equals(taskType);
     }
 
-    private static String[] buildVideoCommand(String inputPath, String outputPath, ParameterData params, Context context) {
+    private static String[] buildVideoCommand(String inputPath, String outputPath, ParameterData params, Context context,
+                                              MediaProbeCache.ProbeResult probe) {
         boolean hw = ConfigManager.getInstance(context).isHardwareAccelerationEnabled();
         boolean mt = ConfigManager.getInstance(context).isMultithreadingEnabled();
 
         ArrayList<String> cmd = new ArrayList<>();
+        if ("cut_video".equals(params.taskType)) {
+            // 输入定位：直接跳到起点前的关键帧开始解码，不必从文件开头解码到裁剪点，重新编码时仍是帧精确的
+            cmd.add("-ss");
+            cmd.add(params.cutStartTime);
+        }
         cmd.add("-i");
         cmd.add(inputPath);
 
@@ -79,7 +108,7 @@ public class FfmpegCommandBuilder {
 
         switch (params.taskType) {
             case "convert":
-                buildConvertArgs(cmd, params, hw);
+                buildConvertArgs(cmd, params, hw, probe);
                 break;
             case "compress":
                 buildCompressArgs(cmd, params, hw);
@@ -87,11 +116,8 @@ public class FfmpegCommandBuilder {
             case "cut_video":
                 buildCutVideoArgs(cmd, params, hw);
                 break;
-            case "screenshot":
-                buildScreenshotArgs(cmd, params);
-                break;
             case "extract_audio":
-                buildExtractAudioArgs(cmd, params);
+                buildExtractAudioArgs(cmd, params, probe);
                 break;
         }
 
@@ -134,11 +160,52 @@ public class FfmpegCommandBuilder {
     }
 
     // 视频任务参数构建
-    private static void buildConvertArgs(ArrayList<String> cmd, ParameterData params, boolean hw) {
+    private static void buildConvertArgs(ArrayList<String> cmd, ParameterData params, boolean hw,
+                                         MediaProbeCache.ProbeResult probe) {
         // 视频编码器
-        String vCodec = (params.videoCodec != null && !params.videoCodec.isEmpty())
+        String vCodec = getConvertVideoCodec(params, hw);
+
+        if (canCopyVideo(params, vCodec, probe)) {
+            // 源码流已满足目标要求，直接复制，跳过解码与编码
+            cmd.add("-c:v");
+            cmd.add("copy");
+            if ("hevc".equals(probe != null ? probe.videoCodec : null) && isMp4Family(params.outputFormat)) {
+                // 苹果设备只识别 hvc1 标签
+                cmd.add("-tag:v");
+                cmd.add("hvc1");
+            }
+            Log.d(TAG, "视频流直接复制: " + (probe != null ? probe.videoCodec : "unknown"));
+        } else {
+            appendConvertVideoArgs(cmd, params, vCodec);
+        }
+
+        // 音频编码器
+        String aCodec = getConvertAudioCodec(params);
+
+        if (canCopyAudio(params, aCodec, probe)) {
+            cmd.add("-c:a");
+            cmd.add("copy");
+            Log.d(TAG, "音频流直接复制: " + (probe != null ? probe.audioCodec : "unknown"));
+        } else {
+            appendConvertAudioArgs(cmd, params, aCodec);
+        }
+
+        appendContainerFormat(cmd, params);
+    }
+
+    private static String getConvertVideoCodec(ParameterData params, boolean hw) {
+        return (params.videoCodec != null && !params.videoCodec.isEmpty())
                 ? params.videoCodec
                 : (hw ? "h264_mediacodec" : "libx264");
+    }
+
+    private static String getConvertAudioCodec(ParameterData params) {
+        return (params.audioCodec != null && !params.audioCodec.isEmpty())
+                ? params.audioCodec
+                : "aac";
+    }
+
+    private static void appendConvertVideoArgs(ArrayList<String> cmd, ParameterData params, String vCodec) {
         cmd.add("-c:v");
         cmd.add(vCodec);
 
@@ -152,11 +219,9 @@ public class FfmpegCommandBuilder {
             cmd.add("-crf");
             cmd.add("18");
         }
+    }
 
-        // 音频编码器
-        String aCodec = (params.audioCodec != null && !params.audioCodec.isEmpty())
-                ? params.audioCodec
-                : "aac";
+    private static void appendConvertAudioArgs(ArrayList<String> cmd, ParameterData params, String aCodec) {
         cmd.add("-c:a");
         cmd.add(aCodec);
 
@@ -164,8 +229,10 @@ public class FfmpegCommandBuilder {
             cmd.add("-b:a");
             cmd.add(params.audioBitrateValue + "k");
         }
+    }
 
-        // 容器格式
+    // 容器格式
+    private static void appendContainerFormat(ArrayList<String> cmd, ParameterData params) {
         String format = params.outputFormat;
         if (format != null && !"mp4".equals(format) && !"mov".equals(format)) {
             cmd.add("-f");
@@ -174,6 +241,13 @@ public class FfmpegCommandBuilder {
     }
 
     private static void buildCompressArgs(ArrayList<String> cmd, ParameterData params, boolean hw) {
+        appendCompressVideoArgs(cmd, params, hw);
+        appendCompressAudioArgs(cmd);
+        cmd.add("-movflags");
+        cmd.add("+faststart");
+    }
+
+    private static void appendCompressVideoArgs(ArrayList<String> cmd, ParameterData params, boolean hw) {
         if (hw) {
             cmd.add("-c:v");
             cmd.add("h264_mediacodec");
@@ -193,18 +267,376 @@ public class FfmpegCommandBuilder {
             cmd.add("-crf");
             cmd.add("23");
         }
+    }
 
+    private static void appendCompressAudioArgs(ArrayList<String> cmd) {
         cmd.add("-c:a");
         cmd.add("aac");
         cmd.add("-b:a");
         cmd.add("128k");
-        cmd.add("-movflags");
-        cmd.add("+faststart");
     }
 
-    private static void buildCutVideoArgs(ArrayList<String> cmd, ParameterData params, boolean hw) {
+    /**
+     * 分段并行转码：单个视频分段的编码命令（仅视频流）
+     * -ss 放在 -i 之前做输入定位，分段起点均为关键帧，因此定位是精确的
+     */
+    public static String[] buildSegmentVideoCommand(String inputPath, String segmentPath, double startSec,
+                                                    double durationSec, ParameterData params, Context context) {
+        boolean hw = ConfigManager.getInstance(context).isHardwareAccelerationEnabled();
+        boolean mt = ConfigManager.getInstance(context).isMultithreadingEnabled();
+
+        ArrayList<String> cmd = new ArrayList<>();
         cmd.add("-ss");
-        cmd.add(params.cutStartTime);
+        cmd.add(formatSeconds(startSec));
+        cmd.add("-i");
+        cmd.add(inputPath);
+        cmd.add("-t");
+        cmd.add(formatSeconds(durationSec));
+
+        if (mt) {
+            cmd.add("-threads");
+            cmd.add("0");
+        }
+
+        cmd.add("-map");
+        cmd.add("0:v:0");
+        cmd.add("-an");
+
+        if ("compress".equals(params.taskType)) {
+            appendCompressVideoArgs(cmd, params, hw);
+        } else {
+            appendConvertVideoArgs(cmd, params, getConvertVideoCodec(params, hw));
+        }
+
+        cmd.add("-y");
+        cmd.add(segmentPath);
+        return cmd.toArray(new String[0]);
+    }
+
+    /**
+     * 分段并行转码：整段音频单独编码，避免分段拼接处出现音频间隙
+     */
+    public static String[] buildSegmentAudioCommand(String inputPath, String audioPath, ParameterData params) {
+        ArrayList<String> cmd = new ArrayList<>();
+        cmd.add("-i");
+        cmd.add(inputPath);
+        cmd.add("-map");
+        cmd.add("0:a:0");
+        cmd.add("-vn");
+
+        if (params.volume != 100) {
+            cmd.add("-af");
+            cmd.add("volume=" + (params.volume / 100.0));
+        }
+
+        if ("compress".equals(params.taskType)) {
+            appendCompressAudioArgs(cmd);
+        } else {
+            appendConvertAudioArgs(cmd, params, getConvertAudioCodec(params));
+        }
+
+        cmd.add("-y");
+        cmd.add(audioPath);
+        return cmd.toArray(new String[0]);
+    }
+
+    /**
+     * 分段并行转码：用 concat demuxer 无损拼接视频分段并封装音频
+     * @param audioPath 单独编码的音频文件，源文件无音频时为 null
+     */
+    public static String[] buildConcatCommand(String listPath, String audioPath, String outputPath, ParameterData params) {
+        ArrayList<String> cmd = new ArrayList<>();
+        cmd.add("-f");
+        cmd.add("concat");
+        cmd.add("-safe");
+        cmd.add("0");
+        cmd.add("-i");
+        cmd.add(listPath);
+        if (audioPath != null) {
+            cmd.add("-i");
+            cmd.add(audioPath);
+        }
+
+        cmd.add("-map");
+        cmd.add("0:v:0");
+        if (audioPath != null) {
+            cmd.add("-map");
+            cmd.add("1:a:0");
+        }
+        cmd.add("-c");
+        cmd.add("copy");
+
+        if ("compress".equals(params.taskType) || "cut_video".equals(params.taskType)) {
+            // 这两种任务的输出固定为 mp4
+            cmd.add("-movflags");
+            cmd.add("+faststart");
+        } else {
+            appendContainerFormat(cmd, params);
+        }
+
+        cmd.add("-y");
+        cmd.add(outputPath);
+        return cmd.toArray(new String[0]);
+    }
+
+    /**
+     * 智能裁剪：边界 GOP 重新编码使用的编码器，不能无损复制中间部分时返回 null
+     * 输出固定为 mp4，只处理 H.264 / HEVC。边界片段不足一个 GOP，固定用软件编码器，
+     * 避免硬件编码器输出的参数集与源流差异过大导致拼接处无法解码
+     */
+    public static String getSmartCutEncoder(ParameterData params, MediaProbeCache.ProbeResult probe) {
+        String mode = getStreamCopyMode(params);
+        if ("never".equals(mode) || probe == null || probe.videoCodec == null) {
+            return null;
+        }
+        String encoder;
+        if ("h264".equals(probe.videoCodec)) {
+            encoder = "libx264";
+        } else if ("hevc".equals(probe.videoCodec)) {
+            encoder = "libx265";
+        } else {
+            return null;
+        }
+        // 重新编码的片段要和复制的片段保持相同的 profile / level，无法对应时不做智能裁剪
+        if (getSmartCutProfile(probe) == null || getSmartCutLevel(probe) == null) {
+            return null;
+        }
+        // 裁剪任务不使用所选的视频编码器（见 buildCutVideoArgs），只有自定义码率需要整段重新编码
+        return "force".equals(mode) || !"custom".equals(params.videoBitrateMode) ? encoder : null;
+    }
+
+    /**
+     * 智能裁剪：与源视频 profile 对应的 libx264 / libx265 profile 名称，无法对应时返回 null
+     */
+    public static String getSmartCutProfile(MediaProbeCache.ProbeResult probe) {
+        if (probe == null || probe.videoProfile == null) return null;
+        if ("h264".equals(probe.videoCodec)) {
+            switch (probe.videoProfile) {
+                case "Constrained Baseline": return "baseline";
+                case "Main": return "main";
+                case "High": return "high";
+                case "High 10": return "high10";
+                case "High 4:2:2": return "high422";
+                case "High 4:4:4 Predictive": return "high444";
+                default: return null;
+            }
+        }
+        if ("hevc".equals(probe.videoCodec)) {
+            switch (probe.videoProfile) {
+                case "Main": return "main";
+                case "Main 10": return "main10";
+                default: return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 智能裁剪：源视频 level 的编码器写法（如 "4.1"），未知时返回 null
+     * ffprobe 的 H.264 level 为 10 倍，HEVC 为 30 倍
+     */
+    public static String getSmartCutLevel(MediaProbeCache.ProbeResult probe) {
+        if (probe == null || probe.videoLevel <= 0) return null;
+        if ("h264".equals(probe.videoCodec)) {
+            // level 1b 在 ffprobe 中报告为 9，编码器无对应写法
+            return probe.videoLevel >= 10 ? String.format(Locale.US, "%.1f", probe.videoLevel / 10.0) : null;
+        }
+        if ("hevc".equals(probe.videoCodec)) {
+            return String.format(Locale.US, "%.1f", probe.videoLevel / 30.0);
+        }
+        return null;
+    }
+
+    /**
+     * 智能裁剪：从各时间点（必须是关键帧）各复制一个视频数据包，输出为 Annex B 裸流，用于检查 NAL 类型
+     * 一次会话打开多个输入，每个输入一个输出
+     */
+    public static String[] buildKeyframeSampleCommand(String inputPath, double[] timesSec, String[] outputPaths,
+                                                      String videoCodec) {
+        ArrayList<String> cmd = new ArrayList<>();
+        cmd.add("-v");
+        cmd.add("error");
+        for (double time : timesSec) {
+            cmd.add("-ss");
+            // 输入定位落在时间点之前最近的关键帧上，稍微后移以免舍入误差落到前一个关键帧
+            cmd.add(String.format(Locale.US, "%.6f", time + 0.0005));
+            cmd.add("-i");
+            cmd.add(inputPath);
+        }
+        for (int i = 0; i < outputPaths.length; i++) {
+            cmd.add("-map");
+            cmd.add(i + ":v:0");
+            cmd.add("-c:v");
+            cmd.add("copy");
+            cmd.add("-frames:v");
+            cmd.add("1");
+            cmd.add("-f");
+            cmd.add("hevc".equals(videoCodec) ? "hevc" : "h264");
+            cmd.add("-y");
+            cmd.add(outputPaths[i]);
+        }
+        return cmd.toArray(new String[0]);
+    }
+
+    /**
+     * 智能裁剪：单个视频片段的命令（仅视频流）
+     * -ss 放在 -i 之前做输入定位。encoder 为 "copy" 时起点必须是关键帧，直接复制完整的 GOP；
+     * 否则按源像素格式、profile 和 level 重新编码。片段输出为 MPEG-TS，每个关键帧前都带参数集，拼接后可连续解码
+     */
+    public static String[] buildSmartCutVideoCommand(String inputPath, String piecePath, double startSec,
+                                                     double durationSec, String encoder,
+                                                     MediaProbeCache.ProbeResult probe, Context context) {
+        boolean mt = ConfigManager.getInstance(context).isMultithreadingEnabled();
+
+        ArrayList<String> cmd = new ArrayList<>();
+        cmd.add("-ss");
+        // 复制片段需要精确落在关键帧上，保留 ffprobe 输出的全部精度
+        cmd.add(String.format(Locale.US, "%.6f", startSec));
+        cmd.add("-i");
+        cmd.add(inputPath);
+        cmd.add("-t");
+        cmd.add(String.format(Locale.US, "%.6f", durationSec));
+
+        if (mt) {
+            cmd.add("-threads");
+            cmd.add("0");
+        }
+
+        cmd.add("-map");
+        cmd.add("0:v:0");
+        cmd.add("-an");
+        cmd.add("-sn");
+        cmd.add("-c:v");
+        cmd.add(encoder);
+        if (!"copy".equals(encoder)) {
+            cmd.add("-preset");
+            cmd.add("fast");
+            cmd.add("-crf");
+            cmd.add("18");
+            if (probe != null && probe.pixelFormat != null) {
+                cmd.add("-pix_fmt");
+                cmd.add(probe.pixelFormat);
+            }
+            // 与源视频相同的 profile / level，拼接后的码流对解码器的要求不变
+            String profile = getSmartCutProfile(probe);
+            String level = getSmartCutLevel(probe);
+            if (profile != null) {
+                cmd.add("-profile:v");
+                cmd.add(profile);
+            }
+            if (level != null) {
+                if ("libx265".equals(encoder)) {
+                    cmd.add("-x265-params");
+                    cmd.add("level-idc=" + level);
+                } else {
+                    cmd.add("-level:v");
+                    cmd.add(level);
+                }
+            }
+        }
+
+        cmd.add("-f");
+        cmd.add("mpegts");
+        cmd.add("-y");
+        cmd.add(piecePath);
+        return cmd.toArray(new String[0]);
+    }
+
+    /**
+     * 智能裁剪：裁剪范围内的音频单独编码，音频帧很短，重新编码即可做到精确
+     */
+    public static String[] buildSmartCutAudioCommand(String inputPath, String audioPath, double startSec,
+                                                     double durationSec, ParameterData params) {
+        ArrayList<String> cmd = new ArrayList<>();
+        cmd.add("-ss");
+        cmd.add(formatSeconds(startSec));
+        cmd.add("-i");
+        cmd.add(inputPath);
+        cmd.add("-t");
+        cmd.add(formatSeconds(durationSec));
+        cmd.add("-map");
+        cmd.add("0:a:0");
+        cmd.add("-vn");
+
+        if (params.volume != 100) {
+            cmd.add("-af");
+            cmd.add("volume=" + (params.volume / 100.0));
+        }
+
+        cmd.add("-c:a");
+        cmd.add("aac");
+        cmd.add("-y");
+        cmd.add(audioPath);
+        return cmd.toArray(new String[0]);
+    }
+
+    /**
+     * 裁剪任务实际输出的时长，用于计算进度；非裁剪任务或时间无法解析时返回 -1
+     */
+    public static long getCutDurationMs(ParameterData params, long mediaDurationMs) {
+        if (!"cut_video".equals(params.taskType) && !"cut_audio".equals(params.taskType)) {
+            return -1;
+        }
+        double start = parseTimeSeconds(params.cutStartTime);
+        double duration = parseTimeSeconds(params.cutDuration);
+        if (start < 0 || duration <= 0) {
+            return -1;
+        }
+        long durationMs = (long) (duration * 1000);
+        if (mediaDurationMs > 0) {
+            durationMs = Math.min(durationMs, mediaDurationMs - (long) (start * 1000));
+        }
+        return durationMs > 0 ? durationMs : -1;
+    }
+
+    /**
+     * 解析 FFmpeg 时间格式 [[HH:]MM:]SS[.mmm]，返回秒数，无法解析时返回 -1
+     */
+    public static double parseTimeSeconds(String time) {
+        if (time == null || time.trim().isEmpty()) {
+            return -1;
+        }
+        String[] parts = time.trim().split(":");
+        if (parts.length > 3) {
+            return -1;
+        }
+        double seconds = 0;
+        try {
+            for (String part : parts) {
+                double value = Double.parseDouble(part);
+                if (value < 0) return -1;
+                seconds = seconds * 60 + value;
+            }
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        return seconds;
+    }
+
+    /**
+     * 从命令中读取实际使用的编码器（"copy" 表示流复制），命令不含该类型的流时返回 null
+     */
+    public static String getChosenCodec(String[] command, boolean video) {
+        String codec = null;
+        for (int i = 0; i < command.length; i++) {
+            String arg = command[i];
+            if (video ? "-vn".equals(arg) : "-an".equals(arg)) {
+                codec = null;
+            } else if (i + 1 < command.length && ("-c".equals(arg)
+                    || (video ? "-c:v".equals(arg) || "-vcodec".equals(arg)
+                              : "-c:a".equals(arg) || "-acodec".equals(arg)))) {
+                codec = command[++i];
+            }
+        }
+        return codec;
+    }
+
+    private static String formatSeconds(double seconds) {
+        return String.format(Locale.US, "%.3f", seconds);
+    }
+
+    // -ss 已在 buildVideoCommand 中放到 -i 之前
+    private static void buildCutVideoArgs(ArrayList<String> cmd, ParameterData params, boolean hw) {
         cmd.add("-t");
         cmd.add(params.cutDuration);
 
@@ -223,36 +655,201 @@ public class FfmpegCommandBuilder {
         cmd.add("make_zero");
     }
 
-    private static void buildScreenshotArgs(ArrayList<String> cmd, ParameterData params) {
-        cmd.add("-ss");
-        cmd.add(params.cutStartTime);
-        cmd.add("-vframes");
+    /**
+     * 截图命令，每个时间点都在 -i 之前做输入定位，只从前一个关键帧开始解码
+     * 多个时间点时在同一个 FFmpeg 会话中为每个时间点打开一次输入，分别输出一张图片
+     */
+    private static String[] buildScreenshotCommand(String inputPath, String outputPath, ParameterData params) {
+        String scale = getScreenshotScale(params);
+        int quality = "jpeg".equals(params.screenshotFormat) ? params.screenshotQuality : 0;
+        if (params.screenshotInterval > 0) {
+            return buildIntervalThumbnailCommand(inputPath, outputPath, params.screenshotInterval, scale, quality);
+        }
+
+        List<String> times = getScreenshotTimes(params);
+        ArrayList<String> cmd = new ArrayList<>();
+        for (String time : times) {
+            cmd.add("-ss");
+            cmd.add(time);
+            cmd.add("-i");
+            cmd.add(inputPath);
+        }
+        for (int i = 0; i < times.size(); i++) {
+            cmd.add("-map");
+            cmd.add(i + ":v:0");
+            cmd.add("-frames:v");
+            cmd.add("1");
+            appendImageArgs(cmd, scale, quality);
+            cmd.add("-y");
+            cmd.add(times.size() > 1 ? getSequencePath(outputPath, i + 1) : outputPath);
+        }
+        return cmd.toArray(new String[0]);
+    }
+
+    /**
+     * 按固定间隔批量截图
+     * -skip_frame nokey 让解码器只输出关键帧，select 滤镜取每个间隔内的第一个关键帧，
+     * 一个会话输出整个图片序列。截图时间对齐到关键帧，长视频也只需解码很少的帧
+     * @param outputPattern 含 %03d 序号的输出路径
+     * @param scale scale 滤镜参数（如 "320:-2"），为 null 时保持原始分辨率
+     * @param jpegQuality JPEG 质量参数，0 表示使用默认值
+     */
+    public static String[] buildIntervalThumbnailCommand(String inputPath, String outputPattern, double intervalSec,
+                                                         String scale, int jpegQuality) {
+        ArrayList<String> cmd = new ArrayList<>();
+        cmd.add("-skip_frame");
+        cmd.add("nokey");
+        cmd.add("-i");
+        cmd.add(inputPath);
+        cmd.add("-map");
+        cmd.add("0:v:0");
+
+        String filter = buildKeyframeSelectFilter(intervalSec);
+        if (scale != null) {
+            filter += ",scale=" + scale;
+        }
+        cmd.add("-vf");
+        cmd.add(filter);
+        cmd.add("-fps_mode");
+        cmd.add("vfr");
+        if (jpegQuality > 0) {
+            cmd.add("-q:v");
+            cmd.add(String.valueOf(jpegQuality));
+        }
+        cmd.add("-y");
+        cmd.add(outputPattern);
+        return cmd.toArray(new String[0]);
+    }
+
+    /**
+     * 预览缩略图雪碧图：关键帧选取方式与 buildIntervalThumbnailCommand 相同，
+     * showinfo 在日志中输出每一格的时间戳，tile 滤镜把所有缩略图拼成一张图片
+     */
+    public static String[] buildThumbnailSpriteCommand(String inputPath, String spritePath, double intervalSec,
+                                                       int tileWidth, int columns, int rows) {
+        ArrayList<String> cmd = new ArrayList<>();
+        cmd.add("-skip_frame");
+        cmd.add("nokey");
+        cmd.add("-i");
+        cmd.add(inputPath);
+        cmd.add("-map");
+        cmd.add("0:v:0");
+        cmd.add("-vf");
+        cmd.add(buildKeyframeSelectFilter(intervalSec) + ",showinfo,scale=" + tileWidth + ":-2,tile="
+                + columns + "x" + rows);
+        cmd.add("-frames:v");
         cmd.add("1");
+        cmd.add("-q:v");
+        cmd.add("5");
+        cmd.add("-y");
+        cmd.add(spritePath);
+        return cmd.toArray(new String[0]);
+    }
 
-        if ("jpeg".equals(params.screenshotFormat)) {
+    // 取与上一次选中帧相隔至少 intervalSec 的帧；逗号需要转义，否则会被当作滤镜分隔符
+    private static String buildKeyframeSelectFilter(double intervalSec) {
+        return "select=isnan(prev_selected_t)+gte(t-prev_selected_t\\," + formatSeconds(intervalSec) + ")";
+    }
+
+    private static void appendImageArgs(ArrayList<String> cmd, String scale, int jpegQuality) {
+        if (jpegQuality > 0) {
             cmd.add("-q:v");
-            cmd.add(String.valueOf(params.screenshotQuality));
+            cmd.add(String.valueOf(jpegQuality));
+        }
+        if (scale != null) {
+            cmd.add("-vf");
+            cmd.add("scale=" + scale);
         }
+    }
 
+    private static String getScreenshotScale(ParameterData params) {
         String resolution = params.screenshotResolution;
         if (resolution != null && !"original".equals(resolution) && !resolution.isEmpty()) {
-            cmd.add("-vf");
-            cmd.add("scale=" + resolution.replace("x", ":"));
+            return resolution.replace("x", ":");
+        }
+        return null;
+    }
+
+    // 截图时间点，多个时间点用逗号分隔
+    static List<String> getScreenshotTimes(ParameterData params) {
+        List<String> times = new ArrayList<>();
+        if (params.cutStartTime != null) {
+            for (String time : params.cutStartTime.split(",")) {
+                if (!time.trim().isEmpty()) {
+                    times.add(time.trim());
+                }
+            }
+        }
+        if (times.isEmpty()) {
+            times.add("00:00:00");
+        }
+        return times;
+    }
+
+    /**
+     * 截图任务是否输出多张图片
+     */
+    public static boolean isBatchScreenshot(ParameterData params) {
+        return "screenshot".equals(params.taskType)
+                && (params.screenshotInterval > 0 || getScreenshotTimes(params).size() > 1);
+    }
+
+    /**
+     * 图片序列中指定序号（从 1 开始）的文件路径，非序列路径原样返回
+     */
+    public static String getSequencePath(String outputPath, int index) {
+        return outputPath.replace(SEQUENCE_PATTERN, String.format(Locale.US, "%03d", index));
+    }
+
+    /**
+     * 路径对应的全部已存在文件：图片序列返回目录中所有序号的图片（序号超过 999 时位数会增加），
+     * 非序列路径存在时返回它本身
+     */
+    public static List<File> listSequenceFiles(String outputPath) {
+        List<File> result = new ArrayList<>();
+        if (outputPath == null || outputPath.isEmpty()) return result;
+        int marker = outputPath.indexOf(SEQUENCE_PATTERN);
+        if (marker < 0) {
+            File file = new File(outputPath);
+            if (file.isFile()) result.add(file);
+            return result;
+        }
+
+        File pattern = new File(outputPath);
+        File dir = pattern.getParentFile();
+        String name = pattern.getName();
+        int nameMarker = name.indexOf(SEQUENCE_PATTERN);
+        Pattern matcher = Pattern.compile(Pattern.quote(name.substring(0, nameMarker)) + "\\d{3,}"
+                + Pattern.quote(name.substring(nameMarker + SEQUENCE_PATTERN.length())));
+        File[] files = dir != null ? dir.listFiles((d, fileName) -> matcher.matcher(fileName).matches()) : null;
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile()) result.add(file);
+            }
         }
+        return result;
     }
 
-    private static void buildExtractAudioArgs(ArrayList<String> cmd, ParameterData params) {
+    private static void buildExtractAudioArgs(ArrayList<String> cmd, ParameterData params,
+                                              MediaProbeCache.ProbeResult probe) {
         cmd.add("-vn");
 
         String aCodec = (params.audioCodec != null && !params.audioCodec.isEmpty())
                 ? params.audioCodec
                 : getDefaultAudioCodec(params.outputFormat);
-        cmd.add("-c:a");
-        cmd.add(aCodec);
 
-        if ("custom".equals(params.audioBitrateMode)) {
-            cmd.add("-b:a");
-            cmd.add(params.audioBitrateValue + "k");
+        if (canCopyAudio(params, aCodec, probe)) {
+            cmd.add("-c:a");
+            cmd.add("copy");
+            Log.d(TAG, "音频流直接复制: " + (probe != null ? probe.audioCodec : "unknown"));
+        } else {
+            cmd.add("-c:a");
+            cmd.add(aCodec);
+
+            if ("custom".equals(params.audioBitrateMode)) {
+                cmd.add("-b:a");
+                cmd.add(params.audioBitrateValue + "k");
+            }
         }
 
         String format = params.outputFormat != null ? params.outputFormat : "mp3";
@@ -293,6 +890,159 @@ public class FfmpegCommandBuilder {
         cmd.add("192k");
     }
 
+    /**
+     * 生成的命令和执行方式是否与输入的探测结果无关，无关时可以不等探测直接启动 FFmpeg
+     * 流复制判断（格式转换、提取音频）和智能裁剪（裁剪视频）都要先知道输入的编码
+     */
+    public static boolean isProbeIndependent(ParameterData params) {
+        if ("never".equals(getStreamCopyMode(params))) {
+            return true;
+        }
+        return !"convert".equals(params.taskType)
+                && !"extract_audio".equals(params.taskType)
+                && !"cut_video".equals(params.taskType);
+    }
+
+    /**
+     * 格式转换任务的视频流是否会被直接复制
+     */
+    public static boolean isVideoStreamCopy(ParameterData params, MediaProbeCache.ProbeResult probe, Context context) {
+        if (!"convert".equals(params.taskType)) {
+            return false;
+        }
+        boolean hw = ConfigManager.getInstance(context).isHardwareAccelerationEnabled();
+        return canCopyVideo(params, getConvertVideoCodec(params, hw), probe);
+    }
+
+    /**
+     * 流复制判断
+     * auto: 源编码与目标编码一致、未自定义码率且容器支持时复制
+     * force: 只要容器能封装源编码就复制，忽略编码器与码率设置
+     * never: 始终重新编码
+     */
+    static boolean canCopyVideo(ParameterData params, String encoder, MediaProbeCache.ProbeResult probe) {
+        String mode = getStreamCopyMode(params);
+        if ("never".equals(mode) || probe == null || probe.videoCodec == null) {
+            return false;
+        }
+        if (!isContainerCompatible(params.outputFormat, probe.videoCodec, true)) {
+            return false;
+        }
+        if ("force".equals(mode)) {
+            return true;
+        }
+        return !"custom".equals(params.videoBitrateMode)
+                && probe.videoCodec.equals(getCodecFamily(encoder));
+    }
+
+    static boolean canCopyAudio(ParameterData params, String encoder, MediaProbeCache.ProbeResult probe) {
+        String mode = getStreamCopyMode(params);
+        if ("never".equals(mode) || probe == null || probe.audioCodec == null) {
+            return false;
+        }
+        // 音量滤镜需要解码后处理
+        if (params.volume != 100) {
+            return false;
+        }
+        String container = "extract_audio".equals(params.taskType)
+                ? getExtractAudioContainer(params) : params.outputFormat;
+        if (!isContainerCompatible(container, probe.audioCodec, false)) {
+            return false;
+        }
+        if ("force".equals(mode)) {
+            return true;
+        }
+        return !"custom".equals(params.audioBitrateMode)
+                && probe.audioCodec.equals(getCodecFamily(encoder));
+    }
+
+    // 提取音频实际使用的封装格式：输出文件扩展名固定为 mp3，只有 mp3、wav 以外的格式才用 -f 指定
+    static String getExtractAudioContainer(ParameterData params) {
+        String format = params.outputFormat != null ? params.outputFormat : "mp3";
+        return "mp3".equals(format) || "wav".equals(format) ? "mp3" : format;
+    }
+
+    private static String getStreamCopyMode(ParameterData params) {
+        return params.streamCopyMode != null ? params.streamCopyMode : "auto";
+    }
+
+    // 编码器名称 -> ffprobe 报告的 codec_name
+    static String getCodecFamily(String encoder) {
+        if (encoder == null) return null;
+        switch (encoder) {
+            case "h264_mediacodec":
+            case "libx264":
+            case "h264":
+                return "h264";
+            case "hevc_mediacodec":
+            case "libx265":
+            case "hevc":
+                return "hevc";
+            case "libvpx-vp9":
+                return "vp9";
+            case "libvpx":
+                return "vp8";
+            case "mpeg4":
+                return "mpeg4";
+            case "aac":
+                return "aac";
+            case "libmp3lame":
+                return "mp3";
+            case "libopus":
+                return "opus";
+            case "libvorbis":
+                return "vorbis";
+            case "flac":
+                return "flac";
+            case "pcm_s16le":
+                return "pcm_s16le";
+            default:
+                return encoder;
+        }
+    }
+
+    // 目标容器能否直接封装该编码
+    static boolean isContainerCompatible(String format, String codec, boolean video) {
+        if (format == null) format = "mp4";
+        switch (format.toLowerCase()) {
+            case "mp4":
+            case "mov":
+            case "m4a":
+                return video
+                        ? codec.equals("h264") || codec.equals("hevc") || codec.equals("mpeg4") || codec.equals("av1")
+                        : codec.equals("aac") || codec.equals("mp3") || codec.equals("alac") || codec.equals("ac3");
+            case "mkv":
+                return true;
+            case "webm":
+                return video
+                        ? codec.equals("vp8") || codec.equals("vp9") || codec.equals("av1")
+                        : codec.equals("opus") || codec.equals("vorbis");
+            case "avi":
+                return video
+                        ? codec.equals("h264") || codec.equals("mpeg4") || codec.equals("mjpeg")
+                        : codec.equals("mp3") || codec.equals("ac3") || codec.startsWith("pcm_");
+            case "flv":
+                return video ? codec.equals("h264") : codec.equals("aac") || codec.equals("mp3");
+            case "mp3":
+                return !video && codec.equals("mp3");
+            case "aac":
+                return !video && codec.equals("aac");
+            case "flac":
+                return !video && codec.equals("flac");
+            case "ogg":
+                return !video && (codec.equals("vorbis") || codec.equals("opus") || codec.equals("flac"));
+            case "wav":
+                return !video && codec.startsWith("pcm_");
+            default:
+                // gif 等必须重新编码
+                return false;
+        }
+    }
+
+    private static boolean isMp4Family(String format) {
+        return format == null || "mp4".equals(format) || "mov".equals(format);
+    }
+
     /**
      * 工具方法
      */
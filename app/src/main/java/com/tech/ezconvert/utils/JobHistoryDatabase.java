@@ -0,0 +1,260 @@
+package com.tech.ezconvert.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 转码任务历史，保存每次运行的参数、实际编码器和性能指标，便于比较不同预设、硬件与软件编码的实际速度
+ * 查询会访问数据库，应在后台线程调用。
+ */
+public class JobHistoryDatabase extends SQLiteOpenHelper {
+
+    private static final String TAG = "JobHistoryDatabase";
+    private static final String DATABASE_NAME = "job_history.db";
+    private static final int DATABASE_VERSION = 1;
+    // 超过后删除最旧的记录
+    private static final int MAX_RECORDS = 2000;
+
+    static final String TABLE_JOBS = "jobs";
+
+    private static JobHistoryDatabase instance;
+
+    /**
+     * 一次任务运行的记录
+     */
+    public static class JobRecord {
+        public long id;
+        public String workId;
+        public String fileName;
+        public String status;        // SUCCESS / FAILED / CANCELLED
+        public int exitCode = -1;    // FFmpeg 返回码，未知时为 -1
+        public long startedAt;       // 开始时间戳
+
+        public String taskType;
+        public String presetName;
+        public String paramsJson;    // 使用的 ParameterData
+        public String videoCodec;    // 实际使用的编码器，"copy" 表示流复制
+        public String audioCodec;
+        public boolean segmented;    // 是否分段并行转码
+
+        public long inputBytes;
+        public long outputBytes;
+        public long stagingTimeMs;   // 复制输入到缓存的耗时
+        public long probeTimeMs;     // 探测输入的耗时
+        public long wallTimeMs;      // 转码耗时
+        public long mediaTimeMs;     // 已处理的媒体时长
+        public double averageSpeed;  // 平均倍速
+        public double averageFps;
+        public long bytesPerSecond;  // 平均输出速率
+        public long peakMemoryBytes;
+    }
+
+    /**
+     * 按任务类型和视频编码器分组的汇总
+     */
+    public static class CodecStats {
+        public String taskType;
+        public String videoCodec;
+        public int runCount;
+        public int successCount;
+        public double averageSpeed;
+        public double averageFps;
+        public long averageWallTimeMs;
+        public long averageBytesPerSecond;
+    }
+
+    private JobHistoryDatabase(Context context) {
+        super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    public static synchronized JobHistoryDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new JobHistoryDatabase(context);
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_JOBS + " ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "work_id TEXT, "
+                + "file_name TEXT, "
+                + "status TEXT NOT NULL, "
+                + "exit_code INTEGER NOT NULL DEFAULT -1, "
+                + "started_at INTEGER NOT NULL, "
+                + "task_type TEXT, "
+                + "preset_name TEXT, "
+                + "params_json TEXT, "
+                + "video_codec TEXT, "
+                + "audio_codec TEXT, "
+                + "segmented INTEGER NOT NULL DEFAULT 0, "
+                + "input_bytes INTEGER NOT NULL DEFAULT 0, "
+                + "output_bytes INTEGER NOT NULL, "
+                + "staging_time_ms INTEGER NOT NULL DEFAULT 0, "
+                + "probe_time_ms INTEGER NOT NULL DEFAULT 0, "
+                + "wall_time_ms INTEGER NOT NULL, "
+                + "media_time_ms INTEGER NOT NULL, "
+                + "average_speed REAL NOT NULL, "
+                + "average_fps REAL NOT NULL, "
+                + "bytes_per_second INTEGER NOT NULL, "
+                + "peak_memory_bytes INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_jobs_started_at ON " + TABLE_JOBS + " (started_at)");
+        db.execSQL("CREATE INDEX idx_jobs_task_codec ON " + TABLE_JOBS + " (task_type, video_codec)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // 目前只有版本 1
+    }
+
+    /**
+     * 写入一条记录，失败只记录日志，不影响任务结果
+     */
+    public void insert(JobRecord record) {
+        ContentValues values = new ContentValues();
+        values.put("work_id", record.workId);
+        values.put("file_name", record.fileName);
+        values.put("status", record.status);
+        values.put("exit_code", record.exitCode);
+        values.put("started_at", record.startedAt);
+        values.put("task_type", record.taskType);
+        values.put("preset_name", record.presetName);
+        values.put("params_json", record.paramsJson);
+        values.put("video_codec", record.videoCodec);
+        values.put("audio_codec", record.audioCodec);
+        values.put("segmented", record.segmented ? 1 : 0);
+        values.put("input_bytes", record.inputBytes);
+        values.put("output_bytes", record.outputBytes);
+        values.put("staging_time_ms", record.stagingTimeMs);
+        values.put("probe_time_ms", record.probeTimeMs);
+        values.put("wall_time_ms", record.wallTimeMs);
+        values.put("media_time_ms", record.mediaTimeMs);
+        values.put("average_speed", record.averageSpeed);
+        values.put("average_fps", record.averageFps);
+        values.put("bytes_per_second", record.bytesPerSecond);
+        values.put("peak_memory_bytes", record.peakMemoryBytes);
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            record.id = db.insert(TABLE_JOBS, null, values);
+            db.execSQL("DELETE FROM " + TABLE_JOBS + " WHERE id <= ?",
+                    new Object[]{record.id - MAX_RECORDS});
+        } catch (Exception e) {
+            Log.e(TAG, "写入任务历史失败", e);
+        }
+    }
+
+    /**
+     * 最近的任务，按开始时间倒序
+     */
+    public List<JobRecord> getRecentJobs(int limit) {
+        return queryJobs(null, null, 0, limit);
+    }
+
+    /**
+     * 查询任务记录，按开始时间倒序
+     * @param taskType   任务类型，null 表示不限
+     * @param videoCodec 实际使用的视频编码器，null 表示不限
+     * @param since      只返回此时间戳之后开始的任务
+     */
+    public List<JobRecord> queryJobs(String taskType, String videoCodec, long since, int limit) {
+        StringBuilder selection = new StringBuilder("started_at >= ?");
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(since));
+        if (taskType != null) {
+            selection.append(" AND task_type = ?");
+            args.add(taskType);
+        }
+        if (videoCodec != null) {
+            selection.append(" AND video_codec = ?");
+            args.add(videoCodec);
+        }
+
+        List<JobRecord> records = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_JOBS, null, selection.toString(),
+                args.toArray(new String[0]), null, null, "started_at DESC", String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                records.add(readRecord(cursor));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "查询任务历史失败", e);
+        }
+        return records;
+    }
+
+    /**
+     * 按任务类型和视频编码器汇总成功运行的平均速度，taskType 为 null 时包含全部类型
+     */
+    public List<CodecStats> getCodecStats(String taskType) {
+        String sql = "SELECT task_type, video_codec, COUNT(*), "
+                + "SUM(CASE WHEN status = 'SUCCESS' THEN 1 ELSE 0 END), "
+                + "AVG(CASE WHEN status = 'SUCCESS' THEN average_speed END), "
+                + "AVG(CASE WHEN status = 'SUCCESS' THEN average_fps END), "
+                + "AVG(CASE WHEN status = 'SUCCESS' THEN wall_time_ms END), "
+                + "AVG(CASE WHEN status = 'SUCCESS' THEN bytes_per_second END) "
+                + "FROM " + TABLE_JOBS
+                + (taskType != null ? " WHERE task_type = ?" : "")
+                + " GROUP BY task_type, video_codec ORDER BY task_type, 5 DESC";
+
+        List<CodecStats> result = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(sql,
+                taskType != null ? new String[]{taskType} : null)) {
+            while (cursor.moveToNext()) {
+                CodecStats stats = new CodecStats();
+                stats.taskType = cursor.getString(0);
+                stats.videoCodec = cursor.getString(1);
+                stats.runCount = cursor.getInt(2);
+                stats.successCount = cursor.getInt(3);
+                stats.averageSpeed = cursor.getDouble(4);
+                stats.averageFps = cursor.getDouble(5);
+                stats.averageWallTimeMs = cursor.getLong(6);
+                stats.averageBytesPerSecond = cursor.getLong(7);
+                result.add(stats);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "汇总任务历史失败", e);
+        }
+        return result;
+    }
+
+    public void clear() {
+        try {
+            getWritableDatabase().delete(TABLE_JOBS, null, null);
+        } catch (Exception e) {
+            Log.e(TAG, "清空任务历史失败", e);
+        }
+    }
+
+    private static JobRecord readRecord(Cursor cursor) {
+        JobRecord record = new JobRecord();
+        record.id = cursor.getLong(cursor.getColumnIndexOrThrow("id"));
+        record.workId = cursor.getString(cursor.getColumnIndexOrThrow("work_id"));
+        record.fileName = cursor.getString(cursor.getColumnIndexOrThrow("file_name"));
+        record.status = cursor.getString(cursor.getColumnIndexOrThrow("status"));
+        record.exitCode = cursor.getInt(cursor.getColumnIndexOrThrow("exit_code"));
+        record.startedAt = cursor.getLong(cursor.getColumnIndexOrThrow("started_at"));
+        record.taskType = cursor.getString(cursor.getColumnIndexOrThrow("task_type"));
+        record.presetName = cursor.getString(cursor.getColumnIndexOrThrow("preset_name"));
+        record.paramsJson = cursor.getString(cursor.getColumnIndexOrThrow("params_json"));
+        record.videoCodec = cursor.getString(cursor.getColumnIndexOrThrow("video_codec"));
+        record.audioCodec = cursor.getString(cursor.getColumnIndexOrThrow("audio_codec"));
+        record.segmented = cursor.getInt(cursor.getColumnIndexOrThrow("segmented")) != 0;
+        record.inputBytes = cursor.getLong(cursor.getColumnIndexOrThrow("input_bytes"));
+        record.outputBytes = cursor.getLong(cursor.getColumnIndexOrThrow("output_bytes"));
+        record.stagingTimeMs = cursor.getLong(cursor.getColumnIndexOrThrow("staging_time_ms"));
+        record.probeTimeMs = cursor.getLong(cursor.getColumnIndexOrThrow("probe_time_ms"));
+        record.wallTimeMs = cursor.getLong(cursor.getColumnIndexOrThrow("wall_time_ms"));
+        record.mediaTimeMs = cursor.getLong(cursor.getColumnIndexOrThrow("media_time_ms"));
+        record.averageSpeed = cursor.getDouble(cursor.getColumnIndexOrThrow("average_speed"));
+        record.averageFps = cursor.getDouble(cursor.getColumnIndexOrThrow("average_fps"));
+        record.bytesPerSecond = cursor.getLong(cursor.getColumnIndexOrThrow("bytes_per_second"));
+        record.peakMemoryBytes = cursor.getLong(cursor.getColumnIndexOrThrow("peak_memory_bytes"));
+        return record;
+    }
+}
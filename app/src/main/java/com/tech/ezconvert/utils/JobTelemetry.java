@@ -0,0 +1,180 @@
+package com.tech.ezconvert.utils;
+
+import java.util.Locale;
+
+/**
+ * 单个转码任务的运行指标：实时倍速、输出速率（字节/秒）、帧率、平滑后的剩余时间和峰值内存
+ * 由 Worker 在 FFmpeg 统计回调中更新，进度上报、通知和任务历史都从这里读取。
+ * 非线程安全，调用方需要自行同步。
+ */
+public class JobTelemetry {
+
+    // 剩余时间平滑的时间常数，越大越稳定但对速度变化的反应越慢
+    static final long ETA_SMOOTHING_MS = 5000;
+
+    private long startMs;
+    private long lastUpdateMs = -1;
+
+    private int progress;
+    private long processedMs;
+    private float fps;
+    private double speed;
+    private long outputBytes;
+    private long frameCount;
+    private long etaMs = -1;
+    private long peakMemoryBytes;
+
+    /**
+     * 记录任务开始时间并清空之前的数据
+     */
+    public void start(long nowMs) {
+        startMs = nowMs;
+        lastUpdateMs = -1;
+        progress = 0;
+        processedMs = 0;
+        fps = 0;
+        speed = 0;
+        outputBytes = 0;
+        frameCount = 0;
+        etaMs = -1;
+        peakMemoryBytes = 0;
+    }
+
+    /**
+     * 记录一次统计回调
+     * @param totalMs     媒体总时长，未知时为 -1（按进度速率估算剩余时间）
+     * @param fps         编码帧率，未知时为 0
+     * @param speed       相对实时的倍速，未知时为 0（按已处理时长与耗时估算）
+     * @param outputBytes 已写出的字节数，未知时为 0
+     * @param frameCount  已编码的帧数，未知时为 0
+     */
+    public void update(int progress, long processedMs, long totalMs, float fps, double speed,
+                       long outputBytes, long frameCount, long nowMs) {
+        long elapsed = nowMs - startMs;
+        if (speed <= 0 && elapsed > 0 && processedMs > 0) {
+            speed = (double) processedMs / elapsed;
+        }
+
+        long rawEta = -1;
+        if (progress >= 100) {
+            rawEta = 0;
+        } else if (totalMs > 0 && speed > 0) {
+            rawEta = (long) (Math.max(0, totalMs - processedMs) / speed);
+        } else if (progress > 0 && elapsed > 0) {
+            rawEta = elapsed * (100 - progress) / progress;
+        }
+
+        // 上次的剩余时间按流逝的时间倒数，再按时间常数向新的估算值靠拢，避免数字来回跳动
+        if (etaMs < 0 || rawEta == 0 || lastUpdateMs < 0) {
+            etaMs = rawEta;
+        } else {
+            long dt = Math.max(0, nowMs - lastUpdateMs);
+            double predicted = Math.max(0, etaMs - dt);
+            if (rawEta < 0) {
+                etaMs = (long) predicted;
+            } else {
+                double alpha = 1 - Math.exp(-(double) dt / ETA_SMOOTHING_MS);
+                etaMs = Math.round(predicted + alpha * (rawEta - predicted));
+            }
+        }
+
+        this.progress = progress;
+        this.processedMs = processedMs;
+        this.fps = fps;
+        this.speed = speed;
+        this.outputBytes = Math.max(this.outputBytes, outputBytes);
+        this.frameCount = Math.max(this.frameCount, frameCount);
+        lastUpdateMs = nowMs;
+    }
+
+    /**
+     * 记录一次内存占用采样
+     */
+    public void sampleMemory(long usedBytes) {
+        peakMemoryBytes = Math.max(peakMemoryBytes, usedBytes);
+    }
+
+    public int getProgress() {
+        return progress;
+    }
+
+    public long getProcessedMs() {
+        return processedMs;
+    }
+
+    public float getFps() {
+        return fps;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    // 未知时为 -1
+    public long getEtaMs() {
+        return etaMs;
+    }
+
+    public long getPeakMemoryBytes() {
+        return peakMemoryBytes;
+    }
+
+    // 从开始到最近一次更新的耗时
+    public long getElapsedMs() {
+        return lastUpdateMs < 0 ? 0 : lastUpdateMs - startMs;
+    }
+
+    // 整个任务的平均输出速率
+    public long getBytesPerSecond() {
+        long elapsed = getElapsedMs();
+        return elapsed > 0 ? outputBytes * 1000 / elapsed : 0;
+    }
+
+    // 整个任务的平均帧率，没有帧数时取最近一次的帧率
+    public double getAverageFps() {
+        long elapsed = getElapsedMs();
+        return elapsed > 0 && frameCount > 0 ? frameCount * 1000.0 / elapsed : fps;
+    }
+
+    // 整个任务的平均倍速
+    public double getAverageSpeed() {
+        long elapsed = getElapsedMs();
+        return elapsed > 0 ? (double) processedMs / elapsed : speed;
+    }
+
+    /**
+     * 剩余时间格式：m:ss 或 h:mm:ss
+     */
+    public static String formatEta(long etaMs) {
+        long seconds = (Math.max(0, etaMs) + 999) / 1000;
+        long hours = seconds / 3600;
+        long minutes = (seconds % 3600) / 60;
+        seconds %= 60;
+        return hours > 0
+                ? String.format(Locale.ROOT, "%d:%02d:%02d", hours, minutes, seconds)
+                : String.format(Locale.ROOT, "%d:%02d", minutes, seconds);
+    }
+
+    /**
+     * 字节数格式：1.5 MB
+     */
+    public static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        final String[] units = new String[]{"KB", "MB", "GB", "TB"};
+        double value = bytes / 1024.0;
+        int unit = 0;
+        while (value >= 1024 && unit < units.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return String.format(Locale.ROOT, "%.1f %s", value, units[unit]);
+    }
+}
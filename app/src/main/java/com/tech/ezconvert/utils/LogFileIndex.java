@@ -0,0 +1,243 @@
+package com.tech.ezconvert.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 文本日志文件的条目偏移索引
+ * 以行首的 "[" 作为一条日志的开始，之后不以 "[" 开头的行（异常堆栈等）归入上一条。
+ * 索引保存在磁盘上，文件只追加时下次打开只需扫描新增部分；文件被滚动或清空后根据文件头校验自动重建。
+ * 打开后持有文件句柄，文件被改名（滚动）后仍能按原偏移读取。
+ * 没有这种条目格式的文件（如 logcat）可用 openLines 按行建立索引。
+ */
+public class LogFileIndex implements Closeable {
+
+    private static final int INDEX_MAGIC = 0x455A4C49; // "EZLI"
+    private static final int INDEX_VERSION = 1;
+    private static final int HEAD_BYTES = 256;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private final File logFile;
+    private final RandomAccessFile raf;
+    // 每一行都是一条日志
+    private final boolean entryPerLine;
+    private long[] offsets = new long[1024];
+    private int count = 0;
+    // 已索引到的位置（最后一个换行符之后），其后不完整的行不计入
+    private long indexedLength = 0;
+
+    private LogFileIndex(File logFile, boolean entryPerLine) throws IOException {
+        this.logFile = logFile;
+        this.entryPerLine = entryPerLine;
+        this.raf = new RandomAccessFile(logFile, "r");
+    }
+
+    /**
+     * 打开日志文件并建立索引，indexDir 为 null 时不读写磁盘索引
+     */
+    public static LogFileIndex open(File logFile, File indexDir) throws IOException {
+        return open(logFile, indexDir, false, Long.MAX_VALUE);
+    }
+
+    /**
+     * 只索引文件前 maxLength 字节，之后追加的内容不可见（与写入点快照配合使用）
+     */
+    public static LogFileIndex open(File logFile, File indexDir, long maxLength) throws IOException {
+        return open(logFile, indexDir, false, maxLength);
+    }
+
+    /**
+     * 按行建立索引，每一行作为一条日志
+     */
+    public static LogFileIndex openLines(File logFile, File indexDir) throws IOException {
+        return open(logFile, indexDir, true, Long.MAX_VALUE);
+    }
+
+    private static LogFileIndex open(File logFile, File indexDir, boolean entryPerLine, long maxLength)
+            throws IOException {
+        LogFileIndex index = new LogFileIndex(logFile, entryPerLine);
+        try {
+            long length = Math.min(index.raf.length(), maxLength);
+            int headLength = (int) Math.min(HEAD_BYTES, length);
+            long headHash = index.hashHead(headLength);
+
+            String indexName = logFile.getName() + (entryPerLine ? ".lines.idx" : ".idx");
+            File indexFile = indexDir != null ? new File(indexDir, indexName) : null;
+            boolean loaded = indexFile != null && index.load(indexFile, length);
+
+            long before = index.indexedLength;
+            index.scan(length);
+            if (indexFile != null && (!loaded || index.indexedLength != before)) {
+                index.save(indexFile, headLength, headHash);
+            }
+            return index;
+        } catch (IOException e) {
+            index.close();
+            throw e;
+        }
+    }
+
+    public File getFile() {
+        return logFile;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long getIndexedLength() {
+        return indexedLength;
+    }
+
+    /**
+     * 读取 [start, start + count) 范围内的日志条目（去掉末尾换行）
+     */
+    public synchronized List<String> read(int start, int length) throws IOException {
+        List<String> result = new ArrayList<>();
+        if (start < 0 || start >= count || length <= 0) return result;
+        int end = Math.min(count, start + length);
+
+        long from = offsets[start];
+        long to = end < count ? offsets[end] : indexedLength;
+        byte[] bytes = new byte[(int) (to - from)];
+        raf.seek(from);
+        raf.readFully(bytes);
+
+        for (int i = start; i < end; i++) {
+            int entryStart = (int) (offsets[i] - from);
+            int entryEnd = (int) ((i + 1 < count ? offsets[i + 1] : indexedLength) - from);
+            while (entryEnd > entryStart && (bytes[entryEnd - 1] == '\n' || bytes[entryEnd - 1] == '\r')) {
+                entryEnd--;
+            }
+            result.add(new String(bytes, entryStart, entryEnd - entryStart, StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        try {
+            raf.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private long hashHead(int headLength) throws IOException {
+        byte[] head = new byte[headLength];
+        raf.seek(0);
+        raf.readFully(head);
+        CRC32 crc = new CRC32();
+        crc.update(head, 0, head.length);
+        return crc.getValue();
+    }
+
+    // 从 indexedLength 扫描到 length，记录每条日志的起始偏移
+    private void scan(long length) throws IOException {
+        long pos = indexedLength;
+        if (pos >= length) return;
+
+        boolean atLineStart = true; // indexedLength 总是位于换行符之后或文件开头
+        long lastLineEnd = indexedLength;
+        byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+        raf.seek(pos);
+
+        while (pos < length) {
+            int read = raf.read(buffer, 0, (int) Math.min(buffer.length, length - pos));
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                byte b = buffer[i];
+                if (atLineStart && (b == '[' || count == 0 || entryPerLine)) {
+                    add(pos + i);
+                }
+                atLineStart = b == '\n';
+                if (atLineStart) {
+                    lastLineEnd = pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+
+        // 丢弃落在末尾不完整行中的起始位置，下次打开时重新扫描
+        while (count > 0 && offsets[count - 1] >= lastLineEnd) {
+            count--;
+        }
+        indexedLength = lastLineEnd;
+    }
+
+    private void add(long offset) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[count++] = offset;
+    }
+
+    // 读取磁盘索引，文件头不一致（已滚动或被清空）或文件变短时作废
+    private boolean load(File indexFile, long length) {
+        if (!indexFile.isFile()) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) return false;
+            int headLength = in.readInt();
+            long headHash = in.readLong();
+            long storedLength = in.readLong();
+            int storedCount = in.readInt();
+            if (headLength > length || storedLength > length || storedCount < 0) return false;
+            if (hashHead(headLength) != headHash) return false;
+            // 文件头变长（之前文件很短）时以更长的文件头重新校验，无法保证一致则重建
+            if (headLength < HEAD_BYTES && length > headLength) {
+                return false;
+            }
+
+            long[] loaded = new long[Math.max(1024, storedCount)];
+            for (int i = 0; i < storedCount; i++) {
+                loaded[i] = in.readLong();
+            }
+            offsets = loaded;
+            count = storedCount;
+            indexedLength = storedLength;
+            return true;
+        } catch (IOException e) {
+            offsets = new long[1024];
+            count = 0;
+            indexedLength = 0;
+            return false;
+        }
+    }
+
+    private void save(File indexFile, int headLength, long headHash) {
+        File dir = indexFile.getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+        File temp = new File(indexFile.getPath() + ".part");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(headLength);
+            out.writeLong(headHash);
+            out.writeLong(indexedLength);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(offsets[i]);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(indexFile)) {
+            temp.delete();
+        }
+    }
+}
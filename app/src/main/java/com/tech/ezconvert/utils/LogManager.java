@@ -4,6 +4,7 @@ import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
 import android.text.TextUtils;
+import android.view.Choreographer;
 import android.util.Log;
 import com.arthenica.ffmpegkit.Level;
 import org.json.JSONObject;
@@ -11,7 +12,10 @@ import java.io.*;
 import java.lang.annotation.Native;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class LogManager {
     
@@ -20,25 +24,66 @@ public class LogManager {
     private static LogManager instance;
     
     private Context context;
-    private File appLogFile;
-    private File ffmpegLogFile;
+    private static final String APP_LOG_NAME = "EzConvert.log";
+    private static final String FFMPEG_LOG_NAME = "FFmpeg.log";
+    private volatile File appLogFile;
+    private volatile File ffmpegLogFile;
     private boolean verboseLogging = true;
+    // 调用位置获取模式（full/caller/off）与完整调用链的最大层数
+    private volatile String callerMode = CallerInfo.MODE_FULL;
+    private volatile int callerStackDepth = CallerInfo.DEFAULT_STACK_DEPTH;
     
-    // 内存缓存
-    private final CopyOnWriteArrayList<LogEntry> appLogMemoryCache = new CopyOnWriteArrayList<>();
-    private final CopyOnWriteArrayList<String> ffmpegLogMemoryCache = new CopyOnWriteArrayList<>();
+    // 内存缓存（环形缓冲区，同时按条数和字节数限制）
+    private static final int MAX_MEMORY_CACHE = 20000;
+    private static final long MAX_MEMORY_CACHE_BYTES = 8 * 1024 * 1024;
+    private final LogRingBuffer<LogEntry> appLogMemoryCache =
+            new LogRingBuffer<>(MAX_MEMORY_CACHE, MAX_MEMORY_CACHE_BYTES, LogEntry::estimateSize);
+    private final LogRingBuffer<LogEntry> ffmpegLogMemoryCache =
+            new LogRingBuffer<>(MAX_MEMORY_CACHE, MAX_MEMORY_CACHE_BYTES, LogEntry::estimateSize);
     private final List<LogListener> listeners = new CopyOnWriteArrayList<>();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
-    private static final int MAX_MEMORY_CACHE = 20000;
+    
+    // 新日志先在任意线程入队，主线程按帧合并后一次性交给监听器，两次分发至少间隔 100ms
+    private static final long DELIVERY_INTERVAL_MS = 100;
+    private final ConcurrentLinkedQueue<LogEntry> pendingNotifications = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean deliveryScheduled = new AtomicBoolean(false);
+    private long lastDeliveryTime = 0;
+    private final Choreographer.FrameCallback deliveryCallback = frameTimeNanos -> deliverPendingLogs();
+    private final Runnable scheduleDelivery = () -> {
+        long delay = Math.max(0, lastDeliveryTime + DELIVERY_INTERVAL_MS - android.os.SystemClock.uptimeMillis());
+        Choreographer.getInstance().postFrameCallbackDelayed(deliveryCallback, delay);
+    };
+    
+    // 文件写入在独立线程批量进行，单文件超过 5MB 滚动，保留 2 个历史文件
+    private static final long MAX_LOG_FILE_SIZE = 5 * 1024 * 1024;
+    private static final int MAX_LOG_BACKUPS = 2;
+    private final AsyncLogWriter fileWriter = new AsyncLogWriter(MAX_LOG_FILE_SIZE, MAX_LOG_BACKUPS);
+
+    // 日志序号，按创建顺序递增，用于区分日志文件中已有的内容和之后新增的内容
+    private static final AtomicLong sequenceGenerator = new AtomicLong();
+    // 创建日志（分配序号）、加入内存缓存和放入写入队列在同一把锁内完成，保证三者顺序与序号一致
+    private final Object appendLock = new Object();
+
+    private static final ThreadLocal<java.text.SimpleDateFormat> TIME_FORMAT =
+            new ThreadLocal<java.text.SimpleDateFormat>() {
+                @Override
+                protected java.text.SimpleDateFormat initialValue() {
+                    return new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", java.util.Locale.getDefault());
+                }
+            };
 
     public static class LogEntry {
+        public final long sequence;
         public long timestamp;
         public int level;
         public String tag;
         public String message;
         public String throwable;
+        // 格式化结果只计算一次
+        private volatile String formatted;
 
         public LogEntry(int level, String tag, String message, Throwable tr) {
+            this.sequence = sequenceGenerator.incrementAndGet();
             this.timestamp = System.currentTimeMillis();
             this.level = level;
             this.tag = tag != null ? tag : "";
@@ -46,9 +91,17 @@ public class LogManager {
             this.throwable = tr != null ? android.util.Log.getStackTraceString(tr) : null;
         }
 
+        // 已按文件格式排好版的日志行（FFmpeg 日志）
+        LogEntry(int level, String tag, String message, String formattedLine) {
+            this(level, tag, message, (Throwable) null);
+            this.formatted = formattedLine;
+        }
+
         public String getFormattedMessage() {
-            String timeStr = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", 
-                java.util.Locale.getDefault()).format(new java.util.Date(timestamp));
+            String result = formatted;
+            if (result != null) return result;
+
+            String timeStr = TIME_FORMAT.get().format(new java.util.Date(timestamp));
             String levelStr = getLevelString(level);
             StringBuilder sb = new StringBuilder();
             sb.append("[").append(timeStr).append("] ")
@@ -58,7 +111,18 @@ public class LogManager {
             if (!TextUtils.isEmpty(throwable)) {
                 sb.append("\n").append(throwable);
             }
-            return sb.toString();
+            result = sb.toString();
+            formatted = result;
+            return result;
+        }
+
+        // 估算内存占用：对象头与字段按固定开销计，字符串按 UTF-16 计（含格式化结果）
+        long estimateSize() {
+            long size = 64 + 2L * (tag.length() + message.length());
+            if (throwable != null) {
+                size += 2L * throwable.length();
+            }
+            return size * 2;
         }
 
         private String getLevelString(int level) {
@@ -75,7 +139,8 @@ public class LogManager {
     }
 
     public interface LogListener {
-        void onLogAdded(LogEntry entry);
+        // 在主线程回调，entries 为上次回调之后新增的日志（按添加顺序，应用日志与FFmpeg日志混合）
+        void onLogsAdded(List<LogEntry> entries);
         void onLogsCleared();
     }
 
@@ -140,6 +205,8 @@ public class LogManager {
                     if (logSettings.has("verbose")) {
                         verboseLogging = logSettings.getBoolean("verbose");
                     }
+                    callerMode = CallerInfo.normalizeMode(logSettings.optString("caller_info", CallerInfo.MODE_FULL));
+                    callerStackDepth = logSettings.optInt("caller_stack_depth", CallerInfo.DEFAULT_STACK_DEPTH);
                 }
             }
         } catch (Exception e) {
@@ -153,8 +220,8 @@ public class LogManager {
             File logDir = new File(context.getExternalFilesDir(null), "logs");
             if (!logDir.exists()) logDir.mkdirs();
             
-            appLogFile = new File(logDir, "EzConvert.log");
-            ffmpegLogFile = new File(logDir, "FFmpeg.log");
+            appLogFile = new File(logDir, APP_LOG_NAME);
+            ffmpegLogFile = new File(logDir, FFMPEG_LOG_NAME);
             
             // 只在详细模式下输出这行初始化日志
             if (verboseLogging) {
@@ -165,51 +232,42 @@ public class LogManager {
         }
     }
 
-    // 获取堆栈
-    private String getFullStackTrack() {
-        StackTraceElement[] stack = new Throwable().getStackTrace();
-        StringBuilder sb = new StringBuilder();
-        
-        // 跳过前 3 层 (getFullStackTrack -> addAppLog -> Log.xxx)
-        for (int i = 3; i < stack.length; i++) {
-            StackTraceElement e = stack[i];
-            if (sb.length() > 0) sb.append(" <- ");
-            // 完整类名，不进行过滤
-            sb.append(e.getClassName())
-              .append(".")
-              .append(e.getMethodName())
-              .append(":")
-              .append(e.getLineNumber());
-        }
-        
-        return sb.toString();
+    // 是否会被记录，Log 在获取调用位置之前先调用，避免为被过滤的日志抓取堆栈
+    boolean isLoggable(int level, String tag) {
+        return !"FFmpegLog".equals(tag) && shouldLog(level);
+    }
+
+    // 按当前模式抓取调用位置，off 模式下返回 null
+    CallerInfo captureCaller() {
+        return CallerInfo.MODE_OFF.equals(callerMode) ? null : CallerInfo.capture();
     }
 
     // 用于自定义Log类调用
     public void addAppLog(int level, String tag, String message, Throwable tr) {
-        if ("FFmpegLog".equals(tag)) return;
-        if (!shouldLog(level)) return;
-        
+        if (!isLoggable(level, tag)) return;
+        addAppLog(level, tag, message, tr, captureCaller());
+    }
+
+    // 调用方已完成级别过滤并抓取了调用位置，这里不再重复获取堆栈
+    void addAppLog(int level, String tag, String message, Throwable tr, CallerInfo caller) {
         try {
-            // 全量堆栈获取
-            String fullStack = getFullStackTrack();
-            String fullMessage = message + "\n    at " + fullStack;
+            String fullMessage = message;
+            if (caller != null && CallerInfo.MODE_FULL.equals(callerMode)) {
+                fullMessage = message + "\n    at " + caller.getStack(callerStackDepth);
+            }
             
             if (tr != null) {
                 fullMessage += "\n   Exception: " + android.util.Log.getStackTraceString(tr);
             }
             
             // 内存缓存
-            LogEntry entry = new LogEntry(level, tag, message, tr);
-            appLogMemoryCache.add(entry);
-            if (appLogMemoryCache.size() > MAX_MEMORY_CACHE) {
-                appLogMemoryCache.remove(0);
+            LogEntry entry;
+            synchronized (appendLock) {
+                entry = new LogEntry(level, tag, message, tr);
+                appLogMemoryCache.add(entry);
+                writeToFile(appLogFile, entry);
             }
             
-            Level ffmpegLevel = convertToFfmpegLevel(level);
-            String simpleFormat = entry.getFormattedMessage();
-            writeToFile(appLogFile, simpleFormat);
-            
             // 异步写入 C++ (mmap)
             char levelChar = getLevelChar(level);
             NativeLogWriter.write(levelChar, tag, fullMessage);
@@ -227,14 +285,15 @@ public class LogManager {
         if (!shouldLog(level)) return;
         
         String logLine = formatLogLine(message, level);
-        ffmpegLogMemoryCache.add(logLine);
-        if (ffmpegLogMemoryCache.size() > MAX_MEMORY_CACHE) {
-            ffmpegLogMemoryCache.remove(0);
+        // tag 标记为 FFmpegLog 以便 Activity 区分
+        LogEntry entry;
+        synchronized (appendLock) {
+            entry = new LogEntry(convertLevelToAndroid(level), "FFmpegLog", message, logLine);
+            ffmpegLogMemoryCache.add(entry);
+            writeToFile(ffmpegLogFile, entry);
         }
-        writeToFile(ffmpegLogFile, logLine);
         
-        // 通知 UI 实时更新，tag 标记为 FFmpegLog 以便 Activity 区分
-        LogEntry entry = new LogEntry(convertLevelToAndroid(level), "FFmpegLog", message, null);
+        // 通知 UI 实时更新
         notifyLogAdded(entry);
     }
 
@@ -250,16 +309,87 @@ public class LogManager {
 
     // 从内存获取应用日志
     public List<String> getAppLogsFromMemory() {
-        List<String> logs = new ArrayList<>();
-        for (LogEntry entry : appLogMemoryCache) {
-            logs.add(entry.getFormattedMessage());
-        }
-        return logs;
+        return formatEntries(appLogMemoryCache.snapshot());
     }
 
     // 从内存获取FFmpeg日志
     public List<String> getFfmpegLogsFromMemory() {
-        return new ArrayList<>(ffmpegLogMemoryCache);
+        return formatEntries(ffmpegLogMemoryCache.snapshot());
+    }
+    
+    // 序号大于 sequence 的应用日志（日志文件之后的内存尾部），不做格式化
+    public List<LogEntry> getAppLogEntriesAfter(long sequence) {
+        return entriesAfter(appLogMemoryCache.snapshot(), sequence);
+    }
+    
+    // 序号大于 sequence 的FFmpeg日志
+    public List<LogEntry> getFfmpegLogEntriesAfter(long sequence) {
+        return entriesAfter(ffmpegLogMemoryCache.snapshot(), sequence);
+    }
+    
+    private static List<LogEntry> entriesAfter(List<LogEntry> entries, long afterSequence) {
+        List<LogEntry> result = new ArrayList<>();
+        for (LogEntry entry : entries) {
+            if (entry.sequence > afterSequence) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+    
+    private static List<String> formatEntries(List<LogEntry> entries) {
+        List<String> logs = new ArrayList<>(entries.size());
+        for (LogEntry entry : entries) {
+            logs.add(entry.getFormattedMessage());
+        }
+        return logs;
+    }
+    
+    /**
+     * 把已缓冲的日志写入文件，并返回写入点快照
+     * 序号不大于 sequence 的日志在各文件的快照长度之内，之后的日志通过内存尾部和 LogListener 获取；
+     * 读取文件时只能读到快照长度为止
+     */
+    public AsyncLogWriter.FlushPoint flushAndSnapshot() {
+        List<File> files = new ArrayList<>();
+        for (File current : new File[] { appLogFile, ffmpegLogFile }) {
+            if (current == null) continue;
+            for (int i = MAX_LOG_BACKUPS; i >= 1; i--) {
+                files.add(AsyncLogWriter.getBackupFile(current, i));
+            }
+            files.add(current);
+        }
+        return fileWriter.flushAndSnapshot(files);
+    }
+    
+    // 快照之后日志文件是否被滚动或清空过，是则快照中的文件名已对应不同的文件，需要重新获取
+    public boolean isSnapshotCurrent(AsyncLogWriter.FlushPoint point) {
+        return point.fileGeneration == fileWriter.getFileGeneration();
+    }
+    
+    // 应用日志文件，从旧到新（EzConvert.2.log, EzConvert.1.log, EzConvert.log）
+    public List<File> getAppLogFiles() {
+        return listLogFiles(appLogFile);
+    }
+    
+    // FFmpeg日志文件，从旧到新
+    public List<File> getFfmpegLogFiles() {
+        return listLogFiles(ffmpegLogFile);
+    }
+    
+    private static List<File> listLogFiles(File current) {
+        List<File> files = new ArrayList<>();
+        if (current == null) return files;
+        for (int i = MAX_LOG_BACKUPS; i >= 1; i--) {
+            File backup = AsyncLogWriter.getBackupFile(current, i);
+            if (backup.isFile()) {
+                files.add(backup);
+            }
+        }
+        if (current.isFile()) {
+            files.add(current);
+        }
+        return files;
     }
     
     // 高效获取应用日志数量，无需遍历
@@ -272,11 +402,31 @@ public class LogManager {
         return ffmpegLogMemoryCache.size();
     }
 
+    /**
+     * 把应用日志和 FFmpeg 日志文件改到 dir 目录下，返回原来的目录
+     * 供基准测试写入临时目录，避免大量测试日志滚动掉真实日志
+     */
+    File setLogDirectory(File dir) {
+        File previous = appLogFile != null ? appLogFile.getParentFile() : null;
+        fileWriter.closeFilesAndRun(() -> {
+            if (!dir.exists()) dir.mkdirs();
+            appLogFile = new File(dir, APP_LOG_NAME);
+            ffmpegLogFile = new File(dir, FFMPEG_LOG_NAME);
+        });
+        return previous;
+    }
+
     // 更新日志等级
     public void updateLogLevel(boolean verbose) {
         this.verboseLogging = verbose;
     }
 
+    // 更新调用位置获取模式，depth <= 0 表示完整调用链不限层数
+    public void updateCallerInfo(String mode, int depth) {
+        this.callerMode = CallerInfo.normalizeMode(mode);
+        this.callerStackDepth = depth;
+    }
+
     private Level convertToFfmpegLevel(int androidLevel) {
         switch (androidLevel) {
             case android.util.Log.VERBOSE:
@@ -303,13 +453,28 @@ public class LogManager {
         }
     }
     
-    // 在主线程通知所有监听器
+    // 加入待分发队列，没有监听器时直接跳过
     private void notifyLogAdded(LogEntry entry) {
-        mainHandler.post(() -> {
-            for (LogListener listener : listeners) {
-                listener.onLogAdded(entry);
-            }
-        });
+        if (listeners.isEmpty()) return;
+        pendingNotifications.offer(entry);
+        if (deliveryScheduled.compareAndSet(false, true)) {
+            mainHandler.post(scheduleDelivery);
+        }
+    }
+    
+    // 主线程：取出队列中所有日志，一次通知所有监听器
+    private void deliverPendingLogs() {
+        deliveryScheduled.set(false);
+        lastDeliveryTime = android.os.SystemClock.uptimeMillis();
+        List<LogEntry> batch = new ArrayList<>();
+        LogEntry entry;
+        while ((entry = pendingNotifications.poll()) != null) {
+            batch.add(entry);
+        }
+        if (batch.isEmpty()) return;
+        for (LogListener listener : listeners) {
+            listener.onLogsAdded(batch);
+        }
     }
 
     // 获取所有日志（用于复制功能）
@@ -327,16 +492,19 @@ public class LogManager {
         // 清空内存缓存
         appLogMemoryCache.clear();
         ffmpegLogMemoryCache.clear();
+        pendingNotifications.clear();
         
-        // 删除 logs 目录下所有 .log 文件
+        // 删除 logs 目录下所有 .log 文件（先关闭写入器持有的文件）
         File logDir = new File(context.getExternalFilesDir(null), "logs");
         if (logDir.exists() && logDir.isDirectory()) {
             File[] logFiles = logDir.listFiles((dir, name) -> name.endsWith(".log"));
             if (logFiles != null && logFiles.length > 0) {
-                for (File file : logFiles) {
-                    boolean deleted = file.delete();
-                    Log.d(TAG, "清理日志文件: " + file.getName() + (deleted ? "成功" : "失败"));
-                }
+                fileWriter.closeFilesAndRun(() -> {
+                    for (File file : logFiles) {
+                        boolean deleted = file.delete();
+                        Log.d(TAG, "清理日志文件: " + file.getName() + (deleted ? "成功" : "失败"));
+                    }
+                });
                 Log.i(TAG, "共清理 " + logFiles.length + "个日志文件");
             } else {
                 Log.d(TAG, "logs 目录下没有 .log 文件需要清理");
@@ -352,15 +520,14 @@ public class LogManager {
         });
     }
 
-    private void writeToFile(File file, String content) {
-        try {
-            FileWriter writer = new FileWriter(file, true);
-            writer.write(content + "\n");
-            writer.flush();
-            writer.close();
-        } catch (IOException e) {
-            android.util.Log.e(TAG, "写入失败: " + e.getMessage());
-        }
+    // 放入异步写入队列，不在调用线程（包括 FFmpeg 日志回调线程）做任何磁盘操作
+    private void writeToFile(File file, LogEntry entry) {
+        fileWriter.write(file, entry.getFormattedMessage(), entry.sequence);
+    }
+    
+    // 等待已缓冲的日志写入磁盘，用于崩溃或导出日志前
+    public void flush() {
+        fileWriter.flush();
     }
 
     private void clearFile(File file) {
@@ -375,9 +542,8 @@ public class LogManager {
     }
 
     private String formatLogLine(String message, Level level) {
-        String timestamp = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", 
-            java.util.Locale.getDefault()).format(new java.util.Date());
-        return String.format("[%s] [%s] %s", timestamp, levelToString(level), message);
+        String timestamp = TIME_FORMAT.get().format(new java.util.Date());
+        return "[" + timestamp + "] [" + levelToString(level) + "] " + message;
     }
 
     private String levelToString(Level level) {
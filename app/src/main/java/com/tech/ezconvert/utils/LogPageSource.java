@@ -0,0 +1,196 @@
+package com.tech.ezconvert.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 日志查看器的分页数据源：按从旧到新的顺序拼接若干日志文件（通过 LogFileIndex 按页读取）和内存中的尾部日志
+ * 文件部分在创建后不再变化，新日志只追加到尾部；size()、peek()、appendTail() 应在同一线程（UI 线程）调用，
+ * loadPage() 在后台线程调用。
+ */
+public class LogPageSource implements Closeable {
+
+    private static final String TAG = "LogPageSource";
+    public static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 16;
+
+    private final List<LogFileIndex> segments;
+    private final int[] segmentStarts;
+    private final int fileEntryCount;
+    private final List<LogManager.LogEntry> tail;
+    private long lastSequence;
+
+    private final Map<Integer, List<String>> pageCache =
+            new LinkedHashMap<Integer, List<String>>(MAX_CACHED_PAGES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, List<String>> eldest) {
+                    return size() > MAX_CACHED_PAGES;
+                }
+            };
+
+    private LogPageSource(List<LogFileIndex> segments, List<LogManager.LogEntry> tail, long sequence) {
+        this.segments = segments;
+        this.segmentStarts = new int[segments.size()];
+        int total = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            segmentStarts[i] = total;
+            total += segments.get(i).size();
+        }
+        this.fileEntryCount = total;
+        this.tail = new ArrayList<>(tail);
+        this.lastSequence = sequence;
+        for (LogManager.LogEntry entry : tail) {
+            lastSequence = Math.max(lastSequence, entry.sequence);
+        }
+    }
+
+    /**
+     * @param files    日志文件，从旧到新
+     * @param indexDir 磁盘索引目录
+     * @param tail     文件之后的内存日志（序号大于 point.sequence）
+     * @param point    写入点快照，文件只读到快照长度，快照时不存在的文件忽略
+     */
+    public static LogPageSource open(List<File> files, File indexDir,
+                                     List<LogManager.LogEntry> tail, AsyncLogWriter.FlushPoint point) {
+        List<LogFileIndex> segments = new ArrayList<>();
+        for (File file : files) {
+            long length = point.getLength(file);
+            if (length < 0) continue;
+            try {
+                addSegment(segments, LogFileIndex.open(file, indexDir, length));
+            } catch (IOException e) {
+                Log.w(TAG, "日志索引失败: " + file.getName(), e);
+            }
+        }
+        return new LogPageSource(segments, tail, point.sequence);
+    }
+
+    /**
+     * 每行一条日志且没有内存尾部的文件（logcat）
+     */
+    public static LogPageSource openLines(List<File> files, File indexDir) {
+        List<LogFileIndex> segments = new ArrayList<>();
+        for (File file : files) {
+            try {
+                addSegment(segments, LogFileIndex.openLines(file, indexDir));
+            } catch (IOException e) {
+                Log.w(TAG, "日志索引失败: " + file.getName(), e);
+            }
+        }
+        return new LogPageSource(segments, new ArrayList<>(), 0);
+    }
+
+    private static void addSegment(List<LogFileIndex> segments, LogFileIndex index) {
+        if (index.size() > 0) {
+            segments.add(index);
+        } else {
+            index.close();
+        }
+    }
+
+    public int size() {
+        return fileEntryCount + tail.size();
+    }
+
+    // 文件部分的条目数，在后台线程中也可以安全读取
+    public int getFileEntryCount() {
+        return fileEntryCount;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * 追加新日志，序号不大于已有内容的日志（已在文件或尾部中）会被忽略
+     * @return 是否追加
+     */
+    public boolean appendTail(LogManager.LogEntry entry) {
+        if (entry.sequence <= lastSequence) {
+            return false;
+        }
+        lastSequence = entry.sequence;
+        tail.add(entry);
+        return true;
+    }
+
+    /**
+     * 返回已就绪的日志行；位于尚未加载的文件页时返回 null，需要调用 loadPage
+     */
+    public String peek(int position) {
+        if (position >= fileEntryCount) {
+            return tail.get(position - fileEntryCount).getFormattedMessage();
+        }
+        List<String> page;
+        synchronized (pageCache) {
+            page = pageCache.get(position / PAGE_SIZE);
+        }
+        return page != null ? page.get(position % PAGE_SIZE) : null;
+    }
+
+    public static int pageOf(int position) {
+        return position / PAGE_SIZE;
+    }
+
+    /**
+     * 从文件读取一页（可能跨越多个文件），返回该页在列表中的条目数
+     */
+    public int loadPage(int page) throws IOException {
+        List<String> lines = readFileEntries(page * PAGE_SIZE, PAGE_SIZE);
+        if (lines.isEmpty()) return 0;
+        synchronized (pageCache) {
+            pageCache.put(page, lines);
+        }
+        return lines.size();
+    }
+
+    /**
+     * 读取文件部分 [start, start + count) 的条目，不进入分页缓存（用于建立搜索索引）
+     */
+    public List<String> readFileEntries(int start, int count) throws IOException {
+        int end = Math.min(fileEntryCount, start + count);
+        List<String> lines = new ArrayList<>(Math.max(0, end - start));
+        if (start >= end) return lines;
+
+        int segment = findSegment(start);
+        int position = start;
+        while (position < end && segment < segments.size()) {
+            LogFileIndex index = segments.get(segment);
+            int offset = position - segmentStarts[segment];
+            int length = Math.min(end - position, index.size() - offset);
+            lines.addAll(index.read(offset, length));
+            position += length;
+            segment++;
+        }
+        return lines;
+    }
+
+    private int findSegment(int position) {
+        int low = 0;
+        int high = segmentStarts.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (segmentStarts[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public void close() {
+        for (LogFileIndex index : segments) {
+            index.close();
+        }
+        synchronized (pageCache) {
+            pageCache.clear();
+        }
+    }
+}
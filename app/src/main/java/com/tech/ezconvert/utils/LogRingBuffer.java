@@ -0,0 +1,103 @@
+package com.tech.ezconvert.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 固定容量的日志环形缓冲区
+ * 追加和淘汰都是 O(1)，同时按条数和估算字节数限制内存；读取时在短暂加锁内复制出快照
+ */
+public class LogRingBuffer<T> {
+
+    /**
+     * 估算单条日志占用的字节数
+     */
+    public interface SizeEstimator<T> {
+        long sizeOf(T item);
+    }
+
+    private final Object[] items;
+    private final long[] sizes;
+    private final long maxBytes;
+    private final SizeEstimator<T> estimator;
+
+    // head 指向最旧的一条，count 为当前条数
+    private int head = 0;
+    private int count = 0;
+    private long totalBytes = 0;
+
+    public LogRingBuffer(int maxCount, long maxBytes, SizeEstimator<T> estimator) {
+        if (maxCount <= 0) {
+            throw new IllegalArgumentException("maxCount 必须大于 0");
+        }
+        this.items = new Object[maxCount];
+        this.sizes = new long[maxCount];
+        this.maxBytes = maxBytes;
+        this.estimator = estimator;
+    }
+
+    /**
+     * 追加一条，超出条数或字节上限时从最旧的一端淘汰
+     */
+    public void add(T item) {
+        if (item == null) return;
+        long size = estimator != null ? estimator.sizeOf(item) : 0;
+
+        synchronized (this) {
+            if (count == items.length) {
+                evictOldest();
+            }
+            int tail = (head + count) % items.length;
+            items[tail] = item;
+            sizes[tail] = size;
+            count++;
+            totalBytes += size;
+
+            // 至少保留刚写入的一条，即使它本身超过字节上限
+            while (count > 1 && totalBytes > maxBytes) {
+                evictOldest();
+            }
+        }
+    }
+
+    private void evictOldest() {
+        totalBytes -= sizes[head];
+        items[head] = null;
+        sizes[head] = 0;
+        head = (head + 1) % items.length;
+        count--;
+    }
+
+    /**
+     * 按写入顺序（旧 -> 新）返回当前内容的快照
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> snapshot() {
+        synchronized (this) {
+            List<T> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add((T) items[(head + i) % items.length]);
+            }
+            return result;
+        }
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < count; i++) {
+            int index = (head + i) % items.length;
+            items[index] = null;
+            sizes[index] = 0;
+        }
+        head = 0;
+        count = 0;
+        totalBytes = 0;
+    }
+}
@@ -0,0 +1,281 @@
+package com.tech.ezconvert.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 日志倒排索引，文档编号即日志在数据源中的位置（只追加）
+ * 索引项：级别 level:xxx、标签 tag:xxx、任务 task:workId（位于 "=== Task [id] START" 与 END 之间的日志）
+ * 以及消息中的词（英文数字按单词，中文按相邻两字）。查询的每一项按前缀匹配，多项之间为"且"的关系。
+ * 非线程安全，建立索引、追加和查询应在同一个后台线程执行。
+ */
+public class LogSearchIndex {
+
+    public enum Format {
+        APP,     // [时间] [级别] [标签] 消息
+        FFMPEG,  // [时间] [级别] 消息
+        LOGCAT   // logcat -v threadtime: 日期 时间 PID TID 级别 标签: 消息
+    }
+
+    private static final String LEVEL_PREFIX = "level:";
+    private static final String TAG_PREFIX = "tag:";
+    private static final String TASK_PREFIX = "task:";
+    private static final String TASK_MARKER = "=== Task [";
+    private static final int MAX_TOKEN_LENGTH = 32;
+
+    private static final Pattern LOGCAT_PATTERN = Pattern.compile(
+            "^\\d\\d-\\d\\d\\s+\\d\\d:\\d\\d:\\d\\d\\.\\d+\\s+\\d+\\s+\\d+\\s+([VDIWEFA])\\s+(.*?)\\s*: ");
+
+    private final Format format;
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Set<String> openTasks = new LinkedHashSet<>();
+    private int documentCount = 0;
+
+    public LogSearchIndex(Format format) {
+        this.format = format;
+    }
+
+    public int size() {
+        return documentCount;
+    }
+
+    /**
+     * 追加一条日志，返回它的索引项（用于判断新日志是否匹配当前查询）
+     */
+    public Collection<String> add(String line) {
+        int doc = documentCount++;
+        Set<String> docTerms = extractTerms(line);
+        for (String term : docTerms) {
+            Postings postings = terms.get(term);
+            if (postings == null) {
+                postings = new Postings();
+                terms.put(term, postings);
+            }
+            postings.add(doc);
+        }
+        return docTerms;
+    }
+
+    /**
+     * 返回匹配查询的日志位置，升序
+     */
+    public int[] search(Query query) {
+        BitSet result = null;
+        for (String clause : query.clauses) {
+            BitSet matched = new BitSet(documentCount);
+            for (Postings postings : terms.subMap(clause, clause + Character.MAX_VALUE).values()) {
+                postings.addTo(matched);
+            }
+            if (result == null) {
+                result = matched;
+            } else {
+                result.and(matched);
+            }
+            if (result.isEmpty()) break;
+        }
+        if (result == null) return new int[0];
+
+        int[] positions = new int[result.cardinality()];
+        int i = 0;
+        for (int doc = result.nextSetBit(0); doc >= 0; doc = result.nextSetBit(doc + 1)) {
+            positions[i++] = doc;
+        }
+        return positions;
+    }
+
+    private Set<String> extractTerms(String line) {
+        Set<String> result = new LinkedHashSet<>();
+        if (line == null) return result;
+
+        int messageStart = 0;
+        if (format == Format.LOGCAT) {
+            Matcher matcher = LOGCAT_PATTERN.matcher(line);
+            if (matcher.find()) {
+                result.add(LEVEL_PREFIX + logcatLevel(matcher.group(1).charAt(0)));
+                result.add(TAG_PREFIX + matcher.group(2).toLowerCase(Locale.ROOT));
+                messageStart = matcher.end();
+            }
+        } else if (line.startsWith("[")) {
+            // 跳过时间，读取级别和标签
+            int pos = skipBracket(line, 0);
+            int levelEnd = pos > 0 ? skipBracket(line, pos) : -1;
+            if (levelEnd > 0) {
+                result.add(LEVEL_PREFIX + line.substring(pos + 1, levelEnd - 2).toLowerCase(Locale.ROOT));
+                messageStart = levelEnd;
+                if (format == Format.APP) {
+                    int tagEnd = skipBracket(line, levelEnd);
+                    if (tagEnd > 0) {
+                        result.add(TAG_PREFIX + line.substring(levelEnd + 1, tagEnd - 2).toLowerCase(Locale.ROOT));
+                        messageStart = tagEnd;
+                    }
+                }
+            }
+        }
+
+        // 任务开始与结束之间的日志都归入该任务
+        String taskId = null;
+        boolean taskEnd = false;
+        int marker = line.indexOf(TASK_MARKER, messageStart);
+        if (marker >= 0) {
+            int idEnd = line.indexOf(']', marker + TASK_MARKER.length());
+            if (idEnd > 0) {
+                taskId = line.substring(marker + TASK_MARKER.length(), idEnd).toLowerCase(Locale.ROOT);
+                if (line.startsWith("] START", idEnd)) {
+                    openTasks.add(taskId);
+                } else if (line.startsWith("] END", idEnd)) {
+                    taskEnd = true;
+                }
+            }
+        }
+        if (taskId != null) {
+            result.add(TASK_PREFIX + taskId);
+        }
+        for (String task : openTasks) {
+            result.add(TASK_PREFIX + task);
+        }
+        if (taskEnd) {
+            openTasks.remove(taskId);
+        }
+
+        tokenize(line, messageStart, result);
+        return result;
+    }
+
+    // "[xxx] " 结束后的位置，不是该格式时返回 -1
+    private static int skipBracket(String line, int start) {
+        if (start >= line.length() || line.charAt(start) != '[') return -1;
+        int close = line.indexOf("] ", start + 1);
+        return close > 0 ? close + 2 : -1;
+    }
+
+    private static String logcatLevel(char level) {
+        switch (level) {
+            case 'V': return "verbose";
+            case 'D': return "debug";
+            case 'I': return "info";
+            case 'W': return "warn";
+            case 'E': return "error";
+            case 'F': return "fatal";
+            default: return "assert";
+        }
+    }
+
+    // 英文数字按单词（转小写），中文等其他文字按相邻两字，每段最后一个字单独作为一项
+    static void tokenize(String text, int start, Collection<String> out) {
+        int length = text.length();
+        int i = start;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isWordChar(c)) {
+                int end = i + 1;
+                while (end < length && isWordChar(text.charAt(end))) end++;
+                if (end - i <= MAX_TOKEN_LENGTH) {
+                    out.add(text.substring(i, end).toLowerCase(Locale.ROOT));
+                }
+                i = end;
+            } else if (Character.isLetter(c)) {
+                int end = i + 1;
+                while (end < length && Character.isLetter(text.charAt(end)) && !isWordChar(text.charAt(end))) end++;
+                for (int j = i; j < end - 1; j++) {
+                    out.add(text.substring(j, j + 2));
+                }
+                out.add(text.substring(end - 1, end));
+                i = end;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * 解析后的查询，例如 "level:error tag:ffmpegworker task:3f2a 失败"
+     */
+    public static final class Query {
+        final List<String> clauses;
+
+        private Query(List<String> clauses) {
+            this.clauses = clauses;
+        }
+
+        public static Query parse(String text) {
+            List<String> clauses = new ArrayList<>();
+            if (text != null) {
+                for (String part : text.trim().split("\\s+")) {
+                    if (part.isEmpty()) continue;
+                    String lower = part.toLowerCase(Locale.ROOT);
+                    String field = fieldPrefix(lower);
+                    if (field != null) {
+                        if (lower.length() > field.length()) {
+                            clauses.add(lower);
+                        }
+                    } else {
+                        tokenize(part, 0, clauses);
+                    }
+                }
+            }
+            return new Query(new ArrayList<>(new LinkedHashSet<>(clauses)));
+        }
+
+        private static String fieldPrefix(String part) {
+            for (String prefix : Arrays.asList(LEVEL_PREFIX, TAG_PREFIX, TASK_PREFIX)) {
+                if (part.startsWith(prefix)) return prefix;
+            }
+            return null;
+        }
+
+        public boolean isEmpty() {
+            return clauses.isEmpty();
+        }
+
+        /**
+         * 新追加的日志是否匹配（与 search 的前缀规则一致）
+         */
+        public boolean matches(Collection<String> docTerms) {
+            if (clauses.isEmpty()) return false;
+            for (String clause : clauses) {
+                boolean found = false;
+                for (String term : docTerms) {
+                    if (term.startsWith(clause)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) return false;
+            }
+            return true;
+        }
+    }
+
+    // 升序文档编号列表
+    private static final class Postings {
+        int[] docs = new int[4];
+        int count = 0;
+
+        void add(int doc) {
+            if (count > 0 && docs[count - 1] == doc) return;
+            if (count == docs.length) {
+                docs = Arrays.copyOf(docs, count * 2);
+            }
+            docs[count++] = doc;
+        }
+
+        void addTo(BitSet bits) {
+            for (int i = 0; i < count; i++) {
+                bits.set(docs[i]);
+            }
+        }
+    }
+}
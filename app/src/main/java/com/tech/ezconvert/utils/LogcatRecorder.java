@@ -19,7 +19,9 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -428,6 +430,19 @@ public class LogcatRecorder implements Application.ActivityLifecycleCallbacks {
         return file.getAbsolutePath();
     }
     
+    // 日志文件，从旧到新（logcat_old.txt, logcat.log）
+    public List<File> getLogFiles() {
+        List<File> files = new ArrayList<>();
+        if (!isAvailable || context == null) return files;
+        
+        File dir = new File(context.getExternalFilesDir(null), LOG_DIR);
+        File oldFile = new File(dir, "logcat_old.txt");
+        File file = new File(dir, LOG_FILE);
+        if (oldFile.isFile()) files.add(oldFile);
+        if (file.isFile()) files.add(file);
+        return files;
+    }
+    
     //           Activity 生命周期
     
     @Override
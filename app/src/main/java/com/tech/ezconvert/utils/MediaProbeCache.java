@@ -0,0 +1,442 @@
+package com.tech.ezconvert.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import com.arthenica.ffmpegkit.FFprobeKit;
+import com.arthenica.ffmpegkit.FFprobeSession;
+import com.arthenica.ffmpegkit.ReturnCode;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * FFprobe 结果缓存
+ * 每个输入只执行一次 -show_format -show_streams JSON 探测，按 路径 + 大小 + 修改时间 作为键，
+ * 内存 LRU + 磁盘索引两级缓存，重复批量处理和重新打开参数弹窗都不再启动 FFprobe
+ */
+public class MediaProbeCache {
+    private static final String TAG = "MediaProbeCache";
+    private static final String CACHE_SUB_DIR = "probe_cache";
+    private static final String INDEX_FILE = "index.json";
+    private static final int MAX_MEMORY_ENTRIES = 64;
+    private static final int MAX_DISK_ENTRIES = 256;
+
+    // FFmpeg 打印输入信息时的 "  Duration: 00:01:23.45, start: ..." 行
+    private static final Pattern LOG_DURATION_PATTERN =
+            Pattern.compile("Duration:\\s*(\\d+):(\\d{2}):(\\d{2}(?:\\.\\d+)?)");
+
+    private static MediaProbeCache instance;
+
+    private final File indexFile;
+    private final Gson gson = new Gson();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService probeExecutor = Executors.newFixedThreadPool(2);
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+
+    // 内存 LRU (accessOrder = true)
+    private final LinkedHashMap<String, ProbeResult> memoryCache =
+            new LinkedHashMap<String, ProbeResult>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ProbeResult> eldest) {
+                    return size() > MAX_MEMORY_ENTRIES;
+                }
+            };
+
+    // 磁盘索引：key -> ffprobe 原始 JSON，按访问顺序淘汰；在 probeExecutor 上加载，加载完成前只查内存
+    private LinkedHashMap<String, String> diskIndex;
+    private volatile boolean diskIndexLoaded;
+
+    // 正在进行的探测，同一输入的并发请求合并为一次
+    private final ConcurrentHashMap<String, List<ProbeCallback>> inFlight = new ConcurrentHashMap<>();
+
+    public interface ProbeCallback {
+        // 在主线程回调，探测失败时 result 为 null
+        void onResult(ProbeResult result);
+    }
+
+    /**
+     * 探测结果
+     */
+    public static class ProbeResult {
+        public String rawJson;
+        public String formatName;
+        public long durationMs = -1;
+        // 容器的起始时间（秒），MPEG-TS 和部分手机录制的 MP4 不为 0
+        public double startTimeSec;
+        public long sizeBytes;
+        public long bitRate;
+
+        public String videoCodec;
+        public String videoProfile;
+        // ffprobe 报告的 level，H.264 为 level_idc（41 即 4.1），HEVC 为 general_level_idc（123 即 4.1）；未知时为 0
+        public int videoLevel;
+        public String pixelFormat;
+        public int width;
+        public int height;
+        public double frameRate;
+        public long videoBitRate;
+
+        public String audioCodec;
+        public int sampleRate;
+        public int channels;
+        public long audioBitRate;
+
+        public int videoStreamCount;
+        public int audioStreamCount;
+        public int subtitleStreamCount;
+
+        public boolean hasVideo() {
+            return videoStreamCount > 0;
+        }
+
+        public boolean hasAudio() {
+            return audioStreamCount > 0;
+        }
+    }
+
+    public static synchronized MediaProbeCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new MediaProbeCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private MediaProbeCache(Context context) {
+        File dir = new File(context.getCacheDir(), CACHE_SUB_DIR);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        indexFile = new File(dir, INDEX_FILE);
+        // 磁盘索引可能有几百条 JSON，不在调用方（通常是主线程）读取
+        probeExecutor.execute(() -> {
+            synchronized (this) {
+                ensureDiskIndexLoaded();
+            }
+        });
+    }
+
+    /**
+     * 根据文件路径生成缓存键，文件不存在时返回 null
+     */
+    public static String buildKey(String path) {
+        if (path == null || path.isEmpty()) return null;
+        // /proc/self/fd 路径的编号会被复用，改用 Uri 标识
+        String identity = CacheManager.getDescriptorIdentity(path);
+        if (identity != null) return identity;
+        File file = new File(path);
+        if (!file.exists()) return null;
+        return path + "|" + file.length() + "|" + file.lastModified();
+    }
+
+    /**
+     * 仅查询缓存，不触发探测（可在主线程调用）
+     * 磁盘索引尚未加载完成时只查内存，不等待加载
+     */
+    public ProbeResult getCached(String path) {
+        String key = buildKey(path);
+        if (key == null) return null;
+        return lookup(key, false);
+    }
+
+    private ProbeResult lookup(String key, boolean waitForDisk) {
+        synchronized (memoryCache) {
+            ProbeResult cached = memoryCache.get(key);
+            if (cached != null) return cached;
+        }
+        if (!waitForDisk && !diskIndexLoaded) return null;
+
+        String json;
+        synchronized (this) {
+            ensureDiskIndexLoaded();
+            json = diskIndex.get(key);
+        }
+        if (json == null) return null;
+
+        ProbeResult result = parse(json);
+        if (result != null) {
+            synchronized (memoryCache) {
+                memoryCache.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 同步探测，命中缓存时直接返回
+     * 未命中时会启动 FFprobe，不要在主线程调用
+     */
+    public ProbeResult probe(String path) {
+        String key = buildKey(path);
+        if (key == null) {
+            Log.w(TAG, "文件不存在，跳过探测: " + path);
+            return null;
+        }
+        ProbeResult cached = lookup(key, true);
+        if (cached != null) return cached;
+
+        long start = System.currentTimeMillis();
+        String command = "-v quiet -print_format json -show_format -show_streams \"" + path + "\"";
+        FFprobeSession session = FFprobeKit.execute(command);
+        if (session == null || !ReturnCode.isSuccess(session.getReturnCode())) {
+            Log.w(TAG, "FFprobe 探测失败: " + path);
+            return null;
+        }
+
+        String output = session.getOutput();
+        ProbeResult result = parse(output);
+        if (result == null) {
+            Log.w(TAG, "解析 FFprobe 输出失败: " + path);
+            return null;
+        }
+        Log.d(TAG, "探测完成: " + path + " (" + (System.currentTimeMillis() - start) + " ms)");
+
+        put(key, result);
+        return result;
+    }
+
+    /**
+     * 异步探测，结果在主线程回调
+     */
+    public void probeAsync(String path, ProbeCallback callback) {
+        ProbeResult cached = getCached(path);
+        if (cached != null) {
+            mainHandler.post(() -> callback.onResult(cached));
+            return;
+        }
+
+        String key = buildKey(path);
+        if (key == null) {
+            mainHandler.post(() -> callback.onResult(null));
+            return;
+        }
+
+        // 同一输入已有探测在进行，挂到等待列表即可。登记在 compute 内完成，与探测结束时的 remove 互斥，
+        // 不会出现挂到已被取走的列表上、回调永远不触发的情况
+        boolean[] isFirst = {false};
+        inFlight.compute(key, (k, waiters) -> {
+            if (waiters == null) {
+                waiters = new ArrayList<>();
+                isFirst[0] = true;
+            }
+            waiters.add(callback);
+            return waiters;
+        });
+        if (!isFirst[0]) return;
+
+        probeExecutor.execute(() -> {
+            ProbeResult result = null;
+            try {
+                result = probe(path);
+            } catch (Exception e) {
+                Log.e(TAG, "探测异常: " + path, e);
+            }
+            // 移出后列表不再被修改，之后的请求会命中缓存或重新探测
+            List<ProbeCallback> callbacks = inFlight.remove(key);
+            if (callbacks == null) return;
+            final ProbeResult finalResult = result;
+            for (ProbeCallback cb : callbacks) {
+                mainHandler.post(() -> cb.onResult(finalResult));
+            }
+        });
+    }
+
+    private void put(String key, ProbeResult result) {
+        synchronized (memoryCache) {
+            memoryCache.put(key, result);
+        }
+        synchronized (this) {
+            ensureDiskIndexLoaded();
+            diskIndex.put(key, result.rawJson);
+        }
+        diskExecutor.execute(this::saveDiskIndex);
+    }
+
+    // 清空内存与磁盘缓存
+    public void clear() {
+        synchronized (memoryCache) {
+            memoryCache.clear();
+        }
+        synchronized (this) {
+            ensureDiskIndexLoaded();
+            diskIndex.clear();
+        }
+        diskExecutor.execute(this::saveDiskIndex);
+    }
+
+    private void ensureDiskIndexLoaded() {
+        if (diskIndex != null) return;
+        diskIndex = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > MAX_DISK_ENTRIES;
+            }
+        };
+        if (indexFile.exists()) {
+            try (FileReader reader = new FileReader(indexFile)) {
+                Type type = new TypeToken<LinkedHashMap<String, String>>(){}.getType();
+                Map<String, String> loaded = gson.fromJson(reader, type);
+                if (loaded != null) {
+                    diskIndex.putAll(loaded);
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "读取探测缓存索引失败: " + e.getMessage());
+            }
+        }
+        diskIndexLoaded = true;
+    }
+
+    private void saveDiskIndex() {
+        Map<String, String> snapshot;
+        synchronized (this) {
+            if (diskIndex == null) return;
+            snapshot = new LinkedHashMap<>(diskIndex);
+        }
+        try (FileWriter writer = new FileWriter(indexFile)) {
+            gson.toJson(snapshot, writer);
+        } catch (IOException e) {
+            Log.w(TAG, "保存探测缓存索引失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 解析 ffprobe -print_format json 的输出
+     */
+    public static ProbeResult parse(String json) {
+        if (json == null || json.trim().isEmpty()) return null;
+        try {
+            JsonObject root = JsonParser.parseString(json).getAsJsonObject();
+            ProbeResult result = new ProbeResult();
+            result.rawJson = json;
+
+            if (root.has("format")) {
+                JsonObject format = root.getAsJsonObject("format");
+                result.formatName = getString(format, "format_name");
+                double duration = getDouble(format, "duration", -1);
+                result.durationMs = duration > 0 ? (long) (duration * 1000) : -1;
+                result.startTimeSec = Math.max(0, getDouble(format, "start_time", 0));
+                result.sizeBytes = getLong(format, "size", 0);
+                result.bitRate = getLong(format, "bit_rate", 0);
+            }
+
+            if (root.has("streams")) {
+                JsonArray streams = root.getAsJsonArray("streams");
+                for (JsonElement element : streams) {
+                    JsonObject stream = element.getAsJsonObject();
+                    String codecType = getString(stream, "codec_type");
+                    if ("video".equals(codecType)) {
+                        // 封面图 (attached_pic) 不计入视频流
+                        if (isAttachedPicture(stream)) continue;
+                        result.videoStreamCount++;
+                        if (result.videoStreamCount > 1) continue;
+                        result.videoCodec = getString(stream, "codec_name");
+                        result.videoProfile = getString(stream, "profile");
+                        result.videoLevel = (int) Math.max(0, getLong(stream, "level", 0));
+                        result.pixelFormat = getString(stream, "pix_fmt");
+                        result.width = (int) getLong(stream, "width", 0);
+                        result.height = (int) getLong(stream, "height", 0);
+                        result.videoBitRate = getLong(stream, "bit_rate", 0);
+                        String fps = getString(stream, "avg_frame_rate");
+                        if (fps == null || "0/0".equals(fps)) {
+                            fps = getString(stream, "r_frame_rate");
+                        }
+                        result.frameRate = parseFrameRate(fps);
+                    } else if ("audio".equals(codecType)) {
+                        result.audioStreamCount++;
+                        if (result.audioStreamCount > 1) continue;
+                        result.audioCodec = getString(stream, "codec_name");
+                        result.sampleRate = (int) getLong(stream, "sample_rate", 0);
+                        result.channels = (int) getLong(stream, "channels", 0);
+                        result.audioBitRate = getLong(stream, "bit_rate", 0);
+                    } else if ("subtitle".equals(codecType)) {
+                        result.subtitleStreamCount++;
+                    }
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 从 FFmpeg 日志的 Duration 行解析输入时长（毫秒），不是该行或时长为 N/A 时返回 -1
+     * 解复用器打开输入后立即打印，不必等待单独的 FFprobe 探测
+     */
+    public static long parseLogDurationMs(String line) {
+        if (line == null || !line.contains("Duration:")) return -1;
+        Matcher matcher = LOG_DURATION_PATTERN.matcher(line);
+        if (!matcher.find()) return -1;
+        try {
+            double seconds = Long.parseLong(matcher.group(1)) * 3600
+                    + Long.parseLong(matcher.group(2)) * 60
+                    + Double.parseDouble(matcher.group(3));
+            long durationMs = Math.round(seconds * 1000);
+            return durationMs > 0 ? durationMs : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isAttachedPicture(JsonObject stream) {
+        if (!stream.has("disposition")) return false;
+        JsonObject disposition = stream.getAsJsonObject("disposition");
+        return getLong(disposition, "attached_pic", 0) == 1;
+    }
+
+    static double parseFrameRate(String fps) {
+        if (fps == null || !fps.contains("/")) return 0;
+        String[] parts = fps.split("/");
+        if (parts.length != 2) return 0;
+        try {
+            double num = Double.parseDouble(parts[0]);
+            double den = Double.parseDouble(parts[1]);
+            if (den <= 0) return 0;
+            double frameRate = num / den;
+            return (frameRate > 0 && frameRate < 1000) ? frameRate : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // ffprobe 的数值字段多数以字符串形式输出，这里统一兼容
+    private static String getString(JsonObject obj, String name) {
+        JsonElement e = obj.get(name);
+        return (e == null || e.isJsonNull()) ? null : e.getAsString();
+    }
+
+    private static long getLong(JsonObject obj, String name, long defaultValue) {
+        try {
+            String value = getString(obj, name);
+            return value != null ? (long) Double.parseDouble(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static double getDouble(JsonObject obj, String name, double defaultValue) {
+        try {
+            String value = getString(obj, name);
+            return value != null ? Double.parseDouble(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
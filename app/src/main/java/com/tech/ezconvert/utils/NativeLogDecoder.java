@@ -0,0 +1,171 @@
+package com.tech.ezconvert.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * native mmap 日志（ezlog_mmap.cpp）二进制格式的解码器
+ * 导出日志时把二进制文件还原为文本行："[时间] [级别] [标签] 消息"
+ */
+public class NativeLogDecoder {
+
+    private static final byte[] FILE_MAGIC = {'E', 'Z', 'L', 'B'};
+    private static final int FILE_VERSION = 1;
+    private static final int REC_END = 0x00;
+    private static final int REC_TAG = 0x01;
+    private static final int REC_LOG = 0x02;
+
+    /**
+     * 是否为 native 二进制日志文件（按文件头判断）
+     */
+    public static boolean isBinaryLog(File file) {
+        if (file == null || !file.isFile() || file.length() < FILE_MAGIC.length) {
+            return false;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] magic = new byte[FILE_MAGIC.length];
+            return in.read(magic) == magic.length && Arrays.equals(magic, FILE_MAGIC);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 解码文件并以 UTF-8 文本写入输出流，不关闭输出流
+     */
+    public static void decode(File file, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            decode(in, writer);
+        }
+        writer.flush();
+    }
+
+    /**
+     * 逐条解码写入 writer；遇到零填充区域或末尾不完整的记录时结束
+     */
+    public static int decode(InputStream in, Writer writer) throws IOException {
+        byte[] magic = new byte[FILE_MAGIC.length];
+        if (!readFully(in, magic) || !Arrays.equals(magic, FILE_MAGIC)) {
+            throw new IOException("不是 native 二进制日志");
+        }
+        int version = in.read();
+        if (version != FILE_VERSION) {
+            throw new IOException("不支持的日志版本: " + version);
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.getDefault());
+        Date date = new Date();
+        List<String> tags = new ArrayList<>();
+        int count = 0;
+
+        try {
+            long timestamp = readLong(in);
+            while (true) {
+                int type = in.read();
+                if (type == -1 || type == REC_END) {
+                    break;
+                }
+
+                if (type == REC_TAG) {
+                    int id = (int) readVarint(in);
+                    String tag = readString(in);
+                    while (tags.size() <= id) {
+                        tags.add("");
+                    }
+                    tags.set(id, tag);
+                } else if (type == REC_LOG) {
+                    int level = in.read();
+                    if (level < 0) break;
+                    timestamp += unzigzag(readVarint(in));
+                    int tagId = (int) readVarint(in);
+                    String message = readString(in);
+
+                    date.setTime(timestamp);
+                    writer.write("[");
+                    writer.write(format.format(date));
+                    writer.write("] [");
+                    writer.write((char) level);
+                    writer.write("] [");
+                    writer.write(tagId < tags.size() ? tags.get(tagId) : "?");
+                    writer.write("] ");
+                    writer.write(message);
+                    writer.write('\n');
+                    count++;
+                } else {
+                    // 未知记录类型，后续数据无法可靠解析
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            // 最后一条记录被截断（进程被杀死时可能发生），忽略
+        }
+        return count;
+    }
+
+    private static long readLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            value |= ((long) b) << (8 * i);
+        }
+        return value;
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        while (shift < 64) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+        throw new IOException("varint 过长");
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        long length = readVarint(in);
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IOException("记录长度无效: " + length);
+        }
+        byte[] bytes = new byte[(int) length];
+        if (!readFully(in, bytes)) {
+            throw new EOFException();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean readFully(InputStream in, byte[] buffer) throws IOException {
+        int offset = 0;
+        while (offset < buffer.length) {
+            int read = in.read(buffer, offset, buffer.length - offset);
+            if (read < 0) return false;
+            offset += read;
+        }
+        return true;
+    }
+}
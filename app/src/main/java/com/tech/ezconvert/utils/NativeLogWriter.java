@@ -1,12 +1,156 @@
 package com.tech.ezconvert.utils;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
 public class NativeLogWriter {
     static {
         System.loadLibrary("ezlog");
     }
 
-    public static native void init(String logDir, int maxFileSize);
-    public static native void write(char level, String tag, String msg);
+    // 每个线程复用一块直接内存，标签和消息按 UTF-8 编码后一次性交给 native，避免 JNI 字符串转换和拷贝
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
+    private static final class EncodeState {
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+    }
+
+    private static final ThreadLocal<EncodeState> encodeState = new ThreadLocal<EncodeState>() {
+        @Override
+        protected EncodeState initialValue() {
+            return new EncodeState();
+        }
+    };
+
+    /**
+     * native 日志写入统计
+     */
+    public static class Stats {
+        public final long writtenCount;   // 已写入 mmap 的记录数
+        public final long droppedCount;   // 队列已满时丢弃的记录数
+        public final long queuedCount;    // 仍在队列中等待写入的记录数
+        public final long writtenBytes;   // 已写入的字节数
+
+        Stats(long[] values) {
+            this.writtenCount = values[0];
+            this.droppedCount = values[1];
+            this.queuedCount = values[2];
+            this.writtenBytes = values[3];
+        }
+
+        @Override
+        public String toString() {
+            return "written=" + writtenCount + ", dropped=" + droppedCount
+                    + ", queued=" + queuedCount + ", bytes=" + writtenBytes;
+        }
+    }
+
+    // 默认映射窗口 4MB，所有 EzConvert_*.log 合计保留 100MB
+    private static final int DEFAULT_WINDOW_SIZE_KB = 4 * 1024;
+    private static final int DEFAULT_RETENTION_MB = 100;
+
+    // 当前的初始化参数，切换目录时沿用
+    private static String currentLogDir;
+    private static int currentMaxFileSizeMb;
+    private static int currentWindowSizeKb;
+    private static int currentRetentionMb;
+
+    /**
+     * @param maxFileSizeMb 单个日志文件上限（MB），超过后滚动到新文件
+     */
+    public static void init(String logDir, int maxFileSizeMb) {
+        init(logDir, maxFileSizeMb, DEFAULT_WINDOW_SIZE_KB, DEFAULT_RETENTION_MB);
+    }
+
+    /**
+     * @param maxFileSizeMb 单个日志文件上限（MB）
+     * @param windowSizeKb  mmap 映射窗口大小（KB），窗口写满后在文件内向后移动
+     * @param retentionMb   所有 EzConvert_*.log 的总大小上限（MB），超出时删除最旧的文件
+     */
+    public static synchronized void init(String logDir, int maxFileSizeMb, int windowSizeKb, int retentionMb) {
+        currentLogDir = logDir;
+        currentMaxFileSizeMb = maxFileSizeMb;
+        currentWindowSizeKb = windowSizeKb;
+        currentRetentionMb = retentionMb;
+        nativeInit(logDir, maxFileSizeMb, windowSizeKb, retentionMb);
+    }
+
+    /**
+     * 关闭当前日志文件，按相同的大小设置改写到 logDir 目录，返回原来的目录；未初始化时不做任何事并返回 null
+     * 供基准测试写入临时目录，避免滚动和保留上限删除真实日志
+     */
+    static synchronized String setLogDirectory(String logDir) {
+        String previous = currentLogDir;
+        if (previous == null) return null;
+        close();
+        init(logDir, currentMaxFileSizeMb, currentWindowSizeKb, currentRetentionMb);
+        return previous;
+    }
+
+    private static native void nativeInit(String logDir, int maxFileSizeMb, int windowSizeKb, int retentionMb);
     public static native void flush();
     public static native void close();
+
+    private static native void nativeWriteBuffer(char level, ByteBuffer buffer, int tagLen, int msgLen);
+    private static native long[] nativeGetStats();
+
+    public static Stats getStats() {
+        long[] values = nativeGetStats();
+        return new Stats(values != null && values.length >= 4 ? values : new long[4]);
+    }
+
+    public static void write(char level, String tag, String msg) {
+        EncodeState state = encodeState.get();
+        ByteBuffer buffer = state.buffer;
+        buffer.clear();
+
+        int tagLen = encode(state, tag != null ? tag : "");
+        if (tagLen < 0) return;
+        int msgLen = encode(state, msg != null ? msg : "");
+        if (msgLen < 0) {
+            // 超长消息截断到缓冲区上限
+            msgLen = state.buffer.position() - tagLen;
+        }
+        nativeWriteBuffer(level, state.buffer, tagLen, msgLen);
+    }
+
+    // 追加编码到当前缓冲区，返回写入的字节数；达到上限仍放不下时返回 -1
+    private static int encode(EncodeState state, String text) {
+        int start = state.buffer.position();
+        CharBuffer input = CharBuffer.wrap(text);
+        CharsetEncoder encoder = state.encoder;
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(input, state.buffer, true);
+            if (result.isUnderflow()) {
+                encoder.flush(state.buffer);
+                return state.buffer.position() - start;
+            }
+            if (result.isOverflow()) {
+                if (!grow(state)) {
+                    return -1;
+                }
+                continue;
+            }
+            return -1;
+        }
+    }
+
+    private static boolean grow(EncodeState state) {
+        int capacity = state.buffer.capacity();
+        if (capacity >= MAX_BUFFER_SIZE) return false;
+        ByteBuffer larger = ByteBuffer.allocateDirect(Math.min(capacity * 2, MAX_BUFFER_SIZE));
+        state.buffer.flip();
+        larger.put(state.buffer);
+        state.buffer = larger;
+        return true;
+    }
 }
@@ -11,6 +11,8 @@ import android.os.Build;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.tech.ezconvert.MainActivity;
 import com.tech.ezconvert.R;
 
@@ -19,8 +21,16 @@ public class NotificationHelper {
     private static final String CHANNEL_ID_COMPLETE = "conversion_complete";
     private static final int NOTIFICATION_ID_PROGRESS = 1001;
     private static final int NOTIFICATION_ID_COMPLETE_BASE = 2000;
+    // 批量任务中各 Worker 的前台通知 ID 区间，按任务序号循环分配
+    private static final int NOTIFICATION_ID_BATCH_BASE = 1100;
+    private static final int NOTIFICATION_ID_BATCH_RANGE = 400;
+    // FFmpegUtil 并行会话的进度通知 ID 区间
+    private static final int NOTIFICATION_ID_SESSION_BASE = 1500;
+    private static final int NOTIFICATION_ID_SESSION_RANGE = 400;
 
-    private static int completeNotificationId = NOTIFICATION_ID_COMPLETE_BASE;
+    // 多个 Worker 可能在不同线程同时发出完成通知
+    private static final AtomicInteger completeNotificationId = new AtomicInteger(NOTIFICATION_ID_COMPLETE_BASE);
+    private static final AtomicInteger sessionNotificationSequence = new AtomicInteger();
 
     public static void createNotificationChannels(Context context) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
@@ -53,6 +63,13 @@ public class NotificationHelper {
      * 构建进度通知（供 Worker 的 ForegroundInfo 使用）
      */
     public static Notification buildProgressNotification(Context context, String fileName, int progress) {
+        return updateProgressNotification(context, createProgressBuilder(context, fileName), progress, 0, -1);
+    }
+
+    /**
+     * 创建进度通知的 Builder，Worker 在整个任务期间复用它，每次只更新进度和文本
+     */
+    public static NotificationCompat.Builder createProgressBuilder(Context context, String fileName) {
         Intent intent = new Intent(context, MainActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
         PendingIntent pendingIntent = PendingIntent.getActivity(
@@ -61,28 +78,76 @@ public class NotificationHelper {
         );
 
         String title = context.getString(R.string.notification_progress_title, fileName);
-        String text = context.getString(R.string.notification_progress_text, progress);
 
         return new NotificationCompat.Builder(context, CHANNEL_ID_PROGRESS)
                 .setSmallIcon(R.drawable.ic_splash_logo)
                 .setContentTitle(title)
-                .setContentText(text)
-                .setProgress(100, progress, false)
                 .setPriority(NotificationCompat.PRIORITY_LOW)
                 .setOngoing(true)
                 .setContentIntent(pendingIntent)
-                .setOnlyAlertOnce(true)
+                .setOnlyAlertOnce(true);
+    }
+
+    /**
+     * 更新复用的进度 Builder 并生成通知，speed 为 0 表示倍速未知，etaMs 小于 0 表示剩余时间未知，
+     * progress 小于 0 表示总时长尚未确定，显示不确定进度条
+     */
+    public static Notification updateProgressNotification(Context context, NotificationCompat.Builder builder,
+                                                          int progress, double speed, long etaMs) {
+        if (progress < 0) {
+            return builder
+                    .setContentText(context.getString(R.string.notification_progress_indeterminate_text))
+                    .setProgress(0, 0, true)
+                    .build();
+        }
+        String text;
+        if (etaMs >= 0 && speed > 0) {
+            text = context.getString(R.string.notification_progress_detail_text,
+                    progress, speed, JobTelemetry.formatEta(etaMs));
+        } else if (etaMs >= 0) {
+            text = context.getString(R.string.notification_progress_eta_text, progress, JobTelemetry.formatEta(etaMs));
+        } else {
+            text = context.getString(R.string.notification_progress_text, progress);
+        }
+        return builder
+                .setContentText(text)
+                .setProgress(100, progress, false)
                 .build();
     }
 
+    /**
+     * 为一个并行会话分配独立的进度通知 ID，多个任务同时运行时各自显示进度
+     */
+    public static int nextSessionNotificationId() {
+        return NOTIFICATION_ID_SESSION_BASE
+                + Math.floorMod(sessionNotificationSequence.getAndIncrement(), NOTIFICATION_ID_SESSION_RANGE);
+    }
+
+    /**
+     * 批量任务中第 taskIndex 个（从 1 开始）Worker 的前台通知 ID，超出区间后循环使用。
+     * 并发上限远小于区间大小，同时运行的 Worker 不会分到相同的 ID
+     */
+    public static int getBatchNotificationId(int taskIndex) {
+        return NOTIFICATION_ID_BATCH_BASE + Math.floorMod(taskIndex - 1, NOTIFICATION_ID_BATCH_RANGE);
+    }
+
     public static void showProgressNotification(Context context, String fileName, int progress) {
+        showProgressNotification(context, NOTIFICATION_ID_PROGRESS, fileName, progress);
+    }
+
+    public static void showProgressNotification(Context context, int notificationId, String fileName, int progress) {
         if (!ConfigManager.getInstance(context).isNotificationEnabled()) return;
 
         Notification notification = buildProgressNotification(context, fileName, progress);
-        NotificationManagerCompat.from(context).notify(NOTIFICATION_ID_PROGRESS, notification);
+        NotificationManagerCompat.from(context).notify(notificationId, notification);
     }
 
     public static void showCompleteNotification(Context context, String fileName, boolean success, String message) {
+        showCompleteNotification(context, NOTIFICATION_ID_PROGRESS, fileName, success, message);
+    }
+
+    public static void showCompleteNotification(Context context, int progressNotificationId,
+                                                String fileName, boolean success, String message) {
         if (!ConfigManager.getInstance(context).isNotificationEnabled()) return;
 
         Intent intent = new Intent(context, MainActivity.class);
@@ -113,14 +178,18 @@ public class NotificationHelper {
                 .setAutoCancel(true);
 
         // 取消进度通知
-        NotificationManagerCompat.from(context).cancel(NOTIFICATION_ID_PROGRESS);
+        NotificationManagerCompat.from(context).cancel(progressNotificationId);
 
         // 显示完成通知（使用递增ID避免覆盖）
-        NotificationManagerCompat.from(context).notify(completeNotificationId++, builder.build());
+        NotificationManagerCompat.from(context).notify(completeNotificationId.getAndIncrement(), builder.build());
     }
 
     // 显示取消通知
     public static void showCancelledNotification(Context context, String fileName) {
+        showCancelledNotification(context, NOTIFICATION_ID_PROGRESS, fileName);
+    }
+
+    public static void showCancelledNotification(Context context, int progressNotificationId, String fileName) {
         if (!ConfigManager.getInstance(context).isNotificationEnabled()) return;
 
         Intent intent = new Intent(context, MainActivity.class);
@@ -143,14 +212,18 @@ public class NotificationHelper {
                 .setAutoCancel(true);
 
         // 取消进度通知
-        NotificationManagerCompat.from(context).cancel(NOTIFICATION_ID_PROGRESS);
+        NotificationManagerCompat.from(context).cancel(progressNotificationId);
 
         // 显示取消通知（使用递增ID避免覆盖）
-        NotificationManagerCompat.from(context).notify(completeNotificationId++, builder.build());
+        NotificationManagerCompat.from(context).notify(completeNotificationId.getAndIncrement(), builder.build());
     }
 
     public static void cancelProgressNotification(Context context) {
-        NotificationManagerCompat.from(context).cancel(NOTIFICATION_ID_PROGRESS);
+        cancelProgressNotification(context, NOTIFICATION_ID_PROGRESS);
+    }
+
+    public static void cancelProgressNotification(Context context, int notificationId) {
+        NotificationManagerCompat.from(context).cancel(notificationId);
     }
 
     public static boolean areNotificationsEnabled(Context context) {
@@ -48,6 +48,9 @@ public class ParameterData {
     @SerializedName("screenshot_quality")
     public int screenshotQuality; // 1-100
 
+    @SerializedName("screenshot_interval")
+    public int screenshotInterval; // 批量截图间隔（秒），0 表示按时间点截图
+
     // 裁剪
     @SerializedName("cut_start_time")
     public String cutStartTime;
@@ -59,6 +62,10 @@ public class ParameterData {
     @SerializedName("volume")
     public int volume; // 0-200
 
+    // 流复制
+    @SerializedName("stream_copy_mode")
+    public String streamCopyMode; // "auto"、"force" 或 "never"
+
     // 默认构造
     public ParameterData() {
         // 设置默认值
@@ -76,9 +83,11 @@ public class ParameterData {
         screenshotFormat = "jpeg";
         screenshotResolution = "original";
         screenshotQuality = 90;
+        screenshotInterval = 0;
         cutStartTime = "00:00:00";
         cutDuration = "00:00:10";
         volume = 100;
+        streamCopyMode = "auto";
     }
 
     // 拷贝构造
@@ -98,9 +107,11 @@ public class ParameterData {
         copy.screenshotFormat = this.screenshotFormat;
         copy.screenshotResolution = this.screenshotResolution;
         copy.screenshotQuality = this.screenshotQuality;
+        copy.screenshotInterval = this.screenshotInterval;
         copy.cutStartTime = this.cutStartTime;
         copy.cutDuration = this.cutDuration;
         copy.volume = this.volume;
+        copy.streamCopyMode = this.streamCopyMode;
         return copy;
     }
 
@@ -0,0 +1,350 @@
+package com.tech.ezconvert.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import com.arthenica.ffmpegkit.FFmpegSession;
+import com.arthenica.ffmpegkit.ReturnCode;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 预览进度条拖动时使用的缩略图条缓存
+ * 一次 FFmpeg 会话只解码关键帧，按固定间隔取帧拼成一张雪碧图，与每格时间戳的索引一起按文件指纹保存在磁盘；
+ * 拖动时在后台按区域从雪碧图解码单格，放入 LRU 位图缓存，不需要播放器反复定位解码
+ */
+public class ThumbnailStripCache {
+    private static final String TAG = "ThumbnailStripCache";
+    private static final String CACHE_SUB_DIR = "thumbnail_cache";
+    private static final int COLUMNS = 10;
+    private static final int ROWS = 10;
+    private static final int MAX_TILES = COLUMNS * ROWS;
+    private static final int TILE_WIDTH = 160;
+    // 短视频也至少间隔 1 秒取一帧
+    private static final double MIN_INTERVAL_SEC = 1.0;
+    private static final int MAX_DISK_STRIPS = 32;
+    private static final Pattern PTS_TIME_PATTERN = Pattern.compile("pts_time:\\s*(-?[0-9.]+)");
+
+    private static ThumbnailStripCache instance;
+
+    private final File cacheDir;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // 单格解码使用独立线程，不会排在耗时的雪碧图生成之后
+    private final ExecutorService decodeExecutor = Executors.newSingleThreadExecutor();
+    // 最近一次缩略图请求的序号，拖动时旧请求直接丢弃
+    private final AtomicLong thumbnailRequestSeq = new AtomicLong();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Gson gson = new Gson();
+    // 单格位图，容量按 KB 计算
+    private final LruCache<String, Bitmap> bitmapPool;
+    // 只保留最近使用的雪碧图解码器
+    private Strip openStrip;
+    private BitmapRegionDecoder openDecoder;
+
+    public interface StripCallback {
+        // 在主线程调用
+        void onStripReady(Strip strip);
+    }
+
+    public interface ThumbnailCallback {
+        // 在主线程调用
+        void onThumbnailReady(Bitmap thumbnail);
+    }
+
+    /**
+     * 缩略图条索引，以 JSON 保存在雪碧图旁边
+     */
+    public static class Strip {
+        String id;
+        int columns;
+        int rows;
+        int tileWidth;
+        int tileHeight;
+        long[] timestampsMs;
+        transient File spriteFile;
+
+        public int getCount() {
+            return timestampsMs != null ? timestampsMs.length : 0;
+        }
+
+        /**
+         * 不晚于 positionMs 的最后一格，位置早于第一格时返回 0
+         */
+        public int indexAt(long positionMs) {
+            int low = 0;
+            int high = getCount() - 1;
+            int result = 0;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (timestampsMs[mid] <= positionMs) {
+                    result = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return result;
+        }
+    }
+
+    public static synchronized ThumbnailStripCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new ThumbnailStripCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ThumbnailStripCache(Context context) {
+        cacheDir = new File(context.getCacheDir(), CACHE_SUB_DIR);
+        if (!cacheDir.exists()) {
+            cacheDir.mkdirs();
+        }
+        int maxKb = (int) (Runtime.getRuntime().maxMemory() / 1024 / 16);
+        bitmapPool = new LruCache<String, Bitmap>(maxKb) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount() / 1024;
+            }
+        };
+    }
+
+    /**
+     * 异步获取缩略图条，磁盘缓存未命中时在后台生成；无视频流或无法生成时不回调
+     */
+    public void requestStrip(String path, MediaProbeCache.ProbeResult probe, StripCallback callback) {
+        if (probe == null || !probe.hasVideo() || probe.durationMs <= 0) return;
+        String key = MediaProbeCache.buildKey(path);
+        if (key == null) return;
+        String id = sha1Hex(key);
+
+        executor.execute(() -> {
+            Strip strip = loadStrip(id);
+            if (strip == null) {
+                strip = generateStrip(path, id, probe.durationMs);
+            }
+            if (strip != null) {
+                final Strip result = strip;
+                mainHandler.post(() -> callback.onStripReady(result));
+            }
+        });
+    }
+
+    /**
+     * 取播放位置对应的缩略图，在主线程调用；已在 LRU 缓存中时直接回调，否则在后台解码后回调，
+     * 解码完成前有了更新的请求则丢弃本次结果，解码失败时不回调
+     */
+    public void getThumbnail(Strip strip, long positionMs, ThumbnailCallback callback) {
+        long seq = thumbnailRequestSeq.incrementAndGet();
+        if (strip == null || strip.getCount() == 0) return;
+        int index = strip.indexAt(positionMs);
+        String cacheKey = strip.id + "#" + index;
+        Bitmap cached = bitmapPool.get(cacheKey);
+        if (cached != null) {
+            callback.onThumbnailReady(cached);
+            return;
+        }
+
+        decodeExecutor.execute(() -> {
+            if (seq != thumbnailRequestSeq.get()) return;
+            Bitmap bitmap = decodeTile(strip, index);
+            if (bitmap == null) return;
+            bitmapPool.put(cacheKey, bitmap);
+            mainHandler.post(() -> {
+                if (seq == thumbnailRequestSeq.get()) {
+                    callback.onThumbnailReady(bitmap);
+                }
+            });
+        });
+    }
+
+    // 按区域解码单格，持有锁避免解码期间解码器被释放
+    private synchronized Bitmap decodeTile(Strip strip, int index) {
+        BitmapRegionDecoder decoder = getDecoder(strip);
+        if (decoder == null) return null;
+
+        int column = index % strip.columns;
+        int row = index / strip.columns;
+        Rect rect = new Rect(column * strip.tileWidth, row * strip.tileHeight,
+                (column + 1) * strip.tileWidth, (row + 1) * strip.tileHeight);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        try {
+            return decoder.decodeRegion(rect, options);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "缩略图区域超出雪碧图范围: " + index);
+            return null;
+        }
+    }
+
+    /**
+     * 释放雪碧图解码器，页面销毁时调用；已解码的缩略图保留在 LRU 缓存中
+     */
+    public synchronized void releaseDecoder() {
+        if (openDecoder != null) {
+            openDecoder.recycle();
+            openDecoder = null;
+        }
+        openStrip = null;
+    }
+
+    @SuppressWarnings("deprecation")
+    private synchronized BitmapRegionDecoder getDecoder(Strip strip) {
+        if (openStrip != null && openStrip.id.equals(strip.id) && openDecoder != null) {
+            return openDecoder;
+        }
+        releaseDecoder();
+        try {
+            openDecoder = BitmapRegionDecoder.newInstance(strip.spriteFile.getAbsolutePath(), false);
+            openStrip = strip;
+        } catch (IOException e) {
+            Log.w(TAG, "打开雪碧图失败: " + e.getMessage());
+        }
+        return openDecoder;
+    }
+
+    private Strip loadStrip(String id) {
+        File indexFile = new File(cacheDir, id + ".json");
+        File spriteFile = new File(cacheDir, id + ".jpg");
+        if (!indexFile.exists() || !spriteFile.exists()) return null;
+
+        try (FileReader reader = new FileReader(indexFile)) {
+            Strip strip = gson.fromJson(reader, Strip.class);
+            if (strip == null || strip.getCount() == 0) return null;
+            strip.spriteFile = spriteFile;
+            // 更新修改时间，清理时按最近使用排序
+            long now = System.currentTimeMillis();
+            indexFile.setLastModified(now);
+            spriteFile.setLastModified(now);
+            return strip;
+        } catch (Exception e) {
+            Log.w(TAG, "读取缩略图索引失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Strip generateStrip(String path, String id, long durationMs) {
+        double intervalSec = Math.max(MIN_INTERVAL_SEC, durationMs / 1000.0 / MAX_TILES);
+        File spriteFile = new File(cacheDir, id + ".jpg");
+        String[] command = FfmpegCommandBuilder.buildThumbnailSpriteCommand(
+                path, spriteFile.getAbsolutePath(), intervalSec, TILE_WIDTH, COLUMNS, ROWS);
+
+        long start = System.currentTimeMillis();
+        // 每一帧都有一行 showinfo 输出，只收集其中的时间戳，不写入全局 FFmpeg 日志
+        StringBuilder showinfoLines = new StringBuilder();
+        FFmpegSession session = FFmpegUtil.executePrivateCommand(command, log -> {
+            String message = log.getMessage();
+            if (message != null && message.contains("pts_time:")) {
+                synchronized (showinfoLines) {
+                    showinfoLines.append(message).append('\n');
+                }
+            }
+        });
+        if (!ReturnCode.isSuccess(session.getReturnCode()) || !spriteFile.exists()) {
+            Log.w(TAG, "生成缩略图失败，返回码: " + session.getReturnCode());
+            spriteFile.delete();
+            return null;
+        }
+
+        String logs;
+        synchronized (showinfoLines) {
+            logs = showinfoLines.toString();
+        }
+        List<Long> times = parseTileTimestamps(logs, MAX_TILES);
+        if (times.isEmpty()) {
+            // 日志级别过滤掉了 showinfo 输出，按间隔估算
+            for (int i = 0; i < MAX_TILES && i * intervalSec * 1000 < durationMs; i++) {
+                times.add((long) (i * intervalSec * 1000));
+            }
+        }
+
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(spriteFile.getAbsolutePath(), bounds);
+
+        Strip strip = new Strip();
+        strip.id = id;
+        strip.columns = COLUMNS;
+        strip.rows = ROWS;
+        strip.tileWidth = bounds.outWidth / COLUMNS;
+        strip.tileHeight = bounds.outHeight / ROWS;
+        strip.timestampsMs = new long[times.size()];
+        for (int i = 0; i < times.size(); i++) {
+            strip.timestampsMs[i] = times.get(i);
+        }
+        strip.spriteFile = spriteFile;
+
+        try (FileWriter writer = new FileWriter(new File(cacheDir, id + ".json"))) {
+            gson.toJson(strip, writer);
+        } catch (IOException e) {
+            Log.w(TAG, "保存缩略图索引失败: " + e.getMessage());
+        }
+        pruneDiskCache();
+        Log.d(TAG, "缩略图生成完成: " + strip.getCount() + " 格, 耗时 "
+                + (System.currentTimeMillis() - start) + "ms");
+        return strip;
+    }
+
+    /**
+     * 从 showinfo 日志中按顺序提取每一格的时间戳（毫秒）
+     * 未使用 -copyts 时 FFmpeg 已按输入的 start_time 把时间戳平移到从 0 开始，pts_time 可直接对应播放位置
+     */
+    static List<Long> parseTileTimestamps(String logs, int maxTiles) {
+        List<Long> result = new ArrayList<>();
+        if (logs == null) return result;
+
+        Matcher matcher = PTS_TIME_PATTERN.matcher(logs);
+        while (matcher.find() && result.size() < maxTiles) {
+            try {
+                result.add(Math.max(0, (long) (Double.parseDouble(matcher.group(1)) * 1000)));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return result;
+    }
+
+    // 超出数量上限时删除最久未使用的缩略图条
+    private void pruneDiskCache() {
+        File[] indexFiles = cacheDir.listFiles((dir, name) -> name.endsWith(".json"));
+        if (indexFiles == null || indexFiles.length <= MAX_DISK_STRIPS) return;
+
+        Arrays.sort(indexFiles, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < indexFiles.length - MAX_DISK_STRIPS; i++) {
+            String name = indexFiles[i].getName();
+            String id = name.substring(0, name.length() - ".json".length());
+            indexFiles[i].delete();
+            new File(cacheDir, id + ".jpg").delete();
+        }
+    }
+
+    private static String sha1Hex(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest(text.getBytes("UTF-8"))) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            return Integer.toHexString(text.hashCode());
+        }
+    }
+}
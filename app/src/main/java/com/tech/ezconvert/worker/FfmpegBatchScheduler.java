@@ -0,0 +1,256 @@
+package com.tech.ezconvert.worker;
+
+import android.content.Context;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkContinuation;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import com.google.gson.Gson;
+import com.tech.ezconvert.utils.ConfigManager;
+import com.tech.ezconvert.utils.Log;
+import com.tech.ezconvert.utils.ParameterData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 批量任务调度器
+ * 把整个文件队列一次性提交给 WorkManager，按并发上限拆成若干条串行链 (lane)，链与链之间并行执行。
+ * 任务持久化在 WorkManager 数据库中，进程被杀后由系统继续调度
+ */
+public class FfmpegBatchScheduler {
+    public static final String TAG = "FfmpegBatchScheduler";
+
+    public static final String WORK_TAG_BATCH = "ezconvert_batch";
+    private static final String BATCH_TAG_PREFIX = "ezconvert_batch_";
+    private static final String LANE_NAME_PREFIX = "ezconvert_lane_";
+
+    // 并发上限，避免同时拉起过多 FFmpeg 会话导致内存不足
+    private static final int MAX_LANES = 8;
+    // 硬件编码器实例有限，硬编任务最多同时跑 2 个
+    private static final int MAX_HW_ENCODER_LANES = 2;
+
+    /**
+     * 队列中的单个文件
+     */
+    public static class BatchItem {
+        public final String inputPath;
+        public final String inputUri;
+        public final String outputPathBase;
+        public final String fileName;
+
+        public BatchItem(String inputPath, String inputUri, String outputPathBase, String fileName) {
+            this.inputPath = inputPath;
+            this.inputUri = inputUri;
+            this.outputPathBase = outputPathBase;
+            this.fileName = fileName;
+        }
+    }
+
+    /**
+     * 批量任务的汇总进度
+     */
+    public static class BatchProgress {
+        public int total;
+        public int succeeded;
+        public int failed;
+        public int cancelled;
+        public int running;
+        public int progress; // 0-100，按文件平均
+        public final List<String> outputPaths = new ArrayList<>();
+        public final List<String> errorMessages = new ArrayList<>();
+
+        public boolean isFinished() {
+            return total > 0 && succeeded + failed + cancelled >= total;
+        }
+
+        public int getFinishedCount() {
+            return succeeded + failed + cancelled;
+        }
+    }
+
+    /**
+     * 提交整个队列，返回批次 ID
+     */
+    public static String enqueueBatch(Context context, List<BatchItem> items, ParameterData params) {
+        if (items == null || items.isEmpty()) {
+            return null;
+        }
+
+        WorkManager workManager = WorkManager.getInstance(context);
+        String batchId = UUID.randomUUID().toString();
+        String batchTag = getBatchTag(batchId);
+        String paramsJson = new Gson().toJson(params);
+        int lanes = Math.min(resolveConcurrency(context, params.taskType), items.size());
+
+        // 按下标轮转分配到各条链，保证整体大致按选择顺序完成
+        List<List<OneTimeWorkRequest>> laneRequests = new ArrayList<>();
+        for (int i = 0; i < lanes; i++) {
+            laneRequests.add(new ArrayList<>());
+        }
+        for (int i = 0; i < items.size(); i++) {
+            BatchItem item = items.get(i);
+            Data inputData = new Data.Builder()
+                    .putString(FfmpegWorker.KEY_INPUT_PATH, item.inputPath)
+                    .putString(FfmpegWorker.KEY_INPUT_URI, item.inputUri != null ? item.inputUri : "")
+                    .putString(FfmpegWorker.KEY_OUTPUT_PATH_BASE, item.outputPathBase)
+                    .putString(FfmpegWorker.KEY_PARAMS_JSON, paramsJson)
+                    .putString(FfmpegWorker.KEY_FILE_NAME, item.fileName)
+                    .putInt(FfmpegWorker.KEY_TASK_INDEX, i + 1)
+                    .putInt(FfmpegWorker.KEY_TOTAL_TASKS, items.size())
+                    .putString(FfmpegWorker.KEY_BATCH_ID, batchId)
+                    .build();
+
+            OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(FfmpegWorker.class)
+                    .setInputData(inputData)
+                    .addTag(WORK_TAG_BATCH)
+                    .addTag(batchTag)
+                    .build();
+            laneRequests.get(i % lanes).add(request);
+        }
+
+        for (int lane = 0; lane < lanes; lane++) {
+            List<OneTimeWorkRequest> requests = laneRequests.get(lane);
+            if (requests.isEmpty()) continue;
+
+            WorkContinuation continuation = workManager.beginUniqueWork(
+                    LANE_NAME_PREFIX + batchId + "_" + lane,
+                    ExistingWorkPolicy.KEEP,
+                    requests.get(0));
+            for (int i = 1; i < requests.size(); i++) {
+                continuation = continuation.then(requests.get(i));
+            }
+            continuation.enqueue();
+        }
+
+        Log.i(TAG, "批量任务已提交: " + batchId + ", 文件数: " + items.size() + ", 并发: " + lanes);
+        return batchId;
+    }
+
+    /**
+     * 计算并发数
+     * 配置为 0 时按 CPU 核心数与任务开销自动决定
+     */
+    public static int resolveConcurrency(Context context, String taskType) {
+        ConfigManager config = ConfigManager.getInstance(context);
+        int configured = config.getMaxConcurrentTasks();
+        if (configured > 0) {
+            return Math.min(configured, MAX_LANES);
+        }
+
+        boolean hw = config.isHardwareAccelerationEnabled();
+        int cores = Runtime.getRuntime().availableProcessors();
+        int lanes = Math.max(1, cores / getTaskCost(taskType));
+        if (hw && isVideoEncodeTask(taskType)) {
+            lanes = Math.min(lanes, MAX_HW_ENCODER_LANES);
+        }
+        return Math.min(lanes, MAX_LANES);
+    }
+
+    // 单个任务大致占用的核心数
+    static int getTaskCost(String taskType) {
+        if (taskType == null) return 4;
+        switch (taskType) {
+            case "extract_audio":
+            case "convert_audio":
+            case "cut_audio":
+            case "screenshot":
+                return 1;
+            case "convert":
+                return 2;
+            case "compress":
+            case "cut_video":
+            default:
+                return 4;
+        }
+    }
+
+    private static boolean isVideoEncodeTask(String taskType) {
+        return "convert".equals(taskType) || "compress".equals(taskType) || "cut_video".equals(taskType);
+    }
+
+    /**
+     * 汇总批次内所有 Worker 的状态与进度
+     */
+    public static BatchProgress aggregateProgress(List<WorkInfo> workInfos) {
+        BatchProgress result = new BatchProgress();
+        if (workInfos == null || workInfos.isEmpty()) {
+            return result;
+        }
+
+        long progressSum = 0;
+        for (WorkInfo info : workInfos) {
+            result.total++;
+            switch (info.getState()) {
+                case SUCCEEDED: {
+                    Data output = info.getOutputData();
+                    String error = output.getString(FfmpegWorker.KEY_ERROR_MESSAGE);
+                    if (error != null) {
+                        // 批量模式下单个文件失败以 SUCCEEDED + 错误信息上报，避免阻断同一条链
+                        result.failed++;
+                        result.errorMessages.add(error);
+                    } else {
+                        result.succeeded++;
+                        String outputPath = FfmpegWorker.getGeneratedOutput(output);
+                        if (outputPath != null) {
+                            result.outputPaths.add(outputPath);
+                        }
+                    }
+                    progressSum += 100;
+                    break;
+                }
+                case FAILED: {
+                    result.failed++;
+                    String error = info.getOutputData().getString(FfmpegWorker.KEY_ERROR_MESSAGE);
+                    if (error != null) {
+                        result.errorMessages.add(error);
+                    }
+                    progressSum += 100;
+                    break;
+                }
+                case CANCELLED:
+                    result.cancelled++;
+                    progressSum += 100;
+                    break;
+                case RUNNING:
+                    result.running++;
+                    // 总时长未知时进度为 -1，按 0 计
+                    progressSum += Math.max(0, info.getProgress().getInt(FfmpegWorker.KEY_PROGRESS, 0));
+                    break;
+                default:
+                    // ENQUEUED / BLOCKED 记为 0
+                    break;
+            }
+        }
+        result.progress = (int) (progressSum / result.total);
+        return result;
+    }
+
+    /**
+     * 取消整个批次
+     */
+    public static void cancelBatch(Context context, String batchId) {
+        if (batchId == null) return;
+        WorkManager.getInstance(context).cancelAllWorkByTag(getBatchTag(batchId));
+        Log.d(TAG, "批量任务已取消: " + batchId);
+    }
+
+    public static String getBatchTag(String batchId) {
+        return BATCH_TAG_PREFIX + batchId;
+    }
+
+    /**
+     * 从 Worker 标签中解析批次 ID（用于进程重建后恢复）
+     */
+    public static String findBatchId(WorkInfo info) {
+        for (String tag : info.getTags()) {
+            if (tag.startsWith(BATCH_TAG_PREFIX)) {
+                return tag.substring(BATCH_TAG_PREFIX.length());
+            }
+        }
+        return null;
+    }
+}
@@ -5,9 +5,11 @@ import android.content.Context;
 import android.content.pm.ServiceInfo;
 import android.net.Uri;
 import android.os.Build;
-import android.os.Handler;
-import android.os.Looper;
+import android.os.Debug;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
 import androidx.concurrent.futures.CallbackToFutureAdapter;
 import androidx.work.Data;
 import androidx.work.ForegroundInfo;
@@ -16,8 +18,8 @@ import androidx.work.WorkerParameters;
 import com.arthenica.ffmpegkit.FFmpegKit;
 import com.arthenica.ffmpegkit.FFmpegSession;
 import com.arthenica.ffmpegkit.FFmpegSessionCompleteCallback;
-import com.arthenica.ffmpegkit.FFprobeKit;
 import com.arthenica.ffmpegkit.Level;
+import com.arthenica.ffmpegkit.LogCallback;
 import com.arthenica.ffmpegkit.ReturnCode;
 import com.arthenica.ffmpegkit.Statistics;
 import com.arthenica.ffmpegkit.StatisticsCallback;
@@ -25,12 +27,16 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.Gson;
 import com.tech.ezconvert.utils.CacheManager;
 import com.tech.ezconvert.utils.FfmpegCommandBuilder;
+import com.tech.ezconvert.utils.JobHistoryDatabase;
+import com.tech.ezconvert.utils.JobTelemetry;
 import com.tech.ezconvert.utils.Log;
 import com.tech.ezconvert.utils.LogManager;
+import com.tech.ezconvert.utils.MediaProbeCache;
 import com.tech.ezconvert.utils.NotificationHelper;
 import com.tech.ezconvert.utils.ParameterData;
 
 import java.io.File;
+import java.util.Locale;
 
 /**
  * FFmpeg 后台 Worker
@@ -47,24 +53,50 @@ public class FfmpegWorker extends ListenableWorker {
     public static final String KEY_FILE_NAME = "file_name";
     public static final String KEY_TASK_INDEX = "task_index";
     public static final String KEY_TOTAL_TASKS = "total_tasks";
+    public static final String KEY_BATCH_ID = "batch_id";
 
     // Progress keys
     public static final String KEY_PROGRESS = "progress";
     public static final String KEY_TIME = "time";
     public static final String KEY_STATUS = "status";
+    public static final String KEY_FPS = "fps";
+    public static final String KEY_SPEED = "speed";
+    public static final String KEY_ETA_MS = "eta_ms";
+    public static final String KEY_BYTES_PER_SEC = "bytes_per_sec";
+    public static final String KEY_PEAK_MEMORY = "peak_memory";
 
     // Output keys
     public static final String KEY_OUTPUT_PATH = "output_path";
+    // 图片序列的路径模式（含 %03d），只有批量截图才有
+    public static final String KEY_OUTPUT_PATTERN = "output_pattern";
     public static final String KEY_ERROR_MESSAGE = "error_message";
 
     private static final int NOTIFICATION_ID = 1001;
 
-    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private volatile boolean isCancelled = false;
     private FFmpegSession currentSession = null;
-    private long totalDurationMs = -1;
+    private SegmentedTranscoder segmentedTranscoder = null;
+    private SmartCutter smartCutter = null;
+    // 可能由探测结果或 FFmpeg 日志的 Duration 行在回调线程写入
+    private volatile long totalDurationMs = -1;
+    private int notificationId = NOTIFICATION_ID;
+    private boolean isBatchTask = false;
     private final Gson gson = new Gson();
 
+    // 进度上报在 FFmpegKit 回调线程执行，以下对象在 reportProgress 中加锁复用
+    private final ProgressCoalescer progressCoalescer = new ProgressCoalescer();
+    private final Data.Builder progressBuilder = new Data.Builder();
+    private NotificationCompat.Builder notificationBuilder = null;
+    private long startedElapsedMs = 0;
+    // finishTask 之后迟到的统计回调不再上报，避免把已结束的通知重新显示为进度
+    private boolean finished = false;
+    // 任务历史记录，在各阶段逐步填写，结束时写入 JobHistoryDatabase
+    private final JobHistoryDatabase.JobRecord historyRecord = new JobHistoryDatabase.JobRecord();
+    // 不等探测直接启动时，探测结果（探测耗时、输入大小）可能在任务结束之后才回来，历史记录等探测完成再写入
+    private final Object historyLock = new Object();
+    private boolean probePending = false;
+    private Runnable deferredHistoryWrite = null;
+
     public FfmpegWorker(@NonNull Context context, @NonNull WorkerParameters params) {
         super(context, params);
     }
@@ -84,6 +116,9 @@ public class FfmpegWorker extends ListenableWorker {
             String fileName = inputData.getString(KEY_FILE_NAME);
             int taskIndex = inputData.getInt(KEY_TASK_INDEX, 1);
             int totalTasks = inputData.getInt(KEY_TOTAL_TASKS, 1);
+            isBatchTask = inputData.getString(KEY_BATCH_ID) != null;
+            // 批量并发时每个 Worker 使用独立的前台通知，避免互相覆盖
+            notificationId = isBatchTask ? NotificationHelper.getBatchNotificationId(taskIndex) : NOTIFICATION_ID;
 
             if ((inputPath == null && inputUri == null) || outputPathBase == null || paramsJson == null) {
                 Log.e(TAG, "Worker 参数缺失");
@@ -98,6 +133,12 @@ public class FfmpegWorker extends ListenableWorker {
 
             // 记录任务开始标记
             String workIdStr = getId().toString();
+            historyRecord.workId = workIdStr;
+            historyRecord.fileName = fileName;
+            historyRecord.startedAt = System.currentTimeMillis();
+            historyRecord.taskType = params.taskType;
+            historyRecord.presetName = params.presetName;
+            historyRecord.paramsJson = paramsJson;
             LogManager.getInstance(context).appendFfmpegLog(
                     "=== Task [" + workIdStr + "] START | " + fileName
                             + " (" + taskIndex + "/" + totalTasks + ") ===",
@@ -105,178 +146,391 @@ public class FfmpegWorker extends ListenableWorker {
             );
 
             // 准备缓存文件
+            long stagingStart = SystemClock.elapsedRealtime();
             CacheManager.AccessResult accessResult = CacheManager.prepareFileForProcessing(context, inputPath, inputUri);
+            historyRecord.stagingTimeMs = SystemClock.elapsedRealtime() - stagingStart;
             if (accessResult == null) {
+                // startWork 在主线程执行，数据库写入交给后台线程
+                getBackgroundExecutor().execute(() -> recordHistory("FAILED", workIdStr, null));
                 LogManager.getInstance(context).appendFfmpegLog(
                         "=== Task [" + workIdStr + "] END (FAILED: 无法访问输入文件) ===",
                         Level.AV_LOG_ERROR
                 );
-                completer.set(Result.failure(new Data.Builder()
-                        .putString(KEY_ERROR_MESSAGE, "无法访问输入文件")
-                        .build()));
+                completer.set(buildFailureResult("无法访问输入文件"));
                 return "ffmpeg-work";
             }
 
             final String usablePath = accessResult.usablePath;
             final boolean isFromCache = accessResult.isFromCache;
 
-            // 生成命令
-            String[] command = FfmpegCommandBuilder.buildCommand(usablePath, outputPath, params, context);
-            String commandString = buildCommandString(command);
-            Log.d(TAG, "Worker 执行命令: " + commandString);
-
-            // 获取视频时长用于进度计算
-            getVideoDuration(usablePath, durationMs -> {
-                totalDurationMs = durationMs;
-
-                // 设置前台通知（Worker 必须持有前台通知，否则系统可能终止任务）
-                // Android 14+ 必须指定 foregroundServiceType
-                Notification notification = NotificationHelper.buildProgressNotification(context, fileName, 0);
-                ForegroundInfo foregroundInfo;
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
-                    foregroundInfo = new ForegroundInfo(
-                            NOTIFICATION_ID,
-                            notification,
-                            ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC
-                    );
-                } else {
-                    foregroundInfo = new ForegroundInfo(NOTIFICATION_ID, notification);
+            // 命令与探测结果无关时，不等探测直接启动 FFmpeg，时长由并行的探测或日志 Duration 行补上（已缓存时很快返回）；
+            // 否则先探测输入文件：时长用于进度计算，流信息用于判断能否直接复制、分段或智能裁剪
+            long probeStart = SystemClock.elapsedRealtime();
+            if (canStartBeforeProbe(context, params)) {
+                synchronized (historyLock) {
+                    historyRecord.inputBytes = new File(usablePath).length();
+                    probePending = true;
                 }
-                setForegroundAsync(foregroundInfo);
-
-                // 执行 FFmpeg
-                executeFfmpeg(commandString, fileName, outputPath, usablePath, isFromCache, workIdStr, completer);
-            });
+                startTranscode(params, null, usablePath, outputPath, isFromCache, fileName, workIdStr, completer);
+                probeInput(usablePath, probe -> {
+                    Runnable pendingWrite;
+                    synchronized (historyLock) {
+                        historyRecord.probeTimeMs = SystemClock.elapsedRealtime() - probeStart;
+                        if (probe != null && probe.sizeBytes > 0) {
+                            historyRecord.inputBytes = probe.sizeBytes;
+                        }
+                        probePending = false;
+                        pendingWrite = deferredHistoryWrite;
+                        deferredHistoryWrite = null;
+                    }
+                    if (probe != null) {
+                        updateTotalDuration(params, probe.durationMs);
+                    }
+                    // 探测结果在主线程回调，数据库写入放到后台线程
+                    if (pendingWrite != null) {
+                        getBackgroundExecutor().execute(pendingWrite);
+                    }
+                });
+            } else {
+                probeInput(usablePath, probe -> {
+                    historyRecord.probeTimeMs = SystemClock.elapsedRealtime() - probeStart;
+                    historyRecord.inputBytes = probe != null && probe.sizeBytes > 0
+                            ? probe.sizeBytes : new File(usablePath).length();
+                    updateTotalDuration(params, probe != null ? probe.durationMs : -1);
+                    startTranscode(params, probe, usablePath, outputPath, isFromCache, fileName, workIdStr, completer);
+                });
+            }
 
             return "ffmpeg-work";
         });
     }
 
-    private void executeFfmpeg(String commandString, String fileName, String outputPath,
+    // 生成命令并选择执行方式，probe 为 null 表示尚未探测（只在命令与探测结果无关时出现）
+    private void startTranscode(ParameterData params, MediaProbeCache.ProbeResult probe, String usablePath,
+                                String outputPath, boolean isFromCache, String fileName, String workIdStr,
+                                CallbackToFutureAdapter.Completer<Result> completer) {
+        Context context = getApplicationContext();
+
+        // 生成命令
+        String[] command = FfmpegCommandBuilder.buildCommand(usablePath, outputPath, params, context, probe);
+        String commandString = buildCommandString(command);
+        Log.d(TAG, "Worker 执行命令: " + commandString);
+        historyRecord.videoCodec = FfmpegCommandBuilder.getChosenCodec(command, true);
+        historyRecord.audioCodec = FfmpegCommandBuilder.getChosenCodec(command, false);
+
+        // 设置前台通知（Worker 必须持有前台通知，否则系统可能终止任务），总时长未知时显示不确定进度
+        synchronized (progressCoalescer) {
+            startedElapsedMs = SystemClock.elapsedRealtime();
+            progressCoalescer.start(startedElapsedMs);
+            notificationBuilder = NotificationHelper.createProgressBuilder(context, fileName);
+            setForegroundAsync(createForegroundInfo(NotificationHelper.updateProgressNotification(
+                    context, notificationBuilder, totalDurationMs > 0 ? 0 : -1, 0, -1)));
+        }
+
+        // 执行 FFmpeg，长视频按配置走分段并行转码；批量任务本身已经并发，不再分段
+        if (!isBatchTask && SegmentedTranscoder.isEligible(context, params, probe)) {
+            historyRecord.segmented = true;
+            executeSegmented(params, probe, outputPath, usablePath, isFromCache, workIdStr, completer);
+        } else if (SmartCutter.isEligible(params, probe)) {
+            // 智能裁剪：中间的完整 GOP 直接复制，只重新编码两端
+            historyRecord.videoCodec = "copy";
+            historyRecord.audioCodec = probe.hasAudio() ? "aac" : null;
+            executeSmartCut(params, probe, outputPath, usablePath, isFromCache, workIdStr, completer);
+        } else {
+            executeFfmpeg(params, commandString, outputPath, usablePath, isFromCache, workIdStr, completer);
+        }
+    }
+
+    // 流复制、智能裁剪和分段并行都要根据输入的流信息选择执行方式，其余任务的命令与探测结果无关
+    private boolean canStartBeforeProbe(Context context, ParameterData params) {
+        if (!isBatchTask && SegmentedTranscoder.isCandidate(context, params)) {
+            return false;
+        }
+        return FfmpegCommandBuilder.isProbeIndependent(params);
+    }
+
+    // 总时长取探测结果和日志 Duration 行中先到的一个；裁剪任务的进度以裁剪片段的时长为准
+    private void updateTotalDuration(ParameterData params, long mediaDurationMs) {
+        if (totalDurationMs > 0) {
+            return;
+        }
+        long cutDurationMs = FfmpegCommandBuilder.getCutDurationMs(params, mediaDurationMs);
+        long durationMs = cutDurationMs > 0 ? cutDurationMs : mediaDurationMs;
+        if (durationMs > 0) {
+            totalDurationMs = durationMs;
+            Log.d(TAG, "视频总时长: " + durationMs + "ms");
+        }
+    }
+
+    private void executeFfmpeg(ParameterData params, String commandString, String outputPath,
                                String usablePath, boolean isFromCache, String workIdStr,
                                CallbackToFutureAdapter.Completer<Result> completer) {
 
-        Context context = getApplicationContext();
-
         currentSession = FFmpegKit.executeAsync(commandString, new FFmpegSessionCompleteCallback() {
             @Override
             public void apply(FFmpegSession session) {
                 ReturnCode returnCode = session.getReturnCode();
-
-                // 清理缓存文件
-                if (isFromCache) {
-                    CacheManager.releaseCacheFile(usablePath);
-                }
-                // 清理临时共享文件
-                if (usablePath.contains("/shared_files/")) {
-                    deleteTempFile(usablePath);
-                }
-
-                if (isCancelled) {
-                    LogManager.getInstance(context).appendFfmpegLog(
-                            "=== Task [" + workIdStr + "] END (CANCELLED) ===",
-                            Level.AV_LOG_WARNING
-                    );
-                    completer.set(Result.failure(new Data.Builder()
-                            .putString(KEY_ERROR_MESSAGE, "操作已取消")
-                            .build()));
-                    return;
-                }
-
-                if (ReturnCode.isSuccess(returnCode)) {
-                    LogManager.getInstance(context).appendFfmpegLog(
-                            "=== Task [" + workIdStr + "] END (SUCCESS) ===",
-                            Level.AV_LOG_INFO
-                    );
-                    completer.set(Result.success(new Data.Builder()
-                            .putString(KEY_OUTPUT_PATH, outputPath)
-                            .build()));
-                } else {
-                    String errorMessage = "处理失败";
+                historyRecord.exitCode = returnCode != null ? returnCode.getValue() : -1;
+                String errorMessage = null;
+                if (!ReturnCode.isSuccess(returnCode)) {
+                    errorMessage = "处理失败";
                     if (session.getFailStackTrace() != null) {
                         errorMessage += ": " + session.getFailStackTrace();
                     } else if (returnCode != null) {
                         errorMessage += "，返回码: " + returnCode.getValue();
                     }
-                    LogManager.getInstance(context).appendFfmpegLog(
-                            "=== Task [" + workIdStr + "] END (FAILED: " + errorMessage + ") ===",
-                            Level.AV_LOG_ERROR
-                    );
-                    completer.set(Result.failure(new Data.Builder()
-                            .putString(KEY_ERROR_MESSAGE, errorMessage)
-                            .build()));
                 }
+                finishTask(errorMessage, outputPath, usablePath, isFromCache, workIdStr, completer);
             }
-        }, null, new StatisticsCallback() {
+        }, new LogCallback() {
+            @Override
+            public void apply(com.arthenica.ffmpegkit.Log log) {
+                // 探测结果还没回来时，从解复用器打印的 Duration 行取得总时长
+                if (totalDurationMs <= 0) {
+                    updateTotalDuration(params, MediaProbeCache.parseLogDurationMs(log.getMessage()));
+                }
+            }
+        }, new StatisticsCallback() {
             @Override
             public void apply(Statistics statistics) {
                 if (isCancelled) return;
 
                 int timeInMs = (int) statistics.getTime();
-                int progress = 0;
+                // 总时长未知时上报 -1，界面和通知显示不确定进度
+                int progress = -1;
+                long durationMs = totalDurationMs;
 
-                if (totalDurationMs > 0) {
-                    progress = (int) ((timeInMs * 100.0) / totalDurationMs);
+                if (durationMs > 0) {
+                    progress = (int) ((timeInMs * 100.0) / durationMs);
                     progress = Math.min(100, Math.max(0, progress));
                 }
 
-                // 通过 WorkManager 进度机制上报
-                Data progressData = new Data.Builder()
-                        .putInt(KEY_PROGRESS, progress)
-                        .putLong(KEY_TIME, timeInMs)
-                        .putString(KEY_STATUS, "RUNNING")
-                        .build();
-                setProgressAsync(progressData);
-
-                // 更新前台通知进度
-                Notification notification = NotificationHelper.buildProgressNotification(
-                        context, fileName, progress);
-                ForegroundInfo foregroundInfo;
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
-                    foregroundInfo = new ForegroundInfo(
-                            NOTIFICATION_ID,
-                            notification,
-                            ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC
-                    );
-                } else {
-                    foregroundInfo = new ForegroundInfo(NOTIFICATION_ID, notification);
-                }
-                setForegroundAsync(foregroundInfo);
+                reportProgress(progress, timeInMs, durationMs, statistics.getVideoFps(),
+                        statistics.getSpeed(), statistics.getSize(), statistics.getVideoFrameNumber());
             }
         });
     }
 
-    private void getVideoDuration(String inputPath, DurationCallback callback) {
-        if (inputPath == null || inputPath.isEmpty()) {
-            callback.onDuration(-1);
+    private void executeSegmented(ParameterData params, MediaProbeCache.ProbeResult probe, String outputPath,
+                                  String usablePath, boolean isFromCache, String workIdStr,
+                                  CallbackToFutureAdapter.Completer<Result> completer) {
+        segmentedTranscoder = new SegmentedTranscoder(
+                getApplicationContext(), usablePath, outputPath, params, probe, workIdStr);
+        segmentedTranscoder.start(createMultiSessionListener(
+                outputPath, usablePath, isFromCache, workIdStr, completer));
+    }
+
+    private void executeSmartCut(ParameterData params, MediaProbeCache.ProbeResult probe, String outputPath,
+                                 String usablePath, boolean isFromCache, String workIdStr,
+                                 CallbackToFutureAdapter.Completer<Result> completer) {
+        smartCutter = new SmartCutter(getApplicationContext(), usablePath, outputPath, params, probe, workIdStr);
+        smartCutter.start(createMultiSessionListener(
+                outputPath, usablePath, isFromCache, workIdStr, completer));
+    }
+
+    // 分段转码和智能裁剪由多个 FFmpeg 会话完成，共用同一套进度与结束处理
+    private SegmentedTranscoder.Listener createMultiSessionListener(String outputPath, String usablePath,
+                                                                    boolean isFromCache, String workIdStr,
+                                                                    CallbackToFutureAdapter.Completer<Result> completer) {
+        return new SegmentedTranscoder.Listener() {
+            @Override
+            public void onProgress(int progress, long processedMs) {
+                if (isCancelled) return;
+                // 多个会话并行时已处理时长是各会话之和，按进度速率估算剩余时间
+                reportProgress(progress, processedMs, -1, 0, 0, 0, 0);
+            }
+
+            @Override
+            public void onComplete(boolean success, String errorMessage) {
+                historyRecord.exitCode = success ? 0 : -1;
+                finishTask(success ? null : "处理失败: " + errorMessage,
+                        outputPath, usablePath, isFromCache, workIdStr, completer);
+            }
+        };
+    }
+
+    // 通过 WorkManager 进度机制上报，并更新前台通知；经 ProgressCoalescer 合并，大部分统计回调不会上报
+    private void reportProgress(int progress, long timeInMs, long totalMs, float fps, double speed,
+                                long outputBytes, long frameCount) {
+        synchronized (progressCoalescer) {
+            if (finished) return;
+            if (!progressCoalescer.offer(progress, timeInMs, totalMs, fps, speed, outputBytes, frameCount,
+                    SystemClock.elapsedRealtime())) {
+                return;
+            }
+            JobTelemetry telemetry = progressCoalescer.getTelemetry();
+            telemetry.sampleMemory(getUsedMemoryBytes());
+            setProgressAsync(progressBuilder
+                    .putInt(KEY_PROGRESS, progress)
+                    .putLong(KEY_TIME, timeInMs)
+                    .putString(KEY_STATUS, "RUNNING")
+                    .putFloat(KEY_FPS, fps)
+                    .putDouble(KEY_SPEED, telemetry.getSpeed())
+                    .putLong(KEY_ETA_MS, telemetry.getEtaMs())
+                    .putLong(KEY_BYTES_PER_SEC, telemetry.getBytesPerSecond())
+                    .putLong(KEY_PEAK_MEMORY, telemetry.getPeakMemoryBytes())
+                    .build());
+
+            // 前台状态已在开始时建立，之后直接更新同一 ID 的通知，不再经过 setForegroundAsync
+            if (notificationBuilder != null) {
+                Context context = getApplicationContext();
+                NotificationManagerCompat.from(context).notify(notificationId,
+                        NotificationHelper.updateProgressNotification(context, notificationBuilder,
+                                progress, telemetry.getSpeed(), telemetry.getEtaMs()));
+            }
+        }
+    }
+
+    // 进程内存占用：Java 堆 + Native 堆（FFmpeg 的分配都在 Native 堆）
+    private static long getUsedMemoryBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory() + Debug.getNativeHeapAllocatedSize();
+    }
+
+    // 填写任务结束时的统计，探测完成后写入任务历史
+    private void recordHistory(String status, String workIdStr, String outputPath) {
+        JobHistoryDatabase.JobRecord record = historyRecord;
+        record.status = status;
+        if (startedElapsedMs > 0) {
+            synchronized (progressCoalescer) {
+                JobTelemetry telemetry = progressCoalescer.getTelemetry();
+                telemetry.sampleMemory(getUsedMemoryBytes());
+                record.wallTimeMs = SystemClock.elapsedRealtime() - startedElapsedMs;
+                record.mediaTimeMs = telemetry.getProcessedMs();
+                record.averageSpeed = telemetry.getAverageSpeed();
+                record.averageFps = telemetry.getAverageFps();
+                record.bytesPerSecond = telemetry.getBytesPerSecond();
+                record.outputBytes = telemetry.getOutputBytes();
+                record.peakMemoryBytes = telemetry.getPeakMemoryBytes();
+            }
+        }
+        // 分段转码没有统计中的输出大小，以实际文件为准
+        File outputFile = outputPath != null ? new File(outputPath) : null;
+        if (outputFile != null && outputFile.isFile()) {
+            record.outputBytes = outputFile.length();
+        }
+        if (record.bytesPerSecond == 0 && record.wallTimeMs > 0) {
+            record.bytesPerSecond = record.outputBytes * 1000 / record.wallTimeMs;
+        }
+
+        synchronized (historyLock) {
+            if (probePending) {
+                deferredHistoryWrite = () -> writeHistory(workIdStr);
+                return;
+            }
+        }
+        writeHistory(workIdStr);
+    }
+
+    // 写入任务历史，并在 FFmpeg 日志中记录本次运行的统计
+    private void writeHistory(String workIdStr) {
+        JobHistoryDatabase.JobRecord record = historyRecord;
+        Context context = getApplicationContext();
+        JobHistoryDatabase.getInstance(context).insert(record);
+        LogManager.getInstance(context).appendFfmpegLog(String.format(Locale.ROOT,
+                "任务统计 [%s]: 编码器 %s/%s, 复制 %dms, 探测 %dms, 耗时 %s, 平均 %.2fx, %.1f fps, %s/s, "
+                        + "输入 %s, 输出 %s, 峰值内存 %s, 返回码 %d",
+                workIdStr, record.videoCodec, record.audioCodec, record.stagingTimeMs, record.probeTimeMs,
+                JobTelemetry.formatEta(record.wallTimeMs), record.averageSpeed, record.averageFps,
+                JobTelemetry.formatBytes(record.bytesPerSecond), JobTelemetry.formatBytes(record.inputBytes),
+                JobTelemetry.formatBytes(record.outputBytes), JobTelemetry.formatBytes(record.peakMemoryBytes),
+                record.exitCode),
+                Level.AV_LOG_INFO);
+    }
+
+    // Android 14+ 必须指定 foregroundServiceType
+    private ForegroundInfo createForegroundInfo(Notification notification) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+            return new ForegroundInfo(
+                    notificationId,
+                    notification,
+                    ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC
+            );
+        }
+        return new ForegroundInfo(notificationId, notification);
+    }
+
+    // 任务结束：清理输入缓存并写入结果，errorMessage 为 null 表示成功
+    private void finishTask(String errorMessage, String outputPath, String usablePath, boolean isFromCache,
+                            String workIdStr, CallbackToFutureAdapter.Completer<Result> completer) {
+        Context context = getApplicationContext();
+        synchronized (progressCoalescer) {
+            finished = true;
+        }
+
+        // 清理缓存文件
+        if (isFromCache) {
+            CacheManager.releaseCacheFile(usablePath);
+        } else if (CacheManager.isDescriptorPath(usablePath)) {
+            CacheManager.releaseDescriptor(usablePath);
+        }
+        // 清理临时共享文件
+        if (usablePath.contains("/shared_files/")) {
+            deleteTempFile(usablePath);
+        }
+
+        if (isCancelled) {
+            recordHistory("CANCELLED", workIdStr, outputPath);
+            LogManager.getInstance(context).appendFfmpegLog(
+                    "=== Task [" + workIdStr + "] END (CANCELLED) ===",
+                    Level.AV_LOG_WARNING
+            );
+            completer.set(Result.failure(new Data.Builder()
+                    .putString(KEY_ERROR_MESSAGE, "操作已取消")
+                    .build()));
             return;
         }
 
-        String probeCmd = "-v error -show_entries format=duration -of default=noprint_wrappers=1:nokey=1 \"" + inputPath + "\"";
-        FFprobeKit.executeAsync(probeCmd, session -> {
-            if (ReturnCode.isSuccess(session.getReturnCode())) {
-                String output = session.getOutput();
-                if (output != null && !output.trim().isEmpty()) {
-                    try {
-                        double seconds = Double.parseDouble(output.trim());
-                        long durationMs = (long) (seconds * 1000);
-                        Log.d(TAG, "视频总时长: " + durationMs + "ms");
-                        mainHandler.post(() -> callback.onDuration(durationMs));
-                        return;
-                    } catch (NumberFormatException e) {
-                        Log.e(TAG, "解析时长失败: " + output);
-                    }
-                }
+        recordHistory(errorMessage == null ? "SUCCESS" : "FAILED", workIdStr, outputPath);
+        if (errorMessage == null) {
+            LogManager.getInstance(context).appendFfmpegLog(
+                    "=== Task [" + workIdStr + "] END (SUCCESS) ===",
+                    Level.AV_LOG_INFO
+            );
+            // 批量截图输出图片序列，以第一张作为输出路径，另外上报路径模式以便清理整个序列
+            Data.Builder output = new Data.Builder()
+                    .putString(KEY_OUTPUT_PATH, FfmpegCommandBuilder.getSequencePath(outputPath, 1));
+            if (!outputPath.equals(FfmpegCommandBuilder.getSequencePath(outputPath, 1))) {
+                output.putString(KEY_OUTPUT_PATTERN, outputPath);
             }
-            mainHandler.post(() -> callback.onDuration(-1));
-        });
+            completer.set(Result.success(output.build()));
+        } else {
+            LogManager.getInstance(context).appendFfmpegLog(
+                    "=== Task [" + workIdStr + "] END (FAILED: " + errorMessage + ") ===",
+                    Level.AV_LOG_ERROR
+            );
+            completer.set(buildFailureResult(errorMessage));
+        }
+    }
+
+    /**
+     * 任务生成的全部输出：图片序列返回路径模式，否则返回输出文件路径，没有输出时返回 null
+     */
+    public static String getGeneratedOutput(Data output) {
+        String pattern = output.getString(KEY_OUTPUT_PATTERN);
+        return pattern != null ? pattern : output.getString(KEY_OUTPUT_PATH);
+    }
+
+    // 批量模式下单个文件失败不应阻断同一条链上的后续任务，以 SUCCEEDED + 错误信息上报
+    private Result buildFailureResult(String errorMessage) {
+        Data data = new Data.Builder()
+                .putString(KEY_ERROR_MESSAGE, errorMessage)
+                .build();
+        return isBatchTask ? Result.success(data) : Result.failure(data);
     }
 
-    private interface DurationCallback {
-        void onDuration(long durationMs);
+    private void probeInput(String inputPath, MediaProbeCache.ProbeCallback callback) {
+        if (inputPath == null || inputPath.isEmpty()) {
+            callback.onResult(null);
+            return;
+        }
+
+        // 结果在主线程回调
+        MediaProbeCache.getInstance(getApplicationContext()).probeAsync(inputPath, callback);
     }
 
-    private String buildCommandString(String[] command) {
+    // 命令数组拼接为 FFmpegKit 命令字符串，路径参数加引号
+    static String buildCommandString(String[] command) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < command.length; i++) {
             String arg = command[i];
@@ -313,5 +567,13 @@ public class FfmpegWorker extends ListenableWorker {
             FFmpegKit.cancel(currentSession.getSessionId());
             Log.d(TAG, "Worker 被取消，终止 FFmpeg 会话: " + currentSession.getSessionId());
         }
+        if (segmentedTranscoder != null) {
+            segmentedTranscoder.cancel();
+            Log.d(TAG, "Worker 被取消，终止分段转码");
+        }
+        if (smartCutter != null) {
+            smartCutter.cancel();
+            Log.d(TAG, "Worker 被取消，终止智能裁剪");
+        }
     }
 }
@@ -0,0 +1,93 @@
+package com.tech.ezconvert.worker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ffprobe 关键帧探测输出的解析
+ * ffprobe 报告的 pts_time 是流内绝对时间，而 -ss 以文件起始时间为零点，
+ * 分段转码和智能裁剪都要先减去流的 start_time 才能用作切分点。
+ * 数据包的关键帧标记也包括恢复点 I 帧、CRA 等非 IDR 帧，需要复制拼接的切分点再按 NAL 类型确认
+ */
+final class KeyframeTimes {
+
+    private KeyframeTimes() {
+    }
+
+    /**
+     * 解析 ffprobe 输出的 "pts_time,flags" 行，返回排序去重后的关键帧时间（绝对时间）
+     */
+    static List<Double> parseKeyframeTimes(String output) {
+        List<Double> result = new ArrayList<>();
+        if (output == null) return result;
+
+        for (String line : output.split("\n")) {
+            String[] parts = line.trim().split(",");
+            if (parts.length < 2 || !parts[1].contains("K")) continue;
+            try {
+                double time = Double.parseDouble(parts[0]);
+                if (time > 0 && !result.contains(time)) {
+                    result.add(time);
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * 解析 ffprobe 输出中单独一行的 stream start_time，没有时返回 0
+     */
+    static double parseStartTime(String output) {
+        double startTime = 0;
+        if (output == null) return startTime;
+
+        for (String line : output.split("\n")) {
+            String value = line.trim();
+            if (value.isEmpty() || value.contains(",")) continue;
+            try {
+                startTime = Double.parseDouble(value);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return startTime;
+    }
+
+    /**
+     * Annex B 裸流中第一个图像 NAL 是否为 IDR（H.264 类型 5，HEVC 类型 19/20），没有图像 NAL 时返回 false
+     */
+    static boolean isIdrAccessUnit(byte[] data, boolean hevc) {
+        if (data == null) return false;
+        for (int i = 0; i + 3 < data.length; i++) {
+            // 起始码 00 00 01（四字节起始码 00 00 00 01 的后三字节同样匹配）
+            if (data[i] != 0 || data[i + 1] != 0 || data[i + 2] != 1) continue;
+            int header = data[i + 3] & 0xFF;
+            if (hevc) {
+                int type = (header >> 1) & 0x3F;
+                if (type <= 31) {
+                    return type == 19 || type == 20;
+                }
+            } else {
+                int type = header & 0x1F;
+                if (type >= 1 && type <= 5) {
+                    return type == 5;
+                }
+            }
+            i += 3;
+        }
+        return false;
+    }
+
+    /**
+     * 绝对时间换算为以文件起始时间为零点的相对时间
+     */
+    static List<Double> toRelativeTimes(List<Double> times, double startTime) {
+        List<Double> result = new ArrayList<>(times.size());
+        for (double time : times) {
+            result.add(time - startTime);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,70 @@
+package com.tech.ezconvert.worker;
+
+import com.tech.ezconvert.utils.JobTelemetry;
+
+/**
+ * 转码进度合并器
+ * FFmpeg 统计回调非常频繁，每次都上报会写 WorkManager 数据库并通过 Binder 更新前台通知。
+ * 每次回调都计入 JobTelemetry，但只在进度变化至少 1% 或距上次上报至少 500ms 时才上报。
+ * 非线程安全，调用方需要自行同步。
+ */
+final class ProgressCoalescer {
+
+    static final int MIN_PROGRESS_STEP = 1;
+    static final long MIN_INTERVAL_MS = 500;
+
+    private final JobTelemetry telemetry = new JobTelemetry();
+    private long lastReportMs = -1;
+    private int lastProgress = -1;
+
+    /**
+     * 记录转码开始时间，用于估算倍速和剩余时间
+     */
+    void start(long nowMs) {
+        telemetry.start(nowMs);
+        lastReportMs = -1;
+        lastProgress = -1;
+    }
+
+    /**
+     * 记录一次统计回调，返回是否需要上报，参数含义见 JobTelemetry.update
+     */
+    boolean offer(int progress, long processedMs, long totalMs, float fps, double speed,
+                  long outputBytes, long frameCount, long nowMs) {
+        telemetry.update(progress, processedMs, totalMs, fps, speed, outputBytes, frameCount, nowMs);
+
+        boolean due = lastReportMs < 0
+                || Math.abs(progress - lastProgress) >= MIN_PROGRESS_STEP
+                || nowMs - lastReportMs >= MIN_INTERVAL_MS;
+        if (!due) return false;
+
+        lastProgress = progress;
+        lastReportMs = nowMs;
+        return true;
+    }
+
+    JobTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    int getProgress() {
+        return telemetry.getProgress();
+    }
+
+    long getProcessedMs() {
+        return telemetry.getProcessedMs();
+    }
+
+    float getFps() {
+        return telemetry.getFps();
+    }
+
+    double getSpeed() {
+        return telemetry.getSpeed();
+    }
+
+    // 未知时为 -1
+    long getEtaMs() {
+        return telemetry.getEtaMs();
+    }
+}
@@ -0,0 +1,396 @@
+package com.tech.ezconvert.worker;
+
+import android.content.Context;
+import com.arthenica.ffmpegkit.FFmpegKit;
+import com.arthenica.ffmpegkit.FFmpegSession;
+import com.arthenica.ffmpegkit.FFprobeKit;
+import com.arthenica.ffmpegkit.FFprobeSession;
+import com.arthenica.ffmpegkit.ReturnCode;
+import com.tech.ezconvert.utils.ConfigManager;
+import com.tech.ezconvert.utils.FfmpegCommandBuilder;
+import com.tech.ezconvert.utils.Log;
+import com.tech.ezconvert.utils.MediaProbeCache;
+import com.tech.ezconvert.utils.ParameterData;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 分段并行转码
+ * 在关键帧处把长视频切成若干段，多个 FFmpeg 会话同时编码各段视频，音频整段单独编码，
+ * 最后用 concat demuxer 无损拼接。单段失败时只重试该段
+ */
+public class SegmentedTranscoder {
+    private static final String TAG = "SegmentedTranscoder";
+    private static final String WORK_SUB_DIR = "segment_work";
+
+    // 时长不足 5 分钟的视频分段收益有限
+    private static final long MIN_DURATION_MS = 5 * 60 * 1000L;
+    // 单段最短 30 秒，避免分段过碎
+    private static final double MIN_SEGMENT_SEC = 30.0;
+    // 每个并发槽位分配的段数，段数多于并发数可以减少尾部等待
+    private static final int SEGMENTS_PER_LANE = 2;
+    private static final int MAX_SEGMENT_RETRIES = 2;
+    // 拼接阶段在总进度中的占比
+    private static final int CONCAT_PROGRESS_SHARE = 5;
+
+    private static final ExecutorService plannerExecutor = Executors.newSingleThreadExecutor();
+
+    public interface Listener {
+        // 在 FFmpegKit 回调线程调用
+        void onProgress(int progress, long processedMs);
+
+        void onComplete(boolean success, String errorMessage);
+    }
+
+    /**
+     * 单个视频分段
+     */
+    static class Segment {
+        final int index;
+        final double startSec;
+        final double durationSec;
+        String path;
+        int attempts;
+        long processedMs;
+        boolean done;
+
+        Segment(int index, double startSec, double durationSec) {
+            this.index = index;
+            this.startSec = startSec;
+            this.durationSec = durationSec;
+        }
+    }
+
+    private final Context context;
+    private final String inputPath;
+    private final String outputPath;
+    private final ParameterData params;
+    private final MediaProbeCache.ProbeResult probe;
+    private final File workDir;
+    private final int parallelism;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final ArrayDeque<Segment> pending = new ArrayDeque<>();
+    private final Map<Long, Segment> runningSessions = new HashMap<>();
+    private Long audioSessionId;
+    private Long concatSessionId;
+    private String audioPath;
+    private boolean audioDone;
+    private boolean finished;
+    private volatile boolean cancelled;
+    private Listener listener;
+
+    public SegmentedTranscoder(Context context, String inputPath, String outputPath, ParameterData params,
+                               MediaProbeCache.ProbeResult probe, String workId) {
+        this.context = context.getApplicationContext();
+        this.inputPath = inputPath;
+        this.outputPath = outputPath;
+        this.params = params;
+        this.probe = probe;
+        this.workDir = new File(new File(context.getCacheDir(), WORK_SUB_DIR), workId);
+        this.parallelism = FfmpegBatchScheduler.resolveConcurrency(context, params.taskType);
+    }
+
+    /**
+     * 判断当前任务是否适合分段并行转码
+     */
+    public static boolean isEligible(Context context, ParameterData params, MediaProbeCache.ProbeResult probe) {
+        if (!isCandidate(context, params)) {
+            return false;
+        }
+        if (probe == null || !probe.hasVideo() || probe.durationMs < MIN_DURATION_MS) {
+            return false;
+        }
+        // 视频流可直接复制时没有编码开销，分段没有意义
+        return !FfmpegCommandBuilder.isVideoStreamCopy(params, probe, context);
+    }
+
+    /**
+     * 不看探测结果能做的判断：返回 false 时一定不分段，Worker 不必等待探测再决定执行方式
+     */
+    public static boolean isCandidate(Context context, ParameterData params) {
+        if (!ConfigManager.getInstance(context).isSegmentParallelEnabled()) {
+            return false;
+        }
+        if (!"convert".equals(params.taskType) && !"compress".equals(params.taskType)) {
+            return false;
+        }
+        if ("gif".equals(params.outputFormat)) {
+            return false;
+        }
+        return FfmpegBatchScheduler.resolveConcurrency(context, params.taskType) >= 2;
+    }
+
+    /**
+     * 异步开始转码，关键帧探测在后台线程执行
+     */
+    public void start(Listener listener) {
+        this.listener = listener;
+        plannerExecutor.execute(() -> {
+            List<Double> keyframes = probeKeyframes();
+            List<Segment> planned = planSegments(probe.durationMs / 1000.0, keyframes);
+            if (planned.size() < 2) {
+                // 找不到可用的切分点，退化为单段处理
+                Log.w(TAG, "未找到合适的关键帧切分点，按单段处理");
+            }
+
+            if (cancelled) {
+                Log.d(TAG, "关键帧探测期间任务已取消，不再启动分段");
+                return;
+            }
+
+            if (!workDir.exists() && !workDir.mkdirs()) {
+                finish(false, "无法创建分段目录");
+                return;
+            }
+
+            synchronized (this) {
+                // 探测关键帧期间被取消时 cancel() 已结束任务，不再启动任何分段会话
+                if (cancelled || finished) return;
+                for (Segment segment : planned) {
+                    segment.path = new File(workDir, String.format(Locale.US, "seg_%03d.mkv", segment.index))
+                            .getAbsolutePath();
+                    segments.add(segment);
+                    pending.add(segment);
+                }
+                Log.i(TAG, "分段并行转码: " + segments.size() + " 段, 并发: " + parallelism);
+                if (probe.hasAudio()) {
+                    startAudio();
+                } else {
+                    audioDone = true;
+                }
+                scheduleNext();
+            }
+        });
+    }
+
+    /**
+     * 取消所有正在运行的分段会话
+     */
+    public void cancel() {
+        synchronized (this) {
+            cancelled = true;
+            for (Long sessionId : runningSessions.keySet()) {
+                FFmpegKit.cancel(sessionId);
+            }
+            if (audioSessionId != null) {
+                FFmpegKit.cancel(audioSessionId);
+            }
+            if (concatSessionId != null) {
+                FFmpegKit.cancel(concatSessionId);
+            }
+            finish(false, "操作已取消");
+        }
+    }
+
+    // 在每个目标切分点附近取第一个关键帧，一次 ffprobe 调用完成，无需解码整个文件
+    private List<Double> probeKeyframes() {
+        int segmentCount = computeSegmentCount(probe.durationMs / 1000.0, parallelism);
+        if (segmentCount < 2) {
+            return Collections.emptyList();
+        }
+
+        double step = (probe.durationMs / 1000.0) / segmentCount;
+        StringBuilder intervals = new StringBuilder();
+        for (int i = 1; i < segmentCount; i++) {
+            if (intervals.length() > 0) intervals.append(',');
+            // -read_intervals 按流内绝对时间定位，要加上文件起始时间
+            intervals.append(String.format(Locale.US, "%.3f%%+#1", probe.startTimeSec + step * i));
+        }
+
+        String[] args = {
+                "-v", "error",
+                "-select_streams", "v:0",
+                "-read_intervals", intervals.toString(),
+                "-show_entries", "packet=pts_time,flags:stream=start_time",
+                "-of", "csv=p=0",
+                inputPath
+        };
+        FFprobeSession session = FFprobeKit.executeWithArguments(args);
+        if (session == null || !ReturnCode.isSuccess(session.getReturnCode())) {
+            Log.w(TAG, "关键帧探测失败");
+            return Collections.emptyList();
+        }
+        // 关键帧时间是流内绝对时间，换算为 -ss 使用的相对时间
+        String output = session.getOutput();
+        return KeyframeTimes.toRelativeTimes(
+                KeyframeTimes.parseKeyframeTimes(output), KeyframeTimes.parseStartTime(output));
+    }
+
+    static int computeSegmentCount(double durationSec, int parallelism) {
+        int bySize = (int) (durationSec / MIN_SEGMENT_SEC);
+        return Math.max(1, Math.min(parallelism * SEGMENTS_PER_LANE, bySize));
+    }
+
+    /**
+     * 根据关键帧切分点生成分段，过短的分段会被合并到前一段
+     */
+    static List<Segment> planSegments(double durationSec, List<Double> keyframes) {
+        List<Segment> result = new ArrayList<>();
+        double start = 0;
+        for (double cut : keyframes) {
+            if (cut - start < MIN_SEGMENT_SEC / 2 || durationSec - cut < MIN_SEGMENT_SEC / 2) {
+                continue;
+            }
+            result.add(new Segment(result.size(), start, cut - start));
+            start = cut;
+        }
+        result.add(new Segment(result.size(), start, durationSec - start));
+        return result;
+    }
+
+    private void scheduleNext() {
+        while (!cancelled && !finished && runningSessions.size() < parallelism && !pending.isEmpty()) {
+            startSegment(pending.poll());
+        }
+    }
+
+    private void startSegment(Segment segment) {
+        segment.attempts++;
+        segment.processedMs = 0;
+        // 最后一段不限制时长，避免浮点误差丢掉末尾帧
+        double duration = (segment.index == segments.size() - 1) ? 24 * 3600 : segment.durationSec;
+        String[] command = FfmpegCommandBuilder.buildSegmentVideoCommand(
+                inputPath, segment.path, segment.startSec, duration, params, context);
+
+        FFmpegSession session = FFmpegKit.executeWithArgumentsAsync(command,
+                completed -> onSegmentComplete(completed, segment),
+                null,
+                statistics -> {
+                    synchronized (SegmentedTranscoder.this) {
+                        segment.processedMs = (long) statistics.getTime();
+                    }
+                    reportProgress();
+                });
+        runningSessions.put(session.getSessionId(), segment);
+        Log.d(TAG, "开始分段 " + segment.index + " (" + String.format(Locale.US, "%.1fs+%.1fs",
+                segment.startSec, segment.durationSec) + "), 第 " + segment.attempts + " 次");
+    }
+
+    private synchronized void onSegmentComplete(FFmpegSession session, Segment segment) {
+        runningSessions.remove(session.getSessionId());
+        if (cancelled || finished) return;
+
+        if (ReturnCode.isSuccess(session.getReturnCode())) {
+            segment.done = true;
+            Log.d(TAG, "分段 " + segment.index + " 完成");
+        } else if (segment.attempts <= MAX_SEGMENT_RETRIES) {
+            Log.w(TAG, "分段 " + segment.index + " 失败，重试，返回码: " + session.getReturnCode());
+            pending.addFirst(segment);
+        } else {
+            fail("分段 " + segment.index + " 转码失败，返回码: " + session.getReturnCode());
+            return;
+        }
+
+        scheduleNext();
+        tryConcat();
+    }
+
+    private void startAudio() {
+        audioPath = new File(workDir, "audio.mka").getAbsolutePath();
+        String[] command = FfmpegCommandBuilder.buildSegmentAudioCommand(inputPath, audioPath, params);
+        FFmpegSession session = FFmpegKit.executeWithArgumentsAsync(command, completed -> {
+            synchronized (SegmentedTranscoder.this) {
+                audioSessionId = null;
+                if (cancelled || finished) return;
+                if (ReturnCode.isSuccess(completed.getReturnCode())) {
+                    audioDone = true;
+                    tryConcat();
+                } else {
+                    fail("音频编码失败，返回码: " + completed.getReturnCode());
+                }
+            }
+        }, null, null);
+        audioSessionId = session.getSessionId();
+    }
+
+    private void tryConcat() {
+        if (!audioDone || concatSessionId != null) return;
+        for (Segment segment : segments) {
+            if (!segment.done) return;
+        }
+
+        File listFile = new File(workDir, "segments.txt");
+        try (FileWriter writer = new FileWriter(listFile)) {
+            for (Segment segment : segments) {
+                writer.write("file '" + segment.path.replace("'", "'\\''") + "'\n");
+            }
+        } catch (IOException e) {
+            fail("写入分段列表失败: " + e.getMessage());
+            return;
+        }
+
+        String[] command = FfmpegCommandBuilder.buildConcatCommand(
+                listFile.getAbsolutePath(), probe.hasAudio() ? audioPath : null, outputPath, params);
+        FFmpegSession session = FFmpegKit.executeWithArgumentsAsync(command, completed -> {
+            synchronized (SegmentedTranscoder.this) {
+                concatSessionId = null;
+                if (cancelled || finished) return;
+                if (ReturnCode.isSuccess(completed.getReturnCode())) {
+                    finish(true, null);
+                } else {
+                    fail("分段拼接失败，返回码: " + completed.getReturnCode());
+                }
+            }
+        }, null, null);
+        concatSessionId = session.getSessionId();
+        Log.d(TAG, "全部分段完成，开始拼接");
+    }
+
+    private void reportProgress() {
+        long processed = 0;
+        synchronized (this) {
+            if (finished) return;
+            for (Segment segment : segments) {
+                processed += segment.done
+                        ? (long) (segment.durationSec * 1000)
+                        : Math.min(segment.processedMs, (long) (segment.durationSec * 1000));
+            }
+        }
+        int progress = probe.durationMs > 0
+                ? (int) (processed * (100 - CONCAT_PROGRESS_SHARE) / probe.durationMs)
+                : 0;
+        listener.onProgress(Math.min(100 - CONCAT_PROGRESS_SHARE, Math.max(0, progress)), processed);
+    }
+
+    private void fail(String errorMessage) {
+        Log.e(TAG, errorMessage);
+        for (Long sessionId : runningSessions.keySet()) {
+            FFmpegKit.cancel(sessionId);
+        }
+        if (audioSessionId != null) {
+            FFmpegKit.cancel(audioSessionId);
+        }
+        finish(false, errorMessage);
+    }
+
+    private synchronized void finish(boolean success, String errorMessage) {
+        if (finished) return;
+        finished = true;
+        deleteWorkDir();
+        if (listener != null) {
+            listener.onComplete(success, errorMessage);
+        }
+    }
+
+    private void deleteWorkDir() {
+        File[] files = workDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        workDir.delete();
+    }
+}
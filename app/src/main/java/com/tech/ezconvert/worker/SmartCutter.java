@@ -0,0 +1,483 @@
+package com.tech.ezconvert.worker;
+
+import android.content.Context;
+import com.arthenica.ffmpegkit.FFmpegKit;
+import com.arthenica.ffmpegkit.FFmpegSession;
+import com.arthenica.ffmpegkit.FFprobeKit;
+import com.arthenica.ffmpegkit.FFprobeSession;
+import com.arthenica.ffmpegkit.ReturnCode;
+import com.tech.ezconvert.utils.FfmpegCommandBuilder;
+import com.tech.ezconvert.utils.Log;
+import com.tech.ezconvert.utils.MediaProbeCache;
+import com.tech.ezconvert.utils.ParameterData;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 智能裁剪
+ * 裁剪范围内第一个与最后一个关键帧之间的完整 GOP 直接复制，只重新编码两端不完整的 GOP，
+ * 音频单独编码，最后用 concat demuxer 拼接。得到帧精确的裁剪结果，速度接近直接复制。
+ * 复制区间的两端必须是 IDR 帧，重新编码的片段必须与源视频 profile / level 一致，否则整段重新编码
+ */
+public class SmartCutter {
+    private static final String TAG = "SmartCutter";
+    private static final String WORK_SUB_DIR = "smart_cut_work";
+
+    // 在起点之后查找第一个关键帧的范围，远大于常见的 GOP 长度
+    private static final double KEYFRAME_SEARCH_SEC = 30.0;
+    // 关键帧区间短于 1 秒时复制收益很小，整段重新编码
+    private static final double MIN_COPY_SEC = 1.0;
+    private static final double EPSILON = 0.001;
+    // 拼接阶段在总进度中的占比
+    private static final int CONCAT_PROGRESS_SHARE = 5;
+
+    private static final ExecutorService plannerExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * 单个视频片段，copy 为 true 时直接复制，否则重新编码
+     */
+    static class Piece {
+        final int index;
+        final double startSec;
+        final double durationSec;
+        final boolean copy;
+        String path;
+        long processedMs;
+        boolean done;
+
+        Piece(int index, double startSec, double durationSec, boolean copy) {
+            this.index = index;
+            this.startSec = startSec;
+            this.durationSec = durationSec;
+            this.copy = copy;
+        }
+    }
+
+    private final Context context;
+    private final String inputPath;
+    private final String outputPath;
+    private final ParameterData params;
+    private final MediaProbeCache.ProbeResult probe;
+    private final String encoder;
+    private final File workDir;
+    private final double startSec;
+    private final double endSec;
+
+    private final List<Piece> pieces = new ArrayList<>();
+    private final Map<Long, Piece> runningSessions = new HashMap<>();
+    private Long audioSessionId;
+    private Long concatSessionId;
+    private String audioPath;
+    private boolean audioDone;
+    // 整段重新编码（没有复制片段，或已放弃复制），编码结果不需要与源视频核对 profile / level
+    private boolean fullReencode;
+    private boolean finished;
+    private volatile boolean cancelled;
+    private SegmentedTranscoder.Listener listener;
+
+    public SmartCutter(Context context, String inputPath, String outputPath, ParameterData params,
+                       MediaProbeCache.ProbeResult probe, String workId) {
+        this.context = context.getApplicationContext();
+        this.inputPath = inputPath;
+        this.outputPath = outputPath;
+        this.params = params;
+        this.probe = probe;
+        this.encoder = FfmpegCommandBuilder.getSmartCutEncoder(params, probe);
+        this.workDir = new File(new File(context.getCacheDir(), WORK_SUB_DIR), workId);
+        this.startSec = FfmpegCommandBuilder.parseTimeSeconds(params.cutStartTime);
+        this.endSec = startSec + FfmpegCommandBuilder.getCutDurationMs(params, probe.durationMs) / 1000.0;
+    }
+
+    /**
+     * 判断当前裁剪任务能否走智能裁剪
+     */
+    public static boolean isEligible(ParameterData params, MediaProbeCache.ProbeResult probe) {
+        if (!"cut_video".equals(params.taskType)) {
+            return false;
+        }
+        if (probe == null || !probe.hasVideo() || probe.durationMs <= 0) {
+            return false;
+        }
+        if (FfmpegCommandBuilder.parseTimeSeconds(params.cutStartTime) < 0
+                || FfmpegCommandBuilder.getCutDurationMs(params, probe.durationMs) <= 0) {
+            return false;
+        }
+        return FfmpegCommandBuilder.getSmartCutEncoder(params, probe) != null;
+    }
+
+    /**
+     * 异步开始裁剪，关键帧探测在后台线程执行
+     */
+    public void start(SegmentedTranscoder.Listener listener) {
+        this.listener = listener;
+        plannerExecutor.execute(() -> {
+            List<Piece> planned = planPieces(startSec, endSec, probeKeyframes());
+
+            if (cancelled) return;
+
+            if (!workDir.exists() && !workDir.mkdirs()) {
+                finish(false, "无法创建裁剪目录");
+                return;
+            }
+
+            if (!copyBoundariesAreIdr(planned)) {
+                planned = new ArrayList<>();
+                planned.add(new Piece(0, startSec, endSec - startSec, false));
+            }
+            if (cancelled) return;
+
+            synchronized (this) {
+                if (cancelled) return;
+                StringBuilder plan = new StringBuilder();
+                fullReencode = true;
+                for (Piece piece : planned) {
+                    if (piece.copy) fullReencode = false;
+                    piece.path = new File(workDir, String.format(Locale.US, "piece_%d.ts", piece.index))
+                            .getAbsolutePath();
+                    pieces.add(piece);
+                    plan.append(String.format(Locale.US, " [%.3fs+%.3fs %s]",
+                            piece.startSec, piece.durationSec, piece.copy ? "copy" : encoder));
+                }
+                Log.i(TAG, "智能裁剪:" + plan);
+                if (probe.hasAudio()) {
+                    startAudio();
+                } else {
+                    audioDone = true;
+                }
+                for (Piece piece : pieces) {
+                    startPiece(piece);
+                }
+            }
+        });
+    }
+
+    /**
+     * 取消所有正在运行的会话
+     */
+    public void cancel() {
+        synchronized (this) {
+            cancelled = true;
+            cancelSessions();
+            if (concatSessionId != null) {
+                FFmpegKit.cancel(concatSessionId);
+            }
+            finish(false, "操作已取消");
+        }
+    }
+
+    // 一次 ffprobe 调用读取两段数据包：起点之后的一段，以及终点之前最近的关键帧，不解码
+    private List<Double> probeKeyframes() {
+        // -read_intervals 按流内绝对时间定位，要加上文件起始时间
+        double offset = probe.startTimeSec;
+        String intervals = String.format(Locale.US, "%.3f%%+%.0f,%.3f%%+#1",
+                offset + startSec, KEYFRAME_SEARCH_SEC, offset + endSec);
+        String[] args = {
+                "-v", "error",
+                "-select_streams", "v:0",
+                "-read_intervals", intervals,
+                "-show_entries", "packet=pts_time,flags:stream=start_time",
+                "-of", "csv=p=0",
+                inputPath
+        };
+        FFprobeSession session = FFprobeKit.executeWithArguments(args);
+        if (session == null || !ReturnCode.isSuccess(session.getReturnCode())) {
+            Log.w(TAG, "关键帧探测失败，整段重新编码");
+            return new ArrayList<>();
+        }
+        String output = session.getOutput();
+        return KeyframeTimes.toRelativeTimes(
+                KeyframeTimes.parseKeyframeTimes(output), KeyframeTimes.parseStartTime(output));
+    }
+
+    /**
+     * 复制区间的起点，以及其后重新编码片段的起点（即复制区间的终点）是否都是 IDR 帧
+     * 数据包的关键帧标记也可能是恢复点 I 帧或 CRA，之后的帧可能参考切分点之前的帧，不能从这里切开。
+     * 从每个切分点复制一个数据包为裸流，检查第一个图像 NAL 的类型；没有复制片段时不需要检查
+     */
+    private boolean copyBoundariesAreIdr(List<Piece> planned) {
+        List<Double> boundaries = new ArrayList<>();
+        for (int i = 0; i < planned.size(); i++) {
+            if (!planned.get(i).copy) continue;
+            boundaries.add(planned.get(i).startSec);
+            if (i + 1 < planned.size()) {
+                boundaries.add(planned.get(i + 1).startSec);
+            }
+        }
+        if (boundaries.isEmpty()) return true;
+
+        double[] times = new double[boundaries.size()];
+        String[] samplePaths = new String[boundaries.size()];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = boundaries.get(i);
+            samplePaths[i] = new File(workDir, String.format(Locale.US, "keyframe_%d.bin", i)).getAbsolutePath();
+        }
+        FFmpegSession session = FFmpegKit.executeWithArguments(
+                FfmpegCommandBuilder.buildKeyframeSampleCommand(inputPath, times, samplePaths, probe.videoCodec));
+        if (session == null || !ReturnCode.isSuccess(session.getReturnCode())) {
+            Log.w(TAG, "切分点检查失败，整段重新编码");
+            return false;
+        }
+
+        boolean hevc = "hevc".equals(probe.videoCodec);
+        for (int i = 0; i < samplePaths.length; i++) {
+            File sample = new File(samplePaths[i]);
+            byte[] data = readSample(sample);
+            sample.delete();
+            if (!KeyframeTimes.isIdrAccessUnit(data, hevc)) {
+                Log.i(TAG, String.format(Locale.US, "%.3fs 处的关键帧不是 IDR 帧，整段重新编码", times[i]));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 单个关键帧数据包，只读取开头部分，足够找到第一个图像 NAL
+    private static byte[] readSample(File sample) {
+        byte[] buffer = new byte[64 * 1024];
+        try (FileInputStream in = new FileInputStream(sample)) {
+            int length = 0;
+            int read;
+            while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) > 0) {
+                length += read;
+            }
+            return Arrays.copyOf(buffer, length);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 根据裁剪范围内的关键帧规划片段：[起点, 首个关键帧) 重新编码，[首个关键帧, 最后关键帧) 复制，
+     * [最后关键帧, 终点) 重新编码。范围内关键帧不足时整段重新编码
+     */
+    static List<Piece> planPieces(double startSec, double endSec, List<Double> keyframes) {
+        // 文件开头总是关键帧
+        Double first = startSec < EPSILON ? startSec : null;
+        Double last = first;
+        for (double keyframe : keyframes) {
+            if (keyframe < startSec - EPSILON || keyframe > endSec + EPSILON) continue;
+            if (first == null) first = keyframe;
+            if (last == null || keyframe > last) last = keyframe;
+        }
+
+        List<Piece> result = new ArrayList<>();
+        if (first == null || last - first < MIN_COPY_SEC) {
+            result.add(new Piece(0, startSec, endSec - startSec, false));
+            return result;
+        }
+        if (first - startSec > EPSILON) {
+            result.add(new Piece(result.size(), startSec, first - startSec, false));
+        }
+        result.add(new Piece(result.size(), first, last - first, true));
+        if (endSec - last > EPSILON) {
+            result.add(new Piece(result.size(), last, endSec - last, false));
+        }
+        return result;
+    }
+
+    private void startPiece(Piece piece) {
+        String[] command = FfmpegCommandBuilder.buildSmartCutVideoCommand(inputPath, piece.path,
+                piece.startSec, piece.durationSec, piece.copy ? "copy" : encoder, probe, context);
+
+        FFmpegSession session = FFmpegKit.executeWithArgumentsAsync(command,
+                completed -> onPieceComplete(completed, piece),
+                null,
+                statistics -> {
+                    synchronized (SmartCutter.this) {
+                        piece.processedMs = (long) statistics.getTime();
+                    }
+                    reportProgress();
+                });
+        runningSessions.put(session.getSessionId(), piece);
+    }
+
+    private synchronized void onPieceComplete(FFmpegSession session, Piece piece) {
+        runningSessions.remove(session.getSessionId());
+        // 改为整段重新编码后，被取消的旧片段不再处理
+        if (cancelled || finished || !pieces.contains(piece)) return;
+
+        if (!ReturnCode.isSuccess(session.getReturnCode())) {
+            fail("片段 " + piece.index + (piece.copy ? " 复制" : " 编码") + "失败，返回码: " + session.getReturnCode());
+            return;
+        }
+        if (!piece.copy && !fullReencode) {
+            // 要与复制的片段拼接，先确认编码结果的 profile / level 与源视频一致
+            plannerExecutor.execute(() -> verifyPiece(piece));
+            return;
+        }
+        markPieceDone(piece);
+    }
+
+    private void markPieceDone(Piece piece) {
+        piece.done = true;
+        Log.d(TAG, "片段 " + piece.index + " 完成");
+        tryConcat();
+    }
+
+    private void verifyPiece(Piece piece) {
+        String[] args = {
+                "-v", "error",
+                "-select_streams", "v:0",
+                "-show_entries", "stream=profile,level",
+                "-of", "csv=p=0",
+                piece.path
+        };
+        FFprobeSession session = FFprobeKit.executeWithArguments(args);
+        String output = session != null && ReturnCode.isSuccess(session.getReturnCode()) ? session.getOutput() : null;
+        boolean matches = matchesProfileLevel(output, probe.videoProfile, probe.videoLevel);
+
+        synchronized (this) {
+            if (cancelled || finished || !pieces.contains(piece)) return;
+            if (matches) {
+                markPieceDone(piece);
+            } else {
+                Log.w(TAG, "片段 " + piece.index + " 的 profile/level 与源视频不一致（" +
+                        (output != null ? output.trim() : "探测失败") + "），改为整段重新编码");
+                restartAsFullReencode();
+            }
+        }
+    }
+
+    /**
+     * ffprobe "profile,level" 输出是否与源视频一致
+     */
+    static boolean matchesProfileLevel(String output, String profile, int level) {
+        if (output == null || profile == null) return false;
+        for (String line : output.split("\n")) {
+            String[] parts = line.trim().split(",");
+            if (parts.length < 2) continue;
+            try {
+                return profile.equals(parts[0]) && level == Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // 取消尚未完成的视频片段，整个裁剪范围作为一个片段重新编码，不再与复制的片段拼接；音频不受影响
+    private void restartAsFullReencode() {
+        fullReencode = true;
+        for (Long sessionId : runningSessions.keySet()) {
+            FFmpegKit.cancel(sessionId);
+        }
+        runningSessions.clear();
+        pieces.clear();
+
+        Piece full = new Piece(0, startSec, endSec - startSec, false);
+        full.path = new File(workDir, "full.ts").getAbsolutePath();
+        pieces.add(full);
+        startPiece(full);
+    }
+
+    private void startAudio() {
+        audioPath = new File(workDir, "audio.m4a").getAbsolutePath();
+        String[] command = FfmpegCommandBuilder.buildSmartCutAudioCommand(
+                inputPath, audioPath, startSec, endSec - startSec, params);
+        FFmpegSession session = FFmpegKit.executeWithArgumentsAsync(command, completed -> {
+            synchronized (SmartCutter.this) {
+                audioSessionId = null;
+                if (cancelled || finished) return;
+                if (ReturnCode.isSuccess(completed.getReturnCode())) {
+                    audioDone = true;
+                    tryConcat();
+                } else {
+                    fail("音频编码失败，返回码: " + completed.getReturnCode());
+                }
+            }
+        }, null, null);
+        audioSessionId = session.getSessionId();
+    }
+
+    private void tryConcat() {
+        if (!audioDone || concatSessionId != null) return;
+        for (Piece piece : pieces) {
+            if (!piece.done) return;
+        }
+
+        File listFile = new File(workDir, "pieces.txt");
+        try (FileWriter writer = new FileWriter(listFile)) {
+            for (Piece piece : pieces) {
+                writer.write("file '" + piece.path.replace("'", "'\\''") + "'\n");
+            }
+        } catch (IOException e) {
+            fail("写入片段列表失败: " + e.getMessage());
+            return;
+        }
+
+        String[] command = FfmpegCommandBuilder.buildConcatCommand(
+                listFile.getAbsolutePath(), probe.hasAudio() ? audioPath : null, outputPath, params);
+        FFmpegSession session = FFmpegKit.executeWithArgumentsAsync(command, completed -> {
+            synchronized (SmartCutter.this) {
+                concatSessionId = null;
+                if (cancelled || finished) return;
+                if (ReturnCode.isSuccess(completed.getReturnCode())) {
+                    finish(true, null);
+                } else {
+                    fail("片段拼接失败，返回码: " + completed.getReturnCode());
+                }
+            }
+        }, null, null);
+        concatSessionId = session.getSessionId();
+        Log.d(TAG, "全部片段完成，开始拼接");
+    }
+
+    private void reportProgress() {
+        long processed = 0;
+        synchronized (this) {
+            if (finished) return;
+            for (Piece piece : pieces) {
+                long pieceMs = (long) (piece.durationSec * 1000);
+                processed += piece.done ? pieceMs : Math.min(piece.processedMs, pieceMs);
+            }
+        }
+        long totalMs = (long) ((endSec - startSec) * 1000);
+        int progress = totalMs > 0 ? (int) (processed * (100 - CONCAT_PROGRESS_SHARE) / totalMs) : 0;
+        listener.onProgress(Math.min(100 - CONCAT_PROGRESS_SHARE, Math.max(0, progress)), processed);
+    }
+
+    private void cancelSessions() {
+        for (Long sessionId : runningSessions.keySet()) {
+            FFmpegKit.cancel(sessionId);
+        }
+        if (audioSessionId != null) {
+            FFmpegKit.cancel(audioSessionId);
+        }
+    }
+
+    private void fail(String errorMessage) {
+        Log.e(TAG, errorMessage);
+        cancelSessions();
+        finish(false, errorMessage);
+    }
+
+    private synchronized void finish(boolean success, String errorMessage) {
+        if (finished) return;
+        finished = true;
+        deleteWorkDir();
+        if (listener != null) {
+            listener.onComplete(success, errorMessage);
+        }
+    }
+
+    private void deleteWorkDir() {
+        File[] files = workDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        workDir.delete();
+    }
+}
@@ -0,0 +1,302 @@
+package com.tech.ezconvert.utils;
+
+import org.junit.Test;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * 纯 Java 测试 FfmpegCommandBuilder 的流复制判断
+ */
+public class FfmpegCommandBuilderTest {
+
+    private MediaProbeCache.ProbeResult probe(String videoCodec, String audioCodec) {
+        MediaProbeCache.ProbeResult result = new MediaProbeCache.ProbeResult();
+        result.videoCodec = videoCodec;
+        result.audioCodec = audioCodec;
+        return result;
+    }
+
+    @Test
+    public void testAutoCopyWhenCodecMatches() {
+        ParameterData params = new ParameterData();
+        MediaProbeCache.ProbeResult probe = probe("h264", "aac");
+
+        assertTrue(FfmpegCommandBuilder.canCopyVideo(params, "libx264", probe));
+        assertTrue(FfmpegCommandBuilder.canCopyAudio(params, "aac", probe));
+        assertFalse(FfmpegCommandBuilder.canCopyVideo(params, "libx265", probe));
+    }
+
+    @Test
+    public void testAutoCopyDisabledByBitrateAndVolume() {
+        ParameterData params = new ParameterData();
+        params.videoBitrateMode = "custom";
+        params.volume = 150;
+        MediaProbeCache.ProbeResult probe = probe("h264", "aac");
+
+        assertFalse(FfmpegCommandBuilder.canCopyVideo(params, "h264_mediacodec", probe));
+        assertFalse(FfmpegCommandBuilder.canCopyAudio(params, "aac", probe));
+    }
+
+    @Test
+    public void testForceAndNeverModes() {
+        MediaProbeCache.ProbeResult probe = probe("hevc", "aac");
+
+        ParameterData force = new ParameterData();
+        force.streamCopyMode = "force";
+        assertTrue(FfmpegCommandBuilder.canCopyVideo(force, "libx264", probe));
+
+        // 容器不支持时强制模式也不复制
+        force.outputFormat = "webm";
+        assertFalse(FfmpegCommandBuilder.canCopyVideo(force, "libvpx-vp9", probe));
+
+        ParameterData never = new ParameterData();
+        never.streamCopyMode = "never";
+        assertFalse(FfmpegCommandBuilder.canCopyVideo(never, "hevc_mediacodec", probe));
+    }
+
+    @Test
+    public void testNoProbeNoCopy() {
+        ParameterData params = new ParameterData();
+        assertFalse(FfmpegCommandBuilder.canCopyVideo(params, "libx264", null));
+        assertFalse(FfmpegCommandBuilder.canCopyAudio(params, "aac", probe("h264", null)));
+    }
+
+    @Test
+    public void testExtractAudioCopyChecksOutputContainer() {
+        ParameterData params = new ParameterData();
+        params.taskType = "extract_audio";
+        params.streamCopyMode = "force";
+        params.outputFormat = "mp3";
+
+        // 输出为 mp3 时 AAC 音轨不能直接复制
+        assertFalse(FfmpegCommandBuilder.canCopyAudio(params, "libmp3lame", probe("h264", "aac")));
+        assertTrue(FfmpegCommandBuilder.canCopyAudio(params, "libmp3lame", probe("h264", "mp3")));
+
+        params.outputFormat = "ogg";
+        assertTrue(FfmpegCommandBuilder.canCopyAudio(params, "libvorbis", probe("vp9", "opus")));
+        assertFalse(FfmpegCommandBuilder.canCopyAudio(params, "libvorbis", probe("h264", "aac")));
+    }
+
+    @Test
+    public void testContainerCompatibility() {
+        assertTrue(FfmpegCommandBuilder.isContainerCompatible("mkv", "vp9", true));
+        assertTrue(FfmpegCommandBuilder.isContainerCompatible("flv", "mp3", false));
+        assertFalse(FfmpegCommandBuilder.isContainerCompatible("gif", "h264", true));
+        assertFalse(FfmpegCommandBuilder.isContainerCompatible("mp4", "vorbis", false));
+    }
+
+    @Test
+    public void testChosenCodec() {
+        String[] convert = {"-i", "in.mp4", "-c:v", "libx264", "-c:a", "copy", "out.mp4"};
+        assertEquals("libx264", FfmpegCommandBuilder.getChosenCodec(convert, true));
+        assertEquals("copy", FfmpegCommandBuilder.getChosenCodec(convert, false));
+
+        String[] extract = {"-i", "in.mp4", "-vn", "-c:a", "libmp3lame", "out.mp3"};
+        assertNull(FfmpegCommandBuilder.getChosenCodec(extract, true));
+        assertEquals("libmp3lame", FfmpegCommandBuilder.getChosenCodec(extract, false));
+
+        String[] copyAll = {"-i", "in.mp4", "-c", "copy", "out.mkv"};
+        assertEquals("copy", FfmpegCommandBuilder.getChosenCodec(copyAll, true));
+    }
+
+    @Test
+    public void testParseTimeSeconds() {
+        assertEquals(90.0, FfmpegCommandBuilder.parseTimeSeconds("00:01:30"), 0.0001);
+        assertEquals(3723.5, FfmpegCommandBuilder.parseTimeSeconds("1:02:03.5"), 0.0001);
+        assertEquals(75.0, FfmpegCommandBuilder.parseTimeSeconds("01:15"), 0.0001);
+        assertEquals(12.25, FfmpegCommandBuilder.parseTimeSeconds("12.25"), 0.0001);
+        assertEquals(-1, FfmpegCommandBuilder.parseTimeSeconds("abc"), 0.0001);
+        assertEquals(-1, FfmpegCommandBuilder.parseTimeSeconds(""), 0.0001);
+        assertEquals(-1, FfmpegCommandBuilder.parseTimeSeconds(null), 0.0001);
+    }
+
+    @Test
+    public void testCutDurationClampedToMediaEnd() {
+        ParameterData params = new ParameterData();
+        params.taskType = "cut_video";
+        params.cutStartTime = "00:09:00";
+        params.cutDuration = "00:05:00";
+        assertEquals(60_000, FfmpegCommandBuilder.getCutDurationMs(params, 600_000));
+        assertEquals(300_000, FfmpegCommandBuilder.getCutDurationMs(params, -1));
+
+        params.taskType = "convert";
+        assertEquals(-1, FfmpegCommandBuilder.getCutDurationMs(params, 600_000));
+    }
+
+    private MediaProbeCache.ProbeResult videoProbe(String videoCodec, String profile, int level) {
+        MediaProbeCache.ProbeResult result = probe(videoCodec, "aac");
+        result.videoProfile = profile;
+        result.videoLevel = level;
+        return result;
+    }
+
+    @Test
+    public void testSmartCutEncoder() {
+        ParameterData params = new ParameterData();
+        MediaProbeCache.ProbeResult h264 = videoProbe("h264", "High", 41);
+        assertEquals("libx264", FfmpegCommandBuilder.getSmartCutEncoder(params, h264));
+        assertEquals("libx265", FfmpegCommandBuilder.getSmartCutEncoder(params, videoProbe("hevc", "Main", 123)));
+        assertNull(FfmpegCommandBuilder.getSmartCutEncoder(params, probe("vp9", "opus")));
+        assertNull(FfmpegCommandBuilder.getSmartCutEncoder(params, null));
+
+        // profile 无法对应或 level 未知时不能保证重新编码的片段与复制的片段一致
+        assertNull(FfmpegCommandBuilder.getSmartCutEncoder(params, videoProbe("h264", "Extended", 41)));
+        assertNull(FfmpegCommandBuilder.getSmartCutEncoder(params, videoProbe("hevc", "Rext", 123)));
+        assertNull(FfmpegCommandBuilder.getSmartCutEncoder(params, videoProbe("h264", "High", 0)));
+
+        // 自定义码率时必须整段重新编码
+        params.videoBitrateMode = "custom";
+        assertNull(FfmpegCommandBuilder.getSmartCutEncoder(params, h264));
+
+        params.streamCopyMode = "force";
+        assertEquals("libx264", FfmpegCommandBuilder.getSmartCutEncoder(params, h264));
+        params.streamCopyMode = "never";
+        assertNull(FfmpegCommandBuilder.getSmartCutEncoder(params, h264));
+    }
+
+    @Test
+    public void testSmartCutProfileAndLevel() {
+        MediaProbeCache.ProbeResult h264 = videoProbe("h264", "Constrained Baseline", 31);
+        assertEquals("baseline", FfmpegCommandBuilder.getSmartCutProfile(h264));
+        assertEquals("3.1", FfmpegCommandBuilder.getSmartCutLevel(h264));
+
+        MediaProbeCache.ProbeResult hevc = videoProbe("hevc", "Main 10", 153);
+        assertEquals("main10", FfmpegCommandBuilder.getSmartCutProfile(hevc));
+        assertEquals("5.1", FfmpegCommandBuilder.getSmartCutLevel(hevc));
+
+        assertNull(FfmpegCommandBuilder.getSmartCutLevel(videoProbe("h264", "High", 9)));
+    }
+
+    @Test
+    public void testKeyframeSampleCommand() {
+        String[] cmd = FfmpegCommandBuilder.buildKeyframeSampleCommand("/in.mp4",
+                new double[] {2.0, 10.0}, new String[] {"/k0.bin", "/k1.bin"}, "hevc");
+        String joined = String.join(" ", cmd);
+        assertTrue(joined.contains("-ss 2.000500 -i /in.mp4 -ss 10.000500 -i /in.mp4"));
+        assertTrue(joined.contains("-map 0:v:0 -c:v copy -frames:v 1 -f hevc -y /k0.bin"));
+        assertTrue(joined.contains("-map 1:v:0 -c:v copy -frames:v 1 -f hevc -y /k1.bin"));
+    }
+
+    @Test
+    public void testProbeIndependent() {
+        ParameterData params = new ParameterData();
+        params.taskType = "compress";
+        assertTrue(FfmpegCommandBuilder.isProbeIndependent(params));
+        params.taskType = "cut_audio";
+        assertTrue(FfmpegCommandBuilder.isProbeIndependent(params));
+
+        // 流复制和智能裁剪要先知道输入的编码
+        params.taskType = "convert";
+        assertFalse(FfmpegCommandBuilder.isProbeIndependent(params));
+        params.taskType = "extract_audio";
+        assertFalse(FfmpegCommandBuilder.isProbeIndependent(params));
+        params.taskType = "cut_video";
+        assertFalse(FfmpegCommandBuilder.isProbeIndependent(params));
+
+        params.streamCopyMode = "never";
+        assertTrue(FfmpegCommandBuilder.isProbeIndependent(params));
+    }
+
+    @Test
+    public void testScreenshotSeeksBeforeInput() {
+        ParameterData params = new ParameterData();
+        params.taskType = "screenshot";
+        params.cutStartTime = "01:30:00";
+        String output = FfmpegCommandBuilder.buildOutputPath("/out/shot", params);
+        assertEquals("/out/shot.jpeg", output);
+
+        String[] cmd = FfmpegCommandBuilder.buildCommand("/in.mp4", output, params, null, null);
+        assertEquals("-ss", cmd[0]);
+        assertEquals("01:30:00", cmd[1]);
+        assertEquals("-i", cmd[2]);
+        assertEquals(output, cmd[cmd.length - 1]);
+    }
+
+    @Test
+    public void testScreenshotMultipleTimesInOneSession() {
+        ParameterData params = new ParameterData();
+        params.taskType = "screenshot";
+        params.screenshotFormat = "png";
+        params.cutStartTime = "00:00:05, 00:10:00,01:00:00";
+        assertTrue(FfmpegCommandBuilder.isBatchScreenshot(params));
+
+        String output = FfmpegCommandBuilder.buildOutputPath("/out/shot", params);
+        assertEquals("/out/shot_%03d.png", output);
+
+        String[] cmd = FfmpegCommandBuilder.buildCommand("/in.mp4", output, params, null, null);
+        List<String> args = Arrays.asList(cmd);
+        assertEquals("00:10:00", cmd[5]);
+        assertTrue(args.contains("2:v:0"));
+        assertTrue(args.contains("/out/shot_001.png"));
+        assertTrue(args.contains("/out/shot_003.png"));
+        assertFalse(args.contains(output));
+        assertEquals("/out/shot_001.png", FfmpegCommandBuilder.getSequencePath(output, 1));
+    }
+
+    @Test
+    public void testScreenshotInterval() {
+        ParameterData params = new ParameterData();
+        params.taskType = "screenshot";
+        params.screenshotInterval = 10;
+        params.screenshotResolution = "320x180";
+        assertTrue(FfmpegCommandBuilder.isBatchScreenshot(params));
+
+        String output = FfmpegCommandBuilder.buildOutputPath("/out/shot", params);
+        String[] cmd = FfmpegCommandBuilder.buildCommand("/in.mp4", output, params, null, null);
+        List<String> args = Arrays.asList(cmd);
+        assertEquals("-skip_frame", cmd[0]);
+        assertEquals("nokey", cmd[1]);
+        assertTrue(args.contains("select=isnan(prev_selected_t)+gte(t-prev_selected_t\\,10.000),scale=320:180"));
+        assertEquals("vfr", cmd[args.indexOf("-fps_mode") + 1]);
+        assertFalse(args.contains("-vsync"));
+        assertEquals("/out/shot_%03d.jpeg", cmd[cmd.length - 1]);
+    }
+
+    @Test
+    public void testListSequenceFiles() throws IOException {
+        File dir = Files.createTempDirectory("sequence").toFile();
+        try {
+            for (String name : new String[]{"shot_001.jpeg", "shot_002.jpeg", "shot_1000.jpeg",
+                    "shot_01.jpeg", "shot_001.png", "other_001.jpeg"}) {
+                assertTrue(new File(dir, name).createNewFile());
+            }
+            List<File> files = FfmpegCommandBuilder.listSequenceFiles(new File(dir, "shot_%03d.jpeg").getPath());
+            List<String> names = new ArrayList<>();
+            for (File file : files) {
+                names.add(file.getName());
+            }
+            Collections.sort(names);
+            assertEquals(Arrays.asList("shot_001.jpeg", "shot_002.jpeg", "shot_1000.jpeg"), names);
+
+            // 非序列路径只返回文件本身
+            String single = new File(dir, "shot_001.png").getPath();
+            assertEquals(1, FfmpegCommandBuilder.listSequenceFiles(single).size());
+            assertTrue(FfmpegCommandBuilder.listSequenceFiles(new File(dir, "missing.mp4").getPath()).isEmpty());
+        } finally {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testThumbnailSpriteCommand() {
+        String[] cmd = FfmpegCommandBuilder.buildThumbnailSpriteCommand("/in.mp4", "/cache/sprite.jpg", 36, 160, 10, 10);
+        List<String> args = Arrays.asList(cmd);
+        assertEquals("-skip_frame", cmd[0]);
+        assertTrue(args.contains(
+                "select=isnan(prev_selected_t)+gte(t-prev_selected_t\\,36.000),showinfo,scale=160:-2,tile=10x10"));
+        assertEquals("1", cmd[args.indexOf("-frames:v") + 1]);
+        assertEquals("/cache/sprite.jpg", cmd[cmd.length - 1]);
+    }
+}
@@ -0,0 +1,62 @@
+package com.tech.ezconvert.utils;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * 纯 Java 测试 JobTelemetry 的剩余时间平滑、平均值和格式化
+ */
+public class JobTelemetryTest {
+
+    @Test
+    public void testEtaIsSmoothedAndCountsDown() {
+        JobTelemetry telemetry = new JobTelemetry();
+        telemetry.start(0);
+
+        // 2 倍速，剩余 80s 媒体时长 -> 40s
+        telemetry.update(20, 20_000, 100_000, 50, 2.0, 0, 0, 10_000);
+        assertEquals(40_000, telemetry.getEtaMs());
+
+        // 速度瞬间跌到 1 倍速（原始估算 79s），平滑后只向它靠近一部分
+        telemetry.update(21, 21_000, 100_000, 25, 1.0, 0, 0, 11_000);
+        long eta = telemetry.getEtaMs();
+        assertTrue(eta > 39_000 && eta < 79_000);
+        assertTrue(eta < 39_000 + (79_000 - 39_000) / 2);
+
+        // 没有新的估算时按流逝时间倒数
+        telemetry.update(21, 21_000, -1, 0, 0, 0, 0, 12_000);
+        assertTrue(telemetry.getEtaMs() < 79_000);
+
+        telemetry.update(100, 100_000, 100_000, 25, 1.0, 0, 0, 60_000);
+        assertEquals(0, telemetry.getEtaMs());
+    }
+
+    @Test
+    public void testAveragesAndPeakMemory() {
+        JobTelemetry telemetry = new JobTelemetry();
+        telemetry.start(1000);
+        telemetry.sampleMemory(100);
+        telemetry.update(50, 30_000, 60_000, 30, 1.5, 5_000_000, 600, 11_000);
+        telemetry.sampleMemory(300);
+        telemetry.sampleMemory(200);
+
+        assertEquals(10_000, telemetry.getElapsedMs());
+        assertEquals(500_000, telemetry.getBytesPerSecond());
+        assertEquals(60.0, telemetry.getAverageFps(), 1e-9);
+        assertEquals(3.0, telemetry.getAverageSpeed(), 1e-9);
+        assertEquals(300, telemetry.getPeakMemoryBytes());
+
+        telemetry.start(0);
+        assertEquals(0, telemetry.getPeakMemoryBytes());
+        assertEquals(-1, telemetry.getEtaMs());
+    }
+
+    @Test
+    public void testFormatting() {
+        assertEquals("0:00", JobTelemetry.formatEta(0));
+        assertEquals("1:05", JobTelemetry.formatEta(64_200));
+        assertEquals("2:00:00", JobTelemetry.formatEta(7_200_000));
+        assertEquals("512 B", JobTelemetry.formatBytes(512));
+        assertEquals("1.5 MB", JobTelemetry.formatBytes(1536 * 1024));
+    }
+}
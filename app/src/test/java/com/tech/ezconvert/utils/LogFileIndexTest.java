@@ -0,0 +1,108 @@
+package com.tech.ezconvert.utils;
+
+import org.junit.Test;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * 纯 Java 测试 LogFileIndex 的条目切分、增量索引和失效重建
+ */
+public class LogFileIndexTest {
+
+    private static void append(File file, String text) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static File tempDir() throws IOException {
+        return Files.createTempDirectory("logindex").toFile();
+    }
+
+    @Test
+    public void testMultiLineEntriesAndPartialLine() throws IOException {
+        File dir = tempDir();
+        File log = new File(dir, "EzConvert.log");
+        append(log, "[10:00] [INFO] [A] 开始\n"
+                + "[10:01] [ERROR] [B] 失败\n\tat Foo.bar(Foo.java:1)\n"
+                + "[10:02] [INFO] [C] 未写完");
+
+        try (LogFileIndex index = LogFileIndex.open(log, null)) {
+            assertEquals(2, index.size());
+            assertEquals(Arrays.asList("[10:00] [INFO] [A] 开始",
+                    "[10:01] [ERROR] [B] 失败\n\tat Foo.bar(Foo.java:1)"), index.read(0, 10));
+            assertEquals(Arrays.asList("[10:01] [ERROR] [B] 失败\n\tat Foo.bar(Foo.java:1)"), index.read(1, 1));
+            assertTrue(index.read(2, 1).isEmpty());
+        }
+    }
+
+    @Test
+    public void testIncrementalReuseAndRebuild() throws IOException {
+        File dir = tempDir();
+        File indexDir = new File(dir, "index");
+        File log = new File(dir, "FFmpeg.log");
+        StringBuilder head = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            head.append("[line ").append(i).append("] 第一段内容\n");
+        }
+        append(log, head.toString());
+
+        try (LogFileIndex index = LogFileIndex.open(log, indexDir)) {
+            assertEquals(20, index.size());
+        }
+        assertTrue(new File(indexDir, "FFmpeg.log.idx").isFile());
+
+        // 追加后从磁盘索引继续扫描
+        append(log, "[line 20] 追加\n[line 21] 追加\n");
+        try (LogFileIndex index = LogFileIndex.open(log, indexDir)) {
+            assertEquals(22, index.size());
+            List<String> last = index.read(20, 2);
+            assertEquals("[line 21] 追加", last.get(1));
+        }
+
+        // 文件被滚动后重新写入，文件头不同，索引应重建
+        assertTrue(log.delete());
+        append(log, "[new 0] 新文件\n");
+        try (LogFileIndex index = LogFileIndex.open(log, indexDir)) {
+            assertEquals(1, index.size());
+            assertEquals("[new 0] 新文件", index.read(0, 1).get(0));
+        }
+    }
+
+    @Test
+    public void testMaxLengthHidesLaterAppends() throws IOException {
+        File dir = tempDir();
+        File indexDir = new File(dir, "index");
+        File log = new File(dir, "EzConvert.log");
+        append(log, "[10:00] [INFO] [A] 快照前\n");
+        long snapshotLength = log.length();
+        append(log, "[10:01] [INFO] [B] 快照后\n");
+
+        // 快照之后写入的内容已在内存尾部中，不应再从文件读出
+        try (LogFileIndex index = LogFileIndex.open(log, indexDir, snapshotLength)) {
+            assertEquals(1, index.size());
+            assertEquals("[10:00] [INFO] [A] 快照前", index.read(0, 1).get(0));
+        }
+        try (LogFileIndex index = LogFileIndex.open(log, indexDir)) {
+            assertEquals(2, index.size());
+        }
+    }
+
+    @Test
+    public void testFirstLineWithoutBracketIsAnEntry() throws IOException {
+        File dir = tempDir();
+        File log = new File(dir, "EzConvert.1.log");
+        append(log, "\tat Foo.bar(Foo.java:2)\n[10:00] [WARN] [A] 下一条\n");
+
+        try (LogFileIndex index = LogFileIndex.open(log, null)) {
+            assertEquals(2, index.size());
+            assertEquals("\tat Foo.bar(Foo.java:2)", index.read(0, 1).get(0));
+        }
+    }
+}
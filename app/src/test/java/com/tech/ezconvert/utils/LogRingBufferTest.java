@@ -0,0 +1,51 @@
+package com.tech.ezconvert.utils;
+
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * 纯 Java 测试 LogRingBuffer 的按条数、按字节淘汰与快照顺序
+ */
+public class LogRingBufferTest {
+
+    @Test
+    public void testEvictByCount() {
+        LogRingBuffer<String> buffer = new LogRingBuffer<>(3, Long.MAX_VALUE, s -> 1);
+        for (int i = 1; i <= 5; i++) {
+            buffer.add("L" + i);
+        }
+        assertEquals(3, buffer.size());
+        assertEquals(Arrays.asList("L3", "L4", "L5"), buffer.snapshot());
+    }
+
+    @Test
+    public void testEvictByBytes() {
+        LogRingBuffer<String> buffer = new LogRingBuffer<>(100, 10, s -> s.length());
+        buffer.add("aaaa");
+        buffer.add("bbbb");
+        buffer.add("cccc");
+        assertEquals(Arrays.asList("bbbb", "cccc"), buffer.snapshot());
+        assertEquals(8, buffer.getTotalBytes());
+
+        // 单条超过上限时仍保留最新一条
+        buffer.add("dddddddddddd");
+        assertEquals(Arrays.asList("dddddddddddd"), buffer.snapshot());
+    }
+
+    @Test
+    public void testSnapshotIsDetached() {
+        LogRingBuffer<String> buffer = new LogRingBuffer<>(2, Long.MAX_VALUE, s -> 1);
+        buffer.add("a");
+        List<String> snapshot = buffer.snapshot();
+        buffer.add("b");
+        buffer.add("c");
+        assertEquals(Arrays.asList("a"), snapshot);
+
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.getTotalBytes());
+        assertTrue(buffer.snapshot().isEmpty());
+    }
+}
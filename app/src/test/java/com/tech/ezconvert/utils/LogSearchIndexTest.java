@@ -0,0 +1,62 @@
+package com.tech.ezconvert.utils;
+
+import org.junit.Test;
+import java.util.Collection;
+import static org.junit.Assert.*;
+
+/**
+ * 纯 Java 测试 LogSearchIndex 的字段解析、任务归属和前缀查询
+ */
+public class LogSearchIndexTest {
+
+    private static int[] search(LogSearchIndex index, String query) {
+        return index.search(LogSearchIndex.Query.parse(query));
+    }
+
+    @Test
+    public void testAppLevelTagAndTokens() {
+        LogSearchIndex index = new LogSearchIndex(LogSearchIndex.Format.APP);
+        index.add("[2026-10-18 10:00:00.000] [INFO] [MainActivity] 开始转换 video.mp4");
+        index.add("[2026-10-18 10:00:01.000] [ERROR] [FfmpegWorker] 转换失败: Invalid argument\n\tat Foo.bar(Foo.java:1)");
+        index.add("[2026-10-18 10:00:02.000] [WARN] [FfmpegWorker] 重试");
+
+        assertArrayEquals(new int[]{1}, search(index, "level:error"));
+        assertArrayEquals(new int[]{1, 2}, search(index, "tag:ffmpeg"));
+        assertArrayEquals(new int[]{1}, search(index, "tag:ffmpegworker invalid"));
+        assertArrayEquals(new int[]{0, 1}, search(index, "转换"));
+        assertArrayEquals(new int[]{1}, search(index, "失败"));
+        assertArrayEquals(new int[]{0}, search(index, "VIDEO"));
+        assertArrayEquals(new int[0], search(index, "level:debug"));
+    }
+
+    @Test
+    public void testTaskMarkersScopeLines() {
+        LogSearchIndex index = new LogSearchIndex(LogSearchIndex.Format.FFMPEG);
+        index.add("[2026-10-18 10:00:00.000] [INFO] 无关日志");
+        index.add("[2026-10-18 10:00:01.000] [INFO] === Task [3f2a-11] START | a.mp4 (1/1) ===");
+        index.add("[2026-10-18 10:00:02.000] [ERROR] Conversion failed!");
+        index.add("[2026-10-18 10:00:03.000] [ERROR] === Task [3f2a-11] END (FAILED: x) ===");
+        index.add("[2026-10-18 10:00:04.000] [INFO] 之后的日志");
+
+        assertArrayEquals(new int[]{1, 2, 3}, search(index, "task:3f2a"));
+        assertArrayEquals(new int[]{2, 3}, search(index, "task:3f2a level:error"));
+        assertArrayEquals(new int[]{3}, search(index, "end failed"));
+    }
+
+    @Test
+    public void testLogcatAndIncrementalMatch() {
+        LogSearchIndex index = new LogSearchIndex(LogSearchIndex.Format.LOGCAT);
+        index.add("10-18 10:00:00.123  1234  1250 E AndroidRuntime: FATAL EXCEPTION: main");
+        index.add("10-18 10:00:00.124  1234  1250 I ActivityManager: Start proc");
+
+        assertArrayEquals(new int[]{0}, search(index, "level:error tag:androidruntime"));
+        assertArrayEquals(new int[]{1}, search(index, "tag:activity"));
+
+        LogSearchIndex.Query query = LogSearchIndex.Query.parse("level:warn 超时");
+        Collection<String> terms = index.add("10-18 10:00:01.000  1234  1251 W Net: 请求超时");
+        assertTrue(query.matches(terms));
+        assertFalse(query.matches(index.add("10-18 10:00:01.000  1234  1251 W Net: 请求成功")));
+        assertEquals(4, index.size());
+        assertTrue(LogSearchIndex.Query.parse("  ").isEmpty());
+    }
+}
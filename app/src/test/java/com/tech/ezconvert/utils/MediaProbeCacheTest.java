@@ -0,0 +1,70 @@
+package com.tech.ezconvert.utils;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * 纯 Java 测试 MediaProbeCache 的 ffprobe JSON 解析逻辑
+ */
+public class MediaProbeCacheTest {
+
+    private static final String SAMPLE_JSON = "{"
+            + "\"streams\": ["
+            + "  {\"index\": 0, \"codec_name\": \"h264\", \"codec_type\": \"video\", \"profile\": \"High\", \"level\": 40,"
+            + "   \"width\": 1920, \"height\": 1080, \"pix_fmt\": \"yuv420p\","
+            + "   \"avg_frame_rate\": \"30000/1001\", \"bit_rate\": \"4500000\"},"
+            + "  {\"index\": 1, \"codec_name\": \"aac\", \"codec_type\": \"audio\","
+            + "   \"sample_rate\": \"48000\", \"channels\": 2, \"bit_rate\": \"128000\"},"
+            + "  {\"index\": 2, \"codec_name\": \"mjpeg\", \"codec_type\": \"video\","
+            + "   \"disposition\": {\"attached_pic\": 1}}"
+            + "],"
+            + "\"format\": {\"format_name\": \"mov,mp4,m4a,3gp,3g2,mj2\", \"duration\": \"12.345000\","
+            + " \"start_time\": \"1.400000\", \"size\": \"7340032\", \"bit_rate\": \"4756000\"}"
+            + "}";
+
+    @Test
+    public void testParseFormatAndStreams() {
+        MediaProbeCache.ProbeResult result = MediaProbeCache.parse(SAMPLE_JSON);
+        assertNotNull(result);
+
+        assertEquals(12345, result.durationMs);
+        assertEquals(1.4, result.startTimeSec, 0.0001);
+        assertEquals(7340032, result.sizeBytes);
+        assertEquals("h264", result.videoCodec);
+        assertEquals("High", result.videoProfile);
+        assertEquals(40, result.videoLevel);
+        assertEquals("yuv420p", result.pixelFormat);
+        assertEquals(1920, result.width);
+        assertEquals(29.97, result.frameRate, 0.01);
+        assertEquals("aac", result.audioCodec);
+        assertEquals(48000, result.sampleRate);
+
+        // 封面图不计入视频流
+        assertEquals(1, result.videoStreamCount);
+        assertEquals(1, result.audioStreamCount);
+    }
+
+    @Test
+    public void testParseInvalidOutput() {
+        assertNull(MediaProbeCache.parse(null));
+        assertNull(MediaProbeCache.parse(""));
+        assertNull(MediaProbeCache.parse("not json"));
+    }
+
+    @Test
+    public void testParseFrameRate() {
+        assertEquals(25.0, MediaProbeCache.parseFrameRate("25/1"), 0.001);
+        assertEquals(0.0, MediaProbeCache.parseFrameRate("0/0"), 0.001);
+        assertEquals(0.0, MediaProbeCache.parseFrameRate(null), 0.001);
+    }
+
+    @Test
+    public void testParseLogDurationMs() {
+        assertEquals(83450, MediaProbeCache.parseLogDurationMs(
+                "  Duration: 00:01:23.45, start: 0.000000, bitrate: 8192 kb/s"));
+        assertEquals(3723000, MediaProbeCache.parseLogDurationMs("Duration: 01:02:03.00, start: 0.000000"));
+        assertEquals(-1, MediaProbeCache.parseLogDurationMs("  Duration: N/A, start: 0.000000, bitrate: N/A"));
+        assertEquals(-1, MediaProbeCache.parseLogDurationMs("Stream #0:0: Video: h264"));
+        assertEquals(-1, MediaProbeCache.parseLogDurationMs(null));
+    }
+}
@@ -0,0 +1,95 @@
+package com.tech.ezconvert.utils;
+
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import static org.junit.Assert.*;
+
+/**
+ * 纯 Java 测试 NativeLogDecoder 对 native 二进制日志格式的解码
+ */
+public class NativeLogDecoderTest {
+
+    private static void putVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void putString(ByteArrayOutputStream out, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        putVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static ByteArrayOutputStream header(long baseTime) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('E');
+        out.write('Z');
+        out.write('L');
+        out.write('B');
+        out.write(1);
+        for (int i = 0; i < 8; i++) {
+            out.write((int) (baseTime >>> (8 * i)));
+        }
+        return out;
+    }
+
+    private static void putLog(ByteArrayOutputStream out, char level, long delta, int tagId, String msg) {
+        out.write(0x02);
+        out.write(level);
+        putVarint(out, (delta << 1) ^ (delta >> 63));
+        putVarint(out, tagId);
+        putString(out, msg);
+    }
+
+    @Test
+    public void testDecodeRecordsWithInternedTags() throws IOException {
+        ByteArrayOutputStream out = header(1_700_000_000_000L);
+        out.write(0x01);
+        putVarint(out, 0);
+        putString(out, "FfmpegWorker");
+        putLog(out, 'I', 5, 0, "开始转码");
+        putLog(out, 'E', -2, 0, "失败");
+        // 零填充区域
+        out.write(new byte[16], 0, 16);
+
+        StringWriter writer = new StringWriter();
+        int count = NativeLogDecoder.decode(new ByteArrayInputStream(out.toByteArray()), writer);
+        assertEquals(2, count);
+
+        String[] lines = writer.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].endsWith("[I] [FfmpegWorker] 开始转码"));
+        assertTrue(lines[1].endsWith("[E] [FfmpegWorker] 失败"));
+    }
+
+    @Test
+    public void testTruncatedTailIsIgnored() throws IOException {
+        ByteArrayOutputStream out = header(0);
+        out.write(0x01);
+        putVarint(out, 0);
+        putString(out, "T");
+        putLog(out, 'D', 0, 0, "完整");
+        byte[] full = out.toByteArray();
+
+        putLog(out, 'D', 0, 0, "被截断的记录");
+        byte[] data = out.toByteArray();
+        byte[] truncated = Arrays.copyOf(data, full.length + 6);
+
+        StringWriter writer = new StringWriter();
+        assertEquals(1, NativeLogDecoder.decode(new ByteArrayInputStream(truncated), writer));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsTextLog() throws IOException {
+        byte[] text = "[2026-01-01 00:00:00] [I] [T] hello\n".getBytes(StandardCharsets.UTF_8);
+        NativeLogDecoder.decode(new ByteArrayInputStream(text), new StringWriter());
+    }
+}
@@ -0,0 +1,57 @@
+package com.tech.ezconvert.utils;
+
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * 纯 Java 测试 ThumbnailStripCache 的时间戳解析与位置查找
+ */
+public class ThumbnailStripCacheTest {
+
+    @Test
+    public void testParseTileTimestamps() {
+        String logs = "[Parsed_showinfo_1 @ 0x7a] n:   0 pts:      0 pts_time:0       duration:512\n"
+                + "frame=    0 fps=0.0 q=0.0 size=N/A time=00:00:00.00\n"
+                + "[Parsed_showinfo_1 @ 0x7a] n:   1 pts: 128000 pts_time:10.006  duration:512\n"
+                + "[Parsed_showinfo_1 @ 0x7a] n:   2 pts: 256000 pts_time:20.5    duration:512\n";
+        assertEquals(Arrays.asList(0L, 10006L, 20500L), ThumbnailStripCache.parseTileTimestamps(logs, 100));
+        assertEquals(Arrays.asList(0L, 10006L), ThumbnailStripCache.parseTileTimestamps(logs, 2));
+        assertTrue(ThumbnailStripCache.parseTileTimestamps(null, 100).isEmpty());
+    }
+
+    @Test
+    public void testParseTileTimestampsWithNonZeroStartTime() {
+        // start_time 为 1.4 秒的 TS 输入，FFmpeg 已把时间戳平移到从 0 开始，解析时不再减去 start_time
+        String logs = "[Parsed_showinfo_1 @ 0x7a] n:   0 pts:      0 pts_time:0       duration:3000\n"
+                + "[Parsed_showinfo_1 @ 0x7a] n:   1 pts: 900000 pts_time:10      duration:3000\n"
+                + "[Parsed_showinfo_1 @ 0x7a] n:   2 pts: 1809000 pts_time:20.1   duration:3000\n";
+        List<Long> times = ThumbnailStripCache.parseTileTimestamps(logs, 100);
+        assertEquals(Arrays.asList(0L, 10000L, 20100L), times);
+
+        ThumbnailStripCache.Strip strip = new ThumbnailStripCache.Strip();
+        strip.timestampsMs = new long[]{times.get(0), times.get(1), times.get(2)};
+        assertEquals(1, strip.indexAt(10_000));
+        assertEquals(1, strip.indexAt(20_099));
+    }
+
+    @Test
+    public void testIndexAt() {
+        ThumbnailStripCache.Strip strip = new ThumbnailStripCache.Strip();
+        strip.timestampsMs = new long[]{500, 10_000, 20_000, 30_000};
+
+        assertEquals(0, strip.indexAt(0));
+        assertEquals(0, strip.indexAt(9_999));
+        assertEquals(1, strip.indexAt(10_000));
+        assertEquals(2, strip.indexAt(29_999));
+        assertEquals(3, strip.indexAt(3_600_000));
+    }
+
+    @Test
+    public void testEmptyStrip() {
+        ThumbnailStripCache.Strip strip = new ThumbnailStripCache.Strip();
+        assertEquals(0, strip.getCount());
+        assertEquals(0, strip.indexAt(1000));
+    }
+}
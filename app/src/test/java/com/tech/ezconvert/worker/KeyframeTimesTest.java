@@ -0,0 +1,75 @@
+package com.tech.ezconvert.worker;
+
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * 纯 Java 测试 KeyframeTimes 的 ffprobe 输出解析与时间换算
+ */
+public class KeyframeTimesTest {
+
+    @Test
+    public void testParseKeyframeTimes() {
+        String output = "300.033333,K_\n"
+                + "150.000000,K_\n"
+                + "150.000000,K_\n"
+                + "450.100000,__\n"
+                + "N/A,K_\n";
+        List<Double> times = KeyframeTimes.parseKeyframeTimes(output);
+        assertEquals(Arrays.asList(150.0, 300.033333), times);
+    }
+
+    @Test
+    public void testParseStartTimeAndRelativeKeyframes() {
+        String output = "1.400000,K_\n"
+                + "3.400000,__\n"
+                + "11.400000,K_\n"
+                + "1.400000\n";
+        double startTime = KeyframeTimes.parseStartTime(output);
+        assertEquals(1.4, startTime, 0.0001);
+
+        List<Double> times = KeyframeTimes.toRelativeTimes(
+                KeyframeTimes.parseKeyframeTimes(output), startTime);
+        assertEquals(2, times.size());
+        assertEquals(0.0, times.get(0), 0.0001);
+        assertEquals(10.0, times.get(1), 0.0001);
+
+        assertEquals(0.0, KeyframeTimes.parseStartTime("5.000000,K_\nN/A\n"), 0.0001);
+    }
+
+    @Test
+    public void testSegmentCutsAreRelativeToFileStart() {
+        // MPEG-TS 常见的非零起始时间：切分点换算后才能直接用作 -ss
+        String output = "1500.000000,K_\n"
+                + "1800.000000,K_\n"
+                + "1200.000000\n";
+        List<Double> cuts = KeyframeTimes.toRelativeTimes(
+                KeyframeTimes.parseKeyframeTimes(output), KeyframeTimes.parseStartTime(output));
+        List<SegmentedTranscoder.Segment> segments = SegmentedTranscoder.planSegments(900.0, cuts);
+        assertEquals(3, segments.size());
+        assertEquals(300.0, segments.get(1).startSec, 0.001);
+        assertEquals(600.0, segments.get(2).startSec, 0.001);
+        assertEquals(300.0, segments.get(2).durationSec, 0.001);
+    }
+
+    @Test
+    public void testIsIdrAccessUnit() {
+        // H.264：AUD、SPS 之后是 IDR 切片
+        byte[] idr = {0, 0, 0, 1, 0x09, (byte) 0xF0, 0, 0, 0, 1, 0x67, 0x64, 0, 0, 1, 0x65, (byte) 0x88};
+        assertTrue(KeyframeTimes.isIdrAccessUnit(idr, false));
+        // 恢复点 I 帧：SEI 之后是非 IDR 切片
+        byte[] recovery = {0, 0, 0, 1, 0x06, 0x06, 0, 0, 1, 0x41, (byte) 0x9A};
+        assertFalse(KeyframeTimes.isIdrAccessUnit(recovery, false));
+
+        // HEVC：VPS 之后是 IDR_W_RADL（19），或 CRA（21）
+        byte[] hevcIdr = {0, 0, 0, 1, 0x40, 0x01, 0, 0, 1, 0x26, 0x01, (byte) 0xAF};
+        assertTrue(KeyframeTimes.isIdrAccessUnit(hevcIdr, true));
+        byte[] hevcCra = {0, 0, 0, 1, 0x40, 0x01, 0, 0, 1, 0x2A, 0x01, (byte) 0xAF};
+        assertFalse(KeyframeTimes.isIdrAccessUnit(hevcCra, true));
+
+        assertFalse(KeyframeTimes.isIdrAccessUnit(new byte[0], false));
+        assertFalse(KeyframeTimes.isIdrAccessUnit(null, true));
+    }
+}
@@ -0,0 +1,59 @@
+package com.tech.ezconvert.worker;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * 纯 Java 测试 ProgressCoalescer 的上报合并与剩余时间估算
+ */
+public class ProgressCoalescerTest {
+
+    @Test
+    public void testCoalescesTicksBelowThresholds() {
+        ProgressCoalescer coalescer = new ProgressCoalescer();
+        coalescer.start(0);
+
+        assertTrue(coalescer.offer(0, 0, 100_000, 0, 0, 0, 0, 10));
+        // 进度不变且间隔不足 500ms 的回调全部丢弃
+        int reported = 0;
+        for (long now = 20; now < 500; now += 10) {
+            if (coalescer.offer(0, now, 100_000, 30, 1.0, 0, 0, now)) reported++;
+        }
+        assertEquals(0, reported);
+        // 间隔达到 500ms 时即使进度不变也上报（刷新帧率和剩余时间）
+        assertTrue(coalescer.offer(0, 500, 100_000, 30, 1.0, 0, 0, 510));
+        // 进度变化 1% 立即上报
+        assertTrue(coalescer.offer(1, 1000, 100_000, 30, 1.0, 0, 0, 520));
+        assertFalse(coalescer.offer(1, 1010, 100_000, 30, 1.0, 0, 0, 530));
+        assertTrue(coalescer.offer(100, 100_000, 100_000, 30, 1.0, 0, 0, 540));
+        assertEquals(0, coalescer.getEtaMs());
+    }
+
+    @Test
+    public void testEtaFromSpeedAndFallbacks() {
+        ProgressCoalescer coalescer = new ProgressCoalescer();
+        coalescer.start(1000);
+
+        // 统计提供倍速：剩余 60s 媒体时长，2 倍速需 30s
+        assertTrue(coalescer.offer(40, 40_000, 100_000, 60, 2.0, 0, 0, 21_000));
+        assertEquals(30_000, coalescer.getEtaMs());
+        assertEquals(2.0, coalescer.getSpeed(), 1e-9);
+        assertEquals(60, coalescer.getFps(), 1e-6);
+
+        // 倍速未知时按已处理时长 / 耗时估算：40s 媒体用了 20s
+        coalescer.start(1000);
+        assertTrue(coalescer.offer(40, 40_000, 100_000, 0, 0, 0, 0, 21_000));
+        assertEquals(2.0, coalescer.getSpeed(), 1e-9);
+        assertEquals(30_000, coalescer.getEtaMs());
+
+        // 总时长未知时按进度速率估算：20s 完成 25%，还需 60s
+        coalescer.start(0);
+        assertTrue(coalescer.offer(25, 0, -1, 0, 0, 0, 0, 20_000));
+        assertEquals(60_000, coalescer.getEtaMs());
+
+        // 尚无任何进度时剩余时间未知
+        coalescer.start(0);
+        assertTrue(coalescer.offer(0, 0, -1, 0, 0, 0, 0, 100));
+        assertEquals(-1, coalescer.getEtaMs());
+    }
+}
@@ -0,0 +1,43 @@
+package com.tech.ezconvert.worker;
+
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * 纯 Java 测试 SegmentedTranscoder 的分段规划
+ */
+public class SegmentedTranscoderTest {
+
+    @Test
+    public void testPlanSegmentsCoversWholeDuration() {
+        List<SegmentedTranscoder.Segment> segments =
+                SegmentedTranscoder.planSegments(600.0, Arrays.asList(150.0, 300.0, 450.0));
+        assertEquals(4, segments.size());
+
+        double total = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            assertEquals(i, segments.get(i).index);
+            total += segments.get(i).durationSec;
+        }
+        assertEquals(600.0, total, 0.001);
+        assertEquals(450.0, segments.get(3).startSec, 0.001);
+    }
+
+    @Test
+    public void testPlanSegmentsSkipsTooShortSegments() {
+        // 距离起点或终点不足 15 秒的切分点会被忽略
+        List<SegmentedTranscoder.Segment> segments =
+                SegmentedTranscoder.planSegments(600.0, Arrays.asList(5.0, 300.0, 595.0));
+        assertEquals(2, segments.size());
+        assertEquals(300.0, segments.get(1).startSec, 0.001);
+    }
+
+    @Test
+    public void testComputeSegmentCount() {
+        assertEquals(8, SegmentedTranscoder.computeSegmentCount(7200.0, 4));
+        assertEquals(2, SegmentedTranscoder.computeSegmentCount(60.0, 4));
+        assertEquals(1, SegmentedTranscoder.computeSegmentCount(20.0, 4));
+    }
+}
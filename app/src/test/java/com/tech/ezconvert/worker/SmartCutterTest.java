@@ -0,0 +1,65 @@
+package com.tech.ezconvert.worker;
+
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * 纯 Java 测试 SmartCutter 的片段规划
+ */
+public class SmartCutterTest {
+
+    @Test
+    public void testPlanPiecesReencodesOnlyBoundaries() {
+        List<SmartCutter.Piece> pieces =
+                SmartCutter.planPieces(12.5, 70.0, Arrays.asList(10.0, 14.0, 20.0, 60.0, 72.0));
+        assertEquals(3, pieces.size());
+
+        assertFalse(pieces.get(0).copy);
+        assertEquals(12.5, pieces.get(0).startSec, 0.001);
+        assertEquals(1.5, pieces.get(0).durationSec, 0.001);
+
+        assertTrue(pieces.get(1).copy);
+        assertEquals(14.0, pieces.get(1).startSec, 0.001);
+        assertEquals(46.0, pieces.get(1).durationSec, 0.001);
+
+        assertFalse(pieces.get(2).copy);
+        assertEquals(60.0, pieces.get(2).startSec, 0.001);
+        assertEquals(10.0, pieces.get(2).durationSec, 0.001);
+    }
+
+    @Test
+    public void testPlanPiecesOnKeyframeBoundaries() {
+        // 起点为文件开头、终点正好是关键帧时全部复制
+        List<SmartCutter.Piece> pieces =
+                SmartCutter.planPieces(0, 60.0, Arrays.asList(30.0, 60.0));
+        assertEquals(1, pieces.size());
+        assertTrue(pieces.get(0).copy);
+        assertEquals(60.0, pieces.get(0).durationSec, 0.001);
+    }
+
+    @Test
+    public void testPlanPiecesFallsBackToReencode() {
+        // 范围内只有一个关键帧，没有可复制的完整 GOP
+        List<SmartCutter.Piece> pieces =
+                SmartCutter.planPieces(5.0, 8.0, Arrays.asList(2.0, 6.0, 12.0));
+        assertEquals(1, pieces.size());
+        assertFalse(pieces.get(0).copy);
+        assertEquals(3.0, pieces.get(0).durationSec, 0.001);
+
+        pieces = SmartCutter.planPieces(5.0, 8.0, Collections.emptyList());
+        assertEquals(1, pieces.size());
+        assertFalse(pieces.get(0).copy);
+    }
+
+    @Test
+    public void testMatchesProfileLevel() {
+        assertTrue(SmartCutter.matchesProfileLevel("High,41\n", "High", 41));
+        assertFalse(SmartCutter.matchesProfileLevel("High,40\n", "High", 41));
+        assertFalse(SmartCutter.matchesProfileLevel("Main,41\n", "High", 41));
+        assertFalse(SmartCutter.matchesProfileLevel("", "High", 41));
+        assertFalse(SmartCutter.matchesProfileLevel(null, "High", 41));
+    }
+}